@@ -0,0 +1,96 @@
+/*** In The Name of Allah ***/
+package ghaffarian.collections;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A lock-free, thread-safe disjoint-sets (AKA union-find) data structure 
+ * over the integers [0, size).
+ * 
+ * Roots are always linked from the greater index to the smaller index,
+ * which keeps the parent pointers acyclic under concurrent unions without any locking;
+ * both the linking and the path-halving steps are done via compare-and-set.
+ * 
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class ConcurrentDisjointSets {
+    
+    private final AtomicIntegerArray parent;
+
+    /**
+     * Constructs a new disjoint-sets structure where 
+     * each integer in [0, size) is a singleton set.
+     */
+    public ConcurrentDisjointSets(int size) {
+        parent = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; ++i)
+            parent.set(i, i);
+    }
+    
+    /**
+     * Returns the representative element of the set containing the given element.
+     * Note that in the presence of concurrent unions, the result may be outdated 
+     * as soon as it is returned.
+     */
+    public int find(int x) {
+        while (true) {
+            int p = parent.get(x);
+            if (p == x)
+                return x;
+            int gp = parent.get(p);
+            if (p != gp)
+                parent.compareAndSet(x, p, gp);
+            x = gp;
+        }
+    }
+    
+    /**
+     * Merges the sets containing the given elements.
+     * 
+     * @return true if the two sets were merged by this call, or
+     *         false if the elements were already in the same set.
+     */
+    public boolean union(int a, int b) {
+        while (true) {
+            a = find(a);
+            b = find(b);
+            if (a == b)
+                return false;
+            if (a < b) {
+                int tmp = a;
+                a = b;
+                b = tmp;
+            }
+            // 'a' is now the greater root; link it under 'b'
+            if (parent.compareAndSet(a, a, b))
+                return true;
+        }
+    }
+    
+    /**
+     * Check whether the given elements are in the same set or not.
+     * This method is only reliable when no concurrent unions are in progress.
+     */
+    public boolean connected(int a, int b) {
+        return find(a) == find(b);
+    }
+    
+    /**
+     * Returns the number of disjoint sets, by counting the root elements.
+     * This method takes linear time, and is only reliable when no concurrent unions are in progress.
+     */
+    public int getSetCount() {
+        int count = 0;
+        for (int i = 0; i < parent.length(); ++i)
+            if (parent.get(i) == i)
+                ++count;
+        return count;
+    }
+    
+    /**
+     * Returns the total number of elements.
+     */
+    public int size() {
+        return parent.length();
+    }
+}
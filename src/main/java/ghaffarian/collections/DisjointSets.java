@@ -0,0 +1,95 @@
+/*** In The Name of Allah ***/
+package ghaffarian.collections;
+
+/**
+ * Disjoint-sets (AKA union-find) data structure over the integers [0, size).
+ * 
+ * This implementation uses union-by-size and path-halving, 
+ * which gives an almost constant amortized time for each operation.
+ * All data is kept in primitive arrays; no objects are allocated per element.
+ * Note that this implementation is not thread-safe;
+ * see {@link ConcurrentDisjointSets} for a lock-free concurrent version.
+ * 
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class DisjointSets {
+    
+    private final int[] parent;
+    private final int[] size;
+    private int count;
+
+    /**
+     * Constructs a new disjoint-sets structure where 
+     * each integer in [0, size) is a singleton set.
+     */
+    public DisjointSets(int size) {
+        parent = new int[size];
+        this.size = new int[size];
+        for (int i = 0; i < size; ++i) {
+            parent[i] = i;
+            this.size[i] = 1;
+        }
+        count = size;
+    }
+    
+    /**
+     * Returns the representative element of the set containing the given element.
+     */
+    public int find(int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+    
+    /**
+     * Merges the sets containing the given elements.
+     * 
+     * @return true if the two sets were merged, or
+     *         false if the elements were already in the same set.
+     */
+    public boolean union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a == b)
+            return false;
+        if (size[a] < size[b]) {
+            int tmp = a;
+            a = b;
+            b = tmp;
+        }
+        parent[b] = a;
+        size[a] += size[b];
+        --count;
+        return true;
+    }
+    
+    /**
+     * Check whether the given elements are in the same set or not.
+     */
+    public boolean connected(int a, int b) {
+        return find(a) == find(b);
+    }
+    
+    /**
+     * Returns the size of the set containing the given element.
+     */
+    public int getSetSize(int x) {
+        return size[find(x)];
+    }
+    
+    /**
+     * Returns the current number of disjoint sets.
+     */
+    public int getSetCount() {
+        return count;
+    }
+    
+    /**
+     * Returns the total number of elements.
+     */
+    public int size() {
+        return parent.length;
+    }
+}
@@ -0,0 +1,181 @@
+/*** In The Name of Allah ***/
+package ghaffarian.collections;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An indexed d-ary min-heap of integer items in [0, capacity), with double priorities.
+ * 
+ * Each item can be in the heap at most once, and its priority can be decreased in place;
+ * this makes the heap suitable for algorithms such as Dijkstra and Prim.
+ * All data is kept in primitive arrays, so no objects are allocated by heap operations.
+ * A higher arity (e.g. 4) gives shallower heaps and better cache behavior than binary heaps.
+ * 
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class IndexedMinHeap {
+    
+    private final int arity;
+    private final int[] heap;
+    private final int[] position;
+    private final double[] priority;
+    private int size;
+
+    /**
+     * Constructs a new, empty 4-ary heap for items in [0, capacity).
+     */
+    public IndexedMinHeap(int capacity) {
+        this(capacity, 4);
+    }
+
+    /**
+     * Constructs a new, empty heap with the given arity, for items in [0, capacity).
+     */
+    public IndexedMinHeap(int capacity, int arity) {
+        if (arity < 2)
+            throw new IllegalArgumentException("Heap arity must be at least 2!");
+        this.arity = arity;
+        heap = new int[capacity];
+        position = new int[capacity];
+        priority = new double[capacity];
+        Arrays.fill(position, -1);
+        size = 0;
+    }
+    
+    /**
+     * Returns the number of items in this heap.
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Check whether this heap is empty or not.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Check whether the given item is in this heap or not.
+     */
+    public boolean contains(int item) {
+        return position[item] >= 0;
+    }
+    
+    /**
+     * Returns the priority of the given item; only valid if the item is in this heap.
+     */
+    public double getPriority(int item) {
+        return priority[item];
+    }
+    
+    /**
+     * Inserts the given item with the given priority;
+     * or if the item is already in this heap, decreases its priority to the given value
+     * (if the given value is not smaller than the current priority, nothing is changed).
+     * 
+     * @return true if the heap was modified; otherwise false.
+     */
+    public boolean offer(int item, double prio) {
+        int pos = position[item];
+        if (pos < 0) {
+            pos = size++;
+            heap[pos] = item;
+            position[item] = pos;
+        } else if (prio >= priority[item])
+            return false;
+        priority[item] = prio;
+        siftUp(pos);
+        return true;
+    }
+    
+    /**
+     * Returns the item with the minimum priority, without removing it.
+     */
+    public int peek() {
+        if (size == 0)
+            throw new NoSuchElementException("Heap is empty!");
+        return heap[0];
+    }
+    
+    /**
+     * Returns the minimum priority in this heap.
+     */
+    public double peekPriority() {
+        if (size == 0)
+            throw new NoSuchElementException("Heap is empty!");
+        return priority[heap[0]];
+    }
+    
+    /**
+     * Removes and returns the item with the minimum priority.
+     */
+    public int poll() {
+        if (size == 0)
+            throw new NoSuchElementException("Heap is empty!");
+        int min = heap[0];
+        position[min] = -1;
+        if (--size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+    
+    /**
+     * Removes all items from this heap.
+     * This takes time proportional to the current size, not the capacity.
+     */
+    public void clear() {
+        for (int i = 0; i < size; ++i)
+            position[heap[i]] = -1;
+        size = 0;
+    }
+    
+    private void siftUp(int pos) {
+        int item = heap[pos];
+        double prio = priority[item];
+        while (pos > 0) {
+            int parentPos = (pos - 1) / arity;
+            int parent = heap[parentPos];
+            if (priority[parent] <= prio)
+                break;
+            heap[pos] = parent;
+            position[parent] = pos;
+            pos = parentPos;
+        }
+        heap[pos] = item;
+        position[item] = pos;
+    }
+    
+    private void siftDown(int pos) {
+        int item = heap[pos];
+        double prio = priority[item];
+        while (true) {
+            int first = pos * arity + 1;
+            if (first >= size)
+                break;
+            int last = Math.min(first + arity, size);
+            int minPos = first;
+            double minPrio = priority[heap[first]];
+            for (int c = first + 1; c < last; ++c) {
+                double p = priority[heap[c]];
+                if (p < minPrio) {
+                    minPrio = p;
+                    minPos = c;
+                }
+            }
+            if (minPrio >= prio)
+                break;
+            heap[pos] = heap[minPos];
+            position[heap[pos]] = pos;
+            pos = minPos;
+        }
+        heap[pos] = item;
+        position[item] = pos;
+    }
+}
@@ -0,0 +1,129 @@
+/*** In The Name of Allah ***/
+package ghaffarian.collections;
+
+import java.util.Arrays;
+
+/**
+ * A dictionary which interns values (such as vertex or edge labels), assigning each distinct value
+ * a small integer id in [0, size), in the order of their first appearance.
+ *
+ * Interning a value returns the canonical instance of all equal values, so repeated labels share
+ * a single object; and the ids allow labels to be stored in primitive arrays, and compared as ints.
+ * The null value is never stored; its id is -1 (the same as any value not in the dictionary).
+ *
+ * Ids are found by an open-addressing hash table of primitive ints, so the dictionary allocates
+ * no objects per value. This class is not thread-safe.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class LabelDictionary<T> {
+
+    private Object[] values;
+    private int[] hashes;
+    // slots of the hash table hold (id + 1), or 0 if empty
+    private int[] table;
+    private int size;
+
+    /**
+     * Constructs a new, empty dictionary.
+     */
+    public LabelDictionary() {
+        values = new Object[16];
+        hashes = new int[16];
+        table = new int[32];
+        size = 0;
+    }
+
+    /**
+     * Returns the number of distinct values in this dictionary.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the id of the given value, adding it to this dictionary if it is not already in it;
+     * or -1 if the value is null.
+     */
+    public int getId(T value) {
+        if (value == null)
+            return -1;
+        int hash = spread(value.hashCode());
+        int slot = find(value, hash);
+        if (table[slot] != 0)
+            return table[slot] - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, 2 * size);
+            hashes = Arrays.copyOf(hashes, 2 * size);
+        }
+        values[size] = value;
+        hashes[size] = hash;
+        table[slot] = ++size;
+        // keep the load factor of the table at most 1/2
+        if (2 * size > table.length)
+            rehash();
+        return size - 1;
+    }
+
+    /**
+     * Returns the id of the given value; or -1 if it is null, or not in this dictionary.
+     */
+    public int indexOf(T value) {
+        if (value == null)
+            return -1;
+        return table[find(value, spread(value.hashCode()))] - 1;
+    }
+
+    /**
+     * Returns the value with the given id; or null if the id is -1.
+     */
+    public T get(int id) {
+        if (id == -1)
+            return null;
+        if (id < 0 || id >= size)
+            throw new IndexOutOfBoundsException("No such id in this dictionary!");
+        return (T) values[id];
+    }
+
+    /**
+     * Returns the canonical instance of the given value (the first equal value added),
+     * adding it to this dictionary if it is not already in it.
+     */
+    public T intern(T value) {
+        return get(getId(value));
+    }
+
+    /**
+     * Returns the slot of the table holding the given value, or the empty slot where it belongs.
+     */
+    private int find(Object value, int hash) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            int id = table[slot] - 1;
+            if (hashes[id] == hash && value.equals(values[id]))
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        table = new int[2 * table.length];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; ++id) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != 0)
+                slot = (slot + 1) & mask;
+            table[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Spreads the bits of the given hash code, as linear probing is sensitive to poor hashes.
+     */
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
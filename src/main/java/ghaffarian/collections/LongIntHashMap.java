@@ -0,0 +1,160 @@
+/*** In The Name of Allah ***/
+package ghaffarian.collections;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from primitive long keys to non-negative int values,
+ * by open addressing with linear probing over primitive arrays.
+ *
+ * No objects are allocated per entry, so the map takes about 24 bytes per entry
+ * (at its maximum load factor of 1/2, after growth); compared to about 80 bytes for
+ * a HashMap of boxed keys and values. Removal is done by shifting the following entries
+ * of the probe sequence back (without tombstones), so lookups never slow down over time.
+ * This class is not thread-safe.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class LongIntHashMap {
+
+    private long[] keys;
+    // values are stored as (value + 1), so 0 marks an empty slot
+    private int[] values;
+    private int size;
+
+    /**
+     * Constructs a new, empty map.
+     */
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    /**
+     * Constructs a new, empty map with room for the given number of entries without growing.
+     */
+    public LongIntHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity < 2 * expectedSize)
+            capacity <<= 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        size = 0;
+    }
+
+    /**
+     * Returns the number of entries in this map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check whether this map is empty or not.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value of the given key; or -1 if the key is not in this map.
+     */
+    public int get(long key) {
+        return values[find(key)] - 1;
+    }
+
+    /**
+     * Check whether the given key is in this map or not.
+     */
+    public boolean containsKey(long key) {
+        return values[find(key)] != 0;
+    }
+
+    /**
+     * Associates the given (non-negative) value with the given key;
+     * and returns the previous value of the key, or -1 if it was not in this map.
+     */
+    public int put(long key, int value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Value must be non-negative!");
+        int slot = find(key);
+        int previous = values[slot] - 1;
+        keys[slot] = key;
+        values[slot] = value + 1;
+        if (previous < 0 && 2 * ++size > keys.length)
+            grow();
+        return previous;
+    }
+
+    /**
+     * Removes the given key from this map;
+     * and returns its value, or -1 if it was not in this map.
+     */
+    public int remove(long key) {
+        int slot = find(key);
+        int previous = values[slot] - 1;
+        if (previous < 0)
+            return -1;
+        --size;
+        // shift back the following entries whose probe sequences pass through the freed slot
+        int mask = keys.length - 1;
+        int free = slot;
+        for (int next = (free + 1) & mask; values[next] != 0; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+        values[free] = 0;
+        return previous;
+    }
+
+    /**
+     * Removes all entries of this map.
+     */
+    public void clear() {
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /**
+     * Returns the slot holding the given key, or the empty slot where it belongs.
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != 0 && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[2 * oldKeys.length];
+        values = new int[2 * oldValues.length];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldValues[i] != 0) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != 0)
+                    slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Mixes the bits of the given key (the finalizer of the 64-bit MurmurHash3).
+     */
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        key *= 0xC4CEB9FE1A85EC53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
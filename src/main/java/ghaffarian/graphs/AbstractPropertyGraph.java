@@ -1,11 +1,11 @@
 /*** In The Name of Allah ***/
 package ghaffarian.graphs;
 
-import java.util.ArrayDeque;
+import ghaffarian.collections.DisjointSets;
+import ghaffarian.collections.MatcherLinkedHashMap;
+import ghaffarian.collections.MatcherLinkedHashSet;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -89,6 +89,32 @@ public abstract class AbstractPropertyGraph<V,E> implements Graph<V,E> {
      */
     protected abstract Matcher<Edge<V,E>> getEdgesMatcher();
     
+    /**
+     * Returns a new empty map for associating vertices of this graph with other values.
+     * The returned map uses the same notion of vertex equality as this graph;
+     * a plain <tt>HashMap</tt> is used when the default matcher is in place.
+     */
+    protected <T> Map<V, T> newVertexMap(int capacity) {
+        Matcher<V> matcher = getVertexMatcher();
+        if (matcher.getClass() == DefaultMatcher.class)
+            return new HashMap<>(capacity);
+        return new MatcherLinkedHashMap<>(capacity, matcher);
+    }
+    
+    /**
+     * Returns a new empty set of vertices, using the same notion of vertex equality as this graph.
+     */
+    protected Set<V> newVertexSet(int capacity) {
+        return new MatcherLinkedHashSet<>(capacity, getVertexMatcher());
+    }
+    
+    /**
+     * Returns a new empty set of edges, using the same notion of edge equality as this graph.
+     */
+    protected Set<Edge<V,E>> newEdgeSet(int capacity) {
+        return new MatcherLinkedHashSet<>(capacity, getEdgesMatcher());
+    }
+    
     @Override
     public int vertexCount() {
         return allVertices.size();
@@ -207,23 +233,23 @@ public abstract class AbstractPropertyGraph<V,E> implements Graph<V,E> {
     
     @Override
     public boolean isConnected() {
-        Set<V> visited = new HashSet<>();
-        Deque<V> visiting = new ArrayDeque<>();
-        visiting.add(allVertices.iterator().next());
-        while (!visiting.isEmpty()) {
-            V next = visiting.remove();
-            visited.add(next);
-            for (Edge<V,E> out: outEdges.get(next)) {
-                if (!visited.contains(out.target))
-                    visiting.add(out.target);
-            }
-            for (Edge<V,E> in: inEdges.get(next)) {
-                if (!visited.contains(in.source))
-                    visiting.add(in.source);
-            }
+        int n = allVertices.size();
+        if (n <= 1)
+            return true;
+        if (allEdges.size() < n - 1)
+            return false;
+        Map<V, Integer> index = newVertexMap(Math.max(16, (int) (n / 0.75f) + 1));
+        int idx = 0;
+        for (V v: allVertices)
+            index.put(v, idx++);
+        DisjointSets components = new DisjointSets(n);
+        for (Edge<V,E> edge: allEdges) {
+            // short-circuit as soon as all vertices are joined
+            if (components.union(index.get(edge.source), index.get(edge.target)) && 
+                    components.getSetCount() == 1)
+                return true;
         }
-        return visited.size() == allVertices.size();
-        // return visited.containsAll(allVertices);
+        return false;
     }
 
     /**
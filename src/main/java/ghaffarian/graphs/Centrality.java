@@ -0,0 +1,196 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Vertex centrality measures, computed over a {@link CompactGraph}.
+ *
+ * All measures return primitive score arrays indexed by vertex indices.
+ * Distance-based measures treat the graph as unweighted, and follow edge directions
+ * for directed graphs. In parallel mode, the per-source searches are distributed over
+ * the common fork-join pool, where each task has its own search arrays.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class Centrality {
+
+    /**
+     * Returns the degree centrality of each vertex of the given graph.
+     */
+    public static double[] degree(Graph<?,?> graph) {
+        return degree(new CompactGraph<>(graph));
+    }
+
+    /**
+     * Returns the degree centrality of each vertex of the given graph;
+     * i.e. its number of incident edges (in-degree plus out-degree, for directed graphs),
+     * normalized by the maximum possible degree (n - 1).
+     */
+    public static double[] degree(CompactGraph<?,?> graph) {
+        int n = graph.vertexCount();
+        double[] scores = new double[n];
+        double norm = n > 1 ? 1.0 / (n - 1) : 1.0;
+        for (int v = 0; v < n; ++v) {
+            int degree = graph.getOutDegree(v);
+            if (graph.isDirected())
+                degree += graph.getInDegree(v);
+            scores[v] = degree * norm;
+        }
+        return scores;
+    }
+
+    /**
+     * Returns the closeness centrality of each vertex of the given graph.
+     */
+    public static double[] closeness(Graph<?,?> graph) {
+        return closeness(new CompactGraph<>(graph), true);
+    }
+
+    /**
+     * Returns the closeness centrality of each vertex of the given graph.
+     * To handle disconnected graphs, the Wasserman-Faust variant is used:
+     * for a vertex reaching r other vertices with a total distance of s,
+     * closeness is (r / s) * (r / (n - 1)); vertices reaching no other vertex have zero closeness.
+     */
+    public static double[] closeness(CompactGraph<?,?> graph, boolean parallel) {
+        int n = graph.vertexCount();
+        double[] scores = new double[n];
+        forEachChunk(n, parallel, (from, to) -> {
+            int[] dist = new int[n];
+            int[] queue = new int[n];
+            Arrays.fill(dist, -1);
+            for (int s = from; s < to; ++s) {
+                int head = 0, tail = 0;
+                long total = 0;
+                dist[s] = 0;
+                queue[tail++] = s;
+                while (head < tail) {
+                    int u = queue[head++];
+                    total += dist[u];
+                    for (int i = graph.outStart[u]; i < graph.outStart[u + 1]; ++i) {
+                        int w = graph.outTarget[i];
+                        if (dist[w] < 0) {
+                            dist[w] = dist[u] + 1;
+                            queue[tail++] = w;
+                        }
+                    }
+                }
+                int reached = tail - 1;
+                scores[s] = reached == 0 ? 0 : ((double) reached / total) * ((double) reached / (n - 1));
+                for (int i = 0; i < tail; ++i)
+                    dist[queue[i]] = -1;
+            }
+            return null;
+        });
+        return scores;
+    }
+
+    /**
+     * Returns the betweenness centrality of each vertex of the given graph.
+     */
+    public static double[] betweenness(Graph<?,?> graph) {
+        return betweenness(new CompactGraph<>(graph), true);
+    }
+
+    /**
+     * Returns the (unnormalized) betweenness centrality of each vertex of the given graph,
+     * using Brandes' algorithm; i.e. the sum over all pairs of other vertices of the fraction
+     * of shortest paths between the pair which pass through the vertex.
+     * For undirected graphs, each unordered pair is counted once.
+     */
+    public static double[] betweenness(CompactGraph<?,?> graph, boolean parallel) {
+        int n = graph.vertexCount();
+        double[] scores = new double[n];
+        forEachChunk(n, parallel, (from, to) -> {
+            double[] local = new double[n];
+            int[] dist = new int[n];
+            // path counts grow exponentially on layered graphs, so they are kept as doubles
+            double[] sigma = new double[n];
+            double[] delta = new double[n];
+            int[] order = new int[n];
+            Arrays.fill(dist, -1);
+            for (int s = from; s < to; ++s) {
+                // forward BFS, counting shortest paths
+                int head = 0, tail = 0;
+                dist[s] = 0;
+                sigma[s] = 1;
+                order[tail++] = s;
+                while (head < tail) {
+                    int u = order[head++];
+                    for (int i = graph.outStart[u]; i < graph.outStart[u + 1]; ++i) {
+                        int w = graph.outTarget[i];
+                        if (dist[w] < 0) {
+                            dist[w] = dist[u] + 1;
+                            order[tail++] = w;
+                        }
+                        if (dist[w] == dist[u] + 1)
+                            sigma[w] += sigma[u];
+                    }
+                }
+                // backward accumulation of dependencies, in reverse BFS order
+                for (int k = tail - 1; k > 0; --k) {
+                    int w = order[k];
+                    double coeff = (1 + delta[w]) / sigma[w];
+                    for (int i = graph.inStart[w]; i < graph.inStart[w + 1]; ++i) {
+                        int u = graph.inSource[i];
+                        if (dist[u] == dist[w] - 1)
+                            delta[u] += sigma[u] * coeff;
+                    }
+                    local[w] += delta[w];
+                }
+                for (int k = 0; k < tail; ++k) {
+                    int v = order[k];
+                    dist[v] = -1;
+                    sigma[v] = 0;
+                    delta[v] = 0;
+                }
+            }
+            return local;
+        }, scores);
+        if (!graph.isDirected())
+            for (int v = 0; v < n; ++v)
+                scores[v] /= 2;
+        return scores;
+    }
+
+    /**
+     * A task over a range of source vertices, returning an array of
+     * partial scores to be summed up (or null if there is nothing to sum).
+     */
+    private interface RangeTask {
+        double[] run(int from, int to);
+    }
+
+    private static void forEachChunk(int n, boolean parallel, RangeTask task) {
+        forEachChunk(n, parallel, task, null);
+    }
+
+    /**
+     * Splits the range [0, n) into chunks and runs the given task on each chunk;
+     * partial results of the chunks (if any) are summed into the given result array.
+     */
+    private static void forEachChunk(int n, boolean parallel, RangeTask task, double[] result) {
+        if (!parallel || n < 2) {
+            double[] partial = task.run(0, n);
+            if (partial != null)
+                add(result, partial);
+            return;
+        }
+        int chunks = Math.min(n, 4 * Runtime.getRuntime().availableProcessors());
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            double[] partial = task.run((int) ((long) n * c / chunks), (int) ((long) n * (c + 1) / chunks));
+            if (partial != null) {
+                synchronized (result) {
+                    add(result, partial);
+                }
+            }
+        });
+    }
+
+    private static void add(double[] result, double[] partial) {
+        for (int v = 0; v < partial.length; ++v)
+            result[v] += partial[v];
+    }
+}
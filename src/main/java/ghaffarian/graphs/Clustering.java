@@ -0,0 +1,197 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Triangle counts and clustering coefficients of the vertices of a graph.
+ *
+ * The graph is treated as simple and undirected; i.e. for directed graphs edge directions
+ * are ignored, and self-loops and parallel edges are disregarded.
+ * Triangles are enumerated by orienting each edge from its lower-degree end-point
+ * to its higher-degree end-point, and intersecting the sorted oriented adjacency lists
+ * of the two end-points of each edge; so each triangle is found exactly once, and high-degree
+ * vertices never have to scan their full adjacency. In parallel mode, vertices are processed
+ * concurrently on the common fork-join pool.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class Clustering<V,E> {
+
+    public final CompactGraph<V,E> GRAPH;
+
+    private final int[] degree;
+    private final long[] triangles;
+    private final long totalTriangles;
+
+    /**
+     * Count the triangles of the given graph, in parallel.
+     */
+    public Clustering(Graph<V,E> graph) {
+        this(new CompactGraph<>(graph), true);
+    }
+
+    /**
+     * Count the triangles of the given compact graph.
+     */
+    public Clustering(CompactGraph<V,E> graph, boolean parallel) {
+        GRAPH = graph;
+        int n = graph.vertexCount();
+        int[][] simple = graph.buildSimpleAdjacency();
+        int[] start = simple[0];
+        int[] adj = simple[1];
+        degree = new int[n];
+        for (int v = 0; v < n; ++v)
+            degree[v] = start[v + 1] - start[v];
+        // keep only the neighbors of higher rank (degree, then index); sorted order is preserved
+        int[] fwdStart = new int[n + 1];
+        for (int v = 0; v < n; ++v) {
+            int count = 0;
+            for (int i = start[v]; i < start[v + 1]; ++i)
+                if (precedes(v, adj[i]))
+                    ++count;
+            fwdStart[v + 1] = fwdStart[v] + count;
+        }
+        int[] fwd = new int[fwdStart[n]];
+        for (int v = 0; v < n; ++v) {
+            int pos = fwdStart[v];
+            for (int i = start[v]; i < start[v + 1]; ++i)
+                if (precedes(v, adj[i]))
+                    fwd[pos++] = adj[i];
+        }
+        AtomicLongArray counts = new AtomicLongArray(n);
+        IntStream vertices = IntStream.range(0, n);
+        if (parallel)
+            vertices = vertices.parallel();
+        vertices.forEach(u -> {
+            long local = 0;
+            int uEnd = fwdStart[u + 1];
+            for (int i = fwdStart[u]; i < uEnd; ++i) {
+                int w = fwd[i];
+                // merge-intersect the oriented lists of u and w
+                int a = fwdStart[u], b = fwdStart[w];
+                int wEnd = fwdStart[w + 1];
+                long found = 0;
+                while (a < uEnd && b < wEnd) {
+                    int x = fwd[a], y = fwd[b];
+                    if (x < y)
+                        ++a;
+                    else if (x > y)
+                        ++b;
+                    else {
+                        counts.incrementAndGet(x);
+                        ++found;
+                        ++a;
+                        ++b;
+                    }
+                }
+                if (found > 0) {
+                    counts.addAndGet(w, found);
+                    local += found;
+                }
+            }
+            if (local > 0)
+                counts.addAndGet(u, local);
+        });
+        triangles = new long[n];
+        long sum = 0;
+        for (int v = 0; v < n; ++v) {
+            triangles[v] = counts.get(v);
+            sum += triangles[v];
+        }
+        totalTriangles = sum / 3;
+    }
+
+    /**
+     * Check whether vertex u comes before vertex w in the (degree, index) ordering.
+     */
+    private boolean precedes(int u, int w) {
+        return degree[u] < degree[w] || (degree[u] == degree[w] && u < w);
+    }
+
+    /**
+     * Returns the total number of triangles in the graph.
+     */
+    public long getTriangleCount() {
+        return totalTriangles;
+    }
+
+    /**
+     * Returns the number of triangles containing the given vertex index.
+     */
+    public long getTrianglesOfIndex(int v) {
+        return triangles[v];
+    }
+
+    /**
+     * Returns the number of triangles containing the given vertex.
+     */
+    public long getTriangles(V v) {
+        return triangles[checkedIndexOf(v)];
+    }
+
+    /**
+     * Return a copy of the per-vertex triangle counts, indexed by vertex indices.
+     */
+    public long[] copyTriangleCounts() {
+        return triangles.clone();
+    }
+
+    /**
+     * Returns the local clustering coefficient of the given vertex index; i.e. the fraction
+     * of pairs of its neighbors which are adjacent. Vertices with less than 2 neighbors
+     * have a coefficient of zero.
+     */
+    public double getLocalCoefficientOfIndex(int v) {
+        long pairs = (long) degree[v] * (degree[v] - 1) / 2;
+        return pairs == 0 ? 0 : (double) triangles[v] / pairs;
+    }
+
+    /**
+     * Returns the local clustering coefficient of the given vertex.
+     */
+    public double getLocalCoefficient(V v) {
+        return getLocalCoefficientOfIndex(checkedIndexOf(v));
+    }
+
+    /**
+     * Return the local clustering coefficients of all vertices, indexed by vertex indices.
+     */
+    public double[] copyLocalCoefficients() {
+        double[] coefficients = new double[degree.length];
+        for (int v = 0; v < degree.length; ++v)
+            coefficients[v] = getLocalCoefficientOfIndex(v);
+        return coefficients;
+    }
+
+    /**
+     * Returns the average of the local clustering coefficients over all vertices.
+     */
+    public double getAverageCoefficient() {
+        if (degree.length == 0)
+            return 0;
+        double sum = 0;
+        for (int v = 0; v < degree.length; ++v)
+            sum += getLocalCoefficientOfIndex(v);
+        return sum / degree.length;
+    }
+
+    /**
+     * Returns the global clustering coefficient (transitivity) of the graph;
+     * i.e. the ratio of closed triplets to all connected triplets of vertices.
+     */
+    public double getGlobalCoefficient() {
+        long triplets = 0;
+        for (int d: degree)
+            triplets += (long) d * (d - 1) / 2;
+        return triplets == 0 ? 0 : 3.0 * totalTriangles / triplets;
+    }
+
+    private int checkedIndexOf(V v) {
+        int idx = GRAPH.indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return idx;
+    }
+}
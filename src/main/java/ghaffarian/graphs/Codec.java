@@ -0,0 +1,77 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A binary encoding of values of a type; used for storing vertices and edge labels on disk.
+ * Decoding what was encoded must result in an equal value. Codecs never receive null values;
+ * nulls (such as missing edge labels) are handled by the stores themselves.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public interface Codec<T> {
+
+    /**
+     * Writes the given (non-null) value to the given output.
+     */
+    public void encode(T value, DataOutput out) throws IOException;
+
+    /**
+     * Reads a value from the given input.
+     */
+    public T decode(DataInput in) throws IOException;
+
+    /**
+     * Returns a codec for strings, in modified UTF-8 (as by {@link DataOutput#writeUTF}).
+     */
+    public static Codec<String> ofString() {
+        return new Codec<String>() {
+            @Override
+            public void encode(String value, DataOutput out) throws IOException {
+                out.writeUTF(value);
+            }
+
+            @Override
+            public String decode(DataInput in) throws IOException {
+                return in.readUTF();
+            }
+        };
+    }
+
+    /**
+     * Returns a codec for integers, in 4 bytes.
+     */
+    public static Codec<Integer> ofInteger() {
+        return new Codec<Integer>() {
+            @Override
+            public void encode(Integer value, DataOutput out) throws IOException {
+                out.writeInt(value);
+            }
+
+            @Override
+            public Integer decode(DataInput in) throws IOException {
+                return in.readInt();
+            }
+        };
+    }
+
+    /**
+     * Returns a codec for long integers, in 8 bytes.
+     */
+    public static Codec<Long> ofLong() {
+        return new Codec<Long>() {
+            @Override
+            public void encode(Long value, DataOutput out) throws IOException {
+                out.writeLong(value);
+            }
+
+            @Override
+            public Long decode(DataInput in) throws IOException {
+                return in.readLong();
+            }
+        };
+    }
+}
@@ -0,0 +1,788 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import ghaffarian.collections.DisjointSets;
+import ghaffarian.collections.LabelDictionary;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A mutable graph (directed or undirected) whose edges are stored in columns of ints,
+ * instead of as edge objects in several hash-sets.
+ *
+ * Each vertex is assigned an id, and each edge is a row of the columns: the ids of its source,
+ * target and label (labels are interned by a {@link LabelDictionary}). The outgoing and incoming
+ * edges of each vertex form doubly-linked lists threaded through the columns, so edges are added
+ * and removed in constant time; and a hash table of edge ids (keyed by source, target and label)
+ * keeps the edges a set. Removed vertices and edges leave tombstones, whose ids are kept in free
+ * lists and reused. So an edge takes about 50 bytes (with the slack of growth), without any
+ * objects per edge.
+ *
+ * Edge objects are only created on demand, by the methods of the Graph interface; for iterating
+ * without allocating per edge, use an {@link EdgeCursor} (see {@link #cursor()}), which is
+ * a flyweight over the rows of the columns.
+ *
+ * Undirected graphs follow the semantics of {@link UndiGraph}: the incoming and outgoing edges of
+ * a vertex follow the orientation in which the edges were added, and edges are found in either
+ * orientation. Vertices are matched by their own equals method, and must not be null.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class ColumnarGraph<V,E> implements Graph<V,E> {
+
+    private final boolean directed;
+    private final LabelDictionary<E> labels;
+
+    // vertex columns; removed vertices are null
+    private V[] vertices;
+    private final Map<V, Integer> index;
+    private int[] firstOut;
+    private int[] firstIn;
+    private int[] outDegree;
+    private int[] inDegree;
+    private int[] freeVertices;
+    private int freeVertexCount;
+    private int vertexTop;
+    private int vertexCount;
+
+    // edge columns; removed edges have a source of -1, and are linked by nextOut in the free list
+    private int[] source;
+    private int[] target;
+    private int[] label;
+    private int[] nextOut;
+    private int[] prevOut;
+    private int[] nextIn;
+    private int[] prevIn;
+    private int freeEdge;
+    private int edgeTop;
+    private int edgeCount;
+
+    // hash table of edge ids; slots hold (id + 1), or 0 if empty
+    private int[] edgeTable;
+
+    /**
+     * Construct a new empty graph, which is directed or undirected.
+     */
+    public ColumnarGraph(boolean directed) {
+        this(directed, new LabelDictionary<>());
+    }
+
+    /**
+     * Construct a new empty graph, which is directed or undirected, whose edge labels are interned
+     * by the given dictionary (which may be shared among graphs).
+     */
+    public ColumnarGraph(boolean directed, LabelDictionary<E> labels) {
+        this.directed = directed;
+        this.labels = labels;
+        vertices = (V[]) new Object[16];
+        index = new HashMap<>();
+        firstOut = new int[16];
+        firstIn = new int[16];
+        outDegree = new int[16];
+        inDegree = new int[16];
+        freeVertices = new int[16];
+        source = new int[16];
+        target = new int[16];
+        label = new int[16];
+        nextOut = new int[16];
+        prevOut = new int[16];
+        nextIn = new int[16];
+        prevIn = new int[16];
+        freeEdge = -1;
+        edgeTable = new int[32];
+    }
+
+    /**
+     * Construct a new columnar copy of the given graph.
+     */
+    public ColumnarGraph(Graph<V,E> graph) {
+        this(graph.isDirected());
+        Iterator<V> vertexIter = graph.allVerticesIterator();
+        while (vertexIter.hasNext())
+            addVertex(vertexIter.next());
+        Iterator<Edge<V,E>> edgeIter = graph.allEdgesIterator();
+        while (edgeIter.hasNext())
+            addEdge(edgeIter.next());
+    }
+
+    /**
+     * Returns the dictionary interning the edge labels of this graph.
+     */
+    public LabelDictionary<E> getLabelDictionary() {
+        return labels;
+    }
+
+    /**
+     * Returns the id of the given vertex; or -1 if it is not in this graph.
+     */
+    public int indexOf(V v) {
+        Integer id = index.get(v);
+        return id == null ? -1 : id;
+    }
+
+    private int checkedIndexOf(V v) {
+        Integer id = index.get(v);
+        if (id == null)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return id;
+    }
+
+    /**
+     * Returns the vertex with the given id.
+     */
+    public V getVertex(int id) {
+        return vertices[id];
+    }
+
+    /**
+     * Returns a new edge object for the given edge id.
+     */
+    private Edge<V,E> edgeOf(int e) {
+        return new Edge<>(vertices[source[e]], labels.get(label[e]), vertices[target[e]]);
+    }
+
+    /**
+     * Returns the hash table slot of an edge id, from its columns.
+     */
+    private static int hash(int s, int t, int l) {
+        int hash = s * 0x9E3779B9 + t * 0x85EBCA6B + l * 0xC2B2AE35;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns the table slot holding the edge with the given columns, or the empty slot where it belongs.
+     */
+    private int findSlot(int s, int t, int l) {
+        int mask = edgeTable.length - 1;
+        int slot = hash(s, t, l) & mask;
+        while (edgeTable[slot] != 0) {
+            int e = edgeTable[slot] - 1;
+            if (source[e] == s && target[e] == t && label[e] == l)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the id of the edge with the given columns; or -1 if there is none.
+     */
+    private int findEdge(int s, int t, int l) {
+        return edgeTable[findSlot(s, t, l)] - 1;
+    }
+
+    /**
+     * Returns the id of the given edge (or its reverse, for undirected graphs); or -1 if there is none.
+     */
+    private int findEdge(Edge<V,E> e) {
+        Integer s = index.get(e.source);
+        Integer t = index.get(e.target);
+        int l = labels.indexOf(e.label);
+        // a label not in the dictionary is on no edge
+        if (s == null || t == null || (l < 0 && e.label != null))
+            return -1;
+        int id = findEdge(s, t, l);
+        if (id < 0 && !directed)
+            id = findEdge(t, s, l);
+        return id;
+    }
+
+    private void unindex(int e) {
+        int mask = edgeTable.length - 1;
+        int free = findSlot(source[e], target[e], label[e]);
+        // shift back the following entries whose probe sequences pass through the freed slot
+        for (int next = (free + 1) & mask; edgeTable[next] != 0; next = (next + 1) & mask) {
+            int id = edgeTable[next] - 1;
+            int home = hash(source[id], target[id], label[id]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                edgeTable[free] = edgeTable[next];
+                free = next;
+            }
+        }
+        edgeTable[free] = 0;
+    }
+
+    private void rehash() {
+        edgeTable = new int[2 * edgeTable.length];
+        int mask = edgeTable.length - 1;
+        for (int e = 0; e < edgeTop; ++e) {
+            if (source[e] >= 0) {
+                int slot = hash(source[e], target[e], label[e]) & mask;
+                while (edgeTable[slot] != 0)
+                    slot = (slot + 1) & mask;
+                edgeTable[slot] = e + 1;
+            }
+        }
+    }
+
+    /**
+     * Adds a row for an edge with the given columns, and links it to the lists of its end-points.
+     */
+    private void insertEdge(int s, int t, int l, int slot) {
+        int e;
+        if (freeEdge >= 0) {
+            e = freeEdge;
+            freeEdge = nextOut[e];
+        } else {
+            if (edgeTop == source.length) {
+                int capacity = edgeTop + (edgeTop >> 1);
+                source = Arrays.copyOf(source, capacity);
+                target = Arrays.copyOf(target, capacity);
+                label = Arrays.copyOf(label, capacity);
+                nextOut = Arrays.copyOf(nextOut, capacity);
+                prevOut = Arrays.copyOf(prevOut, capacity);
+                nextIn = Arrays.copyOf(nextIn, capacity);
+                prevIn = Arrays.copyOf(prevIn, capacity);
+            }
+            e = edgeTop++;
+        }
+        source[e] = s;
+        target[e] = t;
+        label[e] = l;
+        // new edges are linked at the heads of the lists
+        prevOut[e] = -1;
+        nextOut[e] = firstOut[s];
+        if (firstOut[s] >= 0)
+            prevOut[firstOut[s]] = e;
+        firstOut[s] = e;
+        prevIn[e] = -1;
+        nextIn[e] = firstIn[t];
+        if (firstIn[t] >= 0)
+            prevIn[firstIn[t]] = e;
+        firstIn[t] = e;
+        ++outDegree[s];
+        ++inDegree[t];
+        edgeTable[slot] = e + 1;
+        if (2 * ++edgeCount > edgeTable.length)
+            rehash();
+    }
+
+    /**
+     * Unlinks the given edge from the lists of its end-points, and releases its row.
+     */
+    private void deleteEdge(int e) {
+        unindex(e);
+        int s = source[e];
+        int t = target[e];
+        if (prevOut[e] >= 0)
+            nextOut[prevOut[e]] = nextOut[e];
+        else
+            firstOut[s] = nextOut[e];
+        if (nextOut[e] >= 0)
+            prevOut[nextOut[e]] = prevOut[e];
+        if (prevIn[e] >= 0)
+            nextIn[prevIn[e]] = nextIn[e];
+        else
+            firstIn[t] = nextIn[e];
+        if (nextIn[e] >= 0)
+            prevIn[nextIn[e]] = prevIn[e];
+        --outDegree[s];
+        --inDegree[t];
+        source[e] = -1;
+        nextOut[e] = freeEdge;
+        freeEdge = e;
+        --edgeCount;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @Override
+    public boolean addVertex(V v) {
+        if (v == null)
+            throw new IllegalArgumentException("Vertex is null!");
+        if (index.containsKey(v))
+            return false;
+        int id;
+        if (freeVertexCount > 0)
+            id = freeVertices[--freeVertexCount];
+        else {
+            if (vertexTop == vertices.length) {
+                int capacity = vertexTop + (vertexTop >> 1);
+                vertices = Arrays.copyOf(vertices, capacity);
+                firstOut = Arrays.copyOf(firstOut, capacity);
+                firstIn = Arrays.copyOf(firstIn, capacity);
+                outDegree = Arrays.copyOf(outDegree, capacity);
+                inDegree = Arrays.copyOf(inDegree, capacity);
+            }
+            id = vertexTop++;
+        }
+        vertices[id] = v;
+        firstOut[id] = -1;
+        firstIn[id] = -1;
+        outDegree[id] = 0;
+        inDegree[id] = 0;
+        index.put(v, id);
+        ++vertexCount;
+        return true;
+    }
+
+    @Override
+    public boolean removeVertex(V v) {
+        Integer id = index.remove(v);
+        if (id == null)
+            return false;
+        while (firstOut[id] >= 0)
+            deleteEdge(firstOut[id]);
+        while (firstIn[id] >= 0)
+            deleteEdge(firstIn[id]);
+        vertices[id] = null;
+        if (freeVertexCount == freeVertices.length)
+            freeVertices = Arrays.copyOf(freeVertices, 2 * freeVertexCount);
+        freeVertices[freeVertexCount++] = id;
+        --vertexCount;
+        return true;
+    }
+
+    @Override
+    public boolean addEdge(Edge<V,E> e) {
+        Integer s = index.get(e.source);
+        if (s == null)
+            throw new IllegalArgumentException("No such source-vertex in this graph!");
+        Integer t = index.get(e.target);
+        if (t == null)
+            throw new IllegalArgumentException("No such target-vertex in this graph!");
+        int l = labels.getId(e.label);
+        int slot = findSlot(s, t, l);
+        if (edgeTable[slot] != 0)
+            return false;
+        insertEdge(s, t, l, slot);
+        return true;
+    }
+
+    @Override
+    public boolean addEdge(V src, V trgt) {
+        return addEdge(new Edge<>(src, null, trgt));
+    }
+
+    @Override
+    public boolean removeEdge(Edge<V,E> e) {
+        int id = findEdge(e);
+        if (id < 0)
+            return false;
+        deleteEdge(id);
+        return true;
+    }
+
+    @Override
+    public Set<Edge<V,E>> removeEdges(V src, V trgt) {
+        Integer s = index.get(src);
+        if (s == null)
+            throw new IllegalArgumentException("No such source-vertex in this graph!");
+        Integer t = index.get(trgt);
+        if (t == null)
+            throw new IllegalArgumentException("No such target-vertex in this graph!");
+        Set<Edge<V,E>> removed = new LinkedHashSet<>();
+        removeEdges(s, t, removed);
+        // for undirected graphs, also remove any reverse edges
+        if (!directed)
+            removeEdges(t, s, removed);
+        return removed;
+    }
+
+    private void removeEdges(int s, int t, Set<Edge<V,E>> removed) {
+        int e = firstOut[s];
+        while (e >= 0) {
+            int next = nextOut[e];
+            if (target[e] == t) {
+                removed.add(edgeOf(e));
+                deleteEdge(e);
+            }
+            e = next;
+        }
+    }
+
+    @Override
+    public boolean addGraph(AbstractPropertyGraph<V,E> graph) {
+        boolean modified = false;
+        for (V v: graph.allVertices)
+            modified |= addVertex(v);
+        for (Edge<V,E> e: graph.allEdges)
+            modified |= addEdge(e);
+        return modified;
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public Iterator<Edge<V,E>> allEdgesIterator() {
+        return new EdgeIterator(cursor().allEdges());
+    }
+
+    @Override
+    public Iterator<V> allVerticesIterator() {
+        return new Iterator<V>() {
+            private int next = advance(0);
+
+            private int advance(int v) {
+                while (v < vertexTop && vertices[v] == null)
+                    ++v;
+                return v;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < vertexTop;
+            }
+
+            @Override
+            public V next() {
+                if (next >= vertexTop)
+                    throw new NoSuchElementException();
+                V v = vertices[next];
+                next = advance(next + 1);
+                return v;
+            }
+        };
+    }
+
+    @Override
+    public Set<Edge<V,E>> copyEdgeSet() {
+        return toSet(allEdgesIterator());
+    }
+
+    @Override
+    public Set<V> copyVertexSet() {
+        return toSet(allVerticesIterator());
+    }
+
+    @Override
+    public Iterator<Edge<V,E>> incomingEdgesIterator(V v) {
+        return new EdgeIterator(cursor().incomingEdges(v));
+    }
+
+    @Override
+    public Iterator<Edge<V,E>> outgoingEdgesIterator(V v) {
+        return new EdgeIterator(cursor().outgoingEdges(v));
+    }
+
+    @Override
+    public Set<Edge<V,E>> copyIncomingEdges(V v) {
+        return toSet(incomingEdgesIterator(v));
+    }
+
+    @Override
+    public Set<Edge<V,E>> copyOutgoingEdges(V v) {
+        return toSet(outgoingEdgesIterator(v));
+    }
+
+    @Override
+    public int getInDegree(V v) {
+        return inDegree[checkedIndexOf(v)];
+    }
+
+    @Override
+    public int getOutDegree(V v) {
+        return outDegree[checkedIndexOf(v)];
+    }
+
+    @Override
+    public Set<Edge<V,E>> getEdgesWithLabel(E lbl) {
+        Set<Edge<V,E>> result = new LinkedHashSet<>();
+        int l = labels.indexOf(lbl);
+        if (l < 0 && lbl != null)
+            return result;
+        for (int e = 0; e < edgeTop; ++e)
+            if (source[e] >= 0 && label[e] == l)
+                result.add(edgeOf(e));
+        return result;
+    }
+
+    @Override
+    public boolean containsEdge(Edge<V,E> e) {
+        return findEdge(e) >= 0;
+    }
+
+    @Override
+    public boolean containsEdge(V src, V trg) {
+        Integer s = index.get(src);
+        Integer t = index.get(trg);
+        if (s == null || t == null)
+            return false;
+        return hasEdge(s, t) || (!directed && hasEdge(t, s));
+    }
+
+    private boolean hasEdge(int s, int t) {
+        for (int e = firstOut[s]; e >= 0; e = nextOut[e])
+            if (target[e] == t)
+                return true;
+        return false;
+    }
+
+    @Override
+    public boolean containsVertex(V v) {
+        return index.containsKey(v);
+    }
+
+    @Override
+    public boolean containsAllEdges(Set<Edge<V,E>> set) {
+        for (Edge<V,E> e: set)
+            if (!containsEdge(e))
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean containsAllVertices(Set<V> set) {
+        for (V v: set)
+            if (!containsVertex(v))
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean isSubgraphOf(Graph<V,E> base) {
+        if (directed != base.isDirected())
+            return false;
+        if (vertexCount > base.vertexCount() || edgeCount > base.edgeCount())
+            return false;
+        for (V v: index.keySet())
+            if (!base.containsVertex(v))
+                return false;
+        Iterator<Edge<V,E>> edges = allEdgesIterator();
+        while (edges.hasNext())
+            if (!base.containsEdge(edges.next()))
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean isProperSubgraphOf(Graph<V,E> base) {
+        if (vertexCount == base.vertexCount() && edgeCount == base.edgeCount())
+            return false;
+        return isSubgraphOf(base);
+    }
+
+    @Override
+    public boolean isConnected() {
+        if (vertexCount <= 1)
+            return true;
+        if (edgeCount < vertexCount - 1)
+            return false;
+        DisjointSets components = new DisjointSets(vertexTop);
+        int sets = vertexCount;
+        for (int e = 0; e < edgeTop; ++e)
+            if (source[e] >= 0 && components.union(source[e], target[e]) && --sets == 1)
+                return true;
+        return false;
+    }
+
+    private static <T> Set<T> toSet(Iterator<T> iter) {
+        Set<T> set = new LinkedHashSet<>();
+        while (iter.hasNext())
+            set.add(iter.next());
+        return set;
+    }
+
+    /**
+     * Returns a new edge cursor over this graph; which must be positioned by one of
+     * its methods, such as {@link EdgeCursor#allEdges()}, before use.
+     */
+    public EdgeCursor cursor() {
+        return new EdgeCursor();
+    }
+
+    /**
+     * A flyweight cursor over the edges of a columnar graph; which moves over the rows of the
+     * edge columns without creating any objects, and can be repositioned and reused.
+     * The graph must not be modified while a cursor is moving over its edges.
+     * <pre>
+     *   ColumnarGraph&lt;V,E&gt;.EdgeCursor cursor = graph.cursor().outgoingEdges(v);
+     *   while (cursor.next())
+     *       process(cursor.getTarget(), cursor.getLabel());
+     * </pre>
+     */
+    public class EdgeCursor {
+
+        private static final int ALL = 0, OUT = 1, IN = 2;
+
+        private int mode;
+        private int vertex;
+        private int edge;
+        private boolean started;
+
+        private EdgeCursor() {
+            edge = -1;
+            started = true;
+        }
+
+        /**
+         * Positions this cursor before all edges of the graph.
+         */
+        public EdgeCursor allEdges() {
+            return reset(ALL, -1);
+        }
+
+        /**
+         * Positions this cursor before the outgoing edges of the given vertex.
+         */
+        public EdgeCursor outgoingEdges(V v) {
+            return reset(OUT, checkedIndexOf(v));
+        }
+
+        /**
+         * Positions this cursor before the incoming edges of the given vertex.
+         */
+        public EdgeCursor incomingEdges(V v) {
+            return reset(IN, checkedIndexOf(v));
+        }
+
+        /**
+         * Positions this cursor before the outgoing edges of the vertex with the given id.
+         */
+        public EdgeCursor outgoingEdgesOfIndex(int v) {
+            return reset(OUT, v);
+        }
+
+        /**
+         * Positions this cursor before the incoming edges of the vertex with the given id.
+         */
+        public EdgeCursor incomingEdgesOfIndex(int v) {
+            return reset(IN, v);
+        }
+
+        private EdgeCursor reset(int mode, int vertex) {
+            this.mode = mode;
+            this.vertex = vertex;
+            edge = -1;
+            started = false;
+            return this;
+        }
+
+        /**
+         * Moves this cursor to the next edge; and returns false if there are no more edges.
+         */
+        public boolean next() {
+            if (started && edge < 0)
+                return false;
+            switch (mode) {
+                case ALL:
+                    do {
+                        ++edge;
+                    } while (edge < edgeTop && source[edge] < 0);
+                    if (edge >= edgeTop)
+                        edge = -1;
+                    break;
+                case OUT:
+                    edge = started ? nextOut[edge] : firstOut[vertex];
+                    break;
+                default:
+                    edge = started ? nextIn[edge] : firstIn[vertex];
+            }
+            started = true;
+            return edge >= 0;
+        }
+
+        private void check() {
+            if (edge < 0)
+                throw new NoSuchElementException("Cursor is not at an edge!");
+        }
+
+        /**
+         * Returns the id of the current edge.
+         */
+        public int getEdgeIndex() {
+            check();
+            return edge;
+        }
+
+        /**
+         * Returns the id of the source vertex of the current edge.
+         */
+        public int getSourceIndex() {
+            check();
+            return source[edge];
+        }
+
+        /**
+         * Returns the id of the target vertex of the current edge.
+         */
+        public int getTargetIndex() {
+            check();
+            return target[edge];
+        }
+
+        /**
+         * Returns the label id of the current edge in the label dictionary (-1 for null labels).
+         */
+        public int getLabelId() {
+            check();
+            return label[edge];
+        }
+
+        /**
+         * Returns the source vertex of the current edge.
+         */
+        public V getSource() {
+            check();
+            return vertices[source[edge]];
+        }
+
+        /**
+         * Returns the target vertex of the current edge.
+         */
+        public V getTarget() {
+            check();
+            return vertices[target[edge]];
+        }
+
+        /**
+         * Returns the (interned) label of the current edge.
+         */
+        public E getLabel() {
+            check();
+            return labels.get(label[edge]);
+        }
+
+        /**
+         * Returns a new edge object for the current edge.
+         */
+        public Edge<V,E> toEdge() {
+            check();
+            return edgeOf(edge);
+        }
+    }
+
+    /**
+     * Iterator of edge objects, over an edge cursor.
+     */
+    private class EdgeIterator implements Iterator<Edge<V,E>> {
+
+        private final EdgeCursor cursor;
+        private boolean hasNext;
+
+        EdgeIterator(EdgeCursor cursor) {
+            this.cursor = cursor;
+            hasNext = cursor.next();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public Edge<V,E> next() {
+            if (!hasNext)
+                throw new NoSuchElementException();
+            Edge<V,E> e = cursor.toEdge();
+            hasNext = cursor.next();
+            return e;
+        }
+    }
+}
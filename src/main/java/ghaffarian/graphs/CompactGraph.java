@@ -0,0 +1,435 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import ghaffarian.collections.LabelDictionary;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable, int-indexed snapshot of a graph in compressed-sparse-row (CSR) form.
+ *
+ * Vertices are assigned dense indices in [0, vertexCount) following the iteration order
+ * of the original graph, and edges are likewise assigned indices in [0, edgeCount).
+ * Adjacency is kept in flat primitive arrays, so algorithms running over this snapshot
+ * do not allocate per vertex or per edge; the original vertex and edge objects are only
+ * looked up when an index has to be translated back.
+ *
+ * For undirected graphs, each edge appears in the adjacency lists of both its end-points,
+ * and the incoming adjacency is the same as the outgoing adjacency.
+ *
+ * Optionally, edge labels can be encoded as ints by a {@link LabelDictionary}; so algorithms
+ * can test and compare labels by their ids, without touching the edge objects.
+ *
+ * Note that this snapshot is not linked to the original graph;
+ * later modifications of the graph are not reflected in this object.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class CompactGraph<V,E> {
+
+    private final boolean directed;
+    private final V[] vertices;
+    private final Edge<V,E>[] edges;
+    private final Map<V, Integer> index;
+    private final LabelDictionary<E> labels;
+    // an empty graph of the same kind as the original property graph (for its vertex semantics); or null
+    private final AbstractPropertyGraph<V,E> prototype;
+
+    // endpoints of each edge, by edge index
+    final int[] edgeSource;
+    final int[] edgeTarget;
+    // outgoing adjacency; neighbors of v are in [outStart[v], outStart[v+1])
+    final int[] outStart;
+    final int[] outTarget;
+    final int[] outEdge;
+    // incoming adjacency; neighbors of v are in [inStart[v], inStart[v+1])
+    final int[] inStart;
+    final int[] inSource;
+    final int[] inEdge;
+    // label id of each edge, by edge index; or null if labels are not encoded
+    final int[] edgeLabel;
+
+    /**
+     * Construct a new compact snapshot of the given graph.
+     * For property graphs, vertex equality is determined according to the matcher of the graph;
+     * for other implementations of the graph interface, the vertices' own equals is used.
+     */
+    public CompactGraph(Graph<V,E> graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Construct a new compact snapshot of the given graph, with edge labels encoded by
+     * the given dictionary (labels not in the dictionary are added to it);
+     * if the dictionary is null, labels are not encoded.
+     */
+    public CompactGraph(Graph<V,E> graph, LabelDictionary<E> labels) {
+        this.labels = labels;
+        directed = graph.isDirected();
+        int n = graph.vertexCount();
+        int m = graph.edgeCount();
+        int capacity = Math.max(16, (int) (n / 0.75f) + 1);
+        vertices = (V[]) new Object[n];
+        if (graph instanceof AbstractPropertyGraph) {
+            AbstractPropertyGraph<V,E> property = (AbstractPropertyGraph<V,E>) graph;
+            index = property.newVertexMap(capacity);
+            prototype = emptyGraphLike(property);
+        } else {
+            index = new HashMap<>(capacity);
+            prototype = null;
+        }
+        int idx = 0;
+        Iterator<V> vertexIter = graph.allVerticesIterator();
+        while (vertexIter.hasNext()) {
+            V v = vertexIter.next();
+            vertices[idx] = v;
+            index.put(v, idx++);
+        }
+        edges = new Edge[m];
+        edgeSource = new int[m];
+        edgeTarget = new int[m];
+        edgeLabel = labels == null ? null : new int[m];
+        idx = 0;
+        Iterator<Edge<V,E>> edgeIter = graph.allEdgesIterator();
+        while (edgeIter.hasNext()) {
+            Edge<V,E> e = edgeIter.next();
+            edges[idx] = e;
+            edgeSource[idx] = index.get(e.source);
+            edgeTarget[idx] = index.get(e.target);
+            if (labels != null)
+                edgeLabel[idx] = labels.getId(e.label);
+            ++idx;
+        }
+        int[][] out = buildAdjacency(n, edgeSource, edgeTarget, !directed);
+        int[][] in = directed ? buildAdjacency(n, edgeTarget, edgeSource, false) : out;
+        outStart = out[0];
+        outTarget = out[1];
+        outEdge = out[2];
+        inStart = in[0];
+        inSource = in[1];
+        inEdge = in[2];
+    }
+
+    /**
+     * Construct a new compact graph with the given number of vertices,
+     * and edges specified by the given arrays of source and target indices.
+     * Vertices of such a graph are the Integer objects of their own indices,
+     * and edge objects are only created on demand, with null labels.
+     */
+    CompactGraph(int vertexCount, int[] sources, int[] targets, boolean isDirected) {
+        directed = isDirected;
+        vertices = (V[]) new Object[vertexCount];
+        for (int v = 0; v < vertexCount; ++v)
+            vertices[v] = (V) Integer.valueOf(v);
+        edges = null;
+        index = null;
+        labels = null;
+        prototype = null;
+        edgeLabel = null;
+        edgeSource = sources;
+        edgeTarget = targets;
+        int[][] out = buildAdjacency(vertexCount, edgeSource, edgeTarget, !directed);
+        int[][] in = directed ? buildAdjacency(vertexCount, edgeTarget, edgeSource, false) : out;
+        outStart = out[0];
+        outTarget = out[1];
+        outEdge = out[2];
+        inStart = in[0];
+        inSource = in[1];
+        inEdge = in[2];
+    }
+
+    /**
+     * Private constructor used for creating the reversed view of a graph.
+     */
+    private CompactGraph(CompactGraph<V,E> graph) {
+        directed = graph.directed;
+        vertices = graph.vertices;
+        edges = graph.edges;
+        index = graph.index;
+        labels = graph.labels;
+        prototype = graph.prototype;
+        edgeLabel = graph.edgeLabel;
+        edgeSource = graph.edgeTarget;
+        edgeTarget = graph.edgeSource;
+        outStart = graph.inStart;
+        outTarget = graph.inSource;
+        outEdge = graph.inEdge;
+        inStart = graph.outStart;
+        inSource = graph.outTarget;
+        inEdge = graph.outEdge;
+    }
+
+    /**
+     * Counting-sort the given edges by their key vertex, and return the resulting 
+     * CSR arrays as {start-offsets, adjacent-vertices, adjacent-edges}.
+     * In symmetric mode, each (non-loop) edge is also added to the adjacency of its value vertex.
+     */
+    private static int[][] buildAdjacency(int n, int[] keys, int[] values, boolean symmetric) {
+        int size = keys.length;
+        if (symmetric) {
+            for (int e = 0; e < keys.length; ++e)
+                if (keys[e] != values[e])
+                    ++size;
+        }
+        int[] start = new int[n + 1];
+        int[] adj = new int[size];
+        int[] adjEdge = new int[size];
+        for (int e = 0; e < keys.length; ++e) {
+            ++start[keys[e] + 1];
+            if (symmetric && keys[e] != values[e])
+                ++start[values[e] + 1];
+        }
+        for (int v = 0; v < n; ++v)
+            start[v + 1] += start[v];
+        int[] next = new int[n];
+        System.arraycopy(start, 0, next, 0, n);
+        for (int e = 0; e < keys.length; ++e) {
+            int pos = next[keys[e]]++;
+            adj[pos] = values[e];
+            adjEdge[pos] = e;
+            if (symmetric && keys[e] != values[e]) {
+                pos = next[values[e]]++;
+                adj[pos] = keys[e];
+                adjEdge[pos] = e;
+            }
+        }
+        return new int[][] {start, adj, adjEdge};
+    }
+
+    /**
+     * Build the simple undirected adjacency of this graph, as CSR arrays {start-offsets, neighbors};
+     * i.e. edge directions are ignored, and self-loops and parallel edges are removed.
+     * The neighbors of each vertex are sorted by their indices, so adjacency lists
+     * can be intersected by merging. The result is not cached; each call builds new arrays.
+     */
+    int[][] buildSimpleAdjacency() {
+        int n = vertices.length;
+        int[][] sym = buildAdjacency(n, edgeSource, edgeTarget, true);
+        int[] start = sym[0];
+        int[] adj = sym[1];
+        int[] degree = new int[n];
+        IntStream.range(0, n).parallel().forEach(v -> {
+            Arrays.sort(adj, start[v], start[v + 1]);
+            int count = 0, last = -1;
+            for (int i = start[v]; i < start[v + 1]; ++i) {
+                int w = adj[i];
+                if (w != v && w != last)
+                    adj[start[v] + count++] = w;
+                last = w;
+            }
+            degree[v] = count;
+        });
+        int[] simpleStart = new int[n + 1];
+        for (int v = 0; v < n; ++v)
+            simpleStart[v + 1] = simpleStart[v] + degree[v];
+        int[] simple = new int[simpleStart[n]];
+        for (int v = 0; v < n; ++v)
+            System.arraycopy(adj, start[v], simple, simpleStart[v], degree[v]);
+        return new int[][] {simpleStart, simple};
+    }
+
+    /**
+     * Returns a view of this graph with all edge directions reversed.
+     * The returned view shares all arrays with this graph (no copying is done);
+     * note that the edge objects returned by the view are those of the original graph.
+     * For undirected graphs, the reversed view is equivalent to this graph.
+     */
+    public CompactGraph<V,E> reverse() {
+        return new CompactGraph<>(this);
+    }
+
+    /**
+     * Check whether this graph is directed or not.
+     */
+    public boolean isDirected() {
+        return directed;
+    }
+
+    /**
+     * Return the number of vertices in this graph.
+     */
+    public int vertexCount() {
+        return vertices.length;
+    }
+
+    /**
+     * Return the number of edges in this graph.
+     */
+    public int edgeCount() {
+        return edgeSource.length;
+    }
+
+    /**
+     * Returns the index of the given vertex, or -1 if no such vertex is in this graph.
+     */
+    public int indexOf(V v) {
+        if (index == null) {
+            if (v instanceof Integer) {
+                int idx = (Integer) v;
+                return idx >= 0 && idx < vertices.length ? idx : -1;
+            }
+            return -1;
+        }
+        Integer idx = index.get(v);
+        return idx == null ? -1 : idx;
+    }
+
+    /**
+     * Check whether vertices of this graph are indexed by reference-equality
+     * (i.e. the original graph was an identity graph).
+     */
+    boolean hasIdentityIndex() {
+        return index instanceof IdentityHashMap;
+    }
+
+    /**
+     * Returns a new empty graph of the same kind (and with the same matchers) as the original
+     * graph; or a plain Digraph or UndiGraph if the original graph was not a property graph.
+     */
+    AbstractPropertyGraph<V,E> newPropertyGraph() {
+        if (prototype != null)
+            return emptyGraphLike(prototype);
+        return directed ? new Digraph<>() : new UndiGraph<>();
+    }
+
+    /**
+     * Returns a new empty map of vertices, using the same notion of vertex equality as the original graph.
+     */
+    <T> Map<V, T> newVertexMap(int capacity) {
+        return prototype == null ? new LinkedHashMap<>(capacity) : prototype.newVertexMap(capacity);
+    }
+
+    /**
+     * Returns a new empty set of vertices, using the same notion of vertex equality as the original graph.
+     */
+    Set<V> newVertexSet(int capacity) {
+        return prototype == null ? new LinkedHashSet<>(capacity) : prototype.newVertexSet(capacity);
+    }
+
+    /**
+     * Returns a new empty set of edges, using the same notion of edge equality as the original graph.
+     */
+    Set<Edge<V,E>> newEdgeSet(int capacity) {
+        return prototype == null ? new LinkedHashSet<>(capacity) : prototype.newEdgeSet(capacity);
+    }
+
+    /**
+     * Check whether the given edges are equal, according to the edge matcher of the original graph.
+     */
+    boolean edgesMatch(Edge<V,E> e1, Edge<V,E> e2) {
+        return prototype == null ? e1.equals(e2) : prototype.getEdgesMatcher().equals(e1, e2);
+    }
+
+    private static <V,E> AbstractPropertyGraph<V,E> emptyGraphLike(AbstractPropertyGraph<V,E> graph) {
+        if (graph instanceof IdentityDigraph)
+            return new IdentityDigraph<>();
+        if (graph.isDirected())
+            return new Digraph<>(graph.getVertexMatcher(), graph.getEdgesMatcher());
+        return new UndiGraph<>(graph.getVertexMatcher(), graph.getEdgesMatcher());
+    }
+
+    /**
+     * Returns the vertex object with the given index.
+     */
+    public V getVertex(int v) {
+        return vertices[v];
+    }
+
+    /**
+     * Returns the edge object with the given index.
+     * For graphs without backing edge objects, a new edge is created on each call.
+     */
+    public Edge<V,E> getEdge(int e) {
+        if (edges == null)
+            return new Edge<>(vertices[edgeSource[e]], null, vertices[edgeTarget[e]]);
+        return edges[e];
+    }
+
+    /**
+     * Check whether the edge labels of this graph are encoded by a label dictionary.
+     */
+    public boolean hasLabelIds() {
+        return edgeLabel != null;
+    }
+
+    /**
+     * Returns the dictionary encoding the edge labels of this graph; or null if there is none.
+     */
+    public LabelDictionary<E> getLabelDictionary() {
+        return labels;
+    }
+
+    /**
+     * Returns the label id of the given edge in the label dictionary (-1 for null labels).
+     */
+    public int getLabelId(int e) {
+        if (edgeLabel == null)
+            throw new IllegalStateException("Edge labels are not encoded!");
+        return edgeLabel[e];
+    }
+
+    /**
+     * Returns the index of the source vertex of the given edge.
+     */
+    public int getEdgeSource(int e) {
+        return edgeSource[e];
+    }
+
+    /**
+     * Returns the index of the target vertex of the given edge.
+     */
+    public int getEdgeTarget(int e) {
+        return edgeTarget[e];
+    }
+
+    /**
+     * Return the count of outgoing edges from the given vertex.
+     * For undirected graphs, this is the degree of the vertex.
+     */
+    public int getOutDegree(int v) {
+        return outStart[v + 1] - outStart[v];
+    }
+
+    /**
+     * Return the count of incoming edges to the given vertex.
+     * For undirected graphs, this is the degree of the vertex.
+     */
+    public int getInDegree(int v) {
+        return inStart[v + 1] - inStart[v];
+    }
+
+    /**
+     * Returns the index of the k-th outgoing neighbor of the given vertex.
+     */
+    public int getOutNeighbor(int v, int k) {
+        return outTarget[outStart[v] + k];
+    }
+
+    /**
+     * Returns the index of the k-th outgoing edge of the given vertex.
+     */
+    public int getOutEdge(int v, int k) {
+        return outEdge[outStart[v] + k];
+    }
+
+    /**
+     * Returns the index of the k-th incoming neighbor of the given vertex.
+     */
+    public int getInNeighbor(int v, int k) {
+        return inSource[inStart[v] + k];
+    }
+
+    /**
+     * Returns the index of the k-th incoming edge of the given vertex.
+     */
+    public int getInEdge(int v, int k) {
+        return inEdge[inStart[v] + k];
+    }
+}
@@ -0,0 +1,124 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import ghaffarian.collections.ConcurrentDisjointSets;
+import ghaffarian.collections.DisjointSets;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Connected components of a graph.
+ * For directed graphs, edge directions are ignored;
+ * i.e. the weakly connected components are computed.
+ *
+ * Components are computed using a union-find structure over the edge arrays of a
+ * {@link CompactGraph}; the parallel mode performs the unions concurrently using
+ * a lock-free union-find. In both modes, component labels are dense in [0, count)
+ * and are assigned in the order of the first vertex index of each component.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class ConnectedComponents<V,E> {
+
+    public final CompactGraph<V,E> GRAPH;
+
+    private final int[] label;
+    private final int[] size;
+
+    /**
+     * Compute the connected components of the given graph, sequentially.
+     */
+    public ConnectedComponents(AbstractPropertyGraph<V,E> graph) {
+        this(new CompactGraph<>(graph), false);
+    }
+
+    /**
+     * Compute the connected components of the given compact graph.
+     *
+     * @param graph     the compact graph
+     * @param parallel  whether to perform the unions in parallel or not
+     */
+    public ConnectedComponents(CompactGraph<V,E> graph, boolean parallel) {
+        GRAPH = graph;
+        int n = graph.vertexCount();
+        label = new int[n];
+        int[] root = new int[n];
+        if (parallel) {
+            ConcurrentDisjointSets sets = new ConcurrentDisjointSets(n);
+            IntStream.range(0, graph.edgeCount()).parallel()
+                    .forEach(e -> sets.union(graph.edgeSource[e], graph.edgeTarget[e]));
+            IntStream.range(0, n).parallel().forEach(v -> root[v] = sets.find(v));
+        } else {
+            DisjointSets sets = new DisjointSets(n);
+            for (int e = 0; e < graph.edgeCount(); ++e)
+                sets.union(graph.edgeSource[e], graph.edgeTarget[e]);
+            for (int v = 0; v < n; ++v)
+                root[v] = sets.find(v);
+        }
+        // relabel the roots densely; reuse the root array for the root labels
+        Arrays.fill(label, -1);
+        int count = 0;
+        for (int v = 0; v < n; ++v) {
+            if (label[root[v]] < 0)
+                label[root[v]] = count++;
+            root[v] = label[root[v]];
+        }
+        System.arraycopy(root, 0, label, 0, n);
+        size = new int[count];
+        for (int v = 0; v < n; ++v)
+            ++size[label[v]];
+    }
+
+    /**
+     * Returns the number of connected components.
+     */
+    public int getComponentCount() {
+        return size.length;
+    }
+
+    /**
+     * Check whether the whole graph is a single connected component.
+     * A graph with no vertices is considered connected.
+     */
+    public boolean isConnected() {
+        return size.length <= 1;
+    }
+
+    /**
+     * Returns the label of the component containing the given vertex index.
+     */
+    public int getComponentOfIndex(int v) {
+        return label[v];
+    }
+
+    /**
+     * Returns the label of the component containing the given vertex.
+     */
+    public int getComponentOf(V v) {
+        int idx = GRAPH.indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return label[idx];
+    }
+
+    /**
+     * Returns the number of vertices in the component with the given label.
+     */
+    public int getComponentSize(int c) {
+        return size[c];
+    }
+
+    /**
+     * Return a copy of the component labels array, indexed by vertex indices.
+     */
+    public int[] copyComponentLabels() {
+        return label.clone();
+    }
+
+    /**
+     * Return a copy of the component sizes array, indexed by component labels.
+     */
+    public int[] copyComponentSizes() {
+        return size.clone();
+    }
+}
@@ -0,0 +1,135 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * K-core decomposition of a graph.
+ *
+ * The k-core of a graph is its maximal subgraph in which every vertex has degree at least k;
+ * the core number of a vertex is the largest k such that the vertex belongs to the k-core.
+ * The graph is treated as simple and undirected (as in {@link Clustering}).
+ * Core numbers are computed by the linear-time peeling algorithm of Batagelj and Zaversnik,
+ * which repeatedly removes a vertex of minimum remaining degree, using a bucket-sorted
+ * array of vertices over a {@link CompactGraph}.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class CoreDecomposition<V,E> {
+
+    public final CompactGraph<V,E> GRAPH;
+
+    private final int[] core;
+    private final int degeneracy;
+
+    /**
+     * Compute the core decomposition of the given graph.
+     */
+    public CoreDecomposition(Graph<V,E> graph) {
+        this(new CompactGraph<>(graph));
+    }
+
+    /**
+     * Compute the core decomposition of the given compact graph.
+     */
+    public CoreDecomposition(CompactGraph<V,E> graph) {
+        GRAPH = graph;
+        int n = graph.vertexCount();
+        int[][] simple = graph.buildSimpleAdjacency();
+        int[] start = simple[0];
+        int[] adj = simple[1];
+        core = new int[n];
+        int maxDegree = 0;
+        for (int v = 0; v < n; ++v) {
+            core[v] = start[v + 1] - start[v];
+            maxDegree = Math.max(maxDegree, core[v]);
+        }
+        // bucket-sort vertices by degree; bin[d] is the start of degree-d vertices in the order
+        int[] bin = new int[maxDegree + 1];
+        for (int v = 0; v < n; ++v)
+            ++bin[core[v]];
+        for (int d = 0, offset = 0; d <= maxDegree; ++d) {
+            int count = bin[d];
+            bin[d] = offset;
+            offset += count;
+        }
+        int[] order = new int[n];
+        int[] pos = new int[n];
+        for (int v = 0; v < n; ++v) {
+            pos[v] = bin[core[v]]++;
+            order[pos[v]] = v;
+        }
+        for (int d = maxDegree; d > 0; --d)
+            bin[d] = bin[d - 1];
+        bin[0] = 0;
+        // peel vertices in order of remaining degree
+        int max = 0;
+        for (int i = 0; i < n; ++i) {
+            int v = order[i];
+            max = Math.max(max, core[v]);
+            for (int k = start[v]; k < start[v + 1]; ++k) {
+                int u = adj[k];
+                if (core[u] > core[v]) {
+                    // move u to the front of its bucket, then shrink that bucket
+                    int du = core[u];
+                    int pu = pos[u];
+                    int pw = bin[du];
+                    int w = order[pw];
+                    if (u != w) {
+                        order[pu] = w;
+                        pos[w] = pu;
+                        order[pw] = u;
+                        pos[u] = pw;
+                    }
+                    ++bin[du];
+                    --core[u];
+                }
+            }
+        }
+        degeneracy = max;
+    }
+
+    /**
+     * Returns the degeneracy of the graph; i.e. the maximum core number of its vertices.
+     */
+    public int getDegeneracy() {
+        return degeneracy;
+    }
+
+    /**
+     * Returns the core number of the given vertex index.
+     */
+    public int getCoreNumberOfIndex(int v) {
+        return core[v];
+    }
+
+    /**
+     * Returns the core number of the given vertex.
+     */
+    public int getCoreNumber(V v) {
+        int idx = GRAPH.indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return core[idx];
+    }
+
+    /**
+     * Return a copy of the core numbers, indexed by vertex indices.
+     */
+    public int[] copyCoreNumbers() {
+        return core.clone();
+    }
+
+    /**
+     * Returns the vertices of the k-core of the graph;
+     * i.e. all vertices with a core number of at least k.
+     */
+    public List<V> getCore(int k) {
+        List<V> members = new ArrayList<>();
+        for (int v = 0; v < core.length; ++v)
+            if (core[v] >= k)
+                members.add(GRAPH.getVertex(v));
+        return members;
+    }
+}
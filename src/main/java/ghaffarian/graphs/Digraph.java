@@ -99,8 +99,16 @@ public class Digraph<V, E> extends AbstractPropertyGraph<V, E> {
     @Override
     public boolean removeVertex(V v) {
         if (allVertices.remove(v)) {
-            allEdges.removeAll(inEdges.remove(v));
-            allEdges.removeAll(outEdges.remove(v));
+            // the edges are also removed from the adjacency sets of the neighbors;
+            // self-loops are removed from the outgoing-edges of v by the first loop
+            for (Edge<V,E> e: inEdges.remove(v)) {
+                allEdges.remove(e);
+                outEdges.get(e.source).remove(e);
+            }
+            for (Edge<V,E> e: outEdges.remove(v)) {
+                allEdges.remove(e);
+                inEdges.get(e.target).remove(e);
+            }
             return true;
         }
         return false;
@@ -0,0 +1,346 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dominator tree of a directed graph, with respect to a given entry vertex.
+ *
+ * A vertex D dominates a vertex N if every path from the entry vertex to N passes through D.
+ * The immediate dominator of N is the unique strict dominator of N which is dominated by
+ * every other strict dominator of N; these immediate dominators form the dominator tree.
+ *
+ * The tree is computed using the Lengauer-Tarjan algorithm (with path compression),
+ * implemented iteratively over a {@link CompactGraph}; hence it runs in near-linear time
+ * and has no recursion-depth limits. The result is an int-indexed tree, where indices
+ * are the vertex indices of the underlying compact graph.
+ *
+ * Post-dominator trees are computed on the reversed view of the graph;
+ * see {@link #postDominators(ghaffarian.graphs.Digraph, java.lang.Object) postDominators}.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class DominatorTree<V,E> {
+
+    public final CompactGraph<V,E> GRAPH;
+    public final int ROOT;
+
+    private final int[] idom;
+    private final int[] childStart;
+    private final int[] children;
+    private final int[] preorder;
+    private final int[] postorder;
+    // dominance frontiers; computed lazily, and published by the write of frontiers (which is last)
+    private volatile int[] frontierStart;
+    private volatile int[] frontiers;
+
+    /**
+     * Construct the dominator tree of the given digraph, with the given entry vertex as root.
+     */
+    public DominatorTree(Digraph<V,E> graph, V entry) {
+        this(new CompactGraph<>(graph), entry);
+    }
+
+    /**
+     * Construct the dominator tree of the given compact digraph, with the given entry vertex as root.
+     */
+    public DominatorTree(CompactGraph<V,E> graph, V entry) {
+        if (!graph.isDirected())
+            throw new IllegalArgumentException("Dominators are only defined for directed graphs!");
+        int root = graph.indexOf(entry);
+        if (root < 0)
+            throw new IllegalArgumentException("No such entry-vertex in this graph!");
+        GRAPH = graph;
+        ROOT = root;
+        idom = computeImmediateDominators(graph, root);
+        // build the children lists of the tree in CSR form
+        int n = graph.vertexCount();
+        childStart = new int[n + 1];
+        for (int v = 0; v < n; ++v)
+            if (idom[v] >= 0)
+                ++childStart[idom[v] + 1];
+        for (int v = 0; v < n; ++v)
+            childStart[v + 1] += childStart[v];
+        children = new int[childStart[n]];
+        int[] next = new int[n];
+        System.arraycopy(childStart, 0, next, 0, n);
+        for (int v = 0; v < n; ++v)
+            if (idom[v] >= 0)
+                children[next[idom[v]]++] = v;
+        // number the tree nodes, for constant-time dominance queries
+        preorder = new int[n];
+        postorder = new int[n];
+        Arrays.fill(preorder, -1);
+        Arrays.fill(postorder, -1);
+        int[] stack = next; // reuse as the explicit DFS stack
+        int[] cursor = new int[n];
+        int top = 0, preCounter = 0, postCounter = 0;
+        stack[top++] = root;
+        preorder[root] = preCounter++;
+        cursor[root] = childStart[root];
+        while (top > 0) {
+            int v = stack[top - 1];
+            if (cursor[v] < childStart[v + 1]) {
+                int child = children[cursor[v]++];
+                preorder[child] = preCounter++;
+                cursor[child] = childStart[child];
+                stack[top++] = child;
+            } else {
+                postorder[v] = postCounter++;
+                --top;
+            }
+        }
+    }
+
+    /**
+     * Construct the post-dominator tree of the given digraph, with the given exit vertex as root.
+     * A vertex D post-dominates a vertex N if every path from N to the exit vertex passes through D.
+     * For graphs with several exit vertices, a single virtual exit vertex should be added first.
+     */
+    public static <V,E> DominatorTree<V,E> postDominators(Digraph<V,E> graph, V exit) {
+        return new DominatorTree<>(new CompactGraph<>(graph).reverse(), exit);
+    }
+
+    /**
+     * Lengauer-Tarjan algorithm; returns the immediate dominator of each vertex
+     * (or -1 for the root and for vertices not reachable from the root).
+     */
+    private static int[] computeImmediateDominators(CompactGraph<?,?> graph, int root) {
+        int n = graph.vertexCount();
+        // All of the following arrays (except 'dfnum') are indexed by DFS numbers
+        int[] dfnum = new int[n];
+        int[] vertex = new int[n];
+        int[] parent = new int[n];
+        Arrays.fill(dfnum, -1);
+        // iterative depth-first numbering
+        int[] stack = new int[n];
+        int[] cursor = new int[n];
+        int top = 0, count = 0;
+        dfnum[root] = count;
+        vertex[count] = root;
+        parent[count++] = -1;
+        cursor[root] = graph.outStart[root];
+        stack[top++] = root;
+        while (top > 0) {
+            int v = stack[top - 1];
+            if (cursor[v] < graph.outStart[v + 1]) {
+                int w = graph.outTarget[cursor[v]++];
+                if (dfnum[w] < 0) {
+                    dfnum[w] = count;
+                    vertex[count] = w;
+                    parent[count++] = dfnum[v];
+                    cursor[w] = graph.outStart[w];
+                    stack[top++] = w;
+                }
+            } else
+                --top;
+        }
+        //
+        int[] semi = new int[count];
+        int[] label = new int[count];
+        int[] ancestor = new int[count];
+        int[] dom = new int[count];
+        int[] bucketHead = new int[count];
+        int[] bucketNext = new int[count];
+        for (int w = 0; w < count; ++w) {
+            semi[w] = w;
+            label[w] = w;
+            ancestor[w] = -1;
+            bucketHead[w] = -1;
+        }
+        for (int w = count - 1; w > 0; --w) {
+            int p = parent[w];
+            int v = vertex[w];
+            for (int i = graph.inStart[v]; i < graph.inStart[v + 1]; ++i) {
+                int pred = dfnum[graph.inSource[i]];
+                if (pred < 0)
+                    continue; // unreachable predecessor
+                int u = eval(pred, ancestor, label, semi, stack);
+                if (semi[u] < semi[w])
+                    semi[w] = semi[u];
+            }
+            bucketNext[w] = bucketHead[semi[w]];
+            bucketHead[semi[w]] = w;
+            ancestor[w] = p;
+            for (int x = bucketHead[p]; x >= 0; x = bucketNext[x]) {
+                int u = eval(x, ancestor, label, semi, stack);
+                dom[x] = semi[u] < semi[x] ? u : p;
+            }
+            bucketHead[p] = -1;
+        }
+        for (int w = 1; w < count; ++w)
+            if (dom[w] != semi[w])
+                dom[w] = dom[dom[w]];
+        // translate back to vertex indices
+        int[] idom = new int[n];
+        Arrays.fill(idom, -1);
+        for (int w = 1; w < count; ++w)
+            idom[vertex[w]] = vertex[dom[w]];
+        return idom;
+    }
+
+    /**
+     * Returns the vertex with minimum semi-dominator on the compressed ancestor path of v.
+     * Path compression is done iteratively, using the given array as a stack.
+     */
+    private static int eval(int v, int[] ancestor, int[] label, int[] semi, int[] stack) {
+        if (ancestor[v] < 0)
+            return v;
+        int top = 0;
+        for (int x = v; ancestor[ancestor[x]] >= 0; x = ancestor[x])
+            stack[top++] = x;
+        while (top > 0) {
+            int x = stack[--top];
+            int a = ancestor[x];
+            if (semi[label[a]] < semi[label[x]])
+                label[x] = label[a];
+            ancestor[x] = ancestor[a];
+        }
+        return label[v];
+    }
+
+    /**
+     * Returns the root vertex of this tree (the entry vertex).
+     */
+    public V getRoot() {
+        return GRAPH.getVertex(ROOT);
+    }
+
+    /**
+     * Check whether the given vertex index is reachable from the root.
+     */
+    public boolean isReachable(int v) {
+        return preorder[v] >= 0;
+    }
+
+    /**
+     * Returns the index of the immediate dominator of the given vertex index;
+     * or -1 if the vertex is the root or is not reachable from the root.
+     */
+    public int getImmediateDominatorIndex(int v) {
+        return idom[v];
+    }
+
+    /**
+     * Returns the immediate dominator of the given vertex;
+     * or null if the vertex is the root or is not reachable from the root.
+     */
+    public V getImmediateDominator(V v) {
+        int idx = indexOfVertex(v);
+        return idom[idx] < 0 ? null : GRAPH.getVertex(idom[idx]);
+    }
+
+    /**
+     * Return a copy of the immediate-dominators array, indexed by vertex indices.
+     */
+    public int[] copyImmediateDominators() {
+        return idom.clone();
+    }
+
+    /**
+     * Returns the indices of the children of the given vertex index in this tree.
+     */
+    public int[] getChildrenIndices(int v) {
+        return Arrays.copyOfRange(children, childStart[v], childStart[v + 1]);
+    }
+
+    /**
+     * Check whether vertex index 'a' dominates vertex index 'b'.
+     * Every reachable vertex dominates itself. This check runs in constant time.
+     */
+    public boolean dominatesIndex(int a, int b) {
+        if (preorder[a] < 0 || preorder[b] < 0)
+            return false;
+        return preorder[a] <= preorder[b] && postorder[b] <= postorder[a];
+    }
+
+    /**
+     * Check whether vertex 'a' dominates vertex 'b'.
+     */
+    public boolean dominates(V a, V b) {
+        return dominatesIndex(indexOfVertex(a), indexOfVertex(b));
+    }
+
+    /**
+     * Returns the indices of the vertices in the dominance frontier of the given vertex index.
+     * The dominance frontier of N is the set of vertices W such that N dominates
+     * a predecessor of W, but does not strictly dominate W.
+     * All frontiers are computed once, on the first call to this method.
+     */
+    public int[] getDominanceFrontierIndices(int v) {
+        int[] result = frontiers;
+        if (result == null) {
+            computeDominanceFrontiers();
+            result = frontiers;
+        }
+        int[] start = frontierStart;
+        return Arrays.copyOfRange(result, start[v], start[v + 1]);
+    }
+
+    /**
+     * Returns the list of vertices in the dominance frontier of the given vertex.
+     */
+    public List<V> getDominanceFrontier(V v) {
+        int[] frontier = getDominanceFrontierIndices(indexOfVertex(v));
+        List<V> list = new ArrayList<>(frontier.length);
+        for (int w: frontier)
+            list.add(GRAPH.getVertex(w));
+        return list;
+    }
+
+    /**
+     * Computes all dominance frontiers using the algorithm of Cooper, Harvey and Kennedy;
+     * results are stored in CSR form, by running the same walk twice (count, then fill).
+     */
+    private synchronized void computeDominanceFrontiers() {
+        if (frontiers != null)
+            return;
+        int n = GRAPH.vertexCount();
+        int[] start = new int[n + 1];
+        int[] lastAdded = new int[n];
+        int[] result = null;
+        int[] next = null;
+        for (int pass = 0; pass < 2; ++pass) {
+            Arrays.fill(lastAdded, -1);
+            for (int b = 0; b < n; ++b) {
+                // the root is a join point if it has any predecessors,
+                // due to the implicit entry into the root
+                if (preorder[b] < 0 || (GRAPH.getInDegree(b) < 2 && b != ROOT))
+                    continue;
+                for (int i = GRAPH.inStart[b]; i < GRAPH.inStart[b + 1]; ++i) {
+                    int runner = GRAPH.inSource[i];
+                    if (preorder[runner] < 0)
+                        continue;
+                    while (runner >= 0 && runner != idom[b]) {
+                        if (lastAdded[runner] != b) {
+                            lastAdded[runner] = b;
+                            if (pass == 0)
+                                ++start[runner + 1];
+                            else
+                                result[next[runner]++] = b;
+                        }
+                        runner = idom[runner];
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int v = 0; v < n; ++v)
+                    start[v + 1] += start[v];
+                result = new int[start[n]];
+                next = new int[n];
+                System.arraycopy(start, 0, next, 0, n);
+            }
+        }
+        frontierStart = start;
+        frontiers = result;
+    }
+
+    private int indexOfVertex(V v) {
+        int idx = GRAPH.indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return idx;
+    }
+}
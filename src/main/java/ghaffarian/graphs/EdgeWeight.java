@@ -0,0 +1,18 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+/**
+ * A function which assigns a numeric weight to each edge of a graph;
+ * typically derived from the label of the edge (such as a cost, length or capacity).
+ * 
+ * @author Seyed Mohammad Ghaffarian
+ */
+@FunctionalInterface
+public interface EdgeWeight<V,E> {
+    
+    /**
+     * Returns the weight of the given edge.
+     */
+    public double weightOf(Edge<V,E> edge);
+    
+}
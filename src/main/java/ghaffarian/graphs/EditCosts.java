@@ -0,0 +1,82 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.Objects;
+
+/**
+ * The costs of edit operations over graphs, used for computing graph edit distances.
+ * All costs must be non-negative.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public interface EditCosts<V,E> {
+
+    /**
+     * Returns the cost of substituting the first vertex with the second vertex.
+     */
+    public double vertexSubstitution(V v1, V v2);
+
+    /**
+     * Returns the cost of deleting the given vertex.
+     */
+    public double vertexDeletion(V v);
+
+    /**
+     * Returns the cost of inserting the given vertex.
+     */
+    public double vertexInsertion(V v);
+
+    /**
+     * Returns the cost of substituting the first edge with the second edge.
+     */
+    public double edgeSubstitution(Edge<V,E> e1, Edge<V,E> e2);
+
+    /**
+     * Returns the cost of deleting the given edge.
+     */
+    public double edgeDeletion(Edge<V,E> e);
+
+    /**
+     * Returns the cost of inserting the given edge.
+     */
+    public double edgeInsertion(Edge<V,E> e);
+
+    /**
+     * Returns the uniform cost model; where every insertion and deletion costs 1,
+     * substituting a vertex costs 0 if the vertices are equal (and 1 otherwise),
+     * and substituting an edge costs 0 if the labels of the edges are equal (and 1 otherwise).
+     */
+    public static <V,E> EditCosts<V,E> uniform() {
+        return new EditCosts<V,E>() {
+            @Override
+            public double vertexSubstitution(V v1, V v2) {
+                return Objects.equals(v1, v2) ? 0 : 1;
+            }
+
+            @Override
+            public double vertexDeletion(V v) {
+                return 1;
+            }
+
+            @Override
+            public double vertexInsertion(V v) {
+                return 1;
+            }
+
+            @Override
+            public double edgeSubstitution(Edge<V,E> e1, Edge<V,E> e2) {
+                return Objects.equals(e1.label, e2.label) ? 0 : 1;
+            }
+
+            @Override
+            public double edgeDeletion(Edge<V,E> e) {
+                return 1;
+            }
+
+            @Override
+            public double edgeInsertion(Edge<V,E> e) {
+                return 1;
+            }
+        };
+    }
+}
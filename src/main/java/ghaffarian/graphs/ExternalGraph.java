@@ -0,0 +1,582 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import ghaffarian.collections.DisjointSets;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only, disk-backed graph; for graphs whose adjacency does not fit in the heap.
+ *
+ * The graph is stored in a directory of segment files (built by {@link ExternalGraphBuilder}),
+ * which are memory-mapped and read through small in-heap page caches (see {@link PageCache}):
+ * <ul>
+ *   <li>a vertex dictionary, holding the encoded vertices in the order of their ids, and
+ *       a table of (hash, id) pairs sorted by hash, for finding the id of a vertex;</li>
+ *   <li>the outgoing adjacency, as records of (neighbor id, label reference) sorted by
+ *       source and then target, with the offset of each vertex's records in an index file;</li>
+ *   <li>the incoming adjacency of directed graphs, in the same form, sorted by target;</li>
+ *   <li>the encoded edge labels, which are only read when edge objects are created.</li>
+ * </ul>
+ * For undirected graphs, each edge is stored in the adjacency of both of its end-points
+ * (self-loops once), so the neighbors of a vertex are found in a single range; yet, as for
+ * {@link UndiGraph}, the outgoing and incoming edges of a vertex follow the orientation in which
+ * the edges were added.
+ *
+ * The adjacency of each vertex is a contiguous range of its segment file, and iterating over
+ * all edges scans the segment sequentially; so traversals and degree queries are friendly to
+ * sequential I/O. Vertices and edge objects are decoded on demand, and are not kept in the heap.
+ * The index-based methods (such as {@link #copyOutNeighborIndices}) avoid decoding altogether.
+ *
+ * All modifying operations throw <tt>UnsupportedOperationException</tt>.
+ * The graph must be closed when it is no longer used.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class ExternalGraph<V,E> implements Graph<V,E>, Closeable {
+
+    static final int MAGIC = 0x47524150;
+    static final String META = "graph.meta";
+    static final String VERTEX_INDEX = "vertices.idx";
+    static final String VERTEX_DATA = "vertices.dat";
+    static final String VERTEX_HASH = "vertices.hash";
+    static final String LABELS = "labels.dat";
+    static final String OUT_INDEX = "out.idx";
+    static final String OUT_ADJACENCY = "out.adj";
+    static final String IN_INDEX = "in.idx";
+    static final String IN_ADJACENCY = "in.adj";
+    // each adjacency record is an int neighbor and a long label reference
+    static final int RECORD_SIZE = 12;
+
+    private static final int PAGE_SHIFT = 12;
+
+    private final Codec<V> vertexCodec;
+    private final Codec<E> labelCodec;
+    private final boolean directed;
+    private final int vertexCount;
+    private final int edgeCount;
+
+    private final PageCache vertexIndex;
+    private final PageCache vertexData;
+    private final PageCache vertexHash;
+    private final PageCache labels;
+    private final PageCache outIndex;
+    private final PageCache outAdjacency;
+    private final PageCache inIndex;
+    private final PageCache inAdjacency;
+
+    /**
+     * Open the graph stored in the given directory, with page caches of 256 pages (of 4KB) per file.
+     */
+    public ExternalGraph(Path dir, Codec<V> vertexCodec, Codec<E> labelCodec) throws IOException {
+        this(dir, vertexCodec, labelCodec, 256);
+    }
+
+    /**
+     * Open the graph stored in the given directory,
+     * with page caches of the given number of pages (of 4KB) per file.
+     */
+    public ExternalGraph(Path dir, Codec<V> vertexCodec, Codec<E> labelCodec, int cachePages) throws IOException {
+        this.vertexCodec = vertexCodec;
+        this.labelCodec = labelCodec;
+        try (DataInputStream meta = new DataInputStream(Files.newInputStream(dir.resolve(META)))) {
+            if (meta.readInt() != MAGIC)
+                throw new IOException("Not an external graph: " + dir);
+            directed = meta.readBoolean();
+            vertexCount = meta.readInt();
+            edgeCount = meta.readInt();
+        }
+        vertexIndex = new PageCache(dir.resolve(VERTEX_INDEX), PAGE_SHIFT, cachePages);
+        vertexData = new PageCache(dir.resolve(VERTEX_DATA), PAGE_SHIFT, cachePages);
+        vertexHash = new PageCache(dir.resolve(VERTEX_HASH), PAGE_SHIFT, cachePages);
+        labels = new PageCache(dir.resolve(LABELS), PAGE_SHIFT, cachePages);
+        outIndex = new PageCache(dir.resolve(OUT_INDEX), PAGE_SHIFT, cachePages);
+        outAdjacency = new PageCache(dir.resolve(OUT_ADJACENCY), PAGE_SHIFT, cachePages);
+        if (directed) {
+            inIndex = new PageCache(dir.resolve(IN_INDEX), PAGE_SHIFT, cachePages);
+            inAdjacency = new PageCache(dir.resolve(IN_ADJACENCY), PAGE_SHIFT, cachePages);
+        } else {
+            inIndex = outIndex;
+            inAdjacency = outAdjacency;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (PageCache cache: new PageCache[] {vertexIndex, vertexData, vertexHash, labels,
+                                               outIndex, outAdjacency, inIndex, inAdjacency})
+            cache.close();
+    }
+
+    /**
+     * Returns the id of the given vertex; or -1 if it is not in this graph.
+     */
+    public int indexOf(V v) {
+        if (v == null)
+            return -1;
+        int hash = v.hashCode();
+        // binary search for the first entry with the hash
+        int lo = 0, hi = vertexCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (vertexHash.readInt(8L * mid) < hash)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        for (int k = lo; k < vertexCount && vertexHash.readInt(8L * k) == hash; ++k) {
+            int id = vertexHash.readInt(8L * k + 4);
+            if (v.equals(getVertex(id)))
+                return id;
+        }
+        return -1;
+    }
+
+    private int checkedIndexOf(V v) {
+        int idx = indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return idx;
+    }
+
+    /**
+     * Returns the vertex with the given id.
+     */
+    public V getVertex(int id) {
+        long start = vertexIndex.readLong(8L * id);
+        long end = vertexIndex.readLong(8L * id + 8);
+        byte[] bytes = new byte[(int) (end - start)];
+        vertexData.read(start, bytes, 0, bytes.length);
+        try {
+            return vertexCodec.decode(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private E getLabel(long ref) {
+        int length = labels.readInt(ref);
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        labels.read(ref + 4, bytes, 0, length);
+        try {
+            return labelCodec.decode(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Creates the edge object of the given adjacency record of the given vertex.
+     */
+    private Edge<V,E> edgeOf(int v, int neighbor, long ref, boolean outgoing) {
+        // for undirected graphs, complemented references mark records stored at the target
+        boolean reversed = ref < 0;
+        if (!directed)
+            outgoing = true;
+        if (reversed)
+            ref = ~ref;
+        V self = getVertex(v);
+        V other = neighbor == v ? self : getVertex(neighbor);
+        E label = getLabel(ref);
+        if (outgoing != reversed)
+            return new Edge<>(self, label, other);
+        return new Edge<>(other, label, self);
+    }
+
+    /**
+     * Returns the number of outgoing edges of the given vertex id.
+     * For undirected graphs, this is the degree of the vertex.
+     */
+    public int getOutDegreeOfIndex(int v) {
+        return (int) (outIndex.readLong(8L * v + 8) - outIndex.readLong(8L * v));
+    }
+
+    /**
+     * Returns the number of incoming edges of the given vertex id.
+     * For undirected graphs, this is the degree of the vertex.
+     */
+    public int getInDegreeOfIndex(int v) {
+        return (int) (inIndex.readLong(8L * v + 8) - inIndex.readLong(8L * v));
+    }
+
+    /**
+     * Returns the ids of the outgoing neighbors of the given vertex id, in ascending order.
+     */
+    public int[] copyOutNeighborIndices(int v) {
+        return neighbors(outIndex, outAdjacency, v);
+    }
+
+    /**
+     * Returns the ids of the incoming neighbors of the given vertex id, in ascending order.
+     */
+    public int[] copyInNeighborIndices(int v) {
+        return neighbors(inIndex, inAdjacency, v);
+    }
+
+    private static int[] neighbors(PageCache index, PageCache adjacency, int v) {
+        long start = index.readLong(8L * v);
+        int[] result = new int[(int) (index.readLong(8L * v + 8) - start)];
+        for (int k = 0; k < result.length; ++k)
+            result[k] = adjacency.readInt((start + k) * RECORD_SIZE);
+        return result;
+    }
+
+    /**
+     * Returns the ids of the vertices reachable from the given vertex id, in breadth-first order.
+     */
+    public int[] breadthFirstIndices(int start) {
+        BitSet visited = new BitSet(vertexCount);
+        int[] order = new int[vertexCount];
+        int tail = 0;
+        order[tail++] = start;
+        visited.set(start);
+        for (int head = 0; head < tail; ++head) {
+            int v = order[head];
+            long end = outIndex.readLong(8L * v + 8);
+            for (long r = outIndex.readLong(8L * v); r < end; ++r) {
+                int w = outAdjacency.readInt(r * RECORD_SIZE);
+                if (!visited.get(w)) {
+                    visited.set(w);
+                    order[tail++] = w;
+                }
+            }
+        }
+        return Arrays.copyOf(order, tail);
+    }
+
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @Override
+    public boolean addVertex(V v) {
+        throw new UnsupportedOperationException("External graph is read-only!");
+    }
+
+    @Override
+    public boolean removeVertex(V v) {
+        throw new UnsupportedOperationException("External graph is read-only!");
+    }
+
+    @Override
+    public boolean addEdge(Edge<V,E> e) {
+        throw new UnsupportedOperationException("External graph is read-only!");
+    }
+
+    @Override
+    public boolean addEdge(V src, V trgt) {
+        throw new UnsupportedOperationException("External graph is read-only!");
+    }
+
+    @Override
+    public boolean removeEdge(Edge<V,E> e) {
+        throw new UnsupportedOperationException("External graph is read-only!");
+    }
+
+    @Override
+    public Set<Edge<V,E>> removeEdges(V src, V trgt) {
+        throw new UnsupportedOperationException("External graph is read-only!");
+    }
+
+    @Override
+    public boolean addGraph(AbstractPropertyGraph<V,E> graph) {
+        throw new UnsupportedOperationException("External graph is read-only!");
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public Iterator<Edge<V,E>> allEdgesIterator() {
+        return new EdgeIterator(-1, true);
+    }
+
+    @Override
+    public Iterator<V> allVerticesIterator() {
+        return new Iterator<V>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < vertexCount;
+            }
+
+            @Override
+            public V next() {
+                if (next >= vertexCount)
+                    throw new NoSuchElementException();
+                return getVertex(next++);
+            }
+        };
+    }
+
+    @Override
+    public Set<Edge<V,E>> copyEdgeSet() {
+        return toSet(allEdgesIterator());
+    }
+
+    @Override
+    public Set<V> copyVertexSet() {
+        return toSet(allVerticesIterator());
+    }
+
+    @Override
+    public Iterator<Edge<V,E>> incomingEdgesIterator(V v) {
+        return new EdgeIterator(checkedIndexOf(v), false);
+    }
+
+    @Override
+    public Iterator<Edge<V,E>> outgoingEdgesIterator(V v) {
+        return new EdgeIterator(checkedIndexOf(v), true);
+    }
+
+    @Override
+    public Set<Edge<V,E>> copyIncomingEdges(V v) {
+        return toSet(incomingEdgesIterator(v));
+    }
+
+    @Override
+    public Set<Edge<V,E>> copyOutgoingEdges(V v) {
+        return toSet(outgoingEdgesIterator(v));
+    }
+
+    @Override
+    public int getInDegree(V v) {
+        if (directed)
+            return getInDegreeOfIndex(checkedIndexOf(v));
+        return count(incomingEdgesIterator(v));
+    }
+
+    @Override
+    public int getOutDegree(V v) {
+        if (directed)
+            return getOutDegreeOfIndex(checkedIndexOf(v));
+        return count(outgoingEdgesIterator(v));
+    }
+
+    private static int count(Iterator<?> iter) {
+        int count = 0;
+        for (; iter.hasNext(); iter.next())
+            ++count;
+        return count;
+    }
+
+    @Override
+    public Set<Edge<V,E>> getEdgesWithLabel(E label) {
+        Set<Edge<V,E>> result = new LinkedHashSet<>();
+        Iterator<Edge<V,E>> iter = allEdgesIterator();
+        while (iter.hasNext()) {
+            Edge<V,E> e = iter.next();
+            if (label == null ? e.label == null : label.equals(e.label))
+                result.add(e);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the first adjacency record of the given source whose neighbor is the given target;
+     * or -1 if there is none. Records of each vertex are sorted by neighbor ids.
+     */
+    private long findRecord(int src, int trg) {
+        long lo = outIndex.readLong(8L * src);
+        long end = outIndex.readLong(8L * src + 8);
+        long hi = end;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (outAdjacency.readInt(mid * RECORD_SIZE) < trg)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo < end && outAdjacency.readInt(lo * RECORD_SIZE) == trg ? lo : -1;
+    }
+
+    @Override
+    public boolean containsEdge(Edge<V,E> e) {
+        int src = indexOf(e.source);
+        int trg = indexOf(e.target);
+        if (src < 0 || trg < 0)
+            return false;
+        long r = findRecord(src, trg);
+        if (r < 0)
+            return false;
+        long end = outIndex.readLong(8L * src + 8);
+        for (; r < end && outAdjacency.readInt(r * RECORD_SIZE) == trg; ++r) {
+            Edge<V,E> edge = edgeOf(src, trg, outAdjacency.readLong(r * RECORD_SIZE + 4), true);
+            if (edge.equals(e) || !directed && edge.equals(e.reverse()))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsEdge(V src, V trg) {
+        int s = indexOf(src);
+        int t = indexOf(trg);
+        return s >= 0 && t >= 0 && findRecord(s, t) >= 0;
+    }
+
+    @Override
+    public boolean containsVertex(V v) {
+        return indexOf(v) >= 0;
+    }
+
+    @Override
+    public boolean containsAllEdges(Set<Edge<V,E>> set) {
+        for (Edge<V,E> edge: set)
+            if (!containsEdge(edge))
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean containsAllVertices(Set<V> set) {
+        for (V v: set)
+            if (!containsVertex(v))
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean isSubgraphOf(Graph<V,E> base) {
+        if (isDirected() != base.isDirected())
+            return false;
+        if (vertexCount() > base.vertexCount() || edgeCount() > base.edgeCount())
+            return false;
+        Iterator<V> vertices = allVerticesIterator();
+        while (vertices.hasNext())
+            if (!base.containsVertex(vertices.next()))
+                return false;
+        Iterator<Edge<V,E>> edges = allEdgesIterator();
+        while (edges.hasNext())
+            if (!base.containsEdge(edges.next()))
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean isProperSubgraphOf(Graph<V,E> base) {
+        if (vertexCount() == base.vertexCount() && edgeCount() == base.edgeCount())
+            return false;
+        return isSubgraphOf(base);
+    }
+
+    @Override
+    public boolean isConnected() {
+        if (vertexCount <= 1)
+            return true;
+        // a sequential scan over the outgoing adjacency
+        DisjointSets components = new DisjointSets(vertexCount);
+        int sets = vertexCount;
+        long r = 0;
+        for (int v = 0; v < vertexCount; ++v) {
+            long end = outIndex.readLong(8L * v + 8);
+            for (; r < end; ++r) {
+                if (components.union(v, outAdjacency.readInt(r * RECORD_SIZE)) && --sets == 1)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> Set<T> toSet(Iterator<T> iter) {
+        Set<T> set = new LinkedHashSet<>();
+        while (iter.hasNext())
+            set.add(iter.next());
+        return set;
+    }
+
+    /**
+     * Iterator over the edges of this graph; either the outgoing or incoming edges of a single
+     * vertex, or (when the vertex is -1) all edges, by a sequential scan of the outgoing adjacency.
+     * For undirected graphs, each edge is reported once when iterating over all edges.
+     */
+    private class EdgeIterator implements Iterator<Edge<V,E>> {
+
+        private final boolean outgoing;
+        private final boolean all;
+        private final PageCache index;
+        private final PageCache adjacency;
+        private int vertex;
+        private long record;
+        private long end;
+
+        EdgeIterator(int v, boolean outgoing) {
+            this.outgoing = outgoing;
+            all = v < 0;
+            index = outgoing ? outIndex : inIndex;
+            adjacency = outgoing ? outAdjacency : inAdjacency;
+            vertex = all ? 0 : v;
+            if (vertex < vertexCount) {
+                record = index.readLong(8L * vertex);
+                end = index.readLong(8L * vertex + 8);
+            }
+            advance();
+        }
+
+        /**
+         * Moves to the next reported record.
+         */
+        private void advance() {
+            while (true) {
+                while (record == end) {
+                    if (!all || ++vertex >= vertexCount)
+                        return;
+                    end = index.readLong(8L * vertex + 8);
+                }
+                if (directed || accept(adjacency.readLong(record * RECORD_SIZE + 4)))
+                    return;
+                ++record;
+            }
+        }
+
+        /**
+         * Whether the given record of an undirected graph is reported; records stored at the
+         * source of their edges are outgoing, and records stored at the target are incoming
+         * (self-loops are both).
+         */
+        private boolean accept(long ref) {
+            if (outgoing)
+                return ref >= 0;
+            return ref < 0 || adjacency.readInt(record * RECORD_SIZE) == vertex;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return record < end;
+        }
+
+        @Override
+        public Edge<V,E> next() {
+            if (record >= end)
+                throw new NoSuchElementException();
+            int neighbor = adjacency.readInt(record * RECORD_SIZE);
+            long ref = adjacency.readLong(record * RECORD_SIZE + 4);
+            int v = vertex;
+            ++record;
+            advance();
+            return edgeOf(v, neighbor, ref, outgoing);
+        }
+    }
+}
@@ -0,0 +1,427 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Builds an {@link ExternalGraph} from a stream of vertices and edges, using a small heap.
+ *
+ * Vertices and labels are encoded and written to their segment files as soon as they are added;
+ * only the mapping of vertices to their ids is kept in the heap. Edges are collected into
+ * fixed-size runs of primitive records, and each full run is sorted and spilled to a temporary
+ * file; the sorted runs are finally merged into the adjacency segments (an external merge sort).
+ * For directed graphs, the incoming adjacency is produced by a second external sort of the
+ * merged edges, by target. So the heap usage is bounded by the run size (16 bytes per edge)
+ * regardless of the number of edges; but it grows with the number of vertices, whose dictionary
+ * is kept in the heap until the graph is built.
+ *
+ * Like {@link Digraph} and {@link UndiGraph}, the built graph is a set of edges: edges added more
+ * than once (with the same end-points, in the same orientation, and equally encoded labels) are
+ * dropped while merging the runs.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class ExternalGraphBuilder<V,E> {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path dir;
+    private final boolean directed;
+    private final Codec<V> vertexCodec;
+    private final Codec<E> labelCodec;
+
+    private final Map<V, Integer> ids;
+    private final DataOutputStream vertexIndex;
+    private final DataOutputStream vertexData;
+    private final DataOutputStream labels;
+    private final ByteArrayOutputStream encoded;
+    private final DataOutputStream encoder;
+    private long vertexOffset;
+    private long labelOffset;
+
+    private final int runSize;
+    private final Run run;
+    private final List<Path> runFiles;
+    private int edgeCount;
+    private boolean built;
+
+    /**
+     * Construct a new builder which writes a graph into the given directory,
+     * with runs of 2^20 edges.
+     */
+    public ExternalGraphBuilder(Path dir, boolean directed, Codec<V> vertexCodec, Codec<E> labelCodec) throws IOException {
+        this(dir, directed, vertexCodec, labelCodec, 1 << 20);
+    }
+
+    /**
+     * Construct a new builder which writes a graph into the given directory,
+     * with runs of the given number of edges (which bounds the heap usage).
+     */
+    public ExternalGraphBuilder(Path dir, boolean directed, Codec<V> vertexCodec, Codec<E> labelCodec,
+                                int runSize) throws IOException {
+        if (runSize < 2)
+            throw new IllegalArgumentException("Run size must be at least 2!");
+        this.dir = dir;
+        this.directed = directed;
+        this.vertexCodec = vertexCodec;
+        this.labelCodec = labelCodec;
+        this.runSize = runSize;
+        Files.createDirectories(dir);
+        ids = new HashMap<>();
+        vertexIndex = output(dir.resolve(ExternalGraph.VERTEX_INDEX));
+        vertexData = output(dir.resolve(ExternalGraph.VERTEX_DATA));
+        labels = output(dir.resolve(ExternalGraph.LABELS));
+        encoded = new ByteArrayOutputStream();
+        encoder = new DataOutputStream(encoded);
+        vertexIndex.writeLong(0);
+        run = new Run(runSize);
+        runFiles = new ArrayList<>();
+    }
+
+    private static DataOutputStream output(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+    }
+
+    private static DataInputStream input(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+    }
+
+    /**
+     * Adds the given vertex (if it is not added before); and returns its id.
+     */
+    public int addVertex(V v) throws IOException {
+        if (built)
+            throw new IllegalStateException("Graph is already built!");
+        if (v == null)
+            throw new IllegalArgumentException("Vertex is null!");
+        Integer id = ids.get(v);
+        if (id != null)
+            return id;
+        id = ids.size();
+        ids.put(v, id);
+        encoded.reset();
+        vertexCodec.encode(v, encoder);
+        encoded.writeTo(vertexData);
+        vertexOffset += encoded.size();
+        vertexIndex.writeLong(vertexOffset);
+        return id;
+    }
+
+    /**
+     * Adds the given edge, and its end-points (if they are not added before).
+     */
+    public void addEdge(Edge<V,E> edge) throws IOException {
+        addEdge(edge.source, edge.label, edge.target);
+    }
+
+    /**
+     * Adds an edge with the given label between the given vertices,
+     * and the vertices (if they are not added before).
+     */
+    public void addEdge(V src, E label, V trg) throws IOException {
+        int s = addVertex(src);
+        int t = addVertex(trg);
+        long ref = labelOffset;
+        if (label == null) {
+            labels.writeInt(-1);
+            labelOffset += 4;
+        } else {
+            encoded.reset();
+            labelCodec.encode(label, encoder);
+            labels.writeInt(encoded.size());
+            encoded.writeTo(labels);
+            labelOffset += 4 + encoded.size();
+        }
+        ++edgeCount;
+        add(runFiles, s, t, ref);
+        // undirected edges are also stored at their targets, with complemented references
+        if (!directed && s != t)
+            add(runFiles, t, s, ~ref);
+    }
+
+    /**
+     * Adds the given record to the current run, spilling it to the given run files if it is full.
+     */
+    private void add(List<Path> files, int key, int value, long ref) throws IOException {
+        if (run.size == runSize)
+            spill(run, files);
+        run.add(key, value, ref);
+    }
+
+    /**
+     * Sorts the given run and writes it to a new temporary file.
+     */
+    private void spill(Run run, List<Path> files) throws IOException {
+        run.sort();
+        Path file = Files.createTempFile(dir, "run", ".tmp");
+        try (DataOutputStream out = output(file)) {
+            for (int i = 0; i < run.size; ++i) {
+                int k = run.order[i];
+                out.writeInt(run.key[k]);
+                out.writeInt(run.value[k]);
+                out.writeLong(run.ref[k]);
+            }
+        }
+        files.add(file);
+        run.size = 0;
+    }
+
+    /**
+     * Writes the remaining segment files, and opens the built graph with the given cache size.
+     */
+    public ExternalGraph<V,E> build(int cachePages) throws IOException {
+        if (built)
+            throw new IllegalStateException("Graph is already built!");
+        built = true;
+        vertexIndex.close();
+        vertexData.close();
+        labels.close();
+        int n = ids.size();
+        // the hash table of the vertex dictionary
+        long[] hashes = new long[n];
+        int k = 0;
+        for (Map.Entry<V, Integer> entry: ids.entrySet())
+            hashes[k++] = (long) entry.getKey().hashCode() << 32 | entry.getValue();
+        ids.clear();
+        Arrays.sort(hashes);
+        try (DataOutputStream out = output(dir.resolve(ExternalGraph.VERTEX_HASH))) {
+            for (long entry: hashes)
+                out.writeLong(entry);
+        }
+        hashes = null;
+        // the outgoing adjacency; for directed graphs, the merged edges are spilled again by target
+        if (run.size > 0 || runFiles.isEmpty())
+            spill(run, runFiles);
+        List<Path> inFiles = new ArrayList<>();
+        try (FileChannel labelFile = FileChannel.open(dir.resolve(ExternalGraph.LABELS))) {
+            edgeCount -= merge(runFiles, n, dir.resolve(ExternalGraph.OUT_INDEX),
+                               dir.resolve(ExternalGraph.OUT_ADJACENCY), directed ? inFiles : null, labelFile);
+        }
+        if (directed) {
+            if (run.size > 0 || inFiles.isEmpty())
+                spill(run, inFiles);
+            // the incoming runs are made of the merged edges, so they have no duplicates
+            merge(inFiles, n, dir.resolve(ExternalGraph.IN_INDEX), dir.resolve(ExternalGraph.IN_ADJACENCY), null, null);
+        }
+        try (DataOutputStream meta = output(dir.resolve(ExternalGraph.META))) {
+            meta.writeInt(ExternalGraph.MAGIC);
+            meta.writeBoolean(directed);
+            meta.writeInt(n);
+            meta.writeInt(edgeCount);
+        }
+        return new ExternalGraph<>(dir, vertexCodec, labelCodec, cachePages);
+    }
+
+    /**
+     * Merges the given sorted runs into an index and an adjacency segment, and deletes them.
+     * If the reversed runs are given, each merged record is also added reversed to a new run.
+     * If the label file is given, duplicate edges are dropped; and the number of dropped edges
+     * is returned.
+     */
+    private int merge(List<Path> files, int n, Path indexFile, Path adjacencyFile, List<Path> reversed,
+                      FileChannel labelFile) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>();
+        try (DataOutputStream index = output(indexFile);
+             DataOutputStream adjacency = output(adjacencyFile)) {
+            for (int k = 0; k < files.size(); ++k) {
+                RunReader reader = new RunReader(files.get(k), k);
+                if (reader.next())
+                    queue.add(reader);
+                else
+                    reader.close();
+            }
+            long records = 0;
+            int vertex = 0;
+            int dropped = 0;
+            // records with equal (key, value) are consecutive; their labels are only read for such groups
+            int groupKey = -1, groupValue = -1;
+            long groupRef = 0;
+            Set<ByteBuffer> groupLabels = new HashSet<>();
+            index.writeLong(0);
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                boolean duplicate = false;
+                if (labelFile != null) {
+                    if (reader.key != groupKey || reader.value != groupValue) {
+                        groupKey = reader.key;
+                        groupValue = reader.value;
+                        groupRef = reader.ref;
+                        groupLabels.clear();
+                    } else {
+                        if (groupLabels.isEmpty())
+                            groupLabels.add(readLabel(labelFile, groupRef));
+                        duplicate = !groupLabels.add(readLabel(labelFile, reader.ref));
+                    }
+                }
+                if (duplicate) {
+                    // undirected edges are counted by their records at the source (non-complemented)
+                    if (reader.ref >= 0)
+                        ++dropped;
+                } else {
+                    // close the index of all vertices before the current key
+                    for (; vertex < reader.key; ++vertex)
+                        index.writeLong(records);
+                    adjacency.writeInt(reader.value);
+                    adjacency.writeLong(reader.ref);
+                    ++records;
+                    if (reversed != null)
+                        add(reversed, reader.value, reader.key, reader.ref);
+                }
+                if (reader.next())
+                    queue.add(reader);
+                else
+                    reader.close();
+            }
+            for (; vertex < n; ++vertex)
+                index.writeLong(records);
+            return dropped;
+        } finally {
+            for (RunReader reader: queue)
+                reader.close();
+            for (Path file: files)
+                Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Reads the encoded label of the given edge reference, prefixed by a flag byte
+     * which tells null labels and the orientation of undirected edges apart.
+     */
+    private static ByteBuffer readLabel(FileChannel labelFile, long ref) throws IOException {
+        long offset = ref < 0 ? ~ref : ref;
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(labelFile, length, offset);
+        int size = Math.max(length.getInt(0), 0);
+        ByteBuffer label = ByteBuffer.allocate(1 + size);
+        label.put((byte) ((length.getInt(0) < 0 ? 1 : 0) | (ref < 0 ? 2 : 0)));
+        readFully(labelFile, label, offset + 4);
+        label.flip();
+        return label;
+    }
+
+    private static void readFully(FileChannel file, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = file.read(buffer, position);
+            if (read < 0)
+                throw new EOFException();
+            position += read;
+        }
+    }
+
+    /**
+     * A run of edge records in primitive arrays.
+     */
+    private static class Run {
+
+        final int[] key;
+        final int[] value;
+        final long[] ref;
+        final int[] order;
+        int size;
+
+        Run(int capacity) {
+            key = new int[capacity];
+            value = new int[capacity];
+            ref = new long[capacity];
+            order = new int[capacity];
+        }
+
+        void add(int k, int v, long r) {
+            key[size] = k;
+            value[size] = v;
+            ref[size++] = r;
+        }
+
+        /**
+         * Sorts the positions of the records in this run by (key, value); the sort is stable,
+         * so equal edges keep their insertion order.
+         */
+        void sort() {
+            // ids are non-negative, so the packed pairs compare like the pairs
+            long[] packed = new long[size];
+            for (int i = 0; i < size; ++i) {
+                packed[i] = (long) key[i] << 32 | value[i];
+                order[i] = i;
+            }
+            mergeSort(packed, new int[size], 0, size);
+        }
+
+        private void mergeSort(long[] packed, int[] buffer, int from, int to) {
+            if (to - from < 2)
+                return;
+            int mid = (from + to) >>> 1;
+            mergeSort(packed, buffer, from, mid);
+            mergeSort(packed, buffer, mid, to);
+            if (packed[order[mid - 1]] <= packed[order[mid]])
+                return;
+            System.arraycopy(order, from, buffer, from, to - from);
+            int i = from, j = mid;
+            for (int k = from; k < to; ++k) {
+                if (j == to || i < mid && packed[buffer[i]] <= packed[buffer[j]])
+                    order[k] = buffer[i++];
+                else
+                    order[k] = buffer[j++];
+            }
+        }
+    }
+
+    /**
+     * A sequential reader of a sorted run file.
+     */
+    private static class RunReader implements Comparable<RunReader> {
+
+        private final DataInputStream in;
+        private final int sequence;
+        int key;
+        int value;
+        long ref;
+
+        RunReader(Path file, int sequence) throws IOException {
+            in = input(file);
+            this.sequence = sequence;
+        }
+
+        boolean next() throws IOException {
+            try {
+                key = in.readInt();
+            } catch (EOFException ex) {
+                return false;
+            }
+            value = in.readInt();
+            ref = in.readLong();
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            if (key != other.key)
+                return Integer.compare(key, other.key);
+            if (value != other.value)
+                return Integer.compare(value, other.value);
+            // earlier runs first, which keeps equal edges in insertion order
+            return Integer.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -187,7 +187,10 @@ public interface Graph<V,E> {
 
     /**
      * Check whether this graph is connected or not.
-     * Connectivity is determined by a breadth-first-traversal starting from a random vertex.
+     * For directed graphs, edge directions are ignored (i.e. weak connectivity).
+     * A graph with no vertices is considered connected.
+     * Connectivity is determined by a union-find pass over the edges, 
+     * which stops as soon as all vertices are found connected.
      */
     public boolean isConnected();
 }
@@ -0,0 +1,166 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.Set;
+
+/**
+ * Set operations over property graphs: union, intersection, difference and symmetric difference,
+ * as well as structural diffs between two versions of a graph.
+ *
+ * Both operands must be of the same kind (directed or undirected, identity or not),
+ * and use the same kinds of vertex and edge matchers; vertices and edges of the two graphs
+ * are matched according to these matchers. Operations are implemented as hash-join passes:
+ * the elements of one graph are probed against the hashed vertex and edge sets of the other graph,
+ * and the results are inserted directly into the structures of a new graph; so each operation
+ * runs in time linear in the sizes of the two graphs. The operands are not modified.
+ *
+ * When a vertex or edge exists in both graphs, the result contains the object of the first graph.
+ * Edges of undirected graphs are matched in either orientation.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class GraphAlgebra {
+
+    /**
+     * Returns the union of the two graphs; i.e. all vertices and all edges of both graphs.
+     */
+    public static <V,E> AbstractPropertyGraph<V,E> union(AbstractPropertyGraph<V,E> first,
+                                                         AbstractPropertyGraph<V,E> second) {
+        AbstractPropertyGraph<V,E> result = newGraph(first, second);
+        for (V v: first.allVertices)
+            result.addVertex(v);
+        for (V v: second.allVertices)
+            if (!first.allVertices.contains(v))
+                result.addVertex(v);
+        for (Edge<V,E> e: first.allEdges)
+            putEdge(result, e);
+        for (Edge<V,E> e: second.allEdges)
+            if (!containsEdge(first, e))
+                putEdge(result, e);
+        return result;
+    }
+
+    /**
+     * Returns the intersection of the two graphs; i.e. the common vertices and common edges.
+     */
+    public static <V,E> AbstractPropertyGraph<V,E> intersection(AbstractPropertyGraph<V,E> first,
+                                                                AbstractPropertyGraph<V,E> second) {
+        AbstractPropertyGraph<V,E> result = newGraph(first, second);
+        for (V v: first.allVertices)
+            if (second.allVertices.contains(v))
+                result.addVertex(v);
+        for (Edge<V,E> e: first.allEdges)
+            if (containsEdge(second, e))
+                putEdge(result, e);
+        return result;
+    }
+
+    /**
+     * Returns the difference of the two graphs; i.e. all vertices of the first graph,
+     * and the edges of the first graph which are not in the second graph.
+     * To also compare the vertices, use {@link #diff(AbstractPropertyGraph, AbstractPropertyGraph)}.
+     */
+    public static <V,E> AbstractPropertyGraph<V,E> difference(AbstractPropertyGraph<V,E> first,
+                                                              AbstractPropertyGraph<V,E> second) {
+        AbstractPropertyGraph<V,E> result = newGraph(first, second);
+        for (V v: first.allVertices)
+            result.addVertex(v);
+        for (Edge<V,E> e: first.allEdges)
+            if (!containsEdge(second, e))
+                putEdge(result, e);
+        return result;
+    }
+
+    /**
+     * Returns the symmetric difference (ring-sum) of the two graphs; i.e. all vertices of both graphs,
+     * and the edges which are in exactly one of the two graphs.
+     */
+    public static <V,E> AbstractPropertyGraph<V,E> symmetricDifference(AbstractPropertyGraph<V,E> first,
+                                                                       AbstractPropertyGraph<V,E> second) {
+        AbstractPropertyGraph<V,E> result = newGraph(first, second);
+        for (V v: first.allVertices)
+            result.addVertex(v);
+        for (V v: second.allVertices)
+            if (!first.allVertices.contains(v))
+                result.addVertex(v);
+        for (Edge<V,E> e: first.allEdges)
+            if (!containsEdge(second, e))
+                putEdge(result, e);
+        for (Edge<V,E> e: second.allEdges)
+            if (!containsEdge(first, e))
+                putEdge(result, e);
+        return result;
+    }
+
+    /**
+     * Returns the structural difference from the old version of a graph to its new version.
+     */
+    public static <V,E> GraphDiff<V,E> diff(AbstractPropertyGraph<V,E> oldGraph,
+                                            AbstractPropertyGraph<V,E> newGraph) {
+        checkCompatible(oldGraph, newGraph);
+        Set<V> addedVertices = oldGraph.newVertexSet(16);
+        Set<V> removedVertices = oldGraph.newVertexSet(16);
+        Set<Edge<V,E>> addedEdges = oldGraph.newEdgeSet(16);
+        Set<Edge<V,E>> removedEdges = oldGraph.newEdgeSet(16);
+        for (V v: oldGraph.allVertices)
+            if (!newGraph.allVertices.contains(v))
+                removedVertices.add(v);
+        for (V v: newGraph.allVertices)
+            if (!oldGraph.allVertices.contains(v))
+                addedVertices.add(v);
+        for (Edge<V,E> e: oldGraph.allEdges)
+            if (!containsEdge(newGraph, e))
+                removedEdges.add(e);
+        for (Edge<V,E> e: newGraph.allEdges)
+            if (!containsEdge(oldGraph, e))
+                addedEdges.add(e);
+        return new GraphDiff<>(addedVertices, removedVertices, addedEdges, removedEdges);
+    }
+
+    /**
+     * Check that the two graphs can be combined; i.e. they are of the same kind,
+     * and use the same kinds of matchers.
+     */
+    private static void checkCompatible(AbstractPropertyGraph<?,?> first, AbstractPropertyGraph<?,?> second) {
+        if (first.isDirected() != second.isDirected())
+            throw new IllegalArgumentException("Cannot combine directed and undirected graphs!");
+        if ((first instanceof IdentityDigraph) != (second instanceof IdentityDigraph))
+            throw new IllegalArgumentException("Cannot combine identity and non-identity graphs!");
+        if (first.getVertexMatcher().getClass() != second.getVertexMatcher().getClass() ||
+                first.getEdgesMatcher().getClass() != second.getEdgesMatcher().getClass())
+            throw new IllegalArgumentException("Graphs must have the same matchers!");
+    }
+
+    /**
+     * Returns a new empty graph of the same kind and with the same matchers as the operands.
+     */
+    private static <V,E> AbstractPropertyGraph<V,E> newGraph(AbstractPropertyGraph<V,E> first,
+                                                             AbstractPropertyGraph<V,E> second) {
+        checkCompatible(first, second);
+        if (first instanceof IdentityDigraph)
+            return new IdentityDigraph<>();
+        if (first instanceof Digraph)
+            return new Digraph<>(first.getVertexMatcher(), first.getEdgesMatcher());
+        if (first instanceof UndiGraph)
+            return new UndiGraph<>(first.getVertexMatcher(), first.getEdgesMatcher());
+        throw new IllegalArgumentException("Unsupported graph type: " + first.getClass().getName());
+    }
+
+    /**
+     * Check whether the given graph contains the given edge (or its reverse, for undirected graphs).
+     */
+    private static <V,E> boolean containsEdge(AbstractPropertyGraph<V,E> graph, Edge<V,E> e) {
+        return graph.allEdges.contains(e) || (!graph.isDirected() && graph.allEdges.contains(e.reverse()));
+    }
+
+    /**
+     * Inserts the given edge directly into the structures of the given graph;
+     * the end-points of the edge must already be in the graph.
+     */
+    private static <V,E> void putEdge(AbstractPropertyGraph<V,E> graph, Edge<V,E> e) {
+        if (graph.allEdges.add(e)) {
+            graph.inEdges.get(e.target).add(e);
+            graph.outEdges.get(e.source).add(e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The structural difference between two versions of a graph;
+ * i.e. the vertices and edges added and removed from the old version to the new version.
+ *
+ * Vertices and edges are matched according to the matchers of the graphs
+ * (see {@link GraphAlgebra#diff(AbstractPropertyGraph, AbstractPropertyGraph)}).
+ * Added elements are those of the new graph, and removed elements are those of the old graph.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class GraphDiff<V,E> {
+
+    private final Set<V> addedVertices;
+    private final Set<V> removedVertices;
+    private final Set<Edge<V,E>> addedEdges;
+    private final Set<Edge<V,E>> removedEdges;
+
+    GraphDiff(Set<V> addedVertices, Set<V> removedVertices,
+              Set<Edge<V,E>> addedEdges, Set<Edge<V,E>> removedEdges) {
+        this.addedVertices = Collections.unmodifiableSet(addedVertices);
+        this.removedVertices = Collections.unmodifiableSet(removedVertices);
+        this.addedEdges = Collections.unmodifiableSet(addedEdges);
+        this.removedEdges = Collections.unmodifiableSet(removedEdges);
+    }
+
+    /**
+     * Returns the (unmodifiable) set of vertices in the new graph which are not in the old graph.
+     */
+    public Set<V> getAddedVertices() {
+        return addedVertices;
+    }
+
+    /**
+     * Returns the (unmodifiable) set of vertices in the old graph which are not in the new graph.
+     */
+    public Set<V> getRemovedVertices() {
+        return removedVertices;
+    }
+
+    /**
+     * Returns the (unmodifiable) set of edges in the new graph which are not in the old graph.
+     */
+    public Set<Edge<V,E>> getAddedEdges() {
+        return addedEdges;
+    }
+
+    /**
+     * Returns the (unmodifiable) set of edges in the old graph which are not in the new graph.
+     */
+    public Set<Edge<V,E>> getRemovedEdges() {
+        return removedEdges;
+    }
+
+    /**
+     * Check whether the two versions are equal; i.e. nothing is added or removed.
+     */
+    public boolean isEmpty() {
+        return addedVertices.isEmpty() && removedVertices.isEmpty() &&
+                addedEdges.isEmpty() && removedEdges.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        for (V v: removedVertices)
+            str.append("- ").append(v).append('\n');
+        for (V v: addedVertices)
+            str.append("+ ").append(v).append('\n');
+        for (Edge<V,E> e: removedEdges)
+            str.append("- ").append(e).append('\n');
+        for (Edge<V,E> e: addedEdges)
+            str.append("+ ").append(e).append('\n');
+        return str.toString();
+    }
+}
@@ -0,0 +1,486 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import ghaffarian.graphs.utils.Hungarian;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Graph edit distance (GED); i.e. the minimum total cost of vertex and edge insertions,
+ * deletions and substitutions which transform one graph into another, under a given {@link EditCosts}.
+ *
+ * Two algorithms are provided:
+ * <ul>
+ *   <li>{@link #exact}: an A* search over partial vertex mappings, which is exponential in
+ *       the worst case and only suitable for small graphs (up to a dozen or so vertices).
+ *       The search is guided by an admissible heuristic (an optimal assignment of the remaining
+ *       vertices, plus the cost of the surplus of remaining edges in either graph),
+ *       and pruned by the bipartite upper bound.</li>
+ *   <li>{@link #approximate}: the bipartite approximation, which solves a single assignment problem
+ *       between the vertices of the two graphs (where each vertex carries the cost of its incident
+ *       edges) using the Hungarian algorithm, in cubic time; and returns the exact cost of the
+ *       edit path induced by the resulting vertex mapping. So the result is an upper bound
+ *       of the exact distance.</li>
+ * </ul>
+ * Both graphs must be either directed or undirected.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class GraphEditDistance {
+
+    private static final int[] NONE = new int[0];
+
+    /**
+     * Returns the exact edit distance between the two given graphs.
+     */
+    public static <V,E> double exact(Graph<V,E> g1, Graph<V,E> g2, EditCosts<V,E> costs) {
+        Prepared<V,E> p1 = new Prepared<>(g1);
+        Prepared<V,E> p2 = new Prepared<>(g2);
+        checkCompatible(p1, p2);
+        return exact(p1, p2, costs, approximate(p1, p2, costs));
+    }
+
+    /**
+     * Returns an approximation (an upper bound) of the edit distance between the two given graphs.
+     */
+    public static <V,E> double approximate(Graph<V,E> g1, Graph<V,E> g2, EditCosts<V,E> costs) {
+        Prepared<V,E> p1 = new Prepared<>(g1);
+        Prepared<V,E> p2 = new Prepared<>(g2);
+        checkCompatible(p1, p2);
+        return approximate(p1, p2, costs);
+    }
+
+    static void checkCompatible(Prepared<?,?> p1, Prepared<?,?> p2) {
+        if (p1.directed != p2.directed)
+            throw new IllegalArgumentException("Cannot compare directed and undirected graphs!");
+    }
+
+    /**
+     * Computes the exact edit distance by A* search; returns positive infinity
+     * if the distance is greater than the given bound.
+     */
+    static <V,E> double exact(Prepared<V,E> p1, Prepared<V,E> p2, EditCosts<V,E> costs, double bound) {
+        int n1 = p1.vertexCount();
+        int n2 = p2.vertexCount();
+        // process high-degree vertices first, as they constrain the mapping the most
+        Integer[] sorted = new Integer[n1];
+        for (int i = 0; i < n1; ++i)
+            sorted[i] = i;
+        Arrays.sort(sorted, (a, b) -> Integer.compare(p1.degree(b), p1.degree(a)));
+        int[] order = new int[n1];
+        for (int i = 0; i < n1; ++i)
+            order[i] = sorted[i];
+        // number of edges of g1 which are not accounted for before each depth
+        int[] position = new int[n1];
+        for (int i = 0; i < n1; ++i)
+            position[order[i]] = i;
+        int[] remaining = new int[n1 + 1];
+        for (int e = 0; e < p1.edges.length; ++e)
+            ++remaining[Math.max(position[p1.source[e]], position[p1.target[e]])];
+        for (int d = n1 - 1; d >= 0; --d)
+            remaining[d] += remaining[d + 1];
+        double minDeletion = Double.POSITIVE_INFINITY, minInsertion = Double.POSITIVE_INFINITY;
+        for (Edge<V,E> e: p1.edges)
+            minDeletion = Math.min(minDeletion, costs.edgeDeletion(e));
+        for (Edge<V,E> e: p2.edges)
+            minInsertion = Math.min(minInsertion, costs.edgeInsertion(e));
+        Heuristic<V,E> heuristic = new Heuristic<>(p1, p2, costs, order, remaining, minDeletion, minInsertion);
+        int[][][] pairs1 = p1.pairs();
+        int[][][] pairs2 = p2.pairs();
+        double limit = bound + 1e-9 * Math.max(1, Math.abs(bound));
+        PriorityQueue<Node> open = new PriorityQueue<>(
+                Comparator.<Node>comparingDouble(node -> node.f).thenComparing(node -> -node.depth));
+        int[] rootMap = new int[n1];
+        Arrays.fill(rootMap, -1);
+        Node root = new Node(rootMap, new boolean[n2], 0, 0);
+        root.f = heuristic.estimate(0, root.used);
+        open.add(root);
+        while (!open.isEmpty()) {
+            Node node = open.poll();
+            if (node.depth > n1)
+                return node.g;
+            if (node.depth == n1) {
+                // insert the remaining vertices of g2, and all edges incident to them
+                double g = node.g;
+                for (int j = 0; j < n2; ++j)
+                    if (!node.used[j])
+                        g += costs.vertexInsertion(p2.vertices[j]);
+                for (int e = 0; e < p2.edges.length; ++e)
+                    if (!node.used[p2.source[e]] || !node.used[p2.target[e]])
+                        g += costs.edgeInsertion(p2.edges[e]);
+                if (g <= limit) {
+                    Node done = new Node(node.map, node.used, n1 + 1, g);
+                    done.f = g;
+                    open.add(done);
+                }
+                continue;
+            }
+            int u = order[node.depth];
+            for (int v = -1; v < n2; ++v) {
+                if (v >= 0 && node.used[v])
+                    continue;
+                double step = v < 0 ? costs.vertexDeletion(p1.vertices[u])
+                                    : costs.vertexSubstitution(p1.vertices[u], p2.vertices[v]);
+                // edges between u and the already mapped vertices (including self-loops)
+                step += edgeListCost(p1, pairs1[u][u], p2, v >= 0 ? pairs2[v][v] : NONE, costs);
+                for (int k = 0; k < node.depth; ++k) {
+                    int a = order[k];
+                    int w = node.map[a];
+                    boolean both = v >= 0 && w >= 0;
+                    step += edgeListCost(p1, pairs1[u][a], p2, both ? pairs2[v][w] : NONE, costs);
+                    if (p1.directed)
+                        step += edgeListCost(p1, pairs1[a][u], p2, both ? pairs2[w][v] : NONE, costs);
+                }
+                double g = node.g + step;
+                if (g > limit)
+                    continue;
+                int[] map = node.map.clone();
+                map[u] = v;
+                boolean[] used = node.used;
+                if (v >= 0) {
+                    used = used.clone();
+                    used[v] = true;
+                }
+                Node child = new Node(map, used, node.depth + 1, g);
+                child.f = g + heuristic.estimate(node.depth + 1, used);
+                if (child.f <= limit)
+                    open.add(child);
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the minimum cost of assigning the given vertices of g1 to the given vertices of g2
+     * (where unassigned vertices are deleted or inserted), ignoring edges.
+     */
+    static <V,E> double vertexAssignmentCost(Prepared<V,E> p1, int[] rows, Prepared<V,E> p2, int[] cols,
+                                             EditCosts<V,E> costs) {
+        double sum = 0;
+        if (rows.length == 0 || cols.length == 0) {
+            for (int i: rows)
+                sum += costs.vertexDeletion(p1.vertices[i]);
+            for (int j: cols)
+                sum += costs.vertexInsertion(p2.vertices[j]);
+            return sum;
+        }
+        double[][] sub = new double[rows.length][cols.length];
+        double[] del = new double[rows.length];
+        double[] ins = new double[cols.length];
+        for (int i = 0; i < rows.length; ++i) {
+            del[i] = costs.vertexDeletion(p1.vertices[rows[i]]);
+            for (int j = 0; j < cols.length; ++j)
+                sub[i][j] = costs.vertexSubstitution(p1.vertices[rows[i]], p2.vertices[cols[j]]);
+        }
+        for (int j = 0; j < cols.length; ++j)
+            ins[j] = costs.vertexInsertion(p2.vertices[cols[j]]);
+        return Hungarian.minimumCost(assignmentMatrix(sub, del, ins));
+    }
+
+    /**
+     * Computes the bipartite approximation of the edit distance.
+     */
+    static <V,E> double approximate(Prepared<V,E> p1, Prepared<V,E> p2, EditCosts<V,E> costs) {
+        int n1 = p1.vertexCount();
+        int n2 = p2.vertexCount();
+        double[][] sub = new double[n1][n2];
+        double[] del = new double[n1];
+        double[] ins = new double[n2];
+        // each edge is incident to two vertices, so half of its cost is attributed to each
+        for (int i = 0; i < n1; ++i) {
+            int[] inc1 = p1.incident(i);
+            del[i] = costs.vertexDeletion(p1.vertices[i]) + 0.5 * edgeListCost(p1, inc1, p2, NONE, costs);
+            for (int j = 0; j < n2; ++j)
+                sub[i][j] = costs.vertexSubstitution(p1.vertices[i], p2.vertices[j]) +
+                            0.5 * edgeListCost(p1, inc1, p2, p2.incident(j), costs);
+        }
+        for (int j = 0; j < n2; ++j)
+            ins[j] = costs.vertexInsertion(p2.vertices[j]) + 0.5 * edgeListCost(p1, NONE, p2, p2.incident(j), costs);
+        int[] map = new int[n1];
+        if (n1 > 0 && n2 > 0) {
+            int[] assignment = Hungarian.solve(assignmentMatrix(sub, del, ins));
+            for (int i = 0; i < n1; ++i)
+                map[i] = assignment[i] < n2 ? assignment[i] : -1;
+        } else
+            Arrays.fill(map, -1);
+        return mappingCost(p1, p2, map, costs);
+    }
+
+    /**
+     * Returns the cost of the edit path induced by the given vertex mapping from g1 to g2,
+     * where unmapped vertices of g1 (mapped to -1) are deleted, and vertices of g2
+     * which are not the image of any vertex are inserted.
+     */
+    static <V,E> double mappingCost(Prepared<V,E> p1, Prepared<V,E> p2, int[] map, EditCosts<V,E> costs) {
+        int n2 = p2.vertexCount();
+        double cost = 0;
+        boolean[] image = new boolean[n2];
+        for (int i = 0; i < map.length; ++i) {
+            if (map[i] < 0)
+                cost += costs.vertexDeletion(p1.vertices[i]);
+            else {
+                cost += costs.vertexSubstitution(p1.vertices[i], p2.vertices[map[i]]);
+                image[map[i]] = true;
+            }
+        }
+        for (int j = 0; j < n2; ++j)
+            if (!image[j])
+                cost += costs.vertexInsertion(p2.vertices[j]);
+        // group edges by the (mapped) pair of their end-points
+        Map<Long, List<Integer>> groups1 = new HashMap<>();
+        Map<Long, List<Integer>> groups2 = new HashMap<>();
+        for (int e = 0; e < p1.edges.length; ++e) {
+            int s = map[p1.source[e]], t = map[p1.target[e]];
+            if (s < 0 || t < 0)
+                cost += costs.edgeDeletion(p1.edges[e]);
+            else
+                groups1.computeIfAbsent(pairKey(s, t, n2, p1.directed), k -> new ArrayList<>()).add(e);
+        }
+        for (int e = 0; e < p2.edges.length; ++e) {
+            int s = p2.source[e], t = p2.target[e];
+            if (!image[s] || !image[t])
+                cost += costs.edgeInsertion(p2.edges[e]);
+            else
+                groups2.computeIfAbsent(pairKey(s, t, n2, p2.directed), k -> new ArrayList<>()).add(e);
+        }
+        for (Map.Entry<Long, List<Integer>> group: groups1.entrySet())
+            cost += edgeListCost(p1, toArray(group.getValue()), p2, toArray(groups2.get(group.getKey())), costs);
+        for (Map.Entry<Long, List<Integer>> group: groups2.entrySet())
+            if (!groups1.containsKey(group.getKey()))
+                cost += edgeListCost(p1, NONE, p2, toArray(group.getValue()), costs);
+        return cost;
+    }
+
+    private static long pairKey(int s, int t, int n, boolean directed) {
+        if (!directed && s > t) {
+            int tmp = s;
+            s = t;
+            t = tmp;
+        }
+        return (long) s * n + t;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        if (list == null)
+            return NONE;
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; ++i)
+            array[i] = list.get(i);
+        return array;
+    }
+
+    /**
+     * Returns the minimum cost of transforming the first list of edges (of g1)
+     * into the second list of edges (of g2).
+     */
+    static <V,E> double edgeListCost(Prepared<V,E> p1, int[] list1, Prepared<V,E> p2, int[] list2,
+                                     EditCosts<V,E> costs) {
+        int a = list1.length, b = list2.length;
+        double sum = 0;
+        if (a == 0 || b == 0) {
+            for (int e: list1)
+                sum += costs.edgeDeletion(p1.edges[e]);
+            for (int e: list2)
+                sum += costs.edgeInsertion(p2.edges[e]);
+            return sum;
+        }
+        if (a == 1 && b == 1) {
+            Edge<V,E> e1 = p1.edges[list1[0]], e2 = p2.edges[list2[0]];
+            return Math.min(costs.edgeSubstitution(e1, e2), costs.edgeDeletion(e1) + costs.edgeInsertion(e2));
+        }
+        double[][] sub = new double[a][b];
+        double[] del = new double[a];
+        double[] ins = new double[b];
+        for (int i = 0; i < a; ++i) {
+            del[i] = costs.edgeDeletion(p1.edges[list1[i]]);
+            for (int j = 0; j < b; ++j)
+                sub[i][j] = costs.edgeSubstitution(p1.edges[list1[i]], p2.edges[list2[j]]);
+        }
+        for (int j = 0; j < b; ++j)
+            ins[j] = costs.edgeInsertion(p2.edges[list2[j]]);
+        return Hungarian.minimumCost(assignmentMatrix(sub, del, ins));
+    }
+
+    /**
+     * Builds the square (a+b) cost matrix of the assignment problem with substitutions,
+     * deletions and insertions; where each element can only be deleted (or inserted) in its own
+     * diagonal cell, and the rest of the deletion and insertion blocks are forbidden.
+     */
+    static double[][] assignmentMatrix(double[][] sub, double[] del, double[] ins) {
+        int a = del.length, b = ins.length;
+        // a cost larger than deleting and inserting everything is never chosen
+        double forbidden = 1;
+        for (double d: del)
+            forbidden += d;
+        for (double c: ins)
+            forbidden += c;
+        double[][] matrix = new double[a + b][a + b];
+        for (int i = 0; i < a; ++i) {
+            System.arraycopy(sub[i], 0, matrix[i], 0, b);
+            Arrays.fill(matrix[i], b, a + b, forbidden);
+            matrix[i][b + i] = del[i];
+        }
+        for (int j = 0; j < b; ++j) {
+            Arrays.fill(matrix[a + j], 0, b, forbidden);
+            matrix[a + j][j] = ins[j];
+            // the remaining (epsilon to epsilon) block is zero
+        }
+        return matrix;
+    }
+
+    /**
+     * Admissible heuristic of the A* algorithm; a lower bound on the cost of mapping the remaining
+     * vertices of g1 (from a given depth of the processing order) to the unused vertices of g2.
+     * This is the optimal assignment of these vertices (ignoring edges), plus the cost of
+     * deleting (or inserting) the surplus of the remaining edges of g1 (or g2).
+     */
+    private static class Heuristic<V,E> {
+
+        private final Prepared<V,E> p1;
+        private final Prepared<V,E> p2;
+        private final EditCosts<V,E> costs;
+        private final int[] order;
+        private final int[] remaining;
+        private final double minDeletion;
+        private final double minInsertion;
+
+        Heuristic(Prepared<V,E> p1, Prepared<V,E> p2, EditCosts<V,E> costs, int[] order,
+                  int[] remaining, double minDeletion, double minInsertion) {
+            this.p1 = p1;
+            this.p2 = p2;
+            this.costs = costs;
+            this.order = order;
+            this.remaining = remaining;
+            this.minDeletion = minDeletion;
+            this.minInsertion = minInsertion;
+        }
+
+        double estimate(int depth, boolean[] used) {
+            int[] rows = Arrays.copyOfRange(order, depth, order.length);
+            int[] cols = new int[used.length];
+            int count = 0;
+            for (int j = 0; j < used.length; ++j)
+                if (!used[j])
+                    cols[count++] = j;
+            double bound = vertexAssignmentCost(p1, rows, p2, Arrays.copyOf(cols, count), costs);
+            int remaining2 = 0;
+            for (int e = 0; e < p2.edges.length; ++e)
+                if (!used[p2.source[e]] || !used[p2.target[e]])
+                    ++remaining2;
+            int surplus = remaining[depth] - remaining2;
+            if (surplus > 0)
+                bound += surplus * minDeletion;
+            else if (surplus < 0)
+                bound -= surplus * minInsertion;
+            return bound;
+        }
+    }
+
+    /**
+     * Search node of the A* algorithm; a partial mapping of the vertices of g1
+     * (in processing order up to the depth) to vertices of g2 or -1 (deleted).
+     */
+    private static class Node {
+
+        final int[] map;
+        final boolean[] used;
+        final int depth;
+        final double g;
+        double f;
+
+        Node(int[] map, boolean[] used, int depth, double g) {
+            this.map = map;
+            this.used = used;
+            this.depth = depth;
+            this.g = g;
+        }
+    }
+
+    /**
+     * A graph prepared for edit distance computations; i.e. indexed vertices and edges,
+     * with incident edges of each vertex, and (lazily) edges between each pair of vertices.
+     */
+    static class Prepared<V,E> {
+
+        final boolean directed;
+        final V[] vertices;
+        final Edge<V,E>[] edges;
+        final int[] source;
+        final int[] target;
+        private final int[] incidentStart;
+        private final int[] incident;
+        private int[][][] pairs;
+
+        Prepared(Graph<V,E> graph) {
+            CompactGraph<V,E> compact = new CompactGraph<>(graph);
+            int n = compact.vertexCount();
+            int m = compact.edgeCount();
+            directed = compact.isDirected();
+            vertices = (V[]) new Object[n];
+            for (int v = 0; v < n; ++v)
+                vertices[v] = compact.getVertex(v);
+            edges = new Edge[m];
+            for (int e = 0; e < m; ++e)
+                edges[e] = compact.getEdge(e);
+            source = compact.edgeSource;
+            target = compact.edgeTarget;
+            // incident edges; for directed graphs, outgoing and incoming edges (self-loops once)
+            incidentStart = new int[n + 1];
+            int[] list = new int[directed ? 2 * m : compact.outEdge.length];
+            int pos = 0;
+            for (int v = 0; v < n; ++v) {
+                for (int i = compact.outStart[v]; i < compact.outStart[v + 1]; ++i)
+                    list[pos++] = compact.outEdge[i];
+                if (directed) {
+                    for (int i = compact.inStart[v]; i < compact.inStart[v + 1]; ++i)
+                        if (compact.inSource[i] != v)
+                            list[pos++] = compact.inEdge[i];
+                }
+                incidentStart[v + 1] = pos;
+            }
+            incident = Arrays.copyOf(list, pos);
+        }
+
+        int vertexCount() {
+            return vertices.length;
+        }
+
+        int degree(int v) {
+            return incidentStart[v + 1] - incidentStart[v];
+        }
+
+        int[] incident(int v) {
+            return Arrays.copyOfRange(incident, incidentStart[v], incidentStart[v + 1]);
+        }
+
+        /**
+         * Returns the edges between each (ordered) pair of vertices;
+         * for undirected graphs, the lists of (a, b) and (b, a) are the same.
+         */
+        synchronized int[][][] pairs() {
+            if (pairs == null) {
+                int n = vertices.length;
+                List<Integer>[][] lists = new List[n][n];
+                for (int e = 0; e < edges.length; ++e) {
+                    int s = source[e], t = target[e];
+                    if (lists[s][t] == null)
+                        lists[s][t] = new ArrayList<>(2);
+                    lists[s][t].add(e);
+                    if (!directed && s != t)
+                        lists[t][s] = lists[s][t];
+                }
+                int[][][] result = new int[n][n][];
+                for (int s = 0; s < n; ++s)
+                    for (int t = 0; t < n; ++t)
+                        result[s][t] = toArray(lists[s][t]);
+                pairs = result;
+            }
+            return pairs;
+        }
+    }
+}
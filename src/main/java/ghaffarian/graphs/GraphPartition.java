@@ -0,0 +1,103 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A single part of a partitioned graph (see {@link GraphPartitioner}), as a separate graph.
+ *
+ * The graph of a part contains the vertices owned by the part, and all edges incident to them;
+ * the other end-points of the cut edges are included as ghost vertices, each of which is owned by
+ * another part. So each cut edge is included in the graphs of both of its parts. Boundary vertices
+ * are the owned vertices which have at least one ghost neighbor. The graph is of the same kind as
+ * the original graph (with the same notion of vertex equality), and can be written with {@link GraphWriter}.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class GraphPartition<V,E> {
+
+    public final int PART;
+    public final AbstractPropertyGraph<V,E> GRAPH;
+
+    private final Map<V, Integer> ghostOwners;
+    private final Set<V> boundary;
+    private final int ownedCount;
+
+    /**
+     * Extract the given part of the given compact graph, where the part of each vertex
+     * is given by its vertex index.
+     */
+    GraphPartition(CompactGraph<V,E> graph, int[] part, int p) {
+        PART = p;
+        GRAPH = graph.newPropertyGraph();
+        ghostOwners = graph.newVertexMap(16);
+        boundary = graph.newVertexSet(16);
+        int owned = 0;
+        for (int v = 0; v < graph.vertexCount(); ++v) {
+            if (part[v] == p) {
+                GRAPH.addVertex(graph.getVertex(v));
+                ++owned;
+            }
+        }
+        ownedCount = owned;
+        for (int e = 0; e < graph.edgeCount(); ++e) {
+            int src = graph.getEdgeSource(e);
+            int trg = graph.getEdgeTarget(e);
+            if (part[src] != p && part[trg] != p)
+                continue;
+            if (part[src] != p)
+                addGhost(graph.getVertex(src), part[src], graph.getVertex(trg));
+            else if (part[trg] != p)
+                addGhost(graph.getVertex(trg), part[trg], graph.getVertex(src));
+            GRAPH.addEdge(graph.getEdge(e));
+        }
+    }
+
+    private void addGhost(V ghost, int owner, V neighbor) {
+        if (ghostOwners.put(ghost, owner) == null)
+            GRAPH.addVertex(ghost);
+        boundary.add(neighbor);
+    }
+
+    /**
+     * Returns the number of vertices owned by this part (excluding ghosts).
+     */
+    public int getOwnedVertexCount() {
+        return ownedCount;
+    }
+
+    /**
+     * Checks whether the given vertex is a ghost in this part; i.e. it is owned by another part.
+     */
+    public boolean isGhost(V v) {
+        return ghostOwners.containsKey(v);
+    }
+
+    /**
+     * Returns the part which owns the given vertex of this part's graph.
+     */
+    public int getOwnerOf(V v) {
+        Integer owner = ghostOwners.get(v);
+        if (owner != null)
+            return owner;
+        if (!GRAPH.allVertices.contains(v))
+            throw new IllegalArgumentException("No such vertex in this partition!");
+        return PART;
+    }
+
+    /**
+     * Returns the ghost vertices of this part, mapped to their owner parts.
+     */
+    public Map<V, Integer> getGhostOwners() {
+        return Collections.unmodifiableMap(ghostOwners);
+    }
+
+    /**
+     * Returns the boundary vertices of this part; i.e. owned vertices with a ghost neighbor.
+     */
+    public Set<V> getBoundaryVertices() {
+        return Collections.unmodifiableSet(boundary);
+    }
+}
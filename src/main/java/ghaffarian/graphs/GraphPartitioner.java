@@ -0,0 +1,532 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import ghaffarian.collections.IndexedMinHeap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Balanced k-way partitioning of a graph with a small edge cut, using the multilevel method.
+ *
+ * The graph is treated as undirected and weighted (see {@link WeightedAdjacency}), and all
+ * vertices have unit weights. The multilevel method has three phases: the coarsening phase
+ * repeatedly contracts a heavy-edge matching of the graph (in random order), until the graph
+ * is small; the initial partitioning phase splits the coarsest graph by greedy graph growing
+ * (keeping the best of a few trials); and the uncoarsening phase projects the partition back to
+ * each finer level, and refines it by k-way Fiduccia-Mattheyses passes (with hill-climbing
+ * and rollback to the best prefix of moves). A part never exceeds (1 + imbalance) times
+ * the average part size, unless the coarse vertices make it impossible.
+ *
+ * Each part can be extracted as a separate graph (see {@link GraphPartition}), with ghost
+ * vertices for the end-points of the cut edges which belong to other parts; these graphs can be
+ * written with {@link GraphWriter}, so each part can be loaded independently.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class GraphPartitioner<V,E> {
+
+    // coarsening stops when the graph has at most this many vertices per part
+    private static final int COARSEST_PER_PART = 20;
+    private static final int INITIAL_TRIALS = 4;
+    private static final int MAX_PASSES = 8;
+    // a refinement pass stops after this many moves without any improvement
+    private static final int MAX_FRUITLESS_MOVES = 100;
+
+    public final CompactGraph<V,E> GRAPH;
+
+    private final WeightedAdjacency base;
+    private final int parts;
+    private double imbalance;
+    private long seed;
+
+    private int[] part;
+    private int[] partSize;
+    private double edgeCut;
+
+    /**
+     * Construct a new partitioner of the given graph into the given number of parts,
+     * with unit edge weights.
+     */
+    public GraphPartitioner(Graph<V,E> graph, int parts) {
+        this(new CompactGraph<>(graph), null, parts);
+    }
+
+    /**
+     * Construct a new partitioner of the given compact graph into the given number of parts,
+     * with an allowed imbalance of 3%.
+     *
+     * @param graph    the compact graph
+     * @param weights  the weight function of edges; or null for unit weights
+     * @param parts    the number of parts
+     */
+    public GraphPartitioner(CompactGraph<V,E> graph, EdgeWeight<V,E> weights, int parts) {
+        if (parts < 1)
+            throw new IllegalArgumentException("Number of parts must be positive!");
+        GRAPH = graph;
+        base = WeightedAdjacency.of(graph, weights);
+        this.parts = parts;
+        imbalance = 0.03;
+        seed = 0;
+    }
+
+    /**
+     * Set the allowed imbalance; e.g. 0.03 allows parts of up to 3% larger than the average.
+     */
+    public void setImbalance(double imbalance) {
+        if (!(imbalance >= 0))
+            throw new IllegalArgumentException("Imbalance must be non-negative!");
+        this.imbalance = imbalance;
+    }
+
+    /**
+     * Set the seed of the random choices (default is 0); partitioning is deterministic for each seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Computes the partitioning of the graph.
+     */
+    public void partition() {
+        Random rand = new Random(seed);
+        int n = base.vertexCount();
+        long maxPart = Math.max((n + parts - 1) / parts, (long) Math.floor((1 + imbalance) * n / parts));
+        // coarsening
+        List<Level> levels = new ArrayList<>();
+        int[] unit = new int[n];
+        Arrays.fill(unit, 1);
+        Level level = new Level(base, unit);
+        levels.add(level);
+        int coarsest = COARSEST_PER_PART * parts;
+        int maxVertexWeight = Math.max(1, (int) (1.5 * n / coarsest));
+        while (level.graph.vertexCount() > coarsest) {
+            Level next = level.coarsen(rand, maxVertexWeight);
+            // stop when matching does not shrink the graph much
+            if (next.graph.vertexCount() > 0.95 * level.graph.vertexCount())
+                break;
+            levels.add(next);
+            level = next;
+        }
+        // initial partitioning
+        int[] best = null;
+        double bestCut = Double.POSITIVE_INFINITY;
+        long bestOverload = Long.MAX_VALUE;
+        for (int trial = 0; trial < INITIAL_TRIALS; ++trial) {
+            int[] initial = level.grow(rand);
+            level.refine(initial, maxPart);
+            long overload = level.overload(initial, maxPart);
+            double cut = level.cut(initial);
+            if (overload < bestOverload || overload == bestOverload && cut < bestCut) {
+                best = initial;
+                bestCut = cut;
+                bestOverload = overload;
+            }
+        }
+        // uncoarsening
+        int[] current = best;
+        for (int k = levels.size() - 2; k >= 0; --k) {
+            Level finer = levels.get(k);
+            int[] projected = new int[finer.graph.vertexCount()];
+            for (int v = 0; v < projected.length; ++v)
+                projected[v] = current[finer.map[v]];
+            finer.refine(projected, maxPart);
+            current = projected;
+        }
+        part = current;
+        partSize = new int[parts];
+        for (int p: part)
+            ++partSize[p];
+        edgeCut = levels.get(0).cut(part);
+    }
+
+    private void checkComputed() {
+        if (part == null)
+            throw new IllegalStateException("No partitioning is computed yet!");
+    }
+
+    /**
+     * Returns the number of parts.
+     */
+    public int getPartCount() {
+        return parts;
+    }
+
+    /**
+     * Returns the part of the given vertex index.
+     */
+    public int getPartOfIndex(int v) {
+        checkComputed();
+        return part[v];
+    }
+
+    /**
+     * Returns the part of the given vertex.
+     */
+    public int getPart(V v) {
+        checkComputed();
+        int idx = GRAPH.indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return part[idx];
+    }
+
+    /**
+     * Returns the parts of all vertices, indexed by vertex indices.
+     */
+    public int[] copyPartIndices() {
+        checkComputed();
+        return part.clone();
+    }
+
+    /**
+     * Returns the number of vertices in the given part.
+     */
+    public int getPartSize(int p) {
+        checkComputed();
+        return partSize[p];
+    }
+
+    /**
+     * Returns the total weight of the edges between different parts.
+     */
+    public double getEdgeCut() {
+        checkComputed();
+        return edgeCut;
+    }
+
+    /**
+     * Extracts the given part as a separate graph, with ghost vertices for the other end-points
+     * of its cut edges. Each cut edge is included in the graphs of both of its parts.
+     */
+    public GraphPartition<V,E> extract(int p) {
+        checkComputed();
+        if (p < 0 || p >= parts)
+            throw new IllegalArgumentException("No such part: " + p);
+        return new GraphPartition<>(GRAPH, part, p);
+    }
+
+    /**
+     * A level of the multilevel hierarchy: a weighted graph with vertex weights,
+     * and the mapping of its vertices to the vertices of the next (coarser) level.
+     */
+    private class Level {
+
+        final WeightedAdjacency graph;
+        final int[] vertexWeight;
+        int[] map;
+
+        Level(WeightedAdjacency graph, int[] vertexWeight) {
+            this.graph = graph;
+            this.vertexWeight = vertexWeight;
+        }
+
+        /**
+         * Contracts a heavy-edge matching of this level, visiting vertices in random order.
+         */
+        Level coarsen(Random rand, int maxVertexWeight) {
+            int n = graph.vertexCount();
+            int[] order = new int[n];
+            for (int v = 0; v < n; ++v)
+                order[v] = v;
+            for (int i = n - 1; i > 0; --i) {
+                int j = rand.nextInt(i + 1);
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+            int[] match = new int[n];
+            Arrays.fill(match, -1);
+            for (int v: order) {
+                if (match[v] >= 0)
+                    continue;
+                int mate = v;
+                double heaviest = -1;
+                for (int i = graph.start[v]; i < graph.start[v + 1]; ++i) {
+                    int w = graph.adj[i];
+                    if (w != v && match[w] < 0 && graph.weight[i] > heaviest &&
+                            vertexWeight[v] + vertexWeight[w] <= maxVertexWeight) {
+                        mate = w;
+                        heaviest = graph.weight[i];
+                    }
+                }
+                match[v] = mate;
+                match[mate] = v;
+            }
+            map = new int[n];
+            Arrays.fill(map, -1);
+            int count = 0;
+            for (int v = 0; v < n; ++v) {
+                if (map[v] < 0) {
+                    map[v] = count;
+                    map[match[v]] = count++;
+                }
+            }
+            int[] weights = new int[count];
+            for (int v = 0; v < n; ++v)
+                weights[map[v]] += vertexWeight[v];
+            return new Level(graph.aggregate(map, count), weights);
+        }
+
+        /**
+         * Greedy graph growing: each part (but the last) grows from a random seed, by adding
+         * the vertex most connected to the part, until it reaches the average part weight.
+         */
+        int[] grow(Random rand) {
+            int n = graph.vertexCount();
+            long total = 0;
+            for (int w: vertexWeight)
+                total += w;
+            int[] assignment = new int[n];
+            Arrays.fill(assignment, -1);
+            double[] connection = new double[n];
+            IndexedMinHeap heap = new IndexedMinHeap(Math.max(1, n));
+            int assigned = 0;
+            for (int p = 0; p < parts - 1 && assigned < n; ++p) {
+                long target = total * (p + 1) / parts;
+                long weight = total * p / parts;
+                heap.clear();
+                Arrays.fill(connection, 0);
+                while (weight < target && assigned < n) {
+                    if (heap.isEmpty()) {
+                        // start from a random unassigned vertex
+                        int s = rand.nextInt(n);
+                        while (assignment[s] >= 0)
+                            s = (s + 1) % n;
+                        heap.offer(s, 0);
+                    }
+                    int v = heap.poll();
+                    assignment[v] = p;
+                    weight += vertexWeight[v];
+                    ++assigned;
+                    for (int i = graph.start[v]; i < graph.start[v + 1]; ++i) {
+                        int w = graph.adj[i];
+                        if (assignment[w] < 0) {
+                            connection[w] += graph.weight[i];
+                            heap.offer(w, -connection[w]);
+                        }
+                    }
+                }
+            }
+            for (int v = 0; v < n; ++v)
+                if (assignment[v] < 0)
+                    assignment[v] = parts - 1;
+            return assignment;
+        }
+
+        long[] partWeights(int[] assignment) {
+            long[] weights = new long[parts];
+            for (int v = 0; v < assignment.length; ++v)
+                weights[assignment[v]] += vertexWeight[v];
+            return weights;
+        }
+
+        long overload(int[] assignment, long maxPart) {
+            long overload = 0;
+            for (long w: partWeights(assignment))
+                overload += Math.max(0, w - maxPart);
+            return overload;
+        }
+
+        double cut(int[] assignment) {
+            double cut = 0;
+            for (int v = 0; v < graph.vertexCount(); ++v)
+                for (int i = graph.start[v]; i < graph.start[v + 1]; ++i)
+                    if (assignment[graph.adj[i]] != assignment[v])
+                        cut += graph.weight[i];
+            return cut / 2;
+        }
+
+        /**
+         * Refines the given partition: first moves vertices out of overloaded parts,
+         * then runs k-way Fiduccia-Mattheyses passes until a pass makes no improvement.
+         */
+        void refine(int[] assignment, long maxPart) {
+            Refinement refinement = new Refinement(assignment, maxPart);
+            refinement.rebalance();
+            for (int pass = 0; pass < MAX_PASSES; ++pass)
+                if (!refinement.pass())
+                    break;
+        }
+
+        /**
+         * The state of refinement for a partition of this level.
+         */
+        private class Refinement {
+
+            final int[] assignment;
+            final long maxPart;
+            final long[] partWeight;
+            // connection of the current vertex to each part
+            final double[] connection;
+            final boolean[] isTouched;
+            final int[] touched;
+            int touchedCount;
+
+            Refinement(int[] assignment, long maxPart) {
+                this.assignment = assignment;
+                this.maxPart = maxPart;
+                partWeight = partWeights(assignment);
+                connection = new double[parts];
+                isTouched = new boolean[parts];
+                touched = new int[parts];
+            }
+
+            /**
+             * Computes the connections of the given vertex to its neighboring parts.
+             */
+            void connect(int v) {
+                for (int k = 0; k < touchedCount; ++k) {
+                    connection[touched[k]] = 0;
+                    isTouched[touched[k]] = false;
+                }
+                touchedCount = 0;
+                isTouched[assignment[v]] = true;
+                touched[touchedCount++] = assignment[v];
+                for (int i = graph.start[v]; i < graph.start[v + 1]; ++i) {
+                    int w = graph.adj[i];
+                    if (w == v)
+                        continue;
+                    int p = assignment[w];
+                    if (!isTouched[p]) {
+                        isTouched[p] = true;
+                        touched[touchedCount++] = p;
+                    }
+                    connection[p] += graph.weight[i];
+                }
+            }
+
+            /**
+             * Returns the best neighboring part for moving the given vertex to, among the parts
+             * which can take it; or -1 if there is none. The connections must be computed first.
+             * With force, any part with room can be chosen (for rebalancing).
+             */
+            int bestTarget(int v, boolean force) {
+                int own = assignment[v];
+                int best = -1;
+                double bestGain = Double.NEGATIVE_INFINITY;
+                for (int k = 0; k < touchedCount; ++k) {
+                    int p = touched[k];
+                    if (p == own || partWeight[p] + vertexWeight[v] > maxPart)
+                        continue;
+                    double gain = connection[p] - connection[own];
+                    if (gain > bestGain || gain == bestGain && partWeight[p] < partWeight[best]) {
+                        best = p;
+                        bestGain = gain;
+                    }
+                }
+                if (best < 0 && force) {
+                    for (int p = 0; p < parts; ++p)
+                        if (p != own && partWeight[p] + vertexWeight[v] <= maxPart &&
+                                (best < 0 || partWeight[p] < partWeight[best]))
+                            best = p;
+                }
+                return best;
+            }
+
+            void move(int v, int p) {
+                partWeight[assignment[v]] -= vertexWeight[v];
+                partWeight[p] += vertexWeight[v];
+                assignment[v] = p;
+            }
+
+            /**
+             * Moves the vertices with the best gains out of each overloaded part, until it fits.
+             */
+            void rebalance() {
+                for (int p = 0; p < parts; ++p) {
+                    if (partWeight[p] <= maxPart)
+                        continue;
+                    List<Integer> members = new ArrayList<>();
+                    for (int v = 0; v < assignment.length; ++v)
+                        if (assignment[v] == p)
+                            members.add(v);
+                    double[] gain = new double[assignment.length];
+                    for (int v: members) {
+                        connect(v);
+                        int target = bestTarget(v, true);
+                        gain[v] = target < 0 ? Double.NEGATIVE_INFINITY : connection[target] - connection[p];
+                    }
+                    members.sort((a, b) -> Double.compare(gain[b], gain[a]));
+                    for (int v: members) {
+                        if (partWeight[p] <= maxPart)
+                            break;
+                        connect(v);
+                        int target = bestTarget(v, true);
+                        if (target >= 0)
+                            move(v, target);
+                    }
+                }
+            }
+
+            /**
+             * A k-way Fiduccia-Mattheyses pass: repeatedly moves the unlocked boundary vertex with
+             * the best gain (even if negative), locks it, and finally rolls back to the best prefix
+             * of moves. Returns true if the edge cut is improved.
+             */
+            boolean pass() {
+                int n = assignment.length;
+                boolean[] locked = new boolean[n];
+                IndexedMinHeap heap = new IndexedMinHeap(Math.max(1, n));
+                for (int v = 0; v < n; ++v)
+                    offer(heap, v);
+                int[] moved = new int[n];
+                int[] from = new int[n];
+                int moves = 0, bestMoves = 0, fruitless = 0;
+                double total = 0, bestTotal = 0;
+                while (!heap.isEmpty() && fruitless < MAX_FRUITLESS_MOVES) {
+                    double priority = heap.peekPriority();
+                    int v = heap.poll();
+                    connect(v);
+                    int target = bestTarget(v, false);
+                    if (target < 0)
+                        continue;
+                    double gain = connection[target] - connection[assignment[v]];
+                    // the gain is stale; retry with its current value
+                    if (-gain > priority) {
+                        heap.offer(v, -gain);
+                        continue;
+                    }
+                    moved[moves] = v;
+                    from[moves++] = assignment[v];
+                    move(v, target);
+                    locked[v] = true;
+                    total += gain;
+                    if (total > bestTotal) {
+                        bestTotal = total;
+                        bestMoves = moves;
+                        fruitless = 0;
+                    } else
+                        ++fruitless;
+                    for (int i = graph.start[v]; i < graph.start[v + 1]; ++i) {
+                        int w = graph.adj[i];
+                        if (!locked[w])
+                            offer(heap, w);
+                    }
+                }
+                for (int k = moves - 1; k >= bestMoves; --k)
+                    move(moved[k], from[k]);
+                return bestTotal > 0;
+            }
+
+            /**
+             * Offers the given vertex to the heap with its current gain, if it is a boundary vertex.
+             */
+            void offer(IndexedMinHeap heap, int v) {
+                connect(v);
+                if (touchedCount < 2)
+                    return;
+                int target = bestTarget(v, false);
+                if (target < 0)
+                    return;
+                double gain = connection[target] - connection[assignment[v]];
+                if (heap.contains(v))
+                    heap.offer(v, Math.min(heap.getPriority(v), -gain));
+                else
+                    heap.offer(v, -gain);
+            }
+        }
+    }
+}
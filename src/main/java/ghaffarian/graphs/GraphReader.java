@@ -1,6 +1,7 @@
 /*** In The Name of Allah ***/
 package ghaffarian.graphs;
 
+import ghaffarian.collections.LabelDictionary;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
@@ -24,6 +25,21 @@ public class GraphReader {
      * @return        list of graphs generated from DOT files inside the given directory
      */
     public static List<Graph<String, String>> readDotDataset(String dirPath) throws IOException  {
+        return readDotDataset(dirPath, null, null);
+    }
+    
+    /**
+     * Reads any DOT files inside the given directory and returns a list of graph objects;
+     * where vertices and edge labels are interned by the given dictionaries (if not null),
+     * so equal vertices and labels of all graphs share single instances.
+     * 
+     * @param dirPath   path of the directory to read
+     * @param vertices  dictionary for interning vertices, or null
+     * @param labels    dictionary for interning edge labels, or null
+     * @return          list of graphs generated from DOT files inside the given directory
+     */
+    public static List<Graph<String, String>> readDotDataset(String dirPath, LabelDictionary<String> vertices,
+                                                             LabelDictionary<String> labels) throws IOException  {
         File dir = new File(dirPath);
         if (!dir.exists())
             throw new IllegalArgumentException("Path not found!");
@@ -32,7 +48,7 @@ public class GraphReader {
         ArrayList<Graph<String, String>> graphDataset = new ArrayList<>(dir.list().length);
         for (File file: dir.listFiles()) {
             if (file.isFile() && file.getName().toLowerCase().endsWith(".dot"))
-                graphDataset.add(readDOT(file.getPath()));
+                graphDataset.add(readDOT(file.getPath(), vertices, labels));
         }
         return graphDataset;
     }
@@ -48,6 +64,33 @@ public class GraphReader {
      * @return          graph object constructed from the given DOT file
      */
     public static Graph<String, String> readDOT(String filePath) throws IOException {
+        return readDOT(filePath, null, null);
+    }
+    
+    /**
+     * Reads a DOT file and returns a single graph represented in the file;
+     * where edge labels are interned by the given dictionary, so repeated labels
+     * share a single instance (and can be encoded as ints; see {@link CompactGraph}).
+     * 
+     * @param filePath  path of the DOT file to read
+     * @param labels    dictionary for interning edge labels
+     * @return          graph object constructed from the given DOT file
+     */
+    public static Graph<String, String> readDOT(String filePath, LabelDictionary<String> labels) throws IOException {
+        return readDOT(filePath, null, labels);
+    }
+    
+    /**
+     * Reads a DOT file and returns a single graph represented in the file;
+     * where vertices and edge labels are interned by the given dictionaries (if not null).
+     * 
+     * @param filePath  path of the DOT file to read
+     * @param vertices  dictionary for interning vertices, or null
+     * @param labels    dictionary for interning edge labels, or null
+     * @return          graph object constructed from the given DOT file
+     */
+    public static Graph<String, String> readDOT(String filePath, LabelDictionary<String> vertices,
+                                                LabelDictionary<String> labels) throws IOException {
         if (!filePath.toLowerCase().endsWith(".dot"))
             throw new IllegalArgumentException("File-path does not end with .dot suffix!");
         Graph<String, String> graph;
@@ -68,6 +111,8 @@ public class GraphReader {
                 int start = line.indexOf("[label=\"") + 8;
                 int end = line.lastIndexOf("\"];");
                 String vertex = line.substring(start, end);
+                if (vertices != null)
+                    vertex = vertices.intern(vertex);
                 vertexMap.put(tokens[0], vertex);
                 //System.out.println(tokens[0] + ":  " + vertex);
                 graph.addVertex(vertex);
@@ -80,6 +125,8 @@ public class GraphReader {
                     int start = line.indexOf("[label=\"") + 8;
                     int end = line.lastIndexOf("\"];");
                     String label = line.substring(start, end);
+                    if (labels != null)
+                        label = labels.intern(label);
                     graph.addEdge(new Edge(vertexMap.get(tokens[0]), label, vertexMap.get(tokens[2])));
                     //System.out.println(tokens[0] + " -> " + tokens[2] + ":  " + edge);
                 } else {
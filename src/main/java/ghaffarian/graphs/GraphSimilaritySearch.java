@@ -0,0 +1,133 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import ghaffarian.graphs.GraphEditDistance.Prepared;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Similarity search over a dataset of graphs; i.e. finding all graphs of the dataset
+ * whose edit distance to a query graph is within a given threshold.
+ *
+ * The graphs of the dataset are prepared once at construction. For each query, candidates
+ * are filtered (in parallel) by a chain of increasingly expensive bounds:
+ * a lower bound from the differences in vertex and edge counts, a lower bound from
+ * an optimal assignment of vertices (ignoring edges), and the bipartite upper bound
+ * (see {@link GraphEditDistance}). Only candidates passing the lower bounds are
+ * compared by the bipartite approximation; and in exact mode, the exact A* search
+ * is only run for the remaining candidates, bounded by the threshold.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class GraphSimilaritySearch<V,E> {
+
+    private final EditCosts<V,E> costs;
+    private final List<Prepared<V,E>> dataset;
+    private final double[] minVertexCost;
+    private final double[] minEdgeCost;
+
+    /**
+     * Construct a new similarity search over the given dataset of graphs, under the given edit costs.
+     */
+    public GraphSimilaritySearch(List<? extends Graph<V,E>> dataset, EditCosts<V,E> costs) {
+        this.costs = costs;
+        this.dataset = new ArrayList<>(dataset.size());
+        for (Graph<V,E> graph: dataset)
+            this.dataset.add(new Prepared<>(graph));
+        minVertexCost = new double[this.dataset.size()];
+        minEdgeCost = new double[this.dataset.size()];
+        for (int i = 0; i < minVertexCost.length; ++i) {
+            Prepared<V,E> p = this.dataset.get(i);
+            minVertexCost[i] = Double.POSITIVE_INFINITY;
+            for (V v: p.vertices)
+                minVertexCost[i] = Math.min(minVertexCost[i],
+                        Math.min(costs.vertexDeletion(v), costs.vertexInsertion(v)));
+            minEdgeCost[i] = Double.POSITIVE_INFINITY;
+            for (Edge<V,E> e: p.edges)
+                minEdgeCost[i] = Math.min(minEdgeCost[i], Math.min(costs.edgeDeletion(e), costs.edgeInsertion(e)));
+        }
+    }
+
+    /**
+     * Returns the number of graphs in the dataset.
+     */
+    public int size() {
+        return dataset.size();
+    }
+
+    /**
+     * Returns all graphs of the dataset whose edit distance to the given query graph
+     * is at most the given threshold, sorted by distance.
+     * If exact is false, the bipartite approximation is used as the distance;
+     * which may miss some graphs (as it is an upper bound of the exact distance).
+     */
+    public List<Result> search(Graph<V,E> query, double threshold, boolean exact) {
+        Prepared<V,E> q = new Prepared<>(query);
+        double qVertexCost = Double.POSITIVE_INFINITY;
+        for (V v: q.vertices)
+            qVertexCost = Math.min(qVertexCost, Math.min(costs.vertexDeletion(v), costs.vertexInsertion(v)));
+        double qEdgeCost = Double.POSITIVE_INFINITY;
+        for (Edge<V,E> e: q.edges)
+            qEdgeCost = Math.min(qEdgeCost, Math.min(costs.edgeDeletion(e), costs.edgeInsertion(e)));
+        final double qv = qVertexCost, qe = qEdgeCost;
+        List<Result> results = IntStream.range(0, dataset.size()).parallel()
+                .mapToObj(i -> compare(q, qv, qe, i, threshold, exact))
+                .filter(r -> r != null)
+                .collect(Collectors.toList());
+        Collections.sort(results, Comparator.<Result>comparingDouble(r -> r.DISTANCE).thenComparingInt(r -> r.INDEX));
+        return results;
+    }
+
+    private Result compare(Prepared<V,E> q, double qVertexCost, double qEdgeCost,
+                           int index, double threshold, boolean exact) {
+        Prepared<V,E> p = dataset.get(index);
+        if (q.directed != p.directed)
+            return null;
+        // count-based lower bound; the extra vertices (edges) of the larger graph must be inserted or deleted
+        int dv = q.vertexCount() - p.vertexCount();
+        int de = q.edges.length - p.edges.length;
+        double bound = 0;
+        if (dv != 0)
+            bound += Math.abs(dv) * (dv > 0 ? qVertexCost : minVertexCost[index]);
+        if (de != 0)
+            bound += Math.abs(de) * (de > 0 ? qEdgeCost : minEdgeCost[index]);
+        if (bound > threshold)
+            return null;
+        // vertex assignment lower bound
+        int[] rows = IntStream.range(0, q.vertexCount()).toArray();
+        int[] cols = IntStream.range(0, p.vertexCount()).toArray();
+        double vertexBound = GraphEditDistance.vertexAssignmentCost(q, rows, p, cols, costs);
+        if (de != 0)
+            vertexBound += Math.abs(de) * (de > 0 ? qEdgeCost : minEdgeCost[index]);
+        if (vertexBound > threshold)
+            return null;
+        double upper = GraphEditDistance.approximate(q, p, costs);
+        if (!exact)
+            return upper <= threshold ? new Result(index, upper) : null;
+        double distance = GraphEditDistance.exact(q, p, costs, Math.min(upper, threshold));
+        return distance <= threshold ? new Result(index, distance) : null;
+    }
+
+    /**
+     * A graph of the dataset (by its index) and its distance to the query graph.
+     */
+    public static class Result {
+
+        public final int INDEX;
+        public final double DISTANCE;
+
+        Result(int index, double distance) {
+            INDEX = index;
+            DISTANCE = distance;
+        }
+
+        @Override
+        public String toString() {
+            return INDEX + ": " + DISTANCE;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import ghaffarian.collections.IdentityLinkedHashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -71,6 +72,21 @@ public class IdentityDigraph<V,E> extends Digraph<V,E> {
         return false;
     }
     
+    @Override
+    protected <T> Map<V, T> newVertexMap(int capacity) {
+        return new IdentityHashMap<>(capacity);
+    }
+    
+    @Override
+    protected Set<V> newVertexSet(int capacity) {
+        return new IdentityLinkedHashSet<>(capacity);
+    }
+    
+    @Override
+    protected Set<Edge<V,E>> newEdgeSet(int capacity) {
+        return new IdentityLinkedHashSet<>(capacity);
+    }
+    
     @Override
     public Set<Edge<V,E>> removeEdges(V src, V trgt) {
         if (!allVertices.contains(src))
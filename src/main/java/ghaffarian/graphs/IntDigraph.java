@@ -0,0 +1,235 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import ghaffarian.collections.LongIntHashMap;
+import java.util.Arrays;
+
+/**
+ * A mutable digraph over primitive int vertex ids, with optional primitive int edge labels.
+ *
+ * Vertex ids are mapped to dense internal indices by a primitive hash map,
+ * and adjacency is kept in growable int arrays (see {@link PrimitiveDigraph});
+ * so neither vertices nor edges are boxed or wrapped in objects.
+ * Use {@link #asGraph()} for a view of this graph as a <tt>Graph&lt;Integer,Integer&gt;</tt>.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class IntDigraph extends PrimitiveDigraph<Integer> {
+
+    private final LongIntHashMap index;
+    private int[] ids;
+
+    /**
+     * Construct a new empty graph, without edge labels.
+     */
+    public IntDigraph() {
+        this(false);
+    }
+
+    /**
+     * Construct a new empty graph, with or without edge labels.
+     */
+    public IntDigraph(boolean labeled) {
+        super(labeled);
+        index = new LongIntHashMap();
+        ids = new int[16];
+    }
+
+    @Override
+    Integer vertexAt(int v) {
+        return ids[v];
+    }
+
+    @Override
+    int indexOfVertex(Integer v) {
+        return v == null ? -1 : index.get(v);
+    }
+
+    @Override
+    boolean addVertexObject(Integer v) {
+        if (v == null)
+            throw new IllegalArgumentException("Vertex is null!");
+        return addVertex(v);
+    }
+
+    @Override
+    boolean removeVertexObject(Integer v) {
+        return v != null && removeVertex(v);
+    }
+
+    private int checkedIndexOf(int v) {
+        int idx = index.get(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return idx;
+    }
+
+    /**
+     * Add the given vertex to this graph.
+     *
+     * @return true if the vertex is added, or 
+     *         false if such vertex is already in the graph.
+     */
+    public boolean addVertex(int v) {
+        if (index.containsKey(v))
+            return false;
+        int idx = allocateIndex();
+        if (idx == ids.length)
+            ids = Arrays.copyOf(ids, idx + (idx >> 1));
+        ids[idx] = v;
+        index.put(v, idx);
+        return true;
+    }
+
+    /**
+     * Remove the given vertex, and all its edges, from this graph.
+     *
+     * @return true if the vertex is removed, or 
+     *         false if no such vertex is in the graph.
+     */
+    public boolean removeVertex(int v) {
+        int idx = index.remove(v);
+        if (idx < 0)
+            return false;
+        releaseIndex(idx);
+        return true;
+    }
+
+    /**
+     * Check whether the given vertex is in this graph or not.
+     */
+    public boolean containsVertex(int v) {
+        return index.containsKey(v);
+    }
+
+    /**
+     * Returns the ids of all vertices of this graph.
+     */
+    public int[] copyVertices() {
+        int[] indices = copyIndices();
+        int[] result = new int[indices.length];
+        for (int i = 0; i < indices.length; ++i)
+            result[i] = ids[indices[i]];
+        return result;
+    }
+
+    /**
+     * Add an edge without label between the given vertices.
+     * Both vertices must be in the graph, otherwise an exception is thrown.
+     *
+     * @return true if the edge is added, or 
+     *         false if the edge is already in the graph.
+     */
+    public boolean addEdge(int src, int trg) {
+        return addEdge(src, NO_LABEL, trg);
+    }
+
+    /**
+     * Add an edge with the given label between the given vertices.
+     * Both vertices must be in the graph, otherwise an exception is thrown.
+     *
+     * @return true if the edge is added, or 
+     *         false if the edge is already in the graph.
+     */
+    public boolean addEdge(int src, int label, int trg) {
+        int s = index.get(src);
+        if (s < 0)
+            throw new IllegalArgumentException("No such source-vertex in this graph!");
+        int t = index.get(trg);
+        if (t < 0)
+            throw new IllegalArgumentException("No such target-vertex in this graph!");
+        return addEdgeOfIndex(s, t, label);
+    }
+
+    /**
+     * Remove the edge with the given label between the given vertices.
+     *
+     * @return true if the edge is removed, or
+     *         false if no such edge is in the graph.
+     */
+    public boolean removeEdge(int src, int label, int trg) {
+        int s = index.get(src);
+        int t = index.get(trg);
+        if (s < 0 || t < 0 || !isLabeled() && label != NO_LABEL)
+            return false;
+        return removeEdgeOfIndex(s, t, label);
+    }
+
+    /**
+     * Remove all edges between the given source and target vertices.
+     *
+     * @return the number of edges removed.
+     */
+    public int removeEdges(int src, int trg) {
+        int s = index.get(src);
+        int t = index.get(trg);
+        if (s < 0 || t < 0)
+            return 0;
+        return removeEdgesOfIndex(s, t);
+    }
+
+    /**
+     * Check whether there is any edge between the given source and target vertices.
+     */
+    public boolean containsEdge(int src, int trg) {
+        int s = index.get(src);
+        int t = index.get(trg);
+        return s >= 0 && t >= 0 && containsEdgeOfIndex(s, t);
+    }
+
+    /**
+     * Check whether there is an edge with the given label between the given vertices.
+     */
+    public boolean containsEdge(int src, int label, int trg) {
+        int s = index.get(src);
+        int t = index.get(trg);
+        return s >= 0 && t >= 0 && containsEdgeOfIndex(s, t, label);
+    }
+
+    /**
+     * Return the count of outgoing edges from the given vertex.
+     */
+    public int getOutDegree(int v) {
+        return outDegreeOfIndex(checkedIndexOf(v));
+    }
+
+    /**
+     * Return the count of incoming edges to the given vertex.
+     */
+    public int getInDegree(int v) {
+        return inDegreeOfIndex(checkedIndexOf(v));
+    }
+
+    /**
+     * Returns the targets of the outgoing edges of the given vertex
+     * (a target appears once per edge).
+     */
+    public int[] copyOutNeighbors(int v) {
+        int idx = checkedIndexOf(v);
+        int[] result = new int[outDegreeOfIndex(idx)];
+        for (int k = 0; k < result.length; ++k)
+            result[k] = ids[outTargetOfIndex(idx, k)];
+        return result;
+    }
+
+    /**
+     * Returns the labels of the outgoing edges of the given vertex,
+     * in the same order as {@link #copyOutNeighbors}.
+     */
+    public int[] copyOutLabels(int v) {
+        return copyOutLabelsOfIndex(checkedIndexOf(v));
+    }
+
+    /**
+     * Returns the sources of the incoming edges of the given vertex
+     * (a source appears once per edge).
+     */
+    public int[] copyInNeighbors(int v) {
+        int idx = checkedIndexOf(v);
+        int[] sources = inSourcesOfIndex(idx);
+        int[] result = new int[inDegreeOfIndex(idx)];
+        for (int k = 0; k < result.length; ++k)
+            result[k] = ids[sources[k]];
+        return result;
+    }
+}
@@ -0,0 +1,661 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A graph whose modifications are persisted incrementally, to a directory holding
+ * a snapshot of the graph and an append-only journal (write-ahead log) of later modifications.
+ *
+ * Each successful modification is appended to the journal as a binary record, with its length and
+ * CRC-32 checksum. Records are buffered and written with a single fsync per group of operations
+ * (group commit): a commit is made automatically after a configurable number of operations, or
+ * explicitly by calling {@link #commit()}; so only the operations since the last commit may be lost
+ * on a crash. Concurrent committers share fsyncs: a commit returns without syncing if the records
+ * up to it were already synced by another thread.
+ *
+ * When the journal grows beyond a threshold, it is compacted: the whole graph is written to a new
+ * snapshot, which atomically replaces the old one, and the journal is restarted. Snapshots and
+ * journals carry a generation number, so a journal left over from a compaction interrupted by a
+ * crash is recognized and ignored. On opening, the graph is recovered by loading the snapshot and
+ * replaying the journal; a torn or corrupt record at the tail of the journal ends the replay,
+ * and is truncated.
+ *
+ * Vertices and edge labels are stored by the given codecs; vertices must not be null.
+ * All operations are synchronized; but the returned iterators must not be used while
+ * the graph is modified. The graph must be closed when it is no longer used.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class JournaledGraph<V,E> implements Graph<V,E>, Closeable {
+
+    static final String SNAPSHOT = "snapshot.bin";
+    static final String JOURNAL = "journal.log";
+
+    private static final int SNAPSHOT_MAGIC = 0x534E4150;
+    private static final int JOURNAL_MAGIC = 0x4A524E4C;
+    private static final int JOURNAL_HEADER_SIZE = 12;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final byte ADD_VERTEX = 1;
+    private static final byte REMOVE_VERTEX = 2;
+    private static final byte ADD_EDGE = 3;
+    private static final byte REMOVE_EDGE = 4;
+    private static final byte REMOVE_EDGES = 5;
+
+    private final Path dir;
+    private final Codec<V> vertexCodec;
+    private final Codec<E> labelCodec;
+    private final AbstractPropertyGraph<V,E> graph;
+
+    // the journal; guarded by the sync lock, which is always taken before this object's lock
+    private final Object syncLock;
+    private FileChannel journal;
+    private long journalSize;
+    private long generation;
+    private long synced;
+
+    // the records not yet written to the journal; guarded by this object's lock
+    private final ByteArrayOutputStream pending;
+    private final DataOutputStream pendingOut;
+    private final ByteArrayOutputStream record;
+    private final DataOutputStream encoder;
+    private final CRC32 crc;
+    private long sequence;
+    private int pendingCount;
+
+    private int groupSize;
+    private long compactionThreshold;
+    private boolean closed;
+
+    /**
+     * Open the journaled graph stored in the given directory, recovering its state;
+     * or create a new empty graph in the directory if there is none.
+     */
+    public JournaledGraph(Path dir, boolean directed, Codec<V> vertexCodec, Codec<E> labelCodec) throws IOException {
+        this.dir = dir;
+        this.vertexCodec = vertexCodec;
+        this.labelCodec = labelCodec;
+        graph = directed ? new Digraph<>() : new UndiGraph<>();
+        syncLock = new Object();
+        pending = new ByteArrayOutputStream();
+        pendingOut = new DataOutputStream(pending);
+        record = new ByteArrayOutputStream();
+        encoder = new DataOutputStream(record);
+        crc = new CRC32();
+        groupSize = 256;
+        compactionThreshold = 64L << 20;
+        Files.createDirectories(dir);
+        Files.deleteIfExists(dir.resolve(SNAPSHOT + ".tmp"));
+        Files.deleteIfExists(dir.resolve(JOURNAL + ".tmp"));
+        if (Files.exists(dir.resolve(SNAPSHOT)))
+            loadSnapshot();
+        if (!Files.exists(dir.resolve(JOURNAL)) || !replayJournal())
+            journal = newJournal();
+    }
+
+    /**
+     * Set the number of operations after which a commit is made automatically;
+     * 1 makes every operation durable before it returns.
+     */
+    public synchronized void setGroupCommitSize(int operations) {
+        if (operations < 1)
+            throw new IllegalArgumentException("Group commit size must be at least 1!");
+        groupSize = operations;
+    }
+
+    /**
+     * Set the size of the journal (in bytes) after which it is compacted into a new snapshot;
+     * Long.MAX_VALUE disables automatic compaction.
+     */
+    public synchronized void setCompactionThreshold(long bytes) {
+        if (bytes < 1)
+            throw new IllegalArgumentException("Compaction threshold must be positive!");
+        compactionThreshold = bytes;
+    }
+
+    /**
+     * Returns the current size of the journal in bytes, excluding uncommitted records.
+     */
+    public long getJournalSize() {
+        synchronized (syncLock) {
+            return journalSize;
+        }
+    }
+
+    /**
+     * Loads the snapshot file into the graph, and sets the generation.
+     */
+    private void loadSnapshot() throws IOException {
+        try (BufferedInputStream raw = new BufferedInputStream(Files.newInputStream(dir.resolve(SNAPSHOT)), BUFFER_SIZE)) {
+            CRC32 checksum = new CRC32();
+            DataInputStream in = new DataInputStream(new CheckedInputStream(raw, checksum));
+            if (in.readInt() != SNAPSHOT_MAGIC)
+                throw new IOException("Not a graph snapshot: " + dir.resolve(SNAPSHOT));
+            if (in.readBoolean() != graph.isDirected())
+                throw new IOException("Directedness of the snapshot does not match!");
+            generation = in.readLong();
+            int n = in.readInt();
+            List<V> vertices = new ArrayList<>(n);
+            for (int i = 0; i < n; ++i) {
+                V v = vertexCodec.decode(in);
+                vertices.add(v);
+                graph.addVertex(v);
+            }
+            int m = in.readInt();
+            for (int i = 0; i < m; ++i) {
+                V src = vertices.get(in.readInt());
+                V trg = vertices.get(in.readInt());
+                graph.addEdge(new Edge<>(src, readLabel(in), trg));
+            }
+            int expected = (int) checksum.getValue();
+            if (new DataInputStream(raw).readInt() != expected)
+                throw new IOException("Graph snapshot is corrupt: " + dir.resolve(SNAPSHOT));
+        }
+    }
+
+    /**
+     * Replays the records of the journal file on the graph, truncating any torn or corrupt tail;
+     * and opens the journal for appending. Returns false if the journal does not belong to the
+     * generation of the snapshot (so it is already included in the snapshot).
+     */
+    private boolean replayJournal() throws IOException {
+        FileChannel channel = FileChannel.open(dir.resolve(JOURNAL), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+            long size = channel.size();
+            if (size < JOURNAL_HEADER_SIZE || in.readInt() != JOURNAL_MAGIC || in.readLong() != generation) {
+                channel.close();
+                return false;
+            }
+            long valid = JOURNAL_HEADER_SIZE;
+            CRC32 checksum = new CRC32();
+            while (valid + 8 <= size) {
+                int length = in.readInt();
+                int expected = in.readInt();
+                if (length < 1 || length > size - valid - 8)
+                    break;
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                checksum.reset();
+                checksum.update(payload, 0, length);
+                if ((int) checksum.getValue() != expected)
+                    break;
+                apply(new DataInputStream(new ByteArrayInputStream(payload)));
+                valid += 8 + length;
+            }
+            if (valid < size) {
+                channel.truncate(valid);
+                channel.force(true);
+            }
+            channel.position(valid);
+            journal = channel;
+            journalSize = valid;
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Applies the operation of the given journal record on the graph.
+     */
+    private void apply(DataInputStream in) throws IOException {
+        byte op = in.readByte();
+        switch (op) {
+            case ADD_VERTEX:
+                graph.addVertex(vertexCodec.decode(in));
+                break;
+            case REMOVE_VERTEX:
+                graph.removeVertex(vertexCodec.decode(in));
+                break;
+            case ADD_EDGE:
+            case REMOVE_EDGE:
+                V src = vertexCodec.decode(in);
+                V trg = vertexCodec.decode(in);
+                Edge<V,E> edge = new Edge<>(src, readLabel(in), trg);
+                if (op == ADD_EDGE)
+                    graph.addEdge(edge);
+                else
+                    graph.removeEdge(edge);
+                break;
+            case REMOVE_EDGES:
+                graph.removeEdges(vertexCodec.decode(in), vertexCodec.decode(in));
+                break;
+            default:
+                throw new IOException("Unknown journal operation: " + op);
+        }
+    }
+
+    private E readLabel(DataInputStream in) throws IOException {
+        return in.readBoolean() ? labelCodec.decode(in) : null;
+    }
+
+    private void writeLabel(E label, DataOutputStream out) throws IOException {
+        out.writeBoolean(label != null);
+        if (label != null)
+            labelCodec.encode(label, out);
+    }
+
+    /**
+     * Creates an empty journal file of the current generation, replacing the existing one.
+     */
+    private FileChannel newJournal() throws IOException {
+        Path tmp = dir.resolve(JOURNAL + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+            header.putInt(JOURNAL_MAGIC).putLong(generation).flip();
+            while (header.hasRemaining())
+                channel.write(header);
+            channel.force(true);
+        }
+        Files.move(tmp, dir.resolve(JOURNAL), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        FileChannel channel = FileChannel.open(dir.resolve(JOURNAL), StandardOpenOption.WRITE);
+        channel.position(JOURNAL_HEADER_SIZE);
+        journalSize = JOURNAL_HEADER_SIZE;
+        return channel;
+    }
+
+    /**
+     * Makes the renaming of files in the directory durable; where the platform allows it.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            // directories cannot be opened on some platforms
+        }
+    }
+
+    /**
+     * Appends a record of the given operation to the pending records; the operation's data
+     * is in the record buffer. Returns true if a commit is due. Must hold this object's lock.
+     */
+    private boolean append() throws IOException {
+        crc.reset();
+        crc.update(record.toByteArray(), 0, record.size());
+        pendingOut.writeInt(record.size());
+        pendingOut.writeInt((int) crc.getValue());
+        record.writeTo(pendingOut);
+        ++sequence;
+        return ++pendingCount >= groupSize;
+    }
+
+    /**
+     * Commits the due group of records, and compacts the journal if it has grown too large.
+     * Must not hold this object's lock.
+     */
+    private void groupCommit(boolean due) {
+        if (!due)
+            return;
+        try {
+            commit();
+            if (getJournalSize() >= compactionThreshold)
+                compact();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Writes all pending records to the journal, and syncs it to the disk.
+     */
+    public void commit() throws IOException {
+        long target;
+        synchronized (this) {
+            target = sequence;
+        }
+        synchronized (syncLock) {
+            // the records may have been synced by another committer
+            if (synced >= target)
+                return;
+            byte[] batch;
+            long last;
+            synchronized (this) {
+                checkOpen();
+                batch = pending.toByteArray();
+                pending.reset();
+                pendingCount = 0;
+                last = sequence;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(batch);
+            while (buffer.hasRemaining())
+                journal.write(buffer);
+            journal.force(false);
+            journalSize += batch.length;
+            synced = last;
+        }
+    }
+
+    /**
+     * Writes the whole graph to a new snapshot, and restarts the journal.
+     */
+    public void compact() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                checkOpen();
+                Path tmp = dir.resolve(SNAPSHOT + ".tmp");
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    BufferedOutputStream raw = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+                    CRC32 checksum = new CRC32();
+                    DataOutputStream out = new DataOutputStream(new CheckedOutputStream(raw, checksum));
+                    writeSnapshot(out, generation + 1);
+                    out.flush();
+                    new DataOutputStream(raw).writeInt((int) checksum.getValue());
+                    raw.flush();
+                    channel.force(true);
+                }
+                Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory();
+                // the old journal is now obsolete (its generation does not match the snapshot)
+                ++generation;
+                journal.close();
+                journal = newJournal();
+                pending.reset();
+                pendingCount = 0;
+                synced = sequence;
+            }
+        }
+    }
+
+    private void writeSnapshot(DataOutputStream out, long gen) throws IOException {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeBoolean(graph.isDirected());
+        out.writeLong(gen);
+        out.writeInt(graph.vertexCount());
+        Map<V, Integer> ids = new HashMap<>();
+        Iterator<V> vertices = graph.allVerticesIterator();
+        while (vertices.hasNext()) {
+            V v = vertices.next();
+            ids.put(v, ids.size());
+            vertexCodec.encode(v, out);
+        }
+        out.writeInt(graph.edgeCount());
+        Iterator<Edge<V,E>> edges = graph.allEdgesIterator();
+        while (edges.hasNext()) {
+            Edge<V,E> e = edges.next();
+            out.writeInt(ids.get(e.source));
+            out.writeInt(ids.get(e.target));
+            writeLabel(e.label, out);
+        }
+    }
+
+    /**
+     * Commits all pending records, and closes the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            if (closed)
+                return;
+            commit();
+            synchronized (this) {
+                closed = true;
+                journal.close();
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed)
+            throw new IllegalStateException("Journaled graph is closed!");
+    }
+
+    private void checkVertex(V v) {
+        if (v == null)
+            throw new IllegalArgumentException("Vertex is null!");
+    }
+
+    @Override
+    public boolean isDirected() {
+        return graph.isDirected();
+    }
+
+    @Override
+    public boolean addVertex(V v) {
+        checkVertex(v);
+        boolean due;
+        synchronized (this) {
+            checkOpen();
+            if (!graph.addVertex(v))
+                return false;
+            try {
+                record.reset();
+                encoder.writeByte(ADD_VERTEX);
+                vertexCodec.encode(v, encoder);
+                due = append();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        groupCommit(due);
+        return true;
+    }
+
+    @Override
+    public boolean removeVertex(V v) {
+        boolean due;
+        synchronized (this) {
+            checkOpen();
+            if (!graph.removeVertex(v))
+                return false;
+            try {
+                record.reset();
+                encoder.writeByte(REMOVE_VERTEX);
+                vertexCodec.encode(v, encoder);
+                due = append();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        groupCommit(due);
+        return true;
+    }
+
+    @Override
+    public boolean addEdge(Edge<V,E> e) {
+        return logEdge(ADD_EDGE, e);
+    }
+
+    @Override
+    public boolean addEdge(V src, V trgt) {
+        return addEdge(new Edge<>(src, null, trgt));
+    }
+
+    @Override
+    public boolean removeEdge(Edge<V,E> e) {
+        return logEdge(REMOVE_EDGE, e);
+    }
+
+    private boolean logEdge(byte op, Edge<V,E> e) {
+        boolean due;
+        synchronized (this) {
+            checkOpen();
+            if (!(op == ADD_EDGE ? graph.addEdge(e) : graph.removeEdge(e)))
+                return false;
+            try {
+                record.reset();
+                encoder.writeByte(op);
+                vertexCodec.encode(e.source, encoder);
+                vertexCodec.encode(e.target, encoder);
+                writeLabel(e.label, encoder);
+                due = append();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        groupCommit(due);
+        return true;
+    }
+
+    @Override
+    public Set<Edge<V,E>> removeEdges(V src, V trgt) {
+        Set<Edge<V,E>> removed;
+        boolean due;
+        synchronized (this) {
+            checkOpen();
+            removed = graph.removeEdges(src, trgt);
+            if (removed.isEmpty())
+                return removed;
+            try {
+                record.reset();
+                encoder.writeByte(REMOVE_EDGES);
+                vertexCodec.encode(src, encoder);
+                vertexCodec.encode(trgt, encoder);
+                due = append();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        groupCommit(due);
+        return removed;
+    }
+
+    @Override
+    public boolean addGraph(AbstractPropertyGraph<V,E> other) {
+        boolean modified = false;
+        for (V v: other.copyVertexSet())
+            modified |= addVertex(v);
+        for (Edge<V,E> e: other.copyEdgeSet())
+            modified |= addEdge(e);
+        return modified;
+    }
+
+    @Override
+    public synchronized int vertexCount() {
+        return graph.vertexCount();
+    }
+
+    @Override
+    public synchronized int edgeCount() {
+        return graph.edgeCount();
+    }
+
+    @Override
+    public synchronized Iterator<Edge<V,E>> allEdgesIterator() {
+        return graph.allEdgesIterator();
+    }
+
+    @Override
+    public synchronized Iterator<V> allVerticesIterator() {
+        return graph.allVerticesIterator();
+    }
+
+    @Override
+    public synchronized Set<Edge<V,E>> copyEdgeSet() {
+        return graph.copyEdgeSet();
+    }
+
+    @Override
+    public synchronized Set<V> copyVertexSet() {
+        return graph.copyVertexSet();
+    }
+
+    @Override
+    public synchronized Iterator<Edge<V,E>> incomingEdgesIterator(V v) {
+        return graph.incomingEdgesIterator(v);
+    }
+
+    @Override
+    public synchronized Iterator<Edge<V,E>> outgoingEdgesIterator(V v) {
+        return graph.outgoingEdgesIterator(v);
+    }
+
+    @Override
+    public synchronized Set<Edge<V,E>> copyIncomingEdges(V v) {
+        return graph.copyIncomingEdges(v);
+    }
+
+    @Override
+    public synchronized Set<Edge<V,E>> copyOutgoingEdges(V v) {
+        return graph.copyOutgoingEdges(v);
+    }
+
+    @Override
+    public synchronized int getInDegree(V v) {
+        return graph.getInDegree(v);
+    }
+
+    @Override
+    public synchronized int getOutDegree(V v) {
+        return graph.getOutDegree(v);
+    }
+
+    @Override
+    public synchronized Set<Edge<V,E>> getEdgesWithLabel(E label) {
+        return graph.getEdgesWithLabel(label);
+    }
+
+    @Override
+    public synchronized boolean containsEdge(Edge<V,E> e) {
+        return graph.containsEdge(e);
+    }
+
+    @Override
+    public synchronized boolean containsEdge(V src, V trg) {
+        return graph.containsEdge(src, trg);
+    }
+
+    @Override
+    public synchronized boolean containsVertex(V v) {
+        return graph.containsVertex(v);
+    }
+
+    @Override
+    public synchronized boolean containsAllEdges(Set<Edge<V,E>> set) {
+        return graph.containsAllEdges(set);
+    }
+
+    @Override
+    public synchronized boolean containsAllVertices(Set<V> set) {
+        return graph.containsAllVertices(set);
+    }
+
+    @Override
+    public synchronized boolean isSubgraphOf(Graph<V,E> base) {
+        return graph.isSubgraphOf(base);
+    }
+
+    @Override
+    public synchronized boolean isProperSubgraphOf(Graph<V,E> base) {
+        return graph.isProperSubgraphOf(base);
+    }
+
+    @Override
+    public synchronized boolean isConnected() {
+        return graph.isConnected();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return graph.toString();
+    }
+}
@@ -0,0 +1,186 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Community detection by label propagation.
+ *
+ * Initially, each vertex has its own label; then in each round, every vertex adopts the label
+ * with the maximum total edge weight among its neighbors, until no label changes (or the
+ * maximum number of rounds is reached). Vertices sharing the same final label form a community.
+ * The graph is treated as undirected and weighted (see {@link WeightedAdjacency}).
+ *
+ * Updates are asynchronous; i.e. each vertex sees the labels updated earlier in the same round.
+ * Vertices are visited in a pseudo-random order fixed by a seed. In parallel mode, vertices
+ * are updated concurrently on the common fork-join pool, so the result is not deterministic.
+ * Ties are broken in favor of the current label, and then the smaller label.
+ *
+ * Label propagation runs in near-linear time, but usually finds communities of lower modularity
+ * than the {@link Louvain} method.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class LabelPropagation<V,E> {
+
+    /**
+     * Default maximum number of propagation rounds.
+     */
+    public static final int DEFAULT_MAX_ROUNDS = 100;
+
+    public final CompactGraph<V,E> GRAPH;
+
+    private final int[] community;
+    private final int communityCount;
+    private final int rounds;
+    private final double modularity;
+
+    /**
+     * Detect the communities of the given graph with unit edge weights, in parallel.
+     */
+    public LabelPropagation(Graph<V,E> graph) {
+        this(new CompactGraph<>(graph), null, true, DEFAULT_MAX_ROUNDS, 0);
+    }
+
+    /**
+     * Detect the communities of the given compact graph.
+     *
+     * @param graph      the compact graph
+     * @param weights    the weight function of edges; or null for unit weights
+     * @param parallel   whether vertices are updated in parallel
+     * @param maxRounds  the maximum number of propagation rounds
+     * @param seed       the seed for the visiting order of vertices
+     */
+    public LabelPropagation(CompactGraph<V,E> graph, EdgeWeight<V,E> weights,
+                            boolean parallel, int maxRounds, long seed) {
+        GRAPH = graph;
+        WeightedAdjacency adjacency = WeightedAdjacency.of(graph, weights);
+        int n = adjacency.vertexCount();
+        int[] label = new int[n];
+        int[] order = new int[n];
+        for (int v = 0; v < n; ++v) {
+            label[v] = v;
+            order[v] = v;
+        }
+        Random random = new Random(seed);
+        for (int i = n - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        ThreadLocal<WeightedAdjacency.Accumulator> workspace =
+                ThreadLocal.withInitial(() -> new WeightedAdjacency.Accumulator(n));
+        int round = 0;
+        while (round < maxRounds) {
+            ++round;
+            IntStream indices = IntStream.range(0, n);
+            if (parallel)
+                indices = indices.parallel();
+            int changes = indices.map(i -> update(adjacency, order[i], label, workspace.get())).sum();
+            if (changes == 0)
+                break;
+        }
+        rounds = round;
+        // renumber labels densely, in order of first appearance
+        int[] mapping = new int[n];
+        Arrays.fill(mapping, -1);
+        int count = 0;
+        community = new int[n];
+        for (int v = 0; v < n; ++v) {
+            if (mapping[label[v]] < 0)
+                mapping[label[v]] = count++;
+            community[v] = mapping[label[v]];
+        }
+        communityCount = count;
+        modularity = adjacency.modularity(community, count);
+    }
+
+    /**
+     * Updates the label of the given vertex; returns 1 if the label changed, and 0 otherwise.
+     */
+    private static int update(WeightedAdjacency graph, int v, int[] label, WeightedAdjacency.Accumulator acc) {
+        for (int i = graph.start[v]; i < graph.start[v + 1]; ++i)
+            if (graph.adj[i] != v)
+                acc.add(label[graph.adj[i]], graph.weight[i]);
+        if (acc.size == 0)
+            return 0;
+        int old = label[v];
+        int best = old;
+        double bestWeight = acc.seen[old] ? acc.sum[old] : -1;
+        for (int i = 0; i < acc.size; ++i) {
+            int l = acc.keys[i];
+            double w = acc.sum[l];
+            if (w > bestWeight || (w == bestWeight && best != old && l < best)) {
+                best = l;
+                bestWeight = w;
+            }
+        }
+        acc.clear();
+        if (best == old)
+            return 0;
+        label[v] = best;
+        return 1;
+    }
+
+    /**
+     * Returns the number of propagation rounds performed.
+     */
+    public int getRoundCount() {
+        return rounds;
+    }
+
+    /**
+     * Returns the number of detected communities.
+     */
+    public int getCommunityCount() {
+        return communityCount;
+    }
+
+    /**
+     * Returns the modularity of the detected communities.
+     */
+    public double getModularity() {
+        return modularity;
+    }
+
+    /**
+     * Returns the community id of the given vertex index.
+     */
+    public int getCommunityOfIndex(int v) {
+        return community[v];
+    }
+
+    /**
+     * Returns the community id of the given vertex.
+     */
+    public int getCommunityOf(V v) {
+        int idx = GRAPH.indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return community[idx];
+    }
+
+    /**
+     * Return a copy of the community ids, indexed by vertex indices.
+     */
+    public int[] copyCommunities() {
+        return community.clone();
+    }
+
+    /**
+     * Returns the vertices of the graph grouped by their communities.
+     */
+    public List<List<V>> getCommunities() {
+        List<List<V>> groups = new ArrayList<>(communityCount);
+        for (int c = 0; c < communityCount; ++c)
+            groups.add(new ArrayList<>());
+        for (int v = 0; v < community.length; ++v)
+            groups.get(community[v]).add(GRAPH.getVertex(v));
+        return groups;
+    }
+}
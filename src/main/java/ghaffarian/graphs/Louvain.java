@@ -0,0 +1,275 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Community detection by modularity optimization, using the Louvain method.
+ *
+ * The graph is treated as undirected and weighted (see {@link WeightedAdjacency});
+ * edge weights can be derived from the edges (e.g. from their labels) via an {@link EdgeWeight}.
+ * Each level of the method consists of a local-moving phase, where vertices are moved to
+ * the neighboring community with the maximum modularity gain until no significant gain is made;
+ * and an aggregation phase, where each community is merged into a single vertex of the next level.
+ * Levels are repeated until no vertex moves.
+ *
+ * In parallel mode, each sweep of the local-moving phase moves vertices concurrently on the
+ * common fork-join pool, where community totals are updated atomically; to avoid vertices
+ * endlessly swapping communities, a vertex alone in its community only moves to another
+ * single-vertex community with a smaller id. As concurrent moves are decided on slightly stale
+ * information, a sweep which decreases the modularity is discarded, and ends the phase.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class Louvain<V,E> {
+
+    /**
+     * Minimum modularity gain of a sweep for the local-moving phase to continue.
+     */
+    public static final double MIN_GAIN = 1e-6;
+
+    public final CompactGraph<V,E> GRAPH;
+
+    private final int[] community;
+    private final int communityCount;
+    private final double modularity;
+    private final int levels;
+
+    /**
+     * Detect the communities of the given graph with unit edge weights, in parallel.
+     */
+    public Louvain(Graph<V,E> graph) {
+        this(new CompactGraph<>(graph), null, true);
+    }
+
+    /**
+     * Detect the communities of the given compact graph.
+     *
+     * @param graph     the compact graph
+     * @param weights   the weight function of edges; or null for unit weights
+     * @param parallel  whether local moves are decided in parallel
+     */
+    public Louvain(CompactGraph<V,E> graph, EdgeWeight<V,E> weights, boolean parallel) {
+        GRAPH = graph;
+        WeightedAdjacency base = WeightedAdjacency.of(graph, weights);
+        int n = base.vertexCount();
+        community = new int[n];
+        for (int v = 0; v < n; ++v)
+            community[v] = v;
+        int count = n;
+        int level = 0;
+        WeightedAdjacency current = base;
+        while (true) {
+            int[] moved = parallel ? moveParallel(current) : moveSequential(current);
+            int newCount = renumber(moved);
+            if (newCount == count)
+                break;
+            for (int v = 0; v < n; ++v)
+                community[v] = moved[community[v]];
+            count = newCount;
+            ++level;
+            current = current.aggregate(moved, count);
+        }
+        communityCount = count;
+        levels = level;
+        modularity = base.modularity(community, count);
+    }
+
+    /**
+     * Local-moving phase in sequential mode; vertices are visited in order,
+     * and each move is applied immediately. Returns the community of each vertex.
+     */
+    private static int[] moveSequential(WeightedAdjacency graph) {
+        int n = graph.vertexCount();
+        int[] comm = new int[n];
+        double[] total = graph.degree.clone();
+        for (int v = 0; v < n; ++v)
+            comm[v] = v;
+        WeightedAdjacency.Accumulator acc = new WeightedAdjacency.Accumulator(n);
+        double q = graph.modularity(comm, n);
+        while (true) {
+            int moves = 0;
+            for (int v = 0; v < n; ++v) {
+                int old = comm[v];
+                total[old] -= graph.degree[v];
+                int best = bestCommunity(graph, v, comm, c -> total[c], total[old], acc);
+                total[best] += graph.degree[v];
+                if (best != old) {
+                    comm[v] = best;
+                    ++moves;
+                }
+            }
+            double newQ = graph.modularity(comm, n);
+            if (moves == 0 || newQ - q < MIN_GAIN)
+                break;
+            q = newQ;
+        }
+        return comm;
+    }
+
+    /**
+     * Local-moving phase in parallel mode; in each sweep, vertices are moved concurrently,
+     * each seeing the moves made so far, and community totals are updated atomically.
+     * Returns the community of each vertex.
+     */
+    private static int[] moveParallel(WeightedAdjacency graph) {
+        int n = graph.vertexCount();
+        int[] comm = new int[n];
+        AtomicLongArray total = new AtomicLongArray(n);
+        AtomicIntegerArray size = new AtomicIntegerArray(n);
+        for (int v = 0; v < n; ++v) {
+            comm[v] = v;
+            total.set(v, Double.doubleToRawLongBits(graph.degree[v]));
+            size.set(v, 1);
+        }
+        ThreadLocal<WeightedAdjacency.Accumulator> workspace =
+                ThreadLocal.withInitial(() -> new WeightedAdjacency.Accumulator(n));
+        double q = graph.modularity(comm, n);
+        while (true) {
+            int[] previous = comm.clone();
+            int moves = IntStream.range(0, n).parallel().map(v -> {
+                int old = comm[v];
+                double k = graph.degree[v];
+                double ownTotal = Double.longBitsToDouble(total.get(old)) - k;
+                int best = bestCommunity(graph, v, comm, c -> Double.longBitsToDouble(total.get(c)),
+                                         ownTotal, workspace.get());
+                if (best == old || (size.get(old) == 1 && size.get(best) == 1 && best > old))
+                    return 0;
+                addTo(total, old, -k);
+                addTo(total, best, k);
+                size.decrementAndGet(old);
+                size.incrementAndGet(best);
+                comm[v] = best;
+                return 1;
+            }).sum();
+            if (moves == 0)
+                break;
+            double newQ = graph.modularity(comm, n);
+            if (newQ < q)
+                return previous;
+            if (newQ - q < MIN_GAIN)
+                break;
+            q = newQ;
+        }
+        return comm;
+    }
+
+    /**
+     * Atomically adds the given value to the double (as raw long bits) at the given index.
+     */
+    private static void addTo(AtomicLongArray array, int i, double value) {
+        long bits, updated;
+        do {
+            bits = array.get(i);
+            updated = Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + value);
+        } while (!array.compareAndSet(i, bits, updated));
+    }
+
+    /**
+     * Returns the community with the maximum modularity gain for the given vertex.
+     * The given totals of communities may include the degree of the vertex in its own community;
+     * so the total of its own community (excluding the vertex) is given separately.
+     * Ties are broken in favor of the current community, and then the smaller id.
+     */
+    private static int bestCommunity(WeightedAdjacency graph, int v, int[] comm, IntToDoubleFunction total,
+                                     double ownTotal, WeightedAdjacency.Accumulator acc) {
+        int old = comm[v];
+        double scale = graph.degree[v] / graph.totalWeight;
+        for (int i = graph.start[v]; i < graph.start[v + 1]; ++i)
+            if (graph.adj[i] != v)
+                acc.add(comm[graph.adj[i]], graph.weight[i]);
+        int best = old;
+        double bestGain = acc.sum[old] - ownTotal * scale;
+        for (int i = 0; i < acc.size; ++i) {
+            int c = acc.keys[i];
+            if (c == old)
+                continue;
+            double gain = acc.sum[c] - total.applyAsDouble(c) * scale;
+            if (gain > bestGain || (gain == bestGain && best != old && c < best)) {
+                best = c;
+                bestGain = gain;
+            }
+        }
+        acc.clear();
+        return best;
+    }
+
+    /**
+     * Renumber the given community ids densely (in place), in order of first appearance;
+     * and return the number of communities.
+     */
+    private static int renumber(int[] comm) {
+        int[] mapping = new int[comm.length];
+        Arrays.fill(mapping, -1);
+        int count = 0;
+        for (int v = 0; v < comm.length; ++v) {
+            if (mapping[comm[v]] < 0)
+                mapping[comm[v]] = count++;
+            comm[v] = mapping[comm[v]];
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of detected communities.
+     */
+    public int getCommunityCount() {
+        return communityCount;
+    }
+
+    /**
+     * Returns the number of aggregation levels performed.
+     */
+    public int getLevelCount() {
+        return levels;
+    }
+
+    /**
+     * Returns the modularity of the detected communities over the original graph.
+     */
+    public double getModularity() {
+        return modularity;
+    }
+
+    /**
+     * Returns the community id of the given vertex index.
+     */
+    public int getCommunityOfIndex(int v) {
+        return community[v];
+    }
+
+    /**
+     * Returns the community id of the given vertex.
+     */
+    public int getCommunityOf(V v) {
+        int idx = GRAPH.indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return community[idx];
+    }
+
+    /**
+     * Return a copy of the community ids, indexed by vertex indices.
+     */
+    public int[] copyCommunities() {
+        return community.clone();
+    }
+
+    /**
+     * Returns the vertices of the graph grouped by their communities.
+     */
+    public List<List<V>> getCommunities() {
+        List<List<V>> groups = new ArrayList<>(communityCount);
+        for (int c = 0; c < communityCount; ++c)
+            groups.add(new ArrayList<>());
+        for (int v = 0; v < community.length; ++v)
+            groups.get(community[v]).add(GRAPH.getVertex(v));
+        return groups;
+    }
+}
@@ -0,0 +1,514 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Maximum flow and minimum cut between two vertices of a {@link CompactGraph}.
+ *
+ * Edge capacities are computed once (via the given {@link EdgeWeight} function) into a compact
+ * residual graph in CSR form, where each edge has a forward arc at its source and a paired reverse
+ * arc at its target. For undirected graphs, both arcs of an edge have the capacity of the edge;
+ * so flow can go in either direction. Self-loops never carry any flow.
+ *
+ * Two algorithms are provided: the highest-label push-relabel algorithm, with the global
+ * relabeling and gap heuristics; and Dinic's blocking-flow algorithm. Both compute the flow value,
+ * the flow of each edge, and the minimum cut; i.e. the set of vertices reachable from the source
+ * in the final residual graph. The results are kept until the next computation on the same object.
+ * Note that instances of this class are not thread-safe.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class MaxFlow<V,E> {
+
+    // weights of the work of global relabeling, per vertex and per relabel
+    private static final int ALPHA = 6;
+    private static final int BETA = 12;
+
+    public final CompactGraph<V,E> GRAPH;
+
+    // the residual graph: arcs of vertex v are in [arcStart[v], arcStart[v + 1])
+    private final int[] arcStart;
+    private final int[] arcHead;
+    private final int[] arcRev;
+    private final double[] capacity;
+    private final double[] residual;
+    // the forward arc of each edge; or -1 for self-loops
+    private final int[] edgeArc;
+
+    private int source;
+    private int target;
+    private double flowValue;
+    private BitSet sourceSide;
+
+    /**
+     * Construct a new max-flow computation over the given graph,
+     * using the given function for edge capacities.
+     */
+    public MaxFlow(Graph<V,E> graph, EdgeWeight<V,E> capacities) {
+        this(new CompactGraph<>(graph), capacities);
+    }
+
+    /**
+     * Construct a new max-flow computation over the given compact graph,
+     * using the given function for edge capacities.
+     *
+     * @throws IllegalArgumentException if any capacity is negative, infinite or NaN
+     */
+    public MaxFlow(CompactGraph<V,E> graph, EdgeWeight<V,E> capacities) {
+        GRAPH = graph;
+        int n = graph.vertexCount();
+        int m = graph.edgeCount();
+        arcStart = new int[n + 1];
+        edgeArc = new int[m];
+        for (int e = 0; e < m; ++e) {
+            if (graph.edgeSource[e] != graph.edgeTarget[e]) {
+                ++arcStart[graph.edgeSource[e] + 1];
+                ++arcStart[graph.edgeTarget[e] + 1];
+            }
+        }
+        for (int v = 0; v < n; ++v)
+            arcStart[v + 1] += arcStart[v];
+        int arcs = arcStart[n];
+        arcHead = new int[arcs];
+        arcRev = new int[arcs];
+        capacity = new double[arcs];
+        residual = new double[arcs];
+        int[] pos = Arrays.copyOf(arcStart, n);
+        for (int e = 0; e < m; ++e) {
+            double cap = capacities.weightOf(graph.getEdge(e));
+            if (!(cap >= 0) || Double.isInfinite(cap))
+                throw new IllegalArgumentException("Capacities must be non-negative and finite: " + graph.getEdge(e));
+            int u = graph.edgeSource[e];
+            int w = graph.edgeTarget[e];
+            if (u == w) {
+                edgeArc[e] = -1;
+                continue;
+            }
+            int a = pos[u]++;
+            int r = pos[w]++;
+            arcHead[a] = w;
+            arcHead[r] = u;
+            arcRev[a] = r;
+            arcRev[r] = a;
+            capacity[a] = cap;
+            capacity[r] = graph.isDirected() ? 0 : cap;
+            edgeArc[e] = a;
+        }
+        source = -1;
+        target = -1;
+    }
+
+    private int checkVertex(V v) {
+        int idx = GRAPH.indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return idx;
+    }
+
+    private void start(int src, int trg) {
+        int n = GRAPH.vertexCount();
+        if (src < 0 || src >= n || trg < 0 || trg >= n)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        if (src == trg)
+            throw new IllegalArgumentException("Source and target must be different!");
+        source = src;
+        target = trg;
+        System.arraycopy(capacity, 0, residual, 0, capacity.length);
+    }
+
+    /**
+     * Computes the maximum flow from the given source to the given target vertex,
+     * using the push-relabel algorithm; and returns the flow value.
+     */
+    public double pushRelabel(V src, V trg) {
+        return pushRelabel(checkVertex(src), checkVertex(trg));
+    }
+
+    /**
+     * Computes the maximum flow from the given source to the given target vertex index,
+     * using the highest-label push-relabel algorithm with global relabeling and gap heuristics;
+     * and returns the flow value. Excess flow which cannot reach the target is returned to the
+     * source in the same pass (by vertices labeled above n), so the result is a valid flow.
+     */
+    public double pushRelabel(int src, int trg) {
+        start(src, trg);
+        new PushRelabel().run();
+        return finish();
+    }
+
+    /**
+     * Computes the maximum flow from the given source to the given target vertex,
+     * using Dinic's algorithm; and returns the flow value.
+     */
+    public double dinic(V src, V trg) {
+        return dinic(checkVertex(src), checkVertex(trg));
+    }
+
+    /**
+     * Computes the maximum flow from the given source to the given target vertex index,
+     * using Dinic's algorithm; and returns the flow value. Each phase computes a blocking flow
+     * in the BFS level graph, by iterative depth-first augmentations with current-arc pointers.
+     */
+    public double dinic(int src, int trg) {
+        start(src, trg);
+        int n = GRAPH.vertexCount();
+        int[] level = new int[n];
+        int[] queue = new int[n];
+        int[] current = new int[n];
+        int[] path = new int[n];
+        while (true) {
+            // BFS levels in the residual graph
+            Arrays.fill(level, -1);
+            level[src] = 0;
+            queue[0] = src;
+            for (int head = 0, tail = 1; head < tail && level[trg] < 0; ++head) {
+                int v = queue[head];
+                for (int a = arcStart[v]; a < arcStart[v + 1]; ++a) {
+                    int w = arcHead[a];
+                    if (level[w] < 0 && residual[a] > 0) {
+                        level[w] = level[v] + 1;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+            if (level[trg] < 0)
+                break;
+            System.arraycopy(arcStart, 0, current, 0, n);
+            // blocking flow, by iterative augmenting paths
+            int depth = 0;
+            int v = src;
+            while (true) {
+                if (v == trg) {
+                    double delta = Double.POSITIVE_INFINITY;
+                    for (int i = 0; i < depth; ++i)
+                        delta = Math.min(delta, residual[path[i]]);
+                    int retreat = depth;
+                    for (int i = depth - 1; i >= 0; --i) {
+                        int a = path[i];
+                        residual[a] -= delta;
+                        residual[arcRev[a]] += delta;
+                        if (residual[a] <= 0)
+                            retreat = i;
+                    }
+                    // continue from the tail of the first saturated arc
+                    depth = retreat;
+                    v = depth == 0 ? src : arcHead[path[depth - 1]];
+                    continue;
+                }
+                int a = current[v];
+                int end = arcStart[v + 1];
+                while (a < end && (residual[a] <= 0 || level[arcHead[a]] != level[v] + 1))
+                    ++a;
+                current[v] = a;
+                if (a < end) {
+                    path[depth++] = a;
+                    v = arcHead[a];
+                } else {
+                    // dead end; retreat
+                    if (depth == 0)
+                        break;
+                    level[v] = -1;
+                    --depth;
+                    v = depth == 0 ? src : arcHead[path[depth - 1]];
+                    ++current[v];
+                }
+            }
+        }
+        return finish();
+    }
+
+    /**
+     * Computes the flow value and the source side of the minimum cut from the residual graph.
+     */
+    private double finish() {
+        double value = 0;
+        for (int a = arcStart[target]; a < arcStart[target + 1]; ++a)
+            value += residual[a] - capacity[a];
+        flowValue = value;
+        int n = GRAPH.vertexCount();
+        sourceSide = new BitSet(n);
+        int[] queue = new int[n];
+        queue[0] = source;
+        sourceSide.set(source);
+        for (int head = 0, tail = 1; head < tail; ++head) {
+            int v = queue[head];
+            for (int a = arcStart[v]; a < arcStart[v + 1]; ++a) {
+                int w = arcHead[a];
+                if (residual[a] > 0 && !sourceSide.get(w)) {
+                    sourceSide.set(w);
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return value;
+    }
+
+    private void checkComputed() {
+        if (source < 0)
+            throw new IllegalStateException("No flow is computed yet!");
+    }
+
+    /**
+     * Returns the value of the last computed maximum flow.
+     */
+    public double getFlowValue() {
+        checkComputed();
+        return flowValue;
+    }
+
+    /**
+     * Returns the flow of the given edge index in the last computed maximum flow.
+     * For undirected graphs, the flow is negative if it goes from the target to the source of the edge.
+     */
+    public double getFlowOfIndex(int e) {
+        checkComputed();
+        int a = edgeArc[e];
+        if (a < 0)
+            return 0;
+        int r = arcRev[a];
+        return (residual[r] - residual[a] + capacity[a] - capacity[r]) / 2;
+    }
+
+    /**
+     * Returns the flows of all edges in the last computed maximum flow, indexed by edge indices.
+     */
+    public double[] copyEdgeFlows() {
+        double[] flows = new double[edgeArc.length];
+        for (int e = 0; e < flows.length; ++e)
+            flows[e] = getFlowOfIndex(e);
+        return flows;
+    }
+
+    /**
+     * Returns the vertex indices of the source side of the minimum cut;
+     * i.e. the vertices which are reachable from the source in the final residual graph.
+     */
+    public BitSet copySourceSide() {
+        checkComputed();
+        return (BitSet) sourceSide.clone();
+    }
+
+    /**
+     * Checks whether the given vertex is on the source side of the minimum cut.
+     */
+    public boolean isOnSourceSide(V v) {
+        checkComputed();
+        return sourceSide.get(checkVertex(v));
+    }
+
+    /**
+     * Returns the edges of the minimum cut; i.e. the edges from the source side to the target side
+     * (for undirected graphs, the edges between the two sides). The sum of their capacities
+     * is equal to the maximum flow value.
+     */
+    public List<Edge<V,E>> getCutEdges() {
+        checkComputed();
+        List<Edge<V,E>> cut = new ArrayList<>();
+        for (int e = 0; e < edgeArc.length; ++e) {
+            boolean src = sourceSide.get(GRAPH.edgeSource[e]);
+            boolean trg = sourceSide.get(GRAPH.edgeTarget[e]);
+            if (src && !trg || !GRAPH.isDirected() && trg && !src)
+                cut.add(GRAPH.getEdge(e));
+        }
+        return cut;
+    }
+
+    /**
+     * The state of the highest-label push-relabel algorithm.
+     */
+    private class PushRelabel {
+
+        final int n = GRAPH.vertexCount();
+        final int[] height = new int[n];
+        final double[] excess = new double[n];
+        final int[] current = new int[n];
+        // number of vertices at each height
+        final int[] count = new int[2 * n + 1];
+        // doubly-linked lists of all vertices at each height below n
+        final int[] levelHead = new int[n];
+        final int[] levelNext = new int[n];
+        final int[] levelPrev = new int[n];
+        // stacks of active vertices at each height; entries with stale heights are moved when popped
+        final int[] activeHead = new int[2 * n + 1];
+        final int[] activeNext = new int[n];
+        final boolean[] queued = new boolean[n];
+        final int[] queue = new int[n];
+        int maxActive;
+        int maxLevel;
+        long work;
+
+        void run() {
+            excess[source] = 0;
+            for (int a = arcStart[source]; a < arcStart[source + 1]; ++a) {
+                double delta = residual[a];
+                if (delta > 0) {
+                    residual[a] = 0;
+                    residual[arcRev[a]] += delta;
+                    excess[arcHead[a]] += delta;
+                }
+            }
+            long threshold = (ALPHA * (long) n + arcHead.length) / 2;
+            globalRelabel();
+            while (maxActive >= 0) {
+                int v = activeHead[maxActive];
+                if (v < 0) {
+                    --maxActive;
+                    continue;
+                }
+                activeHead[maxActive] = activeNext[v];
+                queued[v] = false;
+                if (height[v] != maxActive) {
+                    activate(v);
+                    continue;
+                }
+                discharge(v);
+                if (work > threshold) {
+                    globalRelabel();
+                    work = 0;
+                }
+            }
+        }
+
+        void activate(int v) {
+            if (queued[v] || v == source || v == target)
+                return;
+            queued[v] = true;
+            activeNext[v] = activeHead[height[v]];
+            activeHead[height[v]] = v;
+            maxActive = Math.max(maxActive, height[v]);
+        }
+
+        void addToLevel(int v) {
+            int h = height[v];
+            ++count[h];
+            if (h < n) {
+                levelNext[v] = levelHead[h];
+                levelPrev[v] = -1;
+                if (levelHead[h] >= 0)
+                    levelPrev[levelHead[h]] = v;
+                levelHead[h] = v;
+                maxLevel = Math.max(maxLevel, h);
+            }
+        }
+
+        void removeFromLevel(int v) {
+            int h = height[v];
+            --count[h];
+            if (h < n) {
+                if (levelPrev[v] >= 0)
+                    levelNext[levelPrev[v]] = levelNext[v];
+                else
+                    levelHead[h] = levelNext[v];
+                if (levelNext[v] >= 0)
+                    levelPrev[levelNext[v]] = levelPrev[v];
+            }
+        }
+
+        void discharge(int v) {
+            // vertices labeled 2n cannot send their (rounding-error) excess anywhere
+            while (excess[v] > 0 && height[v] < 2 * n) {
+                int a = current[v];
+                if (a == arcStart[v + 1]) {
+                    relabel(v);
+                    continue;
+                }
+                int w = arcHead[a];
+                if (residual[a] > 0 && height[v] == height[w] + 1) {
+                    double delta = Math.min(excess[v], residual[a]);
+                    residual[a] -= delta;
+                    residual[arcRev[a]] += delta;
+                    excess[v] -= delta;
+                    excess[w] += delta;
+                    activate(w);
+                } else {
+                    current[v] = a + 1;
+                }
+            }
+        }
+
+        void relabel(int v) {
+            work += BETA + arcStart[v + 1] - arcStart[v];
+            int old = height[v];
+            int minHeight = 2 * n;
+            int minArc = arcStart[v];
+            for (int a = arcStart[v]; a < arcStart[v + 1]; ++a) {
+                if (residual[a] > 0 && height[arcHead[a]] < minHeight) {
+                    minHeight = height[arcHead[a]];
+                    minArc = a;
+                }
+            }
+            removeFromLevel(v);
+            height[v] = Math.min(minHeight + 1, 2 * n);
+            current[v] = minArc;
+            addToLevel(v);
+            if (old < n && count[old] == 0)
+                gap(old);
+        }
+
+        /**
+         * No vertex is left at the given height below n, so the vertices above it
+         * cannot reach the target anymore; lift them to n + 1.
+         */
+        void gap(int empty) {
+            for (int h = empty + 1; h <= maxLevel; ++h) {
+                for (int u = levelHead[h]; u >= 0; u = levelNext[u]) {
+                    --count[h];
+                    height[u] = n + 1;
+                    ++count[n + 1];
+                    current[u] = arcStart[u];
+                    if (queued[u])
+                        maxActive = Math.max(maxActive, n + 1);
+                }
+                levelHead[h] = -1;
+            }
+            maxLevel = empty - 1;
+        }
+
+        /**
+         * Recomputes exact heights: distances to the target in the residual graph;
+         * or n plus distances to the source, for vertices which cannot reach the target.
+         */
+        void globalRelabel() {
+            Arrays.fill(height, -1);
+            Arrays.fill(count, 0);
+            Arrays.fill(levelHead, -1);
+            Arrays.fill(activeHead, -1);
+            Arrays.fill(queued, false);
+            maxActive = -1;
+            maxLevel = -1;
+            height[source] = n;
+            reverseBreadthFirst(target, 0);
+            reverseBreadthFirst(source, n);
+            for (int v = 0; v < n; ++v) {
+                if (height[v] < 0)
+                    height[v] = 2 * n;
+                current[v] = arcStart[v];
+                addToLevel(v);
+                if (excess[v] > 0)
+                    activate(v);
+            }
+        }
+
+        /**
+         * Labels unlabeled vertices by their residual distance to the given root, plus the given base.
+         */
+        void reverseBreadthFirst(int root, int base) {
+            height[root] = base;
+            queue[0] = root;
+            for (int head = 0, tail = 1; head < tail; ++head) {
+                int w = queue[head];
+                for (int a = arcStart[w]; a < arcStart[w + 1]; ++a) {
+                    int u = arcHead[a];
+                    if (height[u] < 0 && residual[arcRev[a]] > 0) {
+                        height[u] = height[w] + 1;
+                        queue[tail++] = u;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,835 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import ghaffarian.collections.MatcherLinkedHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maximum common subgraph (MCS) of two graphs, using the McSplit branch and bound algorithm.
+ *
+ * Two variants are supported:
+ * <ul>
+ *   <li>Induced (the default): the largest set of vertex pairs, such that the induced subgraphs
+ *       of the two graphs are isomorphic; i.e. any two matched vertices are connected by the same
+ *       (number, direction and labels of) edges in both graphs. The size is the number of vertices.</li>
+ *   <li>Edge-induced: the largest set of edge pairs, such that the subgraphs formed by these edges
+ *       are isomorphic. This is computed as the induced MCS of the line graphs of the two graphs
+ *       (where adjacency also records how the two edges share their end-points),
+ *       and every improving solution is checked to induce a consistent vertex mapping.
+ *       The size is the number of edges.</li>
+ * </ul>
+ * Two vertices are compatible if they are equal according to the given vertex matcher,
+ * and two edges are compatible if their labels are equal according to the given label matcher;
+ * a null matcher makes all vertices (or labels) compatible.
+ *
+ * McSplit keeps the unmatched vertices of the two graphs partitioned into label classes,
+ * where the vertices of a class have the same label and the same adjacency to all matched vertices;
+ * so the sum of the smaller side of all classes bounds the number of further matches.
+ * The search can be limited by a timeout, in which case the best solution found so far is kept.
+ * In parallel mode, the branches near the root of the search tree are explored in parallel,
+ * sharing the size of the best solution for pruning.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class MaximumCommonSubgraph<V,E> {
+
+    // branches are explored in parallel up to this depth of the search tree
+    private static final int PARALLEL_DEPTH = 2;
+
+    public final CompactGraph<V,E> FIRST;
+    public final CompactGraph<V,E> SECOND;
+
+    private final int[] vertexClass1;
+    private final int[] vertexClass2;
+    private final int[] labelClass1;
+    private final int[] labelClass2;
+
+    private boolean edgeInduced;
+    private boolean parallel;
+    private long timeout;
+
+    // state of the search
+    private Structure g;
+    private Structure h;
+    private long deadline;
+    private volatile boolean timedOut;
+    private final AtomicInteger bestSize;
+    private int[] bestFirst;
+    private int[] bestSecond;
+    private int[] bestVertexMap;
+    private Map<V,V> vertexMapping;
+    private Map<Edge<V,E>, Edge<V,E>> edgeMapping;
+
+    /**
+     * Construct a new maximum common subgraph search for the given graphs.
+     *
+     * @param first          the first graph
+     * @param second         the second graph
+     * @param vertexMatcher  matcher of compatible vertices; or null to match all vertices
+     * @param labelMatcher   matcher of compatible edge labels; or null to match all edges
+     */
+    public MaximumCommonSubgraph(Graph<V,E> first, Graph<V,E> second, Matcher<V> vertexMatcher, Matcher<E> labelMatcher) {
+        this(new CompactGraph<>(first), new CompactGraph<>(second), vertexMatcher, labelMatcher);
+    }
+
+    /**
+     * Construct a new maximum common subgraph search for the given compact graphs.
+     */
+    public MaximumCommonSubgraph(CompactGraph<V,E> first, CompactGraph<V,E> second,
+                                 Matcher<V> vertexMatcher, Matcher<E> labelMatcher) {
+        if (first.isDirected() != second.isDirected())
+            throw new IllegalArgumentException("Cannot compare directed and undirected graphs!");
+        FIRST = first;
+        SECOND = second;
+        // compatibility classes of vertices and edge labels, shared by both graphs
+        MatcherLinkedHashMap<V, Integer> vertexIds = vertexMatcher == null ? null : new MatcherLinkedHashMap<>(16, vertexMatcher);
+        MatcherLinkedHashMap<E, Integer> labelIds = labelMatcher == null ? null : new MatcherLinkedHashMap<>(16, labelMatcher);
+        vertexClass1 = vertexClasses(first, vertexIds);
+        vertexClass2 = vertexClasses(second, vertexIds);
+        labelClass1 = labelClasses(first, labelIds);
+        labelClass2 = labelClasses(second, labelIds);
+        bestSize = new AtomicInteger();
+        timeout = 0;
+    }
+
+    private static <V> int[] vertexClasses(CompactGraph<V,?> graph, Map<V, Integer> ids) {
+        int[] classes = new int[graph.vertexCount()];
+        if (ids != null)
+            for (int v = 0; v < classes.length; ++v)
+                classes[v] = ids.computeIfAbsent(graph.getVertex(v), k -> ids.size());
+        return classes;
+    }
+
+    private static <E> int[] labelClasses(CompactGraph<?,E> graph, Map<E, Integer> ids) {
+        int[] classes = new int[graph.edgeCount()];
+        if (ids != null)
+            // null labels are only compatible with each other
+            for (int e = 0; e < classes.length; ++e) {
+                E label = graph.getEdge(e).label;
+                classes[e] = label == null ? 0 : ids.computeIfAbsent(label, k -> ids.size() + 1);
+            }
+        return classes;
+    }
+
+    /**
+     * Set whether to compute the edge-induced (true) or the induced (false) common subgraph;
+     * the default is induced.
+     */
+    public void setEdgeInduced(boolean edgeInduced) {
+        this.edgeInduced = edgeInduced;
+    }
+
+    /**
+     * Set whether to explore the branches of the search in parallel or not (default is false).
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Set the time limit of the search in milliseconds; zero (the default) means no limit.
+     */
+    public void setTimeout(long millis) {
+        if (millis < 0)
+            throw new IllegalArgumentException("Timeout cannot be negative!");
+        timeout = millis;
+    }
+
+    /**
+     * Run the search; returns true if the search was completed (so the result is optimal),
+     * or false if the time limit was reached (so the result is the best solution found).
+     */
+    public boolean run() {
+        Map<String, Integer> labelIds = new HashMap<>();
+        Map<String, Integer> codeIds = new HashMap<>();
+        if (edgeInduced) {
+            g = lineStructure(FIRST, vertexClass1, labelClass1, labelIds);
+            h = lineStructure(SECOND, vertexClass2, labelClass2, labelIds);
+        } else {
+            g = vertexStructure(FIRST, vertexClass1, labelClass1, labelIds, codeIds);
+            h = vertexStructure(SECOND, vertexClass2, labelClass2, labelIds, codeIds);
+        }
+        bestSize.set(0);
+        bestFirst = new int[0];
+        bestSecond = new int[0];
+        bestVertexMap = new int[FIRST.vertexCount()];
+        Arrays.fill(bestVertexMap, -1);
+        timedOut = false;
+        deadline = timeout > 0 ? System.nanoTime() + timeout * 1_000_000L : Long.MAX_VALUE;
+        Search root = new Search();
+        int[] domains = root.initialDomains();
+        if (parallel)
+            ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> root.search(domains, 0)));
+        else
+            root.search(domains, 0);
+        vertexMapping = null;
+        edgeMapping = null;
+        return !timedOut;
+    }
+
+    /**
+     * Check whether the last run reached the time limit (so the result may not be optimal).
+     */
+    public boolean hasTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Returns the size of the common subgraph; i.e. the number of matched vertices
+     * (for the induced variant) or the number of matched edges (for the edge-induced variant).
+     */
+    public int getSize() {
+        return bestFirst == null ? 0 : bestFirst.length;
+    }
+
+    /**
+     * Returns the (unmodifiable) mapping of the vertices of the common subgraph,
+     * from the first graph to the second graph.
+     */
+    public Map<V,V> getVertexMapping() {
+        if (vertexMapping == null)
+            buildMappings();
+        return vertexMapping;
+    }
+
+    /**
+     * Returns the (unmodifiable) mapping of the edges of the common subgraph,
+     * from the first graph to the second graph.
+     */
+    public Map<Edge<V,E>, Edge<V,E>> getEdgeMapping() {
+        if (edgeMapping == null)
+            buildMappings();
+        return edgeMapping;
+    }
+
+    private void buildMappings() {
+        if (bestFirst == null)
+            throw new IllegalStateException("The search has not been run yet!");
+        boolean identity = FIRST.hasIdentityIndex();
+        Map<V,V> vertices = identity ? new IdentityHashMap<>() : new LinkedHashMap<>();
+        Map<Edge<V,E>, Edge<V,E>> edges = identity ? new IdentityHashMap<>() : new LinkedHashMap<>();
+        if (edgeInduced) {
+            for (int v = 0; v < bestVertexMap.length; ++v)
+                if (bestVertexMap[v] >= 0)
+                    vertices.put(FIRST.getVertex(v), SECOND.getVertex(bestVertexMap[v]));
+            for (int k = 0; k < bestFirst.length; ++k)
+                edges.put(FIRST.getEdge(g.original[bestFirst[k]]), SECOND.getEdge(h.original[bestSecond[k]]));
+        } else {
+            int[] map = new int[FIRST.vertexCount()];
+            Arrays.fill(map, -1);
+            for (int k = 0; k < bestFirst.length; ++k) {
+                map[g.original[bestFirst[k]]] = h.original[bestSecond[k]];
+                vertices.put(FIRST.getVertex(g.original[bestFirst[k]]), SECOND.getVertex(h.original[bestSecond[k]]));
+            }
+            // match the edges between matched vertices, by their label classes
+            boolean directed = FIRST.isDirected();
+            int n2 = SECOND.vertexCount();
+            Map<Long, List<Integer>> between = new HashMap<>();
+            for (int e = 0; e < SECOND.edgeCount(); ++e)
+                between.computeIfAbsent(pairKey(SECOND.edgeSource[e], SECOND.edgeTarget[e], n2, directed),
+                                        k -> new ArrayList<>()).add(e);
+            for (int e = 0; e < FIRST.edgeCount(); ++e) {
+                int s = map[FIRST.edgeSource[e]], t = map[FIRST.edgeTarget[e]];
+                if (s < 0 || t < 0)
+                    continue;
+                List<Integer> candidates = between.get(pairKey(s, t, n2, directed));
+                for (int i = 0; candidates != null && i < candidates.size(); ++i) {
+                    int f = candidates.get(i);
+                    if (labelClass2[f] == labelClass1[e]) {
+                        edges.put(FIRST.getEdge(e), SECOND.getEdge(f));
+                        candidates.remove(i);
+                        break;
+                    }
+                }
+            }
+        }
+        vertexMapping = Collections.unmodifiableMap(vertices);
+        edgeMapping = Collections.unmodifiableMap(edges);
+    }
+
+    private static long pairKey(int s, int t, int n, boolean directed) {
+        if (!directed && s > t)
+            return (long) t * n + s;
+        return (long) s * n + t;
+    }
+
+    /**
+     * Record the given solution (and the vertex mapping of the edge-induced variant),
+     * if it is better than the best solution so far.
+     */
+    private synchronized void record(int[] first, int[] second, int size, int[] vertexMap) {
+        if (size <= bestSize.get())
+            return;
+        bestFirst = Arrays.copyOf(first, size);
+        bestSecond = Arrays.copyOf(second, size);
+        if (vertexMap != null)
+            bestVertexMap = vertexMap.clone();
+        bestSize.set(size);
+    }
+
+    /**
+     * Builds the labeled structure of the given graph for the induced variant;
+     * vertex labels combine the vertex class and the labels of self-loops,
+     * and the adjacency code of two vertices represents all edges between them.
+     */
+    private static Structure vertexStructure(CompactGraph<?,?> graph, int[] vertexClass, int[] labelClass,
+                                             Map<String, Integer> labelIds, Map<String, Integer> codeIds) {
+        int n = graph.vertexCount();
+        boolean directed = graph.isDirected();
+        int[] label = new int[n];
+        long[][] adjacency = new long[n][];
+        StringBuilder key = new StringBuilder();
+        for (int v = 0; v < n; ++v) {
+            // entries of (neighbor, direction, label class); self-loops are only taken from the outgoing list
+            int outDegree = graph.outStart[v + 1] - graph.outStart[v];
+            int inDegree = directed ? graph.inStart[v + 1] - graph.inStart[v] : 0;
+            long[] entries = new long[outDegree + inDegree];
+            int size = 0, loops = 0;
+            int[] loopLabels = new int[outDegree];
+            for (int i = graph.outStart[v]; i < graph.outStart[v + 1]; ++i) {
+                int x = graph.outTarget[i];
+                if (x == v)
+                    loopLabels[loops++] = labelClass[graph.outEdge[i]];
+                else
+                    entries[size++] = ((long) x << 32) | labelClass[graph.outEdge[i]];
+            }
+            if (directed)
+                for (int i = graph.inStart[v]; i < graph.inStart[v + 1]; ++i)
+                    if (graph.inSource[i] != v)
+                        entries[size++] = ((long) graph.inSource[i] << 32) | (1L << 31) | labelClass[graph.inEdge[i]];
+            Arrays.sort(loopLabels, 0, loops);
+            key.setLength(0);
+            key.append(vertexClass[v]).append(':');
+            for (int k = 0; k < loops; ++k)
+                key.append(loopLabels[k]).append(',');
+            label[v] = labelIds.computeIfAbsent(key.toString(), k -> labelIds.size());
+            Arrays.sort(entries, 0, size);
+            long[] adj = new long[size];
+            int count = 0;
+            for (int i = 0; i < size; ) {
+                int x = (int) (entries[i] >>> 32);
+                key.setLength(0);
+                for (; i < size && (int) (entries[i] >>> 32) == x; ++i)
+                    key.append((entries[i] & (1L << 31)) != 0 ? '<' : '>').append(entries[i] & Integer.MAX_VALUE).append(',');
+                // code zero is reserved for non-adjacent vertices
+                int code = codeIds.computeIfAbsent(key.toString(), k -> codeIds.size() + 1);
+                adj[count++] = ((long) x << 32) | code;
+            }
+            adjacency[v] = Arrays.copyOf(adj, count);
+        }
+        return new Structure(label, adjacency);
+    }
+
+    /**
+     * Builds the labeled line graph of the given graph for the edge-induced variant;
+     * edge labels combine the classes of the edge and its end-points, and the adjacency code
+     * of two edges represents how they share their end-points.
+     */
+    private static Structure lineStructure(CompactGraph<?,?> graph, int[] vertexClass, int[] labelClass,
+                                           Map<String, Integer> labelIds) {
+        int n = graph.vertexCount();
+        int m = graph.edgeCount();
+        boolean directed = graph.isDirected();
+        int[] label = new int[m];
+        for (int e = 0; e < m; ++e) {
+            int s = graph.edgeSource[e], t = graph.edgeTarget[e];
+            int cs = vertexClass[s], ct = vertexClass[t];
+            if (!directed && cs > ct) {
+                int tmp = cs;
+                cs = ct;
+                ct = tmp;
+            }
+            String key = cs + "," + labelClass[e] + "," + ct + (s == t ? ",loop" : "");
+            label[e] = labelIds.computeIfAbsent(key, k -> labelIds.size());
+        }
+        // incident edges of each vertex, in CSR form
+        int[] start = new int[n + 1];
+        for (int e = 0; e < m; ++e) {
+            ++start[graph.edgeSource[e] + 1];
+            if (graph.edgeTarget[e] != graph.edgeSource[e])
+                ++start[graph.edgeTarget[e] + 1];
+        }
+        for (int v = 0; v < n; ++v)
+            start[v + 1] += start[v];
+        int[] incident = new int[start[n]];
+        int[] pos = Arrays.copyOf(start, n);
+        for (int e = 0; e < m; ++e) {
+            incident[pos[graph.edgeSource[e]]++] = e;
+            if (graph.edgeTarget[e] != graph.edgeSource[e])
+                incident[pos[graph.edgeTarget[e]]++] = e;
+        }
+        long[][] adjacency = new long[m][];
+        for (int e = 0; e < m; ++e) {
+            int s = graph.edgeSource[e], t = graph.edgeTarget[e];
+            int size = start[s + 1] - start[s] + (s == t ? 0 : start[t + 1] - start[t]);
+            long[] entries = new long[size];
+            int count = 0;
+            for (int i = start[s]; i < start[s + 1]; ++i)
+                if (incident[i] != e)
+                    entries[count++] = incident[i];
+            if (s != t)
+                for (int i = start[t]; i < start[t + 1]; ++i)
+                    if (incident[i] != e)
+                        entries[count++] = incident[i];
+            Arrays.sort(entries, 0, count);
+            long[] adj = new long[count];
+            int unique = 0;
+            for (int i = 0; i < count; ++i) {
+                if (i > 0 && entries[i] == entries[i - 1])
+                    continue;
+                int f = (int) entries[i];
+                int s2 = graph.edgeSource[f], t2 = graph.edgeTarget[f];
+                int code;
+                if (directed)
+                    code = 1 + ((s == s2 ? 1 : 0) | (s == t2 ? 2 : 0) | (t == s2 ? 4 : 0) | (t == t2 ? 8 : 0));
+                else if (s == t || s2 == t2)
+                    code = 1;
+                else
+                    code = (s == s2 || s == t2 ? 1 : 0) + (t == s2 || t == t2 ? 1 : 0);
+                adj[unique++] = ((long) f << 32) | code;
+            }
+            adjacency[e] = Arrays.copyOf(adj, unique);
+        }
+        return new Structure(label, adjacency);
+    }
+
+    /**
+     * A labeled graph with coded adjacency, where vertices are renumbered
+     * in decreasing order of degree (so lower ids are branched on first).
+     */
+    private static class Structure {
+
+        final int n;
+        final int[] label;
+        final int[] start;
+        final int[] adj;
+        final int[] code;
+        // original index of each vertex
+        final int[] original;
+
+        Structure(int[] rawLabel, long[][] rawAdjacency) {
+            n = rawLabel.length;
+            Integer[] order = new Integer[n];
+            for (int v = 0; v < n; ++v)
+                order[v] = v;
+            Arrays.sort(order, (a, b) -> Integer.compare(rawAdjacency[b].length, rawAdjacency[a].length));
+            original = new int[n];
+            int[] internal = new int[n];
+            for (int i = 0; i < n; ++i) {
+                original[i] = order[i];
+                internal[order[i]] = i;
+            }
+            label = new int[n];
+            start = new int[n + 1];
+            for (int i = 0; i < n; ++i) {
+                label[i] = rawLabel[original[i]];
+                start[i + 1] = start[i] + rawAdjacency[original[i]].length;
+            }
+            adj = new int[start[n]];
+            code = new int[start[n]];
+            for (int i = 0; i < n; ++i) {
+                int k = start[i];
+                for (long entry: rawAdjacency[original[i]]) {
+                    adj[k] = internal[(int) (entry >>> 32)];
+                    code[k++] = (int) entry;
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of a (sequential) branch and bound search.
+     * Label classes (bidomains) are packed as quadruples of
+     * {left-start, left-length, right-start, right-length} over the left and right arrays.
+     */
+    private class Search {
+
+        final int[] left;
+        final int[] right;
+        final int[] first;
+        final int[] second;
+        final int[] rowG;
+        final int[] rowH;
+        int nodes;
+        // vertex mapping induced by the matched edges (for the edge-induced variant)
+        final int[] map;
+        final int[] inverse;
+        // incident matched edges of each vertex of the first graph, as linked lists of slots
+        final int[] head;
+        final int[] next;
+        final int[] touched;
+        int touchedCount;
+        final boolean[] done;
+        final int[] queue;
+
+        Search() {
+            left = new int[g.n];
+            right = new int[h.n];
+            for (int v = 0; v < g.n; ++v)
+                left[v] = v;
+            for (int w = 0; w < h.n; ++w)
+                right[w] = w;
+            int max = Math.min(g.n, h.n);
+            first = new int[max];
+            second = new int[max];
+            rowG = new int[g.n];
+            rowH = new int[h.n];
+            boolean edges = edgeInduced;
+            map = new int[edges ? FIRST.vertexCount() : 0];
+            inverse = new int[edges ? SECOND.vertexCount() : 0];
+            head = new int[map.length];
+            next = new int[edges ? 2 * max : 0];
+            touched = new int[next.length];
+            done = new boolean[edges ? max : 0];
+            queue = new int[done.length];
+            Arrays.fill(map, -1);
+            Arrays.fill(inverse, -1);
+            Arrays.fill(head, -1);
+        }
+
+        Search(Search other) {
+            this();
+            System.arraycopy(other.left, 0, left, 0, left.length);
+            System.arraycopy(other.right, 0, right, 0, right.length);
+            System.arraycopy(other.first, 0, first, 0, first.length);
+            System.arraycopy(other.second, 0, second, 0, second.length);
+        }
+
+        int[] initialDomains() {
+            sortByKey(left, 0, g.n, g.label);
+            sortByKey(right, 0, h.n, h.label);
+            Domains out = new Domains(8);
+            split(0, g.n, 0, h.n, g.label, h.label, out);
+            return out.toArray();
+        }
+
+        void search(int[] domains, int depth) {
+            if ((++nodes & 1023) == 0 && System.nanoTime() > deadline)
+                timedOut = true;
+            if (timedOut)
+                return;
+            if (depth > bestSize.get())
+                record(first, second, depth, edgeInduced ? map : null);
+            int bound = depth;
+            int best = -1, bestMax = Integer.MAX_VALUE;
+            for (int d = 0; d < domains.length; d += 4) {
+                int ll = domains[d + 1], rl = domains[d + 3];
+                if (ll == 0 || rl == 0)
+                    continue;
+                bound += Math.min(ll, rl);
+                if (Math.max(ll, rl) < bestMax) {
+                    bestMax = Math.max(ll, rl);
+                    best = d;
+                }
+            }
+            if (best < 0 || bound <= bestSize.get())
+                return;
+            int ls = domains[best], ll = domains[best + 1];
+            int rs = domains[best + 2], rl = domains[best + 3];
+            // branch on the vertex of the class with the lowest id (i.e. the highest degree)
+            int vPos = ls;
+            for (int i = ls + 1; i < ls + ll; ++i)
+                if (left[i] < left[vPos])
+                    vPos = i;
+            int v = left[vPos];
+            swap(left, vPos, ls + ll - 1);
+            domains[best + 1] = ll - 1;
+            if (parallel && depth < PARALLEL_DEPTH) {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(rl + 1);
+                int d = best;
+                for (int k = 0; k < rl; ++k) {
+                    int wPos = rs + k;
+                    tasks.add(ForkJoinTask.adapt(() -> new Search(this).match(domains.clone(), d, v, wPos, depth)));
+                }
+                tasks.add(ForkJoinTask.adapt(() -> new Search(this).search(domains.clone(), depth)));
+                ForkJoinTask.invokeAll(tasks);
+                return;
+            }
+            // try matching v with each vertex of the class, in increasing order of ids
+            int previous = -1;
+            for (int k = 0; k < rl && !timedOut; ++k) {
+                int wPos = -1;
+                for (int i = rs; i < rs + rl; ++i)
+                    if (right[i] > previous && (wPos < 0 || right[i] < right[wPos]))
+                        wPos = i;
+                previous = right[wPos];
+                match(domains, best, v, wPos, depth);
+                domains[best + 3] = rl;
+            }
+            // leave v unmatched
+            search(domains, depth);
+        }
+
+        /**
+         * Match v with the vertex at the given position of the right array, and search the resulting subproblem.
+         */
+        private void match(int[] domains, int d, int v, int wPos, int depth) {
+            int rs = domains[d + 2], rl = domains[d + 3];
+            int w = right[wPos];
+            swap(right, wPos, rs + rl - 1);
+            domains[d + 3] = rl - 1;
+            first[depth] = v;
+            second[depth] = w;
+            // extensions of an inconsistent edge mapping are also inconsistent
+            if (edgeInduced && !consistent(depth + 1))
+                return;
+            search(refine(domains, v, w), depth + 1);
+        }
+
+        /**
+         * Check whether the first given number of matched edges (of the line graphs) induce
+         * a consistent vertex mapping (which is then kept in the map and inverse arrays);
+         * this fails for the few configurations where line graphs are isomorphic but the
+         * graphs are not, such as a triangle matched with a star.
+         */
+        private boolean consistent(int size) {
+            for (int i = 0; i < touchedCount; ++i) {
+                int x = touched[i];
+                if (map[x] >= 0)
+                    inverse[map[x]] = -1;
+                map[x] = -1;
+                head[x] = -1;
+            }
+            touchedCount = 0;
+            for (int k = 0; k < size; ++k) {
+                int e = g.original[first[k]];
+                link(FIRST.edgeSource[e], 2 * k);
+                if (FIRST.edgeTarget[e] != FIRST.edgeSource[e])
+                    link(FIRST.edgeTarget[e], 2 * k + 1);
+                done[k] = false;
+            }
+            if (FIRST.isDirected()) {
+                for (int k = 0; k < size; ++k) {
+                    int e = g.original[first[k]], f = h.original[second[k]];
+                    if (!assign(FIRST.edgeSource[e], SECOND.edgeSource[f]) ||
+                            !assign(FIRST.edgeTarget[e], SECOND.edgeTarget[f]))
+                        return false;
+                }
+                return true;
+            }
+            // each component of matched edges is oriented from a seed edge,
+            // and the orientation is propagated through the shared end-points
+            for (int k = 0; k < size; ++k) {
+                if (done[k])
+                    continue;
+                if (!orientSeed(k))
+                    return false;
+                done[k] = true;
+                int headQ = 0, tailQ = 0;
+                queue[tailQ++] = k;
+                while (headQ < tailQ) {
+                    int j = queue[headQ++];
+                    int e = g.original[first[j]];
+                    for (int x: new int[] {FIRST.edgeSource[e], FIRST.edgeTarget[e]}) {
+                        for (int slot = head[x]; slot >= 0; slot = next[slot]) {
+                            int p = slot / 2;
+                            if (done[p])
+                                continue;
+                            if (!orient(p, x))
+                                return false;
+                            done[p] = true;
+                            queue[tailQ++] = p;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void link(int x, int slot) {
+            if (head[x] < 0 && map[x] < 0)
+                touched[touchedCount++] = x;
+            next[slot] = head[x];
+            head[x] = slot;
+        }
+
+        /**
+         * Orient the k-th matched edge pair given the (mapped) end-point x of its first edge.
+         */
+        private boolean orient(int k, int x) {
+            int e = g.original[first[k]], f = h.original[second[k]];
+            int a = FIRST.edgeSource[e], b = FIRST.edgeTarget[e];
+            int c = SECOND.edgeSource[f], d = SECOND.edgeTarget[f];
+            int other = x == a ? b : a;
+            if (map[x] == c)
+                return assign(other, d);
+            if (map[x] == d)
+                return assign(other, c);
+            return false;
+        }
+
+        /**
+         * Orient the k-th matched edge pair, which has no mapped end-point; if the pair shares
+         * exactly one end-point with an adjacent pair (in both graphs) that end-point is forced,
+         * otherwise (e.g. for isolated or parallel edges) the orientation is chosen by vertex classes.
+         */
+        private boolean orientSeed(int k) {
+            int e = g.original[first[k]], f = h.original[second[k]];
+            int a = FIRST.edgeSource[e], b = FIRST.edgeTarget[e];
+            int c = SECOND.edgeSource[f], d = SECOND.edgeTarget[f];
+            for (int x: new int[] {a, b}) {
+                for (int slot = head[x]; slot >= 0; slot = next[slot]) {
+                    int p = slot / 2;
+                    if (p == k)
+                        continue;
+                    int e2 = g.original[first[p]], f2 = h.original[second[p]];
+                    int a2 = FIRST.edgeSource[e2], b2 = FIRST.edgeTarget[e2];
+                    int c2 = SECOND.edgeSource[f2], d2 = SECOND.edgeTarget[f2];
+                    int y = x == a ? b : a;
+                    if (y == a2 || y == b2)
+                        continue;
+                    boolean cShared = c == c2 || c == d2, dShared = d == c2 || d == d2;
+                    if (cShared == dShared)
+                        continue;
+                    int other = cShared ? d : c;
+                    return assign(x, cShared ? c : d) && assign(y, other);
+                }
+            }
+            if (vertexClass1[a] == vertexClass2[c] && vertexClass1[b] == vertexClass2[d])
+                return assign(a, c) && assign(b, d);
+            return assign(a, d) && assign(b, c);
+        }
+
+        private boolean assign(int v, int w) {
+            if (map[v] == w)
+                return true;
+            if (map[v] >= 0 || inverse[w] >= 0 || vertexClass1[v] != vertexClass2[w])
+                return false;
+            map[v] = w;
+            inverse[w] = v;
+            return true;
+        }
+
+        /**
+         * Split each label class according to the adjacency codes of its vertices
+         * to the newly matched vertices v and w.
+         */
+        private int[] refine(int[] domains, int v, int w) {
+            for (int i = g.start[v]; i < g.start[v + 1]; ++i)
+                rowG[g.adj[i]] = g.code[i];
+            for (int i = h.start[w]; i < h.start[w + 1]; ++i)
+                rowH[h.adj[i]] = h.code[i];
+            Domains out = new Domains(domains.length / 4 + 8);
+            for (int d = 0; d < domains.length; d += 4) {
+                int ls = domains[d], ll = domains[d + 1];
+                int rs = domains[d + 2], rl = domains[d + 3];
+                if (ll == 0 || rl == 0)
+                    continue;
+                // adjacent vertices first, then the non-adjacent ones
+                int la = partition(left, ls, ll, rowG);
+                int ra = partition(right, rs, rl, rowH);
+                if (ll > la && rl > ra)
+                    out.add(ls + la, ll - la, rs + ra, rl - ra);
+                if (la > 0 && ra > 0) {
+                    sortByKey(left, ls, la, rowG);
+                    sortByKey(right, rs, ra, rowH);
+                    split(ls, la, rs, ra, rowG, rowH, out);
+                }
+            }
+            for (int i = g.start[v]; i < g.start[v + 1]; ++i)
+                rowG[g.adj[i]] = 0;
+            for (int i = h.start[w]; i < h.start[w + 1]; ++i)
+                rowH[h.adj[i]] = 0;
+            return out.toArray();
+        }
+
+        /**
+         * Emit a class for each key present in both of the given (sorted) segments.
+         */
+        private void split(int ls, int ll, int rs, int rl, int[] keyG, int[] keyH, Domains out) {
+            int i = ls, j = rs;
+            while (i < ls + ll && j < rs + rl) {
+                int ki = keyG[left[i]], kj = keyH[right[j]];
+                int i2 = i, j2 = j;
+                while (i2 < ls + ll && keyG[left[i2]] == ki)
+                    ++i2;
+                while (j2 < rs + rl && keyH[right[j2]] == kj)
+                    ++j2;
+                if (ki == kj) {
+                    out.add(i, i2 - i, j, j2 - j);
+                    i = i2;
+                    j = j2;
+                } else if (ki < kj)
+                    i = i2;
+                else
+                    j = j2;
+            }
+        }
+    }
+
+    /**
+     * Move the vertices with non-zero keys to the front of the given segment;
+     * returns the number of such vertices.
+     */
+    private static int partition(int[] array, int start, int length, int[] key) {
+        int front = start;
+        for (int i = start; i < start + length; ++i)
+            if (key[array[i]] != 0)
+                swap(array, i, front++);
+        return front - start;
+    }
+
+    /**
+     * Sort the given segment of vertices by their keys.
+     */
+    private static void sortByKey(int[] array, int start, int length, int[] key) {
+        if (length <= 16) {
+            for (int i = start + 1; i < start + length; ++i) {
+                int x = array[i];
+                int j = i - 1;
+                for (; j >= start && key[array[j]] > key[x]; --j)
+                    array[j + 1] = array[j];
+                array[j + 1] = x;
+            }
+            return;
+        }
+        long[] packed = new long[length];
+        for (int i = 0; i < length; ++i)
+            packed[i] = ((long) key[array[start + i]] << 32) | array[start + i];
+        Arrays.sort(packed);
+        for (int i = 0; i < length; ++i)
+            array[start + i] = (int) packed[i];
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    /**
+     * A growable list of packed label classes.
+     */
+    private static class Domains {
+
+        private int[] data;
+        private int size;
+
+        Domains(int capacity) {
+            data = new int[4 * capacity];
+        }
+
+        void add(int ls, int ll, int rs, int rl) {
+            if (size + 4 > data.length)
+                data = Arrays.copyOf(data, 2 * data.length);
+            data[size++] = ls;
+            data[size++] = ll;
+            data[size++] = rs;
+            data[size++] = rl;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
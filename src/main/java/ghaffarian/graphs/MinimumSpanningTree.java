@@ -0,0 +1,257 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import ghaffarian.collections.ConcurrentDisjointSets;
+import ghaffarian.collections.DisjointSets;
+import ghaffarian.collections.IndexedMinHeap;
+import ghaffarian.graphs.utils.SortUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Minimum spanning forest of a weighted graph, over a {@link CompactGraph}.
+ *
+ * Edge weights are computed once (via the given {@link EdgeWeight} function) into a primitive
+ * array indexed by edge indices. Edge directions are ignored, and self-loops are never selected;
+ * so for a graph which is not connected, the result is a minimum spanning tree of each component.
+ *
+ * Three algorithms are provided: Kruskal's algorithm (with a parallel merge sort of the edges,
+ * and a primitive union-find); Prim's algorithm (with an indexed heap); and Boruvka's algorithm,
+ * whose rounds are run in parallel for very large graphs. Ties between equal weights are broken
+ * by edge indices; so Kruskal and Boruvka select exactly the same edges.
+ * The selected edges are kept until the next computation on the same object.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class MinimumSpanningTree<V,E> {
+
+    public final CompactGraph<V,E> GRAPH;
+
+    private final double[] weight;
+    private int[] treeEdges;
+    private double totalWeight;
+
+    /**
+     * Construct a new minimum-spanning-tree computation over the given graph,
+     * using the given function for edge weights.
+     */
+    public MinimumSpanningTree(Graph<V,E> graph, EdgeWeight<V,E> weights) {
+        this(new CompactGraph<>(graph), weights);
+    }
+
+    /**
+     * Construct a new minimum-spanning-tree computation over the given compact graph,
+     * using the given function for edge weights.
+     */
+    public MinimumSpanningTree(CompactGraph<V,E> graph, EdgeWeight<V,E> weights) {
+        GRAPH = graph;
+        weight = new double[graph.edgeCount()];
+        for (int e = 0; e < weight.length; ++e) {
+            weight[e] = weights.weightOf(graph.getEdge(e));
+            if (Double.isNaN(weight[e]))
+                throw new IllegalArgumentException("Edge weight is NaN: " + graph.getEdge(e));
+        }
+    }
+
+    /**
+     * Checks whether edge a comes before edge b, in the order of weights and then indices.
+     */
+    private boolean lighter(int a, int b) {
+        return weight[a] < weight[b] || weight[a] == weight[b] && a < b;
+    }
+
+    private void finish(int[] edges, int count) {
+        Arrays.sort(edges, 0, count);
+        treeEdges = Arrays.copyOf(edges, count);
+        double sum = 0;
+        for (int e: treeEdges)
+            sum += weight[e];
+        totalWeight = sum;
+    }
+
+    /**
+     * Computes the minimum spanning forest using Kruskal's algorithm;
+     * where the edges are sorted by a merge sort, which is run in parallel in parallel mode.
+     */
+    public void kruskal(boolean parallel) {
+        int n = GRAPH.vertexCount();
+        int m = GRAPH.edgeCount();
+        double[] keys = weight.clone();
+        int[] order = new int[m];
+        for (int e = 0; e < m; ++e)
+            order[e] = e;
+        // a stable sort keeps equal weights in the order of edge indices
+        SortUtils.sortByKeys(keys, order, parallel);
+        DisjointSets sets = new DisjointSets(n);
+        int[] edges = new int[Math.max(0, n - 1)];
+        int count = 0;
+        for (int k = 0; k < m && count < n - 1; ++k) {
+            int e = order[k];
+            if (sets.union(GRAPH.edgeSource[e], GRAPH.edgeTarget[e]))
+                edges[count++] = e;
+        }
+        finish(edges, count);
+    }
+
+    /**
+     * Computes the minimum spanning forest using Prim's algorithm,
+     * growing a tree from each vertex which is not yet covered (in the order of vertex indices).
+     */
+    public void prim() {
+        int n = GRAPH.vertexCount();
+        boolean directed = GRAPH.isDirected();
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        boolean[] inTree = new boolean[n];
+        int[] bestEdge = new int[n];
+        Arrays.fill(bestEdge, -1);
+        int[] edges = new int[Math.max(0, n - 1)];
+        int count = 0;
+        for (int root = 0; root < n; ++root) {
+            if (inTree[root])
+                continue;
+            heap.offer(root, 0.0);
+            while (!heap.isEmpty()) {
+                int v = heap.poll();
+                inTree[v] = true;
+                if (bestEdge[v] >= 0)
+                    edges[count++] = bestEdge[v];
+                for (int i = GRAPH.outStart[v]; i < GRAPH.outStart[v + 1]; ++i)
+                    relax(heap, inTree, bestEdge, GRAPH.outTarget[i], GRAPH.outEdge[i]);
+                if (directed)
+                    for (int i = GRAPH.inStart[v]; i < GRAPH.inStart[v + 1]; ++i)
+                        relax(heap, inTree, bestEdge, GRAPH.inSource[i], GRAPH.inEdge[i]);
+            }
+        }
+        finish(edges, count);
+    }
+
+    private void relax(IndexedMinHeap heap, boolean[] inTree, int[] bestEdge, int w, int e) {
+        if (inTree[w])
+            return;
+        if (bestEdge[w] < 0 || lighter(e, bestEdge[w])) {
+            bestEdge[w] = e;
+            heap.offer(w, weight[e]);
+        }
+    }
+
+    /**
+     * Computes the minimum spanning forest using Boruvka's algorithm. In each round, every
+     * component selects its lightest incident edge, and all selected edges are merged;
+     * in parallel mode, both steps of each round are run in parallel (the selection by
+     * compare-and-set on a per-component array, and the merging on a concurrent union-find).
+     */
+    public void boruvka(boolean parallel) {
+        int n = GRAPH.vertexCount();
+        ConcurrentDisjointSets sets = new ConcurrentDisjointSets(n);
+        AtomicIntegerArray best = new AtomicIntegerArray(n);
+        for (int v = 0; v < n; ++v)
+            best.set(v, -1);
+        boolean[] selected = new boolean[GRAPH.edgeCount()];
+        // edges which may still connect different components
+        int[] candidates = IntStream.range(0, GRAPH.edgeCount())
+                .filter(e -> GRAPH.edgeSource[e] != GRAPH.edgeTarget[e]).toArray();
+        while (candidates.length > 0) {
+            int[] current = candidates;
+            IntStream edges = IntStream.range(0, current.length);
+            (parallel ? edges.parallel() : edges).forEach(k -> {
+                int e = current[k];
+                int a = sets.find(GRAPH.edgeSource[e]);
+                int b = sets.find(GRAPH.edgeTarget[e]);
+                if (a != b) {
+                    select(best, a, e);
+                    select(best, b, e);
+                }
+            });
+            IntStream roots = IntStream.range(0, n);
+            (parallel ? roots.parallel() : roots).forEach(v -> {
+                int e = best.get(v);
+                if (e >= 0) {
+                    best.set(v, -1);
+                    if (sets.union(GRAPH.edgeSource[e], GRAPH.edgeTarget[e]))
+                        selected[e] = true;
+                }
+            });
+            IntStream remaining = IntStream.of(current);
+            candidates = (parallel ? remaining.parallel() : remaining)
+                    .filter(e -> sets.find(GRAPH.edgeSource[e]) != sets.find(GRAPH.edgeTarget[e])).toArray();
+        }
+        int[] tree = new int[Math.max(0, n - 1)];
+        int count = 0;
+        for (int e = 0; e < selected.length; ++e)
+            if (selected[e])
+                tree[count++] = e;
+        finish(tree, count);
+    }
+
+    /**
+     * Sets the best edge of the given component to the given edge, if it is lighter.
+     */
+    private void select(AtomicIntegerArray best, int component, int e) {
+        while (true) {
+            int current = best.get(component);
+            if (current >= 0 && !lighter(e, current))
+                return;
+            if (best.compareAndSet(component, current, e))
+                return;
+        }
+    }
+
+    private void checkComputed() {
+        if (treeEdges == null)
+            throw new IllegalStateException("No spanning tree is computed yet!");
+    }
+
+    /**
+     * Returns the total weight of the last computed spanning forest.
+     */
+    public double getTotalWeight() {
+        checkComputed();
+        return totalWeight;
+    }
+
+    /**
+     * Returns the number of trees in the last computed spanning forest;
+     * i.e. the number of connected components of the graph.
+     */
+    public int getTreeCount() {
+        checkComputed();
+        return GRAPH.vertexCount() - treeEdges.length;
+    }
+
+    /**
+     * Returns the edge indices of the last computed spanning forest, in ascending order.
+     */
+    public int[] copyEdgeIndices() {
+        checkComputed();
+        return treeEdges.clone();
+    }
+
+    /**
+     * Returns the edges of the last computed spanning forest, in the order of edge indices.
+     */
+    public List<Edge<V,E>> getEdges() {
+        checkComputed();
+        List<Edge<V,E>> edges = new ArrayList<>(treeEdges.length);
+        for (int e: treeEdges)
+            edges.add(GRAPH.getEdge(e));
+        return edges;
+    }
+
+    /**
+     * Returns a read-only view of the last computed spanning forest,
+     * with all vertices of the graph and the selected edges; no edges or adjacency are copied.
+     */
+    public SubgraphView<V,E> getSubgraphView() {
+        checkComputed();
+        BitSet vertices = new BitSet(GRAPH.vertexCount());
+        vertices.set(0, GRAPH.vertexCount());
+        BitSet edges = new BitSet(GRAPH.edgeCount());
+        for (int e: treeEdges)
+            edges.set(e);
+        return new SubgraphView<>(GRAPH, vertices, edges);
+    }
+}
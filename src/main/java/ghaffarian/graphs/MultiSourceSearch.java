@@ -0,0 +1,294 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+/**
+ * Multi-source, optionally depth-limited, breadth-first and depth-first searches
+ * over a {@link CompactGraph}.
+ *
+ * A multi-source search starts from all given seed vertices at once, and shares a single
+ * visited structure among them; so every vertex is visited once (rather than once per seed).
+ * For each reached vertex, the search records its depth (the number of edges from the seeds)
+ * and its nearest seed (the seed from which it was reached). The results are kept in int-indexed
+ * arrays, which are reused by the next search on the same object; only the entries touched by
+ * the previous search are reset.
+ *
+ * In addition, {@link #neighborhoodSizes} computes per-hop neighborhood sizes of many sources,
+ * using the bit-parallel multi-source BFS (MS-BFS) algorithm: sources are processed in batches
+ * of 64, where each vertex keeps one bit per source of the batch in a long word; so the
+ * traversals of all sources of a batch share their memory accesses.
+ *
+ * For undirected graphs, edges can be traversed in both directions.
+ * Note that instances of this class are not thread-safe.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class MultiSourceSearch<V,E> {
+
+    public final CompactGraph<V,E> GRAPH;
+
+    private final int[] depth;
+    private final int[] seed;
+    // reached vertices in the order of their first visit
+    private final int[] visited;
+    private int visitedCount;
+    // depth-first search stacks
+    private int[] stack;
+    private int[] cursor;
+
+    /**
+     * Construct a new multi-source search over the given graph.
+     */
+    public MultiSourceSearch(CompactGraph<V,E> graph) {
+        GRAPH = graph;
+        int n = graph.vertexCount();
+        depth = new int[n];
+        seed = new int[n];
+        visited = new int[n];
+        Arrays.fill(depth, -1);
+        Arrays.fill(seed, -1);
+    }
+
+    private int[] indicesOf(Collection<V> seeds) {
+        int[] indices = new int[seeds.size()];
+        int k = 0;
+        for (V v: seeds) {
+            indices[k] = GRAPH.indexOf(v);
+            if (indices[k++] < 0)
+                throw new IllegalArgumentException("No such vertex in this graph!");
+        }
+        return indices;
+    }
+
+    private void reset(int[] seeds) {
+        for (int i = 0; i < visitedCount; ++i) {
+            depth[visited[i]] = -1;
+            seed[visited[i]] = -1;
+        }
+        visitedCount = 0;
+        for (int s: seeds)
+            if (s < 0 || s >= depth.length)
+                throw new IllegalArgumentException("No such vertex in this graph!");
+    }
+
+    /**
+     * Breadth-first search from all of the given seed vertices, up to the given depth;
+     * a negative depth means no limit.
+     */
+    public void breadthFirst(Collection<V> seeds, int maxDepth) {
+        breadthFirstOfIndices(indicesOf(seeds), maxDepth);
+    }
+
+    /**
+     * Breadth-first search from all of the given seed vertex indices, up to the given depth;
+     * a negative depth means no limit. The depth of each reached vertex is its distance
+     * from the nearest seed, and ties are broken in favor of the seed which comes first.
+     */
+    public void breadthFirstOfIndices(int[] seeds, int maxDepth) {
+        reset(seeds);
+        for (int k = 0; k < seeds.length; ++k) {
+            int s = seeds[k];
+            if (depth[s] < 0) {
+                depth[s] = 0;
+                seed[s] = k;
+                visited[visitedCount++] = s;
+            }
+        }
+        // the visited array doubles as the BFS queue
+        for (int head = 0; head < visitedCount; ++head) {
+            int v = visited[head];
+            if (depth[v] == maxDepth)
+                break;
+            for (int i = GRAPH.outStart[v]; i < GRAPH.outStart[v + 1]; ++i) {
+                int w = GRAPH.outTarget[i];
+                if (depth[w] < 0) {
+                    depth[w] = depth[v] + 1;
+                    seed[w] = seed[v];
+                    visited[visitedCount++] = w;
+                }
+            }
+        }
+    }
+
+    /**
+     * Depth-first search from each of the given seed vertices in turn, up to the given depth;
+     * a negative depth means no limit.
+     */
+    public void depthFirst(Collection<V> seeds, int maxDepth) {
+        depthFirstOfIndices(indicesOf(seeds), maxDepth);
+    }
+
+    /**
+     * Depth-first search from each of the given seed vertex indices in turn, up to the given depth;
+     * a negative depth means no limit. Without a limit, each vertex is visited once and its depth
+     * is its depth in the depth-first forest. With a limit, a vertex which is reached again through
+     * a shorter path is searched again; so all vertices within the limit of any seed are reached,
+     * and their depths (and nearest seeds) are the same as those of a breadth-first search,
+     * except that ties may be broken differently.
+     */
+    public void depthFirstOfIndices(int[] seeds, int maxDepth) {
+        reset(seeds);
+        if (stack == null) {
+            stack = new int[depth.length];
+            cursor = new int[depth.length];
+        }
+        boolean limited = maxDepth >= 0;
+        for (int k = 0; k < seeds.length; ++k) {
+            int s = seeds[k];
+            if (depth[s] == 0)
+                continue;
+            if (depth[s] < 0)
+                visited[visitedCount++] = s;
+            depth[s] = 0;
+            seed[s] = k;
+            stack[0] = s;
+            cursor[0] = GRAPH.outStart[s];
+            int top = 1;
+            while (top > 0) {
+                int v = stack[top - 1];
+                if (cursor[top - 1] == GRAPH.outStart[v + 1] || depth[v] == maxDepth) {
+                    --top;
+                    continue;
+                }
+                int w = GRAPH.outTarget[cursor[top - 1]++];
+                int dw = depth[v] + 1;
+                if (depth[w] < 0)
+                    visited[visitedCount++] = w;
+                else if (!limited || depth[w] <= dw)
+                    continue;
+                depth[w] = dw;
+                seed[w] = seed[v];
+                stack[top] = w;
+                cursor[top++] = GRAPH.outStart[w];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of vertices reached by the last search.
+     */
+    public int getVisitedCount() {
+        return visitedCount;
+    }
+
+    /**
+     * Returns the indices of the vertices reached by the last search, in the order of their first visit.
+     */
+    public int[] copyVisitedIndices() {
+        return Arrays.copyOf(visited, visitedCount);
+    }
+
+    /**
+     * Returns the depth of the given vertex index in the last search; or -1 if it is not reached.
+     */
+    public int getDepthOfIndex(int v) {
+        return depth[v];
+    }
+
+    /**
+     * Returns the depth of the given vertex in the last search; or -1 if it is not reached.
+     */
+    public int getDepth(V v) {
+        int idx = GRAPH.indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return depth[idx];
+    }
+
+    /**
+     * Returns the position (in the given seeds) of the nearest seed of the given vertex index
+     * in the last search; or -1 if it is not reached.
+     */
+    public int getSeedOfIndex(int v) {
+        return seed[v];
+    }
+
+    /**
+     * Returns the position (in the given seeds) of the nearest seed of the given vertex
+     * in the last search; or -1 if it is not reached.
+     */
+    public int getSeed(V v) {
+        int idx = GRAPH.indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return seed[idx];
+    }
+
+    /**
+     * Computes the neighborhood sizes of the given source vertex indices, using the
+     * bit-parallel multi-source BFS. The result has one array per source, where the entry
+     * of index d is the number of vertices at distance d from the source (so the entry of index 0 is 1);
+     * the arrays are truncated after the last non-empty level, up to the given depth
+     * (a negative depth means no limit). In parallel mode, batches of 64 sources are processed in parallel.
+     */
+    public static int[][] neighborhoodSizes(CompactGraph<?,?> graph, int[] sources, int maxDepth, boolean parallel) {
+        int n = graph.vertexCount();
+        for (int s: sources)
+            if (s < 0 || s >= n)
+                throw new IllegalArgumentException("No such vertex in this graph!");
+        int[][] sizes = new int[sources.length][];
+        int batches = (sources.length + 63) / 64;
+        IntStream range = IntStream.range(0, batches);
+        (parallel ? range.parallel() : range).forEach(b -> {
+            int from = 64 * b;
+            int count = Math.min(64, sources.length - from);
+            long[] seen = new long[n];
+            long[] visit = new long[n];
+            long[] next = new long[n];
+            int[][] levels = new int[count][];
+            int[] lengths = new int[count];
+            for (int k = 0; k < count; ++k) {
+                int s = sources[from + k];
+                seen[s] |= 1L << k;
+                visit[s] |= 1L << k;
+                levels[k] = new int[8];
+                levels[k][0] = 1;
+                lengths[k] = 1;
+            }
+            boolean active = true;
+            for (int d = 1; active && (maxDepth < 0 || d <= maxDepth); ++d) {
+                active = false;
+                for (int v = 0; v < n; ++v) {
+                    long bits = visit[v];
+                    if (bits == 0)
+                        continue;
+                    for (int i = graph.outStart[v]; i < graph.outStart[v + 1]; ++i) {
+                        int w = graph.outTarget[i];
+                        long fresh = bits & ~seen[w];
+                        if (fresh != 0) {
+                            seen[w] |= fresh;
+                            next[w] |= fresh;
+                        }
+                    }
+                }
+                for (int w = 0; w < n; ++w) {
+                    long bits = next[w];
+                    if (bits == 0)
+                        continue;
+                    active = true;
+                    // count the new vertex at this level, for each of its sources
+                    while (bits != 0) {
+                        int k = Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        if (lengths[k] == d) {
+                            if (d == levels[k].length)
+                                levels[k] = Arrays.copyOf(levels[k], 2 * d);
+                            lengths[k] = d + 1;
+                        }
+                        ++levels[k][d];
+                    }
+                }
+                long[] tmp = visit;
+                visit = next;
+                next = tmp;
+                Arrays.fill(next, 0);
+            }
+            for (int k = 0; k < count; ++k)
+                sizes[from + k] = Arrays.copyOf(levels[k], lengths[k]);
+        });
+        return sizes;
+    }
+}
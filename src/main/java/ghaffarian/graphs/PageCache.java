@@ -0,0 +1,166 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A read-only, memory-mapped file, which is read through a small in-heap cache of fixed-size pages.
+ *
+ * The file is mapped in chunks (as a single mapping is limited to 2GB), and each page which is
+ * read is copied from the mapping into a slot of the cache; so hot pages are served by plain
+ * array accesses, while cold pages are left to the operating system. When the cache is full,
+ * a slot is evicted by the CLOCK algorithm (an approximation of LRU): a hand sweeps over the slots,
+ * clearing their reference bits, and evicts the first slot which is not referenced since the
+ * last sweep. Values are read in big-endian order (as written by DataOutputStream).
+ *
+ * All reads are synchronized, so a cache can be shared among threads.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+class PageCache implements Closeable {
+
+    private static final int CHUNK_PAGES_SHIFT = 14;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final int pageShift;
+    private final int pageSize;
+    private final long length;
+
+    private final byte[][] slots;
+    private final long[] slotPage;
+    private final boolean[] referenced;
+    private final Map<Long, Integer> slotOf;
+    private int hand;
+    private int used;
+    // the most recently accessed page, as a fast path
+    private long lastPage;
+    private int lastSlot;
+
+    /**
+     * Opens the given file, with a cache of the given number of pages of 2^pageShift bytes.
+     */
+    PageCache(Path file, int pageShift, int pages) throws IOException {
+        if (pages < 1)
+            throw new IllegalArgumentException("Page cache must have at least one page!");
+        this.pageShift = pageShift;
+        pageSize = 1 << pageShift;
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        length = channel.size();
+        long chunkSize = (long) pageSize << CHUNK_PAGES_SHIFT;
+        chunks = new MappedByteBuffer[(int) ((length + chunkSize - 1) / chunkSize)];
+        for (int c = 0; c < chunks.length; ++c) {
+            long start = c * chunkSize;
+            chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkSize, length - start));
+        }
+        slots = new byte[pages][];
+        slotPage = new long[pages];
+        referenced = new boolean[pages];
+        slotOf = new HashMap<>();
+        lastPage = -1;
+    }
+
+    /**
+     * Returns the length of the file in bytes.
+     */
+    long length() {
+        return length;
+    }
+
+    /**
+     * Returns the cache slot holding the given page, loading it if necessary.
+     */
+    private int slotOf(long page) {
+        if (page == lastPage)
+            return lastSlot;
+        Integer slot = slotOf.get(page);
+        if (slot == null) {
+            if (used < slots.length)
+                slot = used++;
+            else {
+                while (referenced[hand]) {
+                    referenced[hand] = false;
+                    hand = (hand + 1) % slots.length;
+                }
+                slot = hand;
+                hand = (hand + 1) % slots.length;
+                slotOf.remove(slotPage[slot]);
+            }
+            load(page, slot);
+            slotOf.put(page, slot);
+        }
+        referenced[slot] = true;
+        lastPage = page;
+        lastSlot = slot;
+        return slot;
+    }
+
+    private void load(long page, int slot) {
+        if (slots[slot] == null)
+            slots[slot] = new byte[pageSize];
+        MappedByteBuffer chunk = chunks[(int) (page >>> CHUNK_PAGES_SHIFT)];
+        int offset = (int) (page & ((1 << CHUNK_PAGES_SHIFT) - 1)) << pageShift;
+        ByteBuffer view = chunk.duplicate();
+        view.position(offset);
+        view.get(slots[slot], 0, Math.min(pageSize, view.limit() - offset));
+        slotPage[slot] = page;
+    }
+
+    /**
+     * Reads a byte at the given position.
+     */
+    synchronized int readByte(long pos) {
+        byte[] page = slots[slotOf(pos >>> pageShift)];
+        return page[(int) pos & (pageSize - 1)] & 0xFF;
+    }
+
+    /**
+     * Reads a big-endian int at the given position.
+     */
+    synchronized int readInt(long pos) {
+        int offset = (int) pos & (pageSize - 1);
+        if (offset + 4 <= pageSize) {
+            byte[] page = slots[slotOf(pos >>> pageShift)];
+            return (page[offset] & 0xFF) << 24 | (page[offset + 1] & 0xFF) << 16 |
+                   (page[offset + 2] & 0xFF) << 8 | (page[offset + 3] & 0xFF);
+        }
+        int value = 0;
+        for (int i = 0; i < 4; ++i)
+            value = value << 8 | readByte(pos + i);
+        return value;
+    }
+
+    /**
+     * Reads a big-endian long at the given position.
+     */
+    synchronized long readLong(long pos) {
+        return (long) readInt(pos) << 32 | (readInt(pos + 4) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Reads the given number of bytes from the given position into the given array.
+     */
+    synchronized void read(long pos, byte[] dst, int off, int len) {
+        while (len > 0) {
+            int offset = (int) pos & (pageSize - 1);
+            int size = Math.min(len, pageSize - offset);
+            System.arraycopy(slots[slotOf(pos >>> pageShift)], offset, dst, off, size);
+            pos += size;
+            off += size;
+            len -= size;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
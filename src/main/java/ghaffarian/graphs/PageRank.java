@@ -0,0 +1,192 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * PageRank scores of the vertices of a graph, computed by power iteration.
+ *
+ * Each iteration pulls the rank contributions of each vertex from its incoming adjacency
+ * in a {@link CompactGraph}, so vertices can be updated independently; in parallel mode,
+ * each iteration is split over the vertices on the common fork-join pool.
+ * The rank of dangling vertices (vertices with no outgoing edges) is distributed uniformly.
+ * For undirected graphs, each edge is followed in both directions.
+ *
+ * Iterations stop when the L1-norm of the change in scores drops below the tolerance,
+ * or when the maximum number of iterations is reached. The running time of each iteration
+ * is recorded, and is available after the computation.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class PageRank<V,E> {
+
+    public final CompactGraph<V,E> GRAPH;
+
+    private double dampingFactor;
+    private double tolerance;
+    private int maxIterations;
+    private boolean parallel;
+
+    private double[] scores;
+    private long[] iterationTimes;
+    private int iterations;
+    private boolean converged;
+
+    /**
+     * Construct a new PageRank computation for the given graph, with default settings.
+     */
+    public PageRank(Graph<V,E> graph) {
+        this(new CompactGraph<>(graph));
+    }
+
+    /**
+     * Construct a new PageRank computation for the given compact graph, with default settings;
+     * i.e. a damping factor of 0.85, tolerance of 1e-6, at most 100 iterations, in parallel mode.
+     */
+    public PageRank(CompactGraph<V,E> graph) {
+        GRAPH = graph;
+        dampingFactor = 0.85;
+        tolerance = 1e-6;
+        maxIterations = 100;
+        parallel = true;
+    }
+
+    /**
+     * Set the damping factor, in the range [0, 1).
+     */
+    public void setDampingFactor(double damping) {
+        if (damping < 0 || damping >= 1)
+            throw new IllegalArgumentException("Damping factor must be in [0, 1)!");
+        dampingFactor = damping;
+    }
+
+    /**
+     * Set the convergence tolerance, for the L1-norm of the change in scores.
+     */
+    public void setTolerance(double tolerance) {
+        if (tolerance < 0)
+            throw new IllegalArgumentException("Tolerance must be non-negative!");
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Set the maximum number of iterations.
+     */
+    public void setMaxIterations(int max) {
+        if (max < 1)
+            throw new IllegalArgumentException("Maximum iterations must be at least 1!");
+        maxIterations = max;
+    }
+
+    /**
+     * Set whether each iteration is computed in parallel or not.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Runs the power iteration, and returns true if the scores have converged.
+     */
+    public boolean run() {
+        int n = GRAPH.vertexCount();
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        double[] contrib = new double[n];
+        long[] times = new long[maxIterations];
+        Arrays.fill(rank, n == 0 ? 0 : 1.0 / n);
+        double d = dampingFactor;
+        converged = n == 0;
+        int iter = 0;
+        while (iter < maxIterations && !converged) {
+            long start = System.nanoTime();
+            final double[] current = rank;
+            double dangling = range(n).mapToDouble(v -> {
+                int degree = GRAPH.getOutDegree(v);
+                if (degree == 0) {
+                    contrib[v] = 0;
+                    return current[v];
+                }
+                contrib[v] = current[v] / degree;
+                return 0;
+            }).sum();
+            final double base = (1 - d) / n + d * dangling / n;
+            final double[] updated = next;
+            double delta = range(n).mapToDouble(v -> {
+                double sum = 0;
+                for (int i = GRAPH.inStart[v]; i < GRAPH.inStart[v + 1]; ++i)
+                    sum += contrib[GRAPH.inSource[i]];
+                updated[v] = base + d * sum;
+                return Math.abs(updated[v] - current[v]);
+            }).sum();
+            next = rank;
+            rank = updated;
+            times[iter++] = System.nanoTime() - start;
+            converged = delta < tolerance;
+        }
+        scores = rank;
+        iterations = iter;
+        iterationTimes = Arrays.copyOf(times, iter);
+        return converged;
+    }
+
+    private IntStream range(int n) {
+        IntStream range = IntStream.range(0, n);
+        return parallel ? range.parallel() : range;
+    }
+
+    private void checkComputed() {
+        if (scores == null)
+            throw new IllegalStateException("PageRank is not computed yet!");
+    }
+
+    /**
+     * Check whether the last computation has converged within the maximum iterations.
+     */
+    public boolean hasConverged() {
+        return converged;
+    }
+
+    /**
+     * Returns the number of iterations performed in the last computation.
+     */
+    public int getIterationCount() {
+        return iterations;
+    }
+
+    /**
+     * Return a copy of the running times (in nanoseconds) of each iteration of the last computation.
+     */
+    public long[] copyIterationTimes() {
+        checkComputed();
+        return iterationTimes.clone();
+    }
+
+    /**
+     * Returns the score of the given vertex index.
+     */
+    public double getScoreOfIndex(int v) {
+        checkComputed();
+        return scores[v];
+    }
+
+    /**
+     * Returns the score of the given vertex.
+     */
+    public double getScore(V v) {
+        checkComputed();
+        int idx = GRAPH.indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return scores[idx];
+    }
+
+    /**
+     * Return a copy of the scores array, indexed by vertex indices.
+     */
+    public double[] copyScores() {
+        checkComputed();
+        return scores.clone();
+    }
+}
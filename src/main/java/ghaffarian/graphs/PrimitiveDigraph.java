@@ -0,0 +1,711 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import ghaffarian.collections.DisjointSets;
+import ghaffarian.collections.LongIntHashMap;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Base class of mutable digraphs over primitive vertex ids (see {@link IntDigraph} and
+ * {@link LongDigraph}), with optional primitive int edge labels.
+ *
+ * Each vertex is assigned a dense internal index, and the adjacency of each index is kept in
+ * two growable int arrays: the targets of its outgoing edges (interleaved with their labels,
+ * if labeled), and the sources of its incoming edges; so an edge takes 8 bytes (12 bytes if
+ * labeled), plus the growth slack of the arrays (see {@link #trimToSize()}), instead of an edge
+ * object and its entries in several hash-sets.
+ * The label of an incoming edge is found in the outgoing adjacency of its source.
+ * Indices of removed vertices are reused by later vertices.
+ *
+ * As for {@link Digraph}, the edges form a set: there is at most one edge with
+ * a given source, target and label. Adding or finding an edge scans the outgoing
+ * adjacency of its source; except for sources with more than {@value #INDEX_THRESHOLD}
+ * outgoing edges (hubs), whose adjacency is also indexed by a hash map of (target, label)
+ * pairs, so loading the edges of a hub does not take quadratic time.
+ * The label {@link #NO_LABEL} means the edge has no label (a null label);
+ * unlabeled graphs only accept such edges, and do not store labels at all.
+ *
+ * The {@link #asGraph()} method returns a live view of the graph as a Graph object,
+ * whose edge objects are created on demand.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public abstract class PrimitiveDigraph<V> {
+
+    /**
+     * The label of edges without labels; the same as the id of null labels in a
+     * {@link ghaffarian.collections.LabelDictionary}.
+     */
+    public static final int NO_LABEL = -1;
+
+    /**
+     * The out-degree beyond which the outgoing adjacency of a vertex is indexed by a hash map.
+     */
+    public static final int INDEX_THRESHOLD = 32;
+
+    private static final int[] EMPTY = new int[0];
+
+    private final boolean labeled;
+    // entries of the outgoing adjacency take 2 ints (target, label) if labeled, otherwise 1
+    private final int stride;
+    private int[][] outAdjacency;
+    private int[] outDegree;
+    // positions of the outgoing entries of hubs, by their (target, label) keys; null for other vertices
+    private LongIntHashMap[] outIndex;
+    private int[][] inSources;
+    private int[] inDegree;
+    private final BitSet live;
+    private int[] free;
+    private int freeCount;
+    private int top;
+    private int vertexCount;
+    private int edgeCount;
+
+    /**
+     * Constructs a new empty graph, with or without edge labels.
+     */
+    protected PrimitiveDigraph(boolean labeled) {
+        this.labeled = labeled;
+        stride = labeled ? 2 : 1;
+        outAdjacency = new int[16][];
+        outDegree = new int[16];
+        outIndex = new LongIntHashMap[16];
+        inSources = new int[16][];
+        inDegree = new int[16];
+        live = new BitSet();
+        free = new int[16];
+    }
+
+    /**
+     * Check whether the edges of this graph have labels or not.
+     */
+    public boolean isLabeled() {
+        return labeled;
+    }
+
+    /**
+     * Return the number of vertices in this graph.
+     */
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Return the number of edges in this graph.
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns the vertex object with the given internal index.
+     */
+    abstract V vertexAt(int v);
+
+    /**
+     * Returns the internal index of the given vertex; or -1 if it is not in this graph.
+     */
+    abstract int indexOfVertex(V v);
+
+    /**
+     * Adds the given vertex object (if it is not already in this graph).
+     */
+    abstract boolean addVertexObject(V v);
+
+    /**
+     * Removes the given vertex object, and all its edges.
+     */
+    abstract boolean removeVertexObject(V v);
+
+    /**
+     * Allocates an internal index for a new vertex.
+     */
+    final int allocateIndex() {
+        int v;
+        if (freeCount > 0)
+            v = free[--freeCount];
+        else {
+            if (top == outDegree.length) {
+                int capacity = top + (top >> 1);
+                outAdjacency = Arrays.copyOf(outAdjacency, capacity);
+                outDegree = Arrays.copyOf(outDegree, capacity);
+                outIndex = Arrays.copyOf(outIndex, capacity);
+                inSources = Arrays.copyOf(inSources, capacity);
+                inDegree = Arrays.copyOf(inDegree, capacity);
+            }
+            v = top++;
+        }
+        outAdjacency[v] = EMPTY;
+        inSources[v] = EMPTY;
+        live.set(v);
+        ++vertexCount;
+        return v;
+    }
+
+    /**
+     * Removes all edges of the given internal index, and releases it for reuse.
+     */
+    final void releaseIndex(int v) {
+        for (int k = 0; k < outDegree[v]; ++k) {
+            int t = outAdjacency[v][k * stride];
+            if (t != v)
+                removeIncoming(t, v);
+        }
+        edgeCount -= outDegree[v];
+        outDegree[v] = 0;
+        for (int k = 0; k < inDegree[v]; ++k) {
+            int u = inSources[v][k];
+            // all edges from u are removed at its first occurrence
+            if (u != v)
+                edgeCount -= removeOutgoing(u, v);
+        }
+        inDegree[v] = 0;
+        outAdjacency[v] = null;
+        outIndex[v] = null;
+        inSources[v] = null;
+        live.clear(v);
+        if (freeCount == free.length)
+            free = Arrays.copyOf(free, 2 * freeCount);
+        free[freeCount++] = v;
+        --vertexCount;
+    }
+
+    /**
+     * Returns the position of the edge with the given target and label
+     * in the outgoing adjacency of the given source; or -1 if there is none.
+     */
+    private int findOutgoing(int s, int t, int label) {
+        if (outIndex[s] != null)
+            return outIndex[s].get(key(t, label));
+        int[] adjacency = outAdjacency[s];
+        for (int k = 0; k < outDegree[s]; ++k)
+            if (adjacency[k * stride] == t && (!labeled || adjacency[2 * k + 1] == label))
+                return k;
+        return -1;
+    }
+
+    /**
+     * Adds an edge between the given internal indices.
+     */
+    final boolean addEdgeOfIndex(int s, int t, int label) {
+        if (!labeled && label != NO_LABEL)
+            throw new IllegalArgumentException("Edges of this graph have no labels!");
+        if (findOutgoing(s, t, label) >= 0)
+            return false;
+        int k = outDegree[s]++;
+        if (k * stride == outAdjacency[s].length)
+            outAdjacency[s] = grow(outAdjacency[s], stride);
+        outAdjacency[s][k * stride] = t;
+        if (labeled)
+            outAdjacency[s][2 * k + 1] = label;
+        if (outIndex[s] != null)
+            outIndex[s].put(key(t, label), k);
+        else if (outDegree[s] > INDEX_THRESHOLD) {
+            LongIntHashMap index = new LongIntHashMap(2 * outDegree[s]);
+            for (int i = 0; i < outDegree[s]; ++i)
+                index.put(key(outTargetOfIndex(s, i), outLabelOfIndex(s, i)), i);
+            outIndex[s] = index;
+        }
+        k = inDegree[t]++;
+        if (k == inSources[t].length)
+            inSources[t] = grow(inSources[t], 1);
+        inSources[t][k] = s;
+        ++edgeCount;
+        return true;
+    }
+
+    /**
+     * Returns the key of an outgoing entry, in the index of a hub.
+     */
+    private static long key(int t, int label) {
+        return (long) t << 32 | (label & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Grows the given array of entries of the given size by half (at least by 2 entries).
+     */
+    private static int[] grow(int[] array, int entrySize) {
+        int entries = array.length / entrySize;
+        return Arrays.copyOf(array, entrySize * (entries + Math.max(2, entries >> 1)));
+    }
+
+    /**
+     * Trims the adjacency arrays of all vertices to their sizes, to release the growth slack
+     * (e.g. after a graph is loaded).
+     */
+    public void trimToSize() {
+        for (int v = live.nextSetBit(0); v >= 0; v = live.nextSetBit(v + 1)) {
+            if (outAdjacency[v].length > outDegree[v] * stride)
+                outAdjacency[v] = outDegree[v] == 0 ? EMPTY : Arrays.copyOf(outAdjacency[v], outDegree[v] * stride);
+            if (inSources[v].length > inDegree[v])
+                inSources[v] = inDegree[v] == 0 ? EMPTY : Arrays.copyOf(inSources[v], inDegree[v]);
+        }
+    }
+
+    /**
+     * Removes the edge with the given label between the given internal indices.
+     */
+    final boolean removeEdgeOfIndex(int s, int t, int label) {
+        int k = findOutgoing(s, t, label);
+        if (k < 0)
+            return false;
+        removeOutgoingAt(s, k);
+        removeIncoming(t, s);
+        --edgeCount;
+        return true;
+    }
+
+    /**
+     * Removes all edges between the given internal indices, and returns the number of removed edges.
+     */
+    final int removeEdgesOfIndex(int s, int t) {
+        int removed = removeOutgoing(s, t);
+        for (int i = 0; i < removed; ++i)
+            removeIncoming(t, s);
+        edgeCount -= removed;
+        return removed;
+    }
+
+    /**
+     * Removes all entries of the given target from the outgoing adjacency of the given source,
+     * and returns the number of removed entries.
+     */
+    private int removeOutgoing(int s, int t) {
+        int removed = 0;
+        for (int k = outDegree[s] - 1; k >= 0; --k) {
+            if (outAdjacency[s][k * stride] == t) {
+                removeOutgoingAt(s, k);
+                ++removed;
+            }
+        }
+        return removed;
+    }
+
+    private void removeOutgoingAt(int s, int k) {
+        // the last entry takes the place of the removed one
+        int last = --outDegree[s];
+        int[] adjacency = outAdjacency[s];
+        LongIntHashMap index = outIndex[s];
+        if (index != null) {
+            index.remove(key(outTargetOfIndex(s, k), outLabelOfIndex(s, k)));
+            if (k != last)
+                index.put(key(outTargetOfIndex(s, last), outLabelOfIndex(s, last)), k);
+        }
+        adjacency[k * stride] = adjacency[last * stride];
+        if (labeled)
+            adjacency[2 * k + 1] = adjacency[2 * last + 1];
+    }
+
+    /**
+     * Removes one entry of the given source from the incoming adjacency of the given target.
+     */
+    private void removeIncoming(int t, int s) {
+        int[] sources = inSources[t];
+        for (int k = inDegree[t] - 1; k >= 0; --k) {
+            if (sources[k] == s) {
+                sources[k] = sources[--inDegree[t]];
+                return;
+            }
+        }
+    }
+
+    /**
+     * Check whether there is an edge between the given internal indices.
+     */
+    final boolean containsEdgeOfIndex(int s, int t) {
+        if (!labeled && outIndex[s] != null)
+            return outIndex[s].containsKey(key(t, NO_LABEL));
+        int[] adjacency = outAdjacency[s];
+        for (int k = 0; k < outDegree[s]; ++k)
+            if (adjacency[k * stride] == t)
+                return true;
+        return false;
+    }
+
+    /**
+     * Check whether there is an edge with the given label between the given internal indices.
+     */
+    final boolean containsEdgeOfIndex(int s, int t, int label) {
+        if (!labeled && label != NO_LABEL)
+            return false;
+        return findOutgoing(s, t, label) >= 0;
+    }
+
+    final int outDegreeOfIndex(int v) {
+        return outDegree[v];
+    }
+
+    final int inDegreeOfIndex(int v) {
+        return inDegree[v];
+    }
+
+    final int outTargetOfIndex(int v, int k) {
+        return outAdjacency[v][k * stride];
+    }
+
+    final int outLabelOfIndex(int v, int k) {
+        return labeled ? outAdjacency[v][2 * k + 1] : NO_LABEL;
+    }
+
+    final int[] inSourcesOfIndex(int v) {
+        return inSources[v];
+    }
+
+    /**
+     * Returns the labels of the outgoing edges of the given internal index,
+     * in the order of its outgoing adjacency.
+     */
+    final int[] copyOutLabelsOfIndex(int v) {
+        int[] labels = new int[outDegree[v]];
+        for (int k = 0; k < labels.length; ++k)
+            labels[k] = outLabelOfIndex(v, k);
+        return labels;
+    }
+
+    /**
+     * Returns the internal indices of all vertices, in ascending order.
+     */
+    final int[] copyIndices() {
+        return live.stream().toArray();
+    }
+
+    /**
+     * Returns the next internal index of a vertex, starting from the given index; or -1 if none.
+     */
+    final int nextIndex(int from) {
+        return live.nextSetBit(from);
+    }
+
+    /**
+     * Check whether this graph is weakly connected.
+     */
+    public boolean isConnected() {
+        if (vertexCount <= 1)
+            return true;
+        if (edgeCount < vertexCount - 1)
+            return false;
+        DisjointSets components = new DisjointSets(top);
+        int sets = vertexCount;
+        for (int v = live.nextSetBit(0); v >= 0; v = live.nextSetBit(v + 1))
+            for (int k = 0; k < outDegree[v]; ++k)
+                if (components.union(v, outAdjacency[v][k * stride]) && --sets == 1)
+                    return true;
+        return false;
+    }
+
+    /**
+     * Returns a live view of this graph as a Graph object, with Integer labels
+     * (null for {@link #NO_LABEL}). Modifications of the view are applied to this graph.
+     */
+    public Graph<V,Integer> asGraph() {
+        return new GraphView();
+    }
+
+    private int labelOf(Edge<V,Integer> e) {
+        if (e.label == null)
+            return NO_LABEL;
+        if (e.label == NO_LABEL)
+            throw new IllegalArgumentException("Label " + NO_LABEL + " is reserved for edges without labels!");
+        return e.label;
+    }
+
+    private Edge<V,Integer> edgeOf(int s, int k) {
+        int label = outLabelOfIndex(s, k);
+        return new Edge<>(vertexAt(s), label == NO_LABEL ? null : label, vertexAt(outTargetOfIndex(s, k)));
+    }
+
+    /**
+     * Graph view of a primitive digraph.
+     */
+    private class GraphView implements Graph<V,Integer> {
+
+        @Override
+        public boolean isDirected() {
+            return true;
+        }
+
+        @Override
+        public boolean addVertex(V v) {
+            return addVertexObject(v);
+        }
+
+        @Override
+        public boolean removeVertex(V v) {
+            return removeVertexObject(v);
+        }
+
+        @Override
+        public boolean addEdge(Edge<V,Integer> e) {
+            int s = indexOfVertex(e.source);
+            if (s < 0)
+                throw new IllegalArgumentException("No such source-vertex in this graph!");
+            int t = indexOfVertex(e.target);
+            if (t < 0)
+                throw new IllegalArgumentException("No such target-vertex in this graph!");
+            return addEdgeOfIndex(s, t, labelOf(e));
+        }
+
+        @Override
+        public boolean addEdge(V src, V trgt) {
+            return addEdge(new Edge<>(src, null, trgt));
+        }
+
+        @Override
+        public boolean removeEdge(Edge<V,Integer> e) {
+            int s = indexOfVertex(e.source);
+            int t = indexOfVertex(e.target);
+            if (s < 0 || t < 0 || (e.label != null && (!labeled || e.label == NO_LABEL)))
+                return false;
+            return removeEdgeOfIndex(s, t, labelOf(e));
+        }
+
+        @Override
+        public Set<Edge<V,Integer>> removeEdges(V src, V trgt) {
+            int s = indexOfVertex(src);
+            if (s < 0)
+                throw new IllegalArgumentException("No such source-vertex in this graph!");
+            int t = indexOfVertex(trgt);
+            if (t < 0)
+                throw new IllegalArgumentException("No such target-vertex in this graph!");
+            Set<Edge<V,Integer>> removed = new LinkedHashSet<>();
+            for (int k = 0; k < outDegree[s]; ++k)
+                if (outTargetOfIndex(s, k) == t)
+                    removed.add(edgeOf(s, k));
+            removeEdgesOfIndex(s, t);
+            return removed;
+        }
+
+        @Override
+        public boolean addGraph(AbstractPropertyGraph<V,Integer> graph) {
+            boolean modified = false;
+            for (V v: graph.allVertices)
+                modified |= addVertex(v);
+            for (Edge<V,Integer> e: graph.allEdges)
+                modified |= addEdge(e);
+            return modified;
+        }
+
+        @Override
+        public int vertexCount() {
+            return vertexCount;
+        }
+
+        @Override
+        public int edgeCount() {
+            return edgeCount;
+        }
+
+        @Override
+        public Iterator<Edge<V,Integer>> allEdgesIterator() {
+            return new OutgoingIterator(-1);
+        }
+
+        @Override
+        public Iterator<V> allVerticesIterator() {
+            return new Iterator<V>() {
+                private int next = live.nextSetBit(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public V next() {
+                    if (next < 0)
+                        throw new NoSuchElementException();
+                    V v = vertexAt(next);
+                    next = live.nextSetBit(next + 1);
+                    return v;
+                }
+            };
+        }
+
+        @Override
+        public Set<Edge<V,Integer>> copyEdgeSet() {
+            return toSet(allEdgesIterator());
+        }
+
+        @Override
+        public Set<V> copyVertexSet() {
+            return toSet(allVerticesIterator());
+        }
+
+        @Override
+        public Iterator<Edge<V,Integer>> incomingEdgesIterator(V v) {
+            return copyIncomingEdges(v).iterator();
+        }
+
+        @Override
+        public Iterator<Edge<V,Integer>> outgoingEdgesIterator(V v) {
+            return new OutgoingIterator(checkedIndexOf(v));
+        }
+
+        @Override
+        public Set<Edge<V,Integer>> copyIncomingEdges(V v) {
+            int t = checkedIndexOf(v);
+            // the distinct sources; then their edges to the vertex
+            int[] sources = Arrays.copyOf(inSources[t], inDegree[t]);
+            Arrays.sort(sources);
+            Set<Edge<V,Integer>> edges = new LinkedHashSet<>();
+            for (int i = 0; i < sources.length; ++i) {
+                int s = sources[i];
+                if (i > 0 && s == sources[i - 1])
+                    continue;
+                for (int k = 0; k < outDegree[s]; ++k)
+                    if (outTargetOfIndex(s, k) == t)
+                        edges.add(edgeOf(s, k));
+            }
+            return edges;
+        }
+
+        @Override
+        public Set<Edge<V,Integer>> copyOutgoingEdges(V v) {
+            return toSet(outgoingEdgesIterator(v));
+        }
+
+        @Override
+        public int getInDegree(V v) {
+            return inDegree[checkedIndexOf(v)];
+        }
+
+        @Override
+        public int getOutDegree(V v) {
+            return outDegree[checkedIndexOf(v)];
+        }
+
+        @Override
+        public Set<Edge<V,Integer>> getEdgesWithLabel(Integer label) {
+            Set<Edge<V,Integer>> edges = new LinkedHashSet<>();
+            int value = label == null ? NO_LABEL : label;
+            for (int s = live.nextSetBit(0); s >= 0; s = live.nextSetBit(s + 1))
+                for (int k = 0; k < outDegree[s]; ++k)
+                    if (outLabelOfIndex(s, k) == value)
+                        edges.add(edgeOf(s, k));
+            return edges;
+        }
+
+        @Override
+        public boolean containsEdge(Edge<V,Integer> e) {
+            int s = indexOfVertex(e.source);
+            int t = indexOfVertex(e.target);
+            if (s < 0 || t < 0 || (e.label != null && e.label == NO_LABEL))
+                return false;
+            return containsEdgeOfIndex(s, t, e.label == null ? NO_LABEL : e.label);
+        }
+
+        @Override
+        public boolean containsEdge(V src, V trg) {
+            int s = indexOfVertex(src);
+            int t = indexOfVertex(trg);
+            return s >= 0 && t >= 0 && containsEdgeOfIndex(s, t);
+        }
+
+        @Override
+        public boolean containsVertex(V v) {
+            return indexOfVertex(v) >= 0;
+        }
+
+        @Override
+        public boolean containsAllEdges(Set<Edge<V,Integer>> set) {
+            for (Edge<V,Integer> e: set)
+                if (!containsEdge(e))
+                    return false;
+            return true;
+        }
+
+        @Override
+        public boolean containsAllVertices(Set<V> set) {
+            for (V v: set)
+                if (!containsVertex(v))
+                    return false;
+            return true;
+        }
+
+        @Override
+        public boolean isSubgraphOf(Graph<V,Integer> base) {
+            if (!base.isDirected())
+                return false;
+            if (vertexCount > base.vertexCount() || edgeCount > base.edgeCount())
+                return false;
+            Iterator<V> vertices = allVerticesIterator();
+            while (vertices.hasNext())
+                if (!base.containsVertex(vertices.next()))
+                    return false;
+            Iterator<Edge<V,Integer>> edges = allEdgesIterator();
+            while (edges.hasNext())
+                if (!base.containsEdge(edges.next()))
+                    return false;
+            return true;
+        }
+
+        @Override
+        public boolean isProperSubgraphOf(Graph<V,Integer> base) {
+            if (vertexCount == base.vertexCount() && edgeCount == base.edgeCount())
+                return false;
+            return isSubgraphOf(base);
+        }
+
+        @Override
+        public boolean isConnected() {
+            return PrimitiveDigraph.this.isConnected();
+        }
+
+        private int checkedIndexOf(V v) {
+            int idx = indexOfVertex(v);
+            if (idx < 0)
+                throw new IllegalArgumentException("No such vertex in this graph!");
+            return idx;
+        }
+    }
+
+    private static <T> Set<T> toSet(Iterator<T> iter) {
+        Set<T> set = new LinkedHashSet<>();
+        while (iter.hasNext())
+            set.add(iter.next());
+        return set;
+    }
+
+    /**
+     * Iterator over the outgoing edges of a single index, or (when the index is -1) all edges.
+     */
+    private class OutgoingIterator implements Iterator<Edge<V,Integer>> {
+
+        private final boolean all;
+        private int vertex;
+        private int position;
+
+        OutgoingIterator(int v) {
+            all = v < 0;
+            vertex = all ? live.nextSetBit(0) : v;
+            position = 0;
+            advance();
+        }
+
+        private void advance() {
+            while (all && vertex >= 0 && position == outDegree[vertex]) {
+                vertex = live.nextSetBit(vertex + 1);
+                position = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return vertex >= 0 && position < outDegree[vertex];
+        }
+
+        @Override
+        public Edge<V,Integer> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            Edge<V,Integer> e = edgeOf(vertex, position++);
+            advance();
+            return e;
+        }
+    }
+}
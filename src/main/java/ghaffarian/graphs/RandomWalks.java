@@ -0,0 +1,260 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Random walks and neighborhood sampling over a {@link CompactGraph};
+ * as used for extracting features of graphs for machine learning
+ * (such as DeepWalk and node2vec walks, or GraphSAGE-style neighbor samples).
+ *
+ * Each step of a walk moves from the current vertex to one of its outgoing neighbors;
+ * either uniformly, or in proportion to the weights of the edges, which are sampled in
+ * constant time using per-vertex alias tables. When node2vec parameters are set, each step
+ * is further biased by the previous vertex of the walk: returning to the previous vertex
+ * is weighted by 1/p, moving to an out-neighbor of the previous vertex by 1, and moving
+ * farther away by 1/q. These second-order steps are sampled by rejection from the first-order
+ * distribution, so no per-edge tables are needed. A walk stops early at a vertex with
+ * no outgoing neighbors (or with only zero-weight outgoing edges).
+ *
+ * Walks and samples are generated into int arrays of vertex indices. Each walk (or each
+ * sampled vertex) has its own random generator, which is seeded from the given seed and its
+ * position; so the results are reproducible, and are the same in sequential and parallel modes.
+ * For undirected graphs, edges can be traversed in both directions.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class RandomWalks<V,E> {
+
+    public final CompactGraph<V,E> GRAPH;
+
+    // alias tables over the outgoing adjacency; null for uniform walks
+    private final double[] prob;
+    private final int[] alias;
+    // vertices whose outgoing edges all have zero weights
+    private final boolean[] stuck;
+    // sorted outgoing neighbors of each vertex, for node2vec
+    private int[] sortedTarget;
+    private double returnParam;
+    private double inOutParam;
+    private boolean parallel;
+
+    /**
+     * Construct a new random-walk generator for the given compact graph, with uniform steps.
+     */
+    public RandomWalks(CompactGraph<V,E> graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Construct a new random-walk generator for the given compact graph, where each step
+     * is taken in proportion to the weights of the outgoing edges.
+     * If the given edge-weight function is null, steps are uniform.
+     *
+     * @throws IllegalArgumentException if any edge weight is negative
+     */
+    public RandomWalks(CompactGraph<V,E> graph, EdgeWeight<V,E> weights) {
+        GRAPH = graph;
+        returnParam = 1.0;
+        inOutParam = 1.0;
+        parallel = true;
+        int n = graph.vertexCount();
+        stuck = new boolean[n];
+        if (weights == null) {
+            prob = null;
+            alias = null;
+            return;
+        }
+        double[] edgeWeight = new double[graph.edgeCount()];
+        for (int e = 0; e < edgeWeight.length; ++e) {
+            edgeWeight[e] = weights.weightOf(graph.getEdge(e));
+            if (edgeWeight[e] < 0 || Double.isNaN(edgeWeight[e]))
+                throw new IllegalArgumentException("Edge weights must be non-negative!");
+        }
+        prob = new double[graph.outTarget.length];
+        alias = new int[graph.outTarget.length];
+        int[] small = new int[prob.length];
+        int[] large = new int[prob.length];
+        for (int v = 0; v < n; ++v) {
+            int from = graph.outStart[v], to = graph.outStart[v + 1];
+            double total = 0;
+            for (int i = from; i < to; ++i)
+                total += edgeWeight[graph.outEdge[i]];
+            if (total == 0) {
+                stuck[v] = true;
+                continue;
+            }
+            // Vose's alias method
+            int ns = 0, nl = 0;
+            for (int i = from; i < to; ++i) {
+                prob[i] = edgeWeight[graph.outEdge[i]] * (to - from) / total;
+                alias[i] = i;
+                if (prob[i] < 1.0)
+                    small[ns++] = i;
+                else
+                    large[nl++] = i;
+            }
+            while (ns > 0 && nl > 0) {
+                int s = small[--ns];
+                int l = large[nl - 1];
+                alias[s] = l;
+                prob[l] -= 1.0 - prob[s];
+                if (prob[l] < 1.0) {
+                    --nl;
+                    small[ns++] = l;
+                }
+            }
+            // remaining entries are (up to rounding errors) exactly one
+            while (nl > 0)
+                prob[large[--nl]] = 1.0;
+            while (ns > 0)
+                prob[small[--ns]] = 1.0;
+        }
+    }
+
+    /**
+     * Set the node2vec return parameter (p) and in-out parameter (q); both must be positive.
+     * Setting both to 1 (the default) results in first-order walks.
+     */
+    public void setNode2VecParameters(double p, double q) {
+        if (!(p > 0) || !(q > 0))
+            throw new IllegalArgumentException("Node2vec parameters must be positive!");
+        returnParam = p;
+        inOutParam = q;
+        if (sortedTarget == null && (p != 1.0 || q != 1.0)) {
+            int[] sorted = GRAPH.outTarget.clone();
+            for (int v = 0; v < GRAPH.vertexCount(); ++v)
+                Arrays.sort(sorted, GRAPH.outStart[v], GRAPH.outStart[v + 1]);
+            sortedTarget = sorted;
+        }
+    }
+
+    /**
+     * Set whether walks and samples are generated in parallel (default is true).
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Generate the given number of walks from every vertex of the graph, each with
+     * (at most) the given number of vertices. The walks from vertex v are at
+     * positions [v * walksPerVertex, (v + 1) * walksPerVertex) of the result.
+     */
+    public int[][] walks(int walksPerVertex, int length, long seed) {
+        int[] starts = new int[GRAPH.vertexCount() * walksPerVertex];
+        for (int i = 0; i < starts.length; ++i)
+            starts[i] = i / walksPerVertex;
+        return walksOfIndices(starts, length, seed);
+    }
+
+    /**
+     * Generate one walk from each of the given start vertex indices, each with (at most)
+     * the given number of vertices, including the start vertex. A walk is shorter than
+     * the given length only if it reaches a vertex where it cannot continue.
+     */
+    public int[][] walksOfIndices(int[] starts, int length, long seed) {
+        if (length < 1)
+            throw new IllegalArgumentException("Walk length must be positive!");
+        for (int s: starts)
+            if (s < 0 || s >= GRAPH.vertexCount())
+                throw new IllegalArgumentException("No such vertex in this graph!");
+        int[][] walks = new int[starts.length][];
+        IntStream range = IntStream.range(0, starts.length);
+        (parallel ? range.parallel() : range).forEach(k ->
+                walks[k] = walk(starts[k], length, new SplittableRandom(mix(seed, k))));
+        return walks;
+    }
+
+    private int[] walk(int start, int length, SplittableRandom rand) {
+        boolean secondOrder = returnParam != 1.0 || inOutParam != 1.0;
+        double maxBias = Math.max(1.0, Math.max(1.0 / returnParam, 1.0 / inOutParam));
+        int[] walk = new int[length];
+        walk[0] = start;
+        int size = 1;
+        while (size < length) {
+            int v = walk[size - 1];
+            int next = -1;
+            if (secondOrder && size > 1) {
+                int prev = walk[size - 2];
+                while (true) {
+                    next = step(v, rand);
+                    double bias;
+                    if (next == prev)
+                        bias = 1.0 / returnParam;
+                    else if (Arrays.binarySearch(sortedTarget, GRAPH.outStart[prev], GRAPH.outStart[prev + 1], next) >= 0)
+                        bias = 1.0;
+                    else
+                        bias = 1.0 / inOutParam;
+                    if (rand.nextDouble() * maxBias < bias)
+                        break;
+                }
+            } else {
+                next = step(v, rand);
+            }
+            if (next < 0)
+                break;
+            walk[size++] = next;
+        }
+        return size == length ? walk : Arrays.copyOf(walk, size);
+    }
+
+    /**
+     * A first-order step from the given vertex index; or -1 if there is none.
+     */
+    private int step(int v, SplittableRandom rand) {
+        int from = GRAPH.outStart[v];
+        int degree = GRAPH.outStart[v + 1] - from;
+        if (degree == 0 || stuck[v])
+            return -1;
+        int i = from + rand.nextInt(degree);
+        if (prob != null && rand.nextDouble() >= prob[i])
+            i = alias[i];
+        return GRAPH.outTarget[i];
+    }
+
+    /**
+     * Sample a fixed-fanout neighborhood of each of the given vertex indices (GraphSAGE-style).
+     * The result has one layer per hop, plus the given vertices as layer 0; where layer k has
+     * fanouts[k-1] samples for each vertex of layer k-1, stored contiguously (so the samples of
+     * the vertex at position i of layer k-1 are at positions [i * fanouts[k-1], (i + 1) * fanouts[k-1])
+     * of layer k). Neighbors are sampled with replacement, using the same (uniform or weighted)
+     * distribution as first-order walks; the samples of a vertex which has no neighbors to sample
+     * (and of a missing vertex) are -1.
+     */
+    public int[][] sampleNeighborhoodsOfIndices(int[] vertices, int[] fanouts, long seed) {
+        for (int v: vertices)
+            if (v < 0 || v >= GRAPH.vertexCount())
+                throw new IllegalArgumentException("No such vertex in this graph!");
+        int[][] layers = new int[fanouts.length + 1][];
+        layers[0] = vertices.clone();
+        for (int k = 0; k < fanouts.length; ++k) {
+            int[] upper = layers[k];
+            int fanout = fanouts[k];
+            if (fanout < 0)
+                throw new IllegalArgumentException("Fanouts must be non-negative!");
+            int[] lower = new int[upper.length * fanout];
+            long layerSeed = mix(seed, k);
+            IntStream range = IntStream.range(0, upper.length);
+            (parallel ? range.parallel() : range).forEach(i -> {
+                SplittableRandom rand = new SplittableRandom(mix(layerSeed, i));
+                for (int j = 0; j < fanout; ++j)
+                    lower[i * fanout + j] = upper[i] < 0 ? -1 : step(upper[i], rand);
+            });
+            layers[k + 1] = lower;
+        }
+        return layers;
+    }
+
+    /**
+     * Derive an independent seed for the given position from the given seed.
+     */
+    private static long mix(long seed, long position) {
+        long z = seed + (position + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
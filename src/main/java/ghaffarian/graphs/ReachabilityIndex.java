@@ -0,0 +1,302 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * An index for answering reachability queries ("can A reach B?") over a static directed graph.
+ *
+ * The index is built once, on the condensation of the graph (see {@link StronglyConnectedComponents});
+ * vertices in the same strongly connected component trivially reach each other.
+ * Queries over the condensation DAG are answered using the following filters, in order:
+ * <ul>
+ *   <li>topological order and levels: a component can only reach components with greater ids,
+ *       greater depth (longest path from a source) and smaller height (longest path to a sink);</li>
+ *   <li>GRAIL interval labels: for each of k randomized post-order traversals, a component
+ *       can only reach components whose interval is contained in its own interval;</li>
+ *   <li>spanning-tree intervals: a component surely reaches its descendants in the
+ *       depth-first spanning forest of the first traversal;</li>
+ *   <li>a depth-first search on the DAG, pruned by all the filters above.</li>
+ * </ul>
+ * Many queries are answered by these filters in constant time, and the rest are
+ * answered by a pruned search. Optionally, for small condensations, a full
+ * bit-parallel transitive closure can be built instead, which answers every query with a
+ * single bit test (at the cost of quadratic space).
+ *
+ * Queries are thread-safe; each thread uses its own search workspace.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class ReachabilityIndex<V,E> {
+
+    /**
+     * Default number of interval labels per component.
+     */
+    public static final int DEFAULT_TRAVERSALS = 3;
+
+    public final CompactGraph<V,E> GRAPH;
+
+    private final int[] component;
+    private final CompactGraph<Integer, Void> dag;
+    private final int traversals;
+    // interleaved (low, post) pairs; for component c and traversal t, at 2 * (c * k + t)
+    private final int[] labels;
+    // discovery ranks in the first traversal (spanning-forest intervals)
+    private final int[] treePre;
+    // longest path from a source, and longest path to a sink
+    private final int[] depth;
+    private final int[] height;
+    // bit-parallel transitive closure rows; or null if not built
+    private final long[] closure;
+    private final int words;
+    private final ThreadLocal<Search> workspace;
+
+    /**
+     * Build a reachability index for the given digraph, with the default number of labels.
+     */
+    public ReachabilityIndex(Digraph<V,E> graph) {
+        this(new CompactGraph<>(graph), DEFAULT_TRAVERSALS, false);
+    }
+
+    /**
+     * Build a reachability index for the given compact digraph.
+     *
+     * @param graph       the compact directed graph
+     * @param traversals  the number of interval labels per component (at least 1)
+     * @param closure     whether to build the full transitive closure of the condensation
+     */
+    public ReachabilityIndex(CompactGraph<V,E> graph, int traversals, boolean closure) {
+        if (traversals < 1)
+            throw new IllegalArgumentException("Number of traversals must be at least 1!");
+        StronglyConnectedComponents<V,E> scc = new StronglyConnectedComponents<>(graph, false);
+        GRAPH = graph;
+        component = scc.copyComponentIds();
+        dag = scc.getCondensation();
+        this.traversals = traversals;
+        int c = dag.vertexCount();
+        labels = new int[2 * c * traversals];
+        treePre = new int[c];
+        depth = new int[c];
+        height = new int[c];
+        // component ids are in topological order
+        for (int u = 0; u < c; ++u)
+            for (int i = dag.outStart[u]; i < dag.outStart[u + 1]; ++i)
+                depth[dag.outTarget[i]] = Math.max(depth[dag.outTarget[i]], depth[u] + 1);
+        for (int u = c - 1; u >= 0; --u)
+            for (int i = dag.outStart[u]; i < dag.outStart[u + 1]; ++i)
+                height[u] = Math.max(height[u], height[dag.outTarget[i]] + 1);
+        Random random = new Random(c * 31L + dag.edgeCount());
+        int[] stack = new int[c];
+        int[] cursor = new int[c];
+        int[] offset = new int[c];
+        int[] stamp = new int[c];
+        for (int t = 0; t < traversals; ++t)
+            labelTraversal(t, random, stack, cursor, offset, stamp);
+        if (closure) {
+            words = (c + 63) >>> 6;
+            if ((long) c * words > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Condensation is too large for a transitive closure!");
+            this.closure = new long[c * words];
+            // components in reverse topological order, so successors are complete
+            for (int u = c - 1; u >= 0; --u) {
+                int row = u * words;
+                this.closure[row + (u >>> 6)] |= 1L << u;
+                for (int i = dag.outStart[u]; i < dag.outStart[u + 1]; ++i) {
+                    int other = dag.outTarget[i] * words;
+                    for (int w = 0; w < words; ++w)
+                        this.closure[row + w] |= this.closure[other + w];
+                }
+            }
+        } else {
+            words = 0;
+            this.closure = null;
+        }
+        workspace = ThreadLocal.withInitial(() -> new Search(dag.vertexCount()));
+    }
+
+    /**
+     * Performs one randomized post-order traversal of the DAG, and records the
+     * (low, post) interval label of each component for the given traversal number.
+     */
+    private void labelTraversal(int t, Random random, int[] stack, int[] cursor, int[] offset, int[] stamp) {
+        int c = dag.vertexCount();
+        int[] roots = new int[c];
+        int rootCount = 0;
+        for (int u = 0; u < c; ++u)
+            if (dag.getInDegree(u) == 0)
+                roots[rootCount++] = u;
+        // random order of roots
+        for (int i = rootCount - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int tmp = roots[i];
+            roots[i] = roots[j];
+            roots[j] = tmp;
+        }
+        int mark = t + 1;
+        int rank = 0, preRank = 0;
+        for (int r = 0; r < rootCount; ++r) {
+            int root = roots[r];
+            int top = 0;
+            stack[top++] = root;
+            stamp[root] = mark;
+            if (t == 0)
+                treePre[root] = preRank++;
+            cursor[root] = 0;
+            int degree = dag.getOutDegree(root);
+            offset[root] = degree > 0 ? random.nextInt(degree) : 0;
+            while (top > 0) {
+                int u = stack[top - 1];
+                int degU = dag.getOutDegree(u);
+                if (cursor[u] < degU) {
+                    // visit children in a randomly rotated order
+                    int k = (cursor[u]++ + offset[u]) % degU;
+                    int w = dag.outTarget[dag.outStart[u] + k];
+                    if (stamp[w] != mark) {
+                        stamp[w] = mark;
+                        if (t == 0)
+                            treePre[w] = preRank++;
+                        cursor[w] = 0;
+                        int degW = dag.getOutDegree(w);
+                        offset[w] = degW > 0 ? random.nextInt(degW) : 0;
+                        stack[top++] = w;
+                    }
+                } else {
+                    --top;
+                    int post = rank++;
+                    int low = post;
+                    for (int i = dag.outStart[u]; i < dag.outStart[u + 1]; ++i) {
+                        int childLow = labels[2 * (dag.outTarget[i] * traversals + t)];
+                        if (childLow < low)
+                            low = childLow;
+                    }
+                    labels[2 * (u * traversals + t)] = low;
+                    labels[2 * (u * traversals + t) + 1] = post;
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether component u may reach component v (no false negatives).
+     */
+    private boolean mayReach(int u, int v) {
+        if (depth[u] >= depth[v] || height[u] <= height[v])
+            return false;
+        int lu = 2 * u * traversals;
+        int lv = 2 * v * traversals;
+        for (int t = 0; t < 2 * traversals; t += 2) {
+            if (labels[lv + t] < labels[lu + t] || labels[lv + t + 1] > labels[lu + t + 1])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check whether component v is a descendant of component u in the 
+     * spanning forest of the first traversal; which implies u surely reaches v.
+     */
+    private boolean surelyReaches(int u, int v) {
+        return treePre[u] <= treePre[v] && labels[2 * v * traversals + 1] <= labels[2 * u * traversals + 1];
+    }
+
+    /**
+     * Check whether the given target vertex is reachable from the given source vertex.
+     * Every vertex reaches itself.
+     */
+    public boolean reaches(V src, V trg) {
+        int s = GRAPH.indexOf(src);
+        int t = GRAPH.indexOf(trg);
+        if (s < 0 || t < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return reachesIndex(s, t);
+    }
+
+    /**
+     * Check whether the given target vertex index is reachable from the given source vertex index.
+     */
+    public boolean reachesIndex(int src, int trg) {
+        int u = component[src];
+        int v = component[trg];
+        if (u == v)
+            return true;
+        if (u > v)
+            return false;
+        if (closure != null)
+            return (closure[u * words + (v >>> 6)] & (1L << v)) != 0;
+        if (!mayReach(u, v))
+            return false;
+        if (surelyReaches(u, v))
+            return true;
+        // pruned depth-first search over the condensation
+        Search search = workspace.get();
+        int[] stamp = search.stamp;
+        int[] stack = search.stack;
+        int mark = search.nextMark();
+        int top = 0;
+        stack[top++] = u;
+        stamp[u] = mark;
+        while (top > 0) {
+            int x = stack[--top];
+            for (int i = dag.outStart[x]; i < dag.outStart[x + 1]; ++i) {
+                int y = dag.outTarget[i];
+                if (y == v)
+                    return true;
+                if (y > v || stamp[y] == mark || !mayReach(y, v))
+                    continue;
+                if (surelyReaches(y, v))
+                    return true;
+                stamp[y] = mark;
+                stack[top++] = y;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of components in the condensation over which this index is built.
+     */
+    public int getComponentCount() {
+        return dag.vertexCount();
+    }
+
+    /**
+     * Returns an estimate of the memory used by this index, in bytes
+     * (excluding the compact graph itself).
+     */
+    public long sizeInBytes() {
+        long size = 4L * component.length + 4L * labels.length;
+        size += 4L * (treePre.length + depth.length + height.length);
+        size += 4L * (dag.outStart.length + dag.outTarget.length + dag.outEdge.length);
+        size += 4L * (dag.inStart.length + dag.inSource.length + dag.inEdge.length);
+        size += 8L * (dag.edgeSource.length);
+        if (closure != null)
+            size += 8L * closure.length;
+        return size;
+    }
+
+    /**
+     * Per-thread workspace for the pruned searches; 
+     * visited components are marked with a per-query stamp, so no resetting is needed.
+     */
+    private static class Search {
+
+        final int[] stamp;
+        final int[] stack;
+        private int mark;
+
+        Search(int size) {
+            stamp = new int[size];
+            stack = new int[size];
+            mark = 0;
+        }
+
+        int nextMark() {
+            if (++mark == Integer.MAX_VALUE) {
+                Arrays.fill(stamp, 0);
+                mark = 1;
+            }
+            return mark;
+        }
+    }
+}
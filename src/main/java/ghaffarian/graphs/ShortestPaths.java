@@ -0,0 +1,379 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import ghaffarian.collections.IndexedMinHeap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single-source and point-to-point shortest paths over a {@link CompactGraph}.
+ *
+ * Edge weights are computed once (via the given {@link EdgeWeight} function) into a primitive
+ * array indexed by edge indices; if no weight function is given, all edges have weight 1.
+ * The results of a search (distances and predecessor edges) are kept in int-indexed arrays,
+ * which are reused by the next search on the same object; only the entries touched by the
+ * previous search are reset. Hence, running searches from many sources does not allocate
+ * any per-vertex objects. Paths are only reconstructed when requested.
+ *
+ * For undirected graphs, edges can be traversed in both directions.
+ * Note that instances of this class are not thread-safe; for concurrent searches,
+ * each thread should use its own instance (they can share the same compact graph).
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class ShortestPaths<V,E> {
+
+    public final CompactGraph<V,E> GRAPH;
+
+    private final double[] weight;
+    private final boolean hasNegativeWeights;
+    private final Workspace forward;
+    private Workspace backward;
+    private int source;
+
+    /**
+     * Construct a new shortest-paths search over the given graph, where all edges have weight 1.
+     */
+    public ShortestPaths(CompactGraph<V,E> graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Construct a new shortest-paths search over the given graph,
+     * using the given function for edge weights.
+     */
+    public ShortestPaths(CompactGraph<V,E> graph, EdgeWeight<V,E> weights) {
+        GRAPH = graph;
+        boolean negative = false;
+        if (weights == null)
+            weight = null;
+        else {
+            weight = new double[graph.edgeCount()];
+            for (int e = 0; e < weight.length; ++e) {
+                weight[e] = weights.weightOf(graph.getEdge(e));
+                if (Double.isNaN(weight[e]))
+                    throw new IllegalArgumentException("Edge weight is NaN: " + graph.getEdge(e));
+                negative |= weight[e] < 0;
+            }
+        }
+        hasNegativeWeights = negative;
+        forward = new Workspace(graph.vertexCount());
+        source = -1;
+    }
+
+    private double weightOf(int e) {
+        return weight == null ? 1.0 : weight[e];
+    }
+
+    /**
+     * Returns the end-point of the given edge which is opposite to the given vertex.
+     */
+    private int opposite(int e, int v) {
+        return GRAPH.edgeSource[e] == v ? GRAPH.edgeTarget[e] : GRAPH.edgeSource[e];
+    }
+
+    private int checkSource(V src) {
+        int idx = GRAPH.indexOf(src);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such source-vertex in this graph!");
+        return idx;
+    }
+
+    /**
+     * Computes shortest paths from the given source vertex using Dijkstra's algorithm.
+     */
+    public void dijkstra(V src) {
+        dijkstra(checkSource(src));
+    }
+
+    /**
+     * Computes shortest paths from the given source vertex index using Dijkstra's algorithm,
+     * with an indexed 4-ary heap. All edge weights must be non-negative.
+     */
+    public void dijkstra(int src) {
+        if (hasNegativeWeights)
+            throw new IllegalStateException("Dijkstra's algorithm requires non-negative edge weights!");
+        forward.reset();
+        source = src;
+        Workspace ws = forward;
+        IndexedMinHeap heap = ws.heap();
+        ws.label(src, 0.0, -1);
+        heap.offer(src, 0.0);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            double du = ws.dist[u];
+            for (int i = GRAPH.outStart[u]; i < GRAPH.outStart[u + 1]; ++i) {
+                int w = GRAPH.outTarget[i];
+                int e = GRAPH.outEdge[i];
+                double dw = du + weightOf(e);
+                if (dw < ws.dist[w]) {
+                    ws.label(w, dw, e);
+                    heap.offer(w, dw);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes unweighted (hop-count) shortest paths from the given source vertex.
+     */
+    public void breadthFirst(V src) {
+        breadthFirst(checkSource(src));
+    }
+
+    /**
+     * Computes unweighted (hop-count) shortest paths from the given source vertex index,
+     * using breadth-first search. Edge weights are ignored.
+     */
+    public void breadthFirst(int src) {
+        forward.reset();
+        source = src;
+        Workspace ws = forward;
+        // the touched array doubles as the BFS queue
+        int head = 0;
+        ws.label(src, 0.0, -1);
+        while (head < ws.touchedCount) {
+            int u = ws.touched[head++];
+            double dw = ws.dist[u] + 1;
+            for (int i = GRAPH.outStart[u]; i < GRAPH.outStart[u + 1]; ++i) {
+                int w = GRAPH.outTarget[i];
+                if (ws.dist[w] == Double.POSITIVE_INFINITY)
+                    ws.label(w, dw, GRAPH.outEdge[i]);
+            }
+        }
+    }
+
+    /**
+     * Computes shortest paths from the given source vertex using the Bellman-Ford algorithm.
+     */
+    public void bellmanFord(V src) {
+        bellmanFord(checkSource(src));
+    }
+
+    /**
+     * Computes shortest paths from the given source vertex index using the Bellman-Ford algorithm,
+     * which allows negative edge weights. Rounds stop early as soon as no distance changes.
+     *
+     * @throws IllegalStateException if a negative cycle is reachable from the source
+     */
+    public void bellmanFord(int src) {
+        forward.reset();
+        source = src;
+        Workspace ws = forward;
+        ws.label(src, 0.0, -1);
+        int n = GRAPH.vertexCount();
+        boolean changed = true;
+        for (int round = 0; changed; ++round) {
+            if (round == n)
+                throw new IllegalStateException("Negative cycle reachable from the source!");
+            changed = false;
+            for (int u = 0; u < n; ++u) {
+                double du = ws.dist[u];
+                if (du == Double.POSITIVE_INFINITY)
+                    continue;
+                for (int i = GRAPH.outStart[u]; i < GRAPH.outStart[u + 1]; ++i) {
+                    int w = GRAPH.outTarget[i];
+                    int e = GRAPH.outEdge[i];
+                    double dw = du + weightOf(e);
+                    if (dw < ws.dist[w]) {
+                        ws.label(w, dw, e);
+                        changed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the shortest path between the given source and target vertices.
+     *
+     * @return the length of the shortest path, or positive infinity if there is no path
+     */
+    public double bidirectional(V src, V trg) {
+        int t = GRAPH.indexOf(trg);
+        if (t < 0)
+            throw new IllegalArgumentException("No such target-vertex in this graph!");
+        return bidirectional(checkSource(src), t);
+    }
+
+    /**
+     * Computes the shortest path between the given source and target vertex indices,
+     * using bidirectional Dijkstra search; the forward search explores outgoing edges from
+     * the source and the backward search explores incoming edges to the target, and the
+     * search stops as soon as the two frontiers together cannot improve the best path found.
+     *
+     * After this search, only the distance and path of the target vertex are valid.
+     *
+     * @return the length of the shortest path, or positive infinity if there is no path
+     */
+    public double bidirectional(int src, int trg) {
+        if (hasNegativeWeights)
+            throw new IllegalStateException("Bidirectional search requires non-negative edge weights!");
+        if (backward == null)
+            backward = new Workspace(GRAPH.vertexCount());
+        forward.reset();
+        backward.reset();
+        source = src;
+        if (src == trg) {
+            forward.label(src, 0.0, -1);
+            return 0.0;
+        }
+        IndexedMinHeap fwHeap = forward.heap();
+        IndexedMinHeap bwHeap = backward.heap();
+        forward.label(src, 0.0, -1);
+        fwHeap.offer(src, 0.0);
+        backward.label(trg, 0.0, -1);
+        bwHeap.offer(trg, 0.0);
+        double best = Double.POSITIVE_INFINITY;
+        int meet = -1;
+        while (!fwHeap.isEmpty() && !bwHeap.isEmpty()) {
+            if (fwHeap.peekPriority() + bwHeap.peekPriority() >= best)
+                break;
+            boolean isForward = fwHeap.size() <= bwHeap.size();
+            Workspace ws = isForward ? forward : backward;
+            Workspace other = isForward ? backward : forward;
+            int[] start = isForward ? GRAPH.outStart : GRAPH.inStart;
+            int[] adj = isForward ? GRAPH.outTarget : GRAPH.inSource;
+            int[] adjEdge = isForward ? GRAPH.outEdge : GRAPH.inEdge;
+            IndexedMinHeap heap = ws.heap();
+            int u = heap.poll();
+            double du = ws.dist[u];
+            for (int i = start[u]; i < start[u + 1]; ++i) {
+                int w = adj[i];
+                int e = adjEdge[i];
+                double dw = du + weightOf(e);
+                if (dw < ws.dist[w]) {
+                    ws.label(w, dw, e);
+                    heap.offer(w, dw);
+                }
+                if (ws.dist[w] + other.dist[w] < best) {
+                    best = ws.dist[w] + other.dist[w];
+                    meet = w;
+                }
+            }
+        }
+        if (meet < 0)
+            return Double.POSITIVE_INFINITY;
+        // splice the backward half of the path into the forward predecessors
+        for (int v = meet; v != trg; ) {
+            int e = backward.pred[v];
+            int next = opposite(e, v);
+            forward.label(next, forward.dist[v] + weightOf(e), e);
+            v = next;
+        }
+        return forward.dist[trg];
+    }
+
+    /**
+     * Returns the index of the source vertex of the last search, or -1 if no search is done.
+     */
+    public int getSourceIndex() {
+        return source;
+    }
+
+    /**
+     * Returns the distance of the given vertex index from the source of the last search;
+     * or positive infinity if it is not reachable.
+     */
+    public double getDistanceOfIndex(int v) {
+        return forward.dist[v];
+    }
+
+    /**
+     * Returns the distance of the given vertex from the source of the last search;
+     * or positive infinity if it is not reachable.
+     */
+    public double getDistance(V v) {
+        int idx = GRAPH.indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return forward.dist[idx];
+    }
+
+    /**
+     * Returns the index of the last edge on the shortest path to the given vertex index;
+     * or -1 if the vertex is the source or is not reachable.
+     */
+    public int getPredecessorEdgeOfIndex(int v) {
+        return forward.pred[v];
+    }
+
+    /**
+     * Returns the edge indices of the shortest path from the source to the given vertex index;
+     * or null if the vertex is not reachable. The path is reconstructed on each call.
+     */
+    public int[] getPathIndices(int v) {
+        if (forward.dist[v] == Double.POSITIVE_INFINITY)
+            return null;
+        int length = 0;
+        for (int x = v; forward.pred[x] >= 0; x = opposite(forward.pred[x], x))
+            ++length;
+        int[] path = new int[length];
+        for (int x = v; forward.pred[x] >= 0; x = opposite(forward.pred[x], x))
+            path[--length] = forward.pred[x];
+        return path;
+    }
+
+    /**
+     * Returns the edges of the shortest path from the source to the given vertex;
+     * or null if the vertex is not reachable. The path is reconstructed on each call.
+     */
+    public List<Edge<V,E>> getPath(V v) {
+        int idx = GRAPH.indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        int[] path = getPathIndices(idx);
+        if (path == null)
+            return null;
+        List<Edge<V,E>> edges = new ArrayList<>(path.length);
+        for (int e: path)
+            edges.add(GRAPH.getEdge(e));
+        return edges;
+    }
+
+    /**
+     * Reusable search state: tentative distances and predecessor edges,
+     * along with the list of touched vertices for fast resetting.
+     */
+    private static class Workspace {
+
+        final double[] dist;
+        final int[] pred;
+        final int[] touched;
+        int touchedCount;
+        private IndexedMinHeap heap;
+
+        Workspace(int n) {
+            dist = new double[n];
+            pred = new int[n];
+            touched = new int[n];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            Arrays.fill(pred, -1);
+            touchedCount = 0;
+        }
+
+        IndexedMinHeap heap() {
+            if (heap == null)
+                heap = new IndexedMinHeap(dist.length);
+            return heap;
+        }
+
+        void label(int v, double d, int predEdge) {
+            if (dist[v] == Double.POSITIVE_INFINITY)
+                touched[touchedCount++] = v;
+            dist[v] = d;
+            pred[v] = predEdge;
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; ++i) {
+                dist[touched[i]] = Double.POSITIVE_INFINITY;
+                pred[touched[i]] = -1;
+            }
+            touchedCount = 0;
+            if (heap != null)
+                heap.clear();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * A slicing engine for dependence graphs (such as program dependence graphs).
+ *
+ * A backward slice of a set of seed vertices is the set of all vertices which can reach
+ * any of the seeds, and a forward slice is the set of all vertices reachable from any of the seeds;
+ * where only edges whose labels satisfy the filter of the slicer are followed (e.g. only
+ * data-dependence edges). Seeds are always included in their slices.
+ * Edge labels are tested once, when the slicer is constructed (once per distinct label,
+ * if the labels of the compact graph are encoded by a dictionary).
+ *
+ * Slices are returned as bit-sets of vertex indices of the underlying {@link CompactGraph},
+ * which can be viewed as subgraphs via {@link #subgraphOf(BitSet)}.
+ * Many slices can be computed together in batch mode, where 64 slices are propagated at once
+ * as the bits of a single word per vertex; batches of 64 slices are computed in parallel.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class Slicer<V,E> {
+
+    public final CompactGraph<V,E> GRAPH;
+
+    // indices of the edges which satisfy the label filter
+    private final BitSet followed;
+
+    /**
+     * Create a slicer for the given digraph, following only edges
+     * whose labels satisfy the given filter (or all edges, if the filter is null).
+     * Vertices of an identity digraph are matched by reference-equality.
+     */
+    public Slicer(Digraph<V,E> graph, Predicate<? super E> filter) {
+        this(new CompactGraph<>(graph), filter);
+    }
+
+    /**
+     * Create a slicer for the given compact graph, following only edges
+     * whose labels satisfy the given filter (or all edges, if the filter is null).
+     */
+    public Slicer(CompactGraph<V,E> graph, Predicate<? super E> filter) {
+        GRAPH = graph;
+        int m = graph.edgeCount();
+        followed = new BitSet(m);
+        if (filter == null)
+            followed.set(0, m);
+        else if (graph.hasLabelIds()) {
+            // test each distinct label once; indexed by label id + 1, as null labels are -1
+            int size = graph.getLabelDictionary().size() + 1;
+            BitSet tested = new BitSet(size);
+            BitSet accepted = new BitSet(size);
+            for (int e = 0; e < m; ++e) {
+                int id = graph.edgeLabel[e] + 1;
+                if (!tested.get(id)) {
+                    tested.set(id);
+                    if (filter.test(graph.getLabelDictionary().get(id - 1)))
+                        accepted.set(id);
+                }
+                if (accepted.get(id))
+                    followed.set(e);
+            }
+        } else {
+            for (int e = 0; e < m; ++e)
+                if (filter.test(graph.getEdge(e).label))
+                    followed.set(e);
+        }
+    }
+
+    /**
+     * Returns the backward slice of the given seed vertices.
+     */
+    public BitSet backwardSlice(Collection<? extends V> seeds) {
+        return slice(toIndices(seeds), false);
+    }
+
+    /**
+     * Returns the forward slice of the given seed vertices.
+     */
+    public BitSet forwardSlice(Collection<? extends V> seeds) {
+        return slice(toIndices(seeds), true);
+    }
+
+    /**
+     * Returns the backward slice of the given seed vertex indices.
+     */
+    public BitSet backwardSliceOfIndices(int... seeds) {
+        return slice(seeds, false);
+    }
+
+    /**
+     * Returns the forward slice of the given seed vertex indices.
+     */
+    public BitSet forwardSliceOfIndices(int... seeds) {
+        return slice(seeds, true);
+    }
+
+    /**
+     * Returns the backward slices of each of the given sets of seed vertices.
+     */
+    public BitSet[] backwardSlices(List<? extends Collection<? extends V>> seedSets) {
+        return slices(seedSets, false);
+    }
+
+    /**
+     * Returns the forward slices of each of the given sets of seed vertices.
+     */
+    public BitSet[] forwardSlices(List<? extends Collection<? extends V>> seedSets) {
+        return slices(seedSets, true);
+    }
+
+    /**
+     * Returns a read-only view of the subgraph induced by the given slice.
+     */
+    public SubgraphView<V,E> subgraphOf(BitSet slice) {
+        return new SubgraphView<>(GRAPH, slice);
+    }
+
+    private int[] toIndices(Collection<? extends V> seeds) {
+        int[] indices = new int[seeds.size()];
+        int k = 0;
+        for (V v: seeds) {
+            int idx = GRAPH.indexOf(v);
+            if (idx < 0)
+                throw new IllegalArgumentException("No such vertex in this graph!");
+            indices[k++] = idx;
+        }
+        return indices;
+    }
+
+    /**
+     * Computes a single slice by a breadth-first search over the followed edges.
+     */
+    private BitSet slice(int[] seeds, boolean forward) {
+        int[] start = forward ? GRAPH.outStart : GRAPH.inStart;
+        int[] adj = forward ? GRAPH.outTarget : GRAPH.inSource;
+        int[] adjEdge = forward ? GRAPH.outEdge : GRAPH.inEdge;
+        BitSet visited = new BitSet(GRAPH.vertexCount());
+        int[] queue = new int[GRAPH.vertexCount()];
+        int head = 0, tail = 0;
+        for (int s: seeds) {
+            if (!visited.get(s)) {
+                visited.set(s);
+                queue[tail++] = s;
+            }
+        }
+        while (head < tail) {
+            int v = queue[head++];
+            for (int i = start[v]; i < start[v + 1]; ++i) {
+                int w = adj[i];
+                if (!visited.get(w) && followed.get(adjEdge[i])) {
+                    visited.set(w);
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Computes many slices in batches of 64; in each batch, every vertex has a word whose
+     * bits mark the slices it belongs to, and words are propagated over the followed edges
+     * using a work-list, until no word changes.
+     */
+    private BitSet[] slices(List<? extends Collection<? extends V>> seedSets, boolean forward) {
+        int count = seedSets.size();
+        int[][] seeds = new int[count][];
+        for (int k = 0; k < count; ++k)
+            seeds[k] = toIndices(seedSets.get(k));
+        BitSet[] result = new BitSet[count];
+        int batches = (count + 63) >>> 6;
+        IntStream.range(0, batches).parallel().forEach(b -> sliceBatch(seeds, b << 6, forward, result));
+        return result;
+    }
+
+    private void sliceBatch(int[][] seeds, int first, boolean forward, BitSet[] result) {
+        int n = GRAPH.vertexCount();
+        int[] start = forward ? GRAPH.outStart : GRAPH.inStart;
+        int[] adj = forward ? GRAPH.outTarget : GRAPH.inSource;
+        int[] adjEdge = forward ? GRAPH.outEdge : GRAPH.inEdge;
+        int size = Math.min(64, seeds.length - first);
+        long[] bits = new long[n];
+        boolean[] queued = new boolean[n];
+        // circular work-list; each vertex is in the list at most once
+        int[] queue = new int[n];
+        int head = 0, length = 0;
+        for (int k = 0; k < size; ++k) {
+            for (int s: seeds[first + k]) {
+                bits[s] |= 1L << k;
+                if (!queued[s]) {
+                    queued[s] = true;
+                    queue[(head + length++) % n] = s;
+                }
+            }
+        }
+        while (length > 0) {
+            int v = queue[head];
+            head = (head + 1) % n;
+            --length;
+            queued[v] = false;
+            long word = bits[v];
+            for (int i = start[v]; i < start[v + 1]; ++i) {
+                int w = adj[i];
+                if ((word & ~bits[w]) != 0 && followed.get(adjEdge[i])) {
+                    bits[w] |= word;
+                    if (!queued[w]) {
+                        queued[w] = true;
+                        queue[(head + length++) % n] = w;
+                    }
+                }
+            }
+        }
+        for (int k = 0; k < size; ++k)
+            result[first + k] = new BitSet(n);
+        for (int v = 0; v < n; ++v) {
+            for (long word = bits[v]; word != 0; word &= word - 1)
+                result[first + Long.numberOfTrailingZeros(word)].set(v);
+        }
+    }
+}
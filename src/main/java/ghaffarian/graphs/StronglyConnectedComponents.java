@@ -0,0 +1,439 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Strongly connected components (SCCs) of a directed graph.
+ *
+ * The sequential mode uses an iterative (non-recursive) version of Tarjan's algorithm,
+ * so it can handle arbitrarily deep graphs without any risk of stack overflow.
+ * In this mode, component ids are assigned in topological order of the condensation;
+ * i.e. every edge between two different components goes from a lower id to a higher id.
+ *
+ * The parallel mode first trims trivial components (vertices without any incoming or
+ * outgoing edges inside the remaining graph), and then uses the forward-backward (FW-BW)
+ * coloring algorithm: the forward and backward reachable sets of a pivot vertex (the one with
+ * the highest degree) intersect exactly at the pivot's component, and the three remaining partitions
+ * are processed in parallel as independent subproblems. Small subproblems, and those which
+ * the splits hardly shrink, are solved using Tarjan's algorithm.
+ * Component ids in this mode are not topologically ordered.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class StronglyConnectedComponents<V,E> {
+
+    // subproblems smaller than this are solved sequentially in parallel mode
+    private static final int SEQUENTIAL_THRESHOLD = 4096;
+
+    public final CompactGraph<V,E> GRAPH;
+
+    private final int[] component;
+    private final int count;
+    // members of each component in CSR form; computed lazily
+    private int[] memberStart;
+    private int[] members;
+    private CompactGraph<Integer, Void> condensation;
+
+    /**
+     * Compute the strongly connected components of the given digraph, sequentially.
+     */
+    public StronglyConnectedComponents(Digraph<V,E> graph) {
+        this(new CompactGraph<>(graph), false);
+    }
+
+    /**
+     * Compute the strongly connected components of the given compact digraph.
+     *
+     * @param graph     the compact directed graph
+     * @param parallel  whether to use the parallel forward-backward algorithm or not
+     */
+    public StronglyConnectedComponents(CompactGraph<V,E> graph, boolean parallel) {
+        if (!graph.isDirected())
+            throw new IllegalArgumentException("Strongly connected components are only defined for directed graphs!");
+        GRAPH = graph;
+        int n = graph.vertexCount();
+        component = new int[n];
+        Arrays.fill(component, -1);
+        Search search = new Search(graph, component);
+        if (parallel) {
+            int[] color = new int[n];
+            int[] rest = search.trim(color);
+            if (rest.length > 0)
+                ForkJoinPool.commonPool().invoke(new ForwardBackwardTask(search, color, 0, rest));
+            count = search.counter.get();
+        } else {
+            int[] all = new int[n];
+            for (int v = 0; v < n; ++v)
+                all[v] = v;
+            search.tarjan(all, all.length, null, 0);
+            count = search.counter.get();
+            // Tarjan finds components in reverse topological order
+            for (int v = 0; v < n; ++v)
+                component[v] = count - 1 - component[v];
+        }
+    }
+
+    /**
+     * Returns the number of strongly connected components.
+     */
+    public int getComponentCount() {
+        return count;
+    }
+
+    /**
+     * Returns the id of the component containing the given vertex index.
+     */
+    public int getComponentOfIndex(int v) {
+        return component[v];
+    }
+
+    /**
+     * Returns the id of the component containing the given vertex.
+     */
+    public int getComponentOf(V v) {
+        int idx = GRAPH.indexOf(v);
+        if (idx < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return component[idx];
+    }
+
+    /**
+     * Return a copy of the component ids array, indexed by vertex indices.
+     */
+    public int[] copyComponentIds() {
+        return component.clone();
+    }
+
+    /**
+     * Returns the number of vertices in the given component.
+     */
+    public int getComponentSize(int c) {
+        if (members == null)
+            computeMembers();
+        return memberStart[c + 1] - memberStart[c];
+    }
+
+    /**
+     * Returns the indices of the vertices in the given component.
+     */
+    public int[] getComponentMembers(int c) {
+        if (members == null)
+            computeMembers();
+        return Arrays.copyOfRange(members, memberStart[c], memberStart[c + 1]);
+    }
+
+    /**
+     * Returns the condensation of the graph; i.e. the directed acyclic graph obtained by
+     * contracting each component into a single vertex, whose index is the component id.
+     * Parallel edges between two components are merged into one edge, and no self-loops exist.
+     * The condensation is computed once, on the first call to this method.
+     */
+    public synchronized CompactGraph<Integer, Void> getCondensation() {
+        if (condensation != null)
+            return condensation;
+        if (members == null)
+            computeMembers();
+        int[] lastTarget = new int[count];
+        int[] sources = null, targets = null;
+        int edges = 0;
+        for (int pass = 0; pass < 2; ++pass) {
+            Arrays.fill(lastTarget, -1);
+            edges = 0;
+            for (int c = 0; c < count; ++c) {
+                for (int i = memberStart[c]; i < memberStart[c + 1]; ++i) {
+                    int v = members[i];
+                    for (int j = GRAPH.outStart[v]; j < GRAPH.outStart[v + 1]; ++j) {
+                        int d = component[GRAPH.outTarget[j]];
+                        if (d != c && lastTarget[d] != c) {
+                            lastTarget[d] = c;
+                            if (pass == 1) {
+                                sources[edges] = c;
+                                targets[edges] = d;
+                            }
+                            ++edges;
+                        }
+                    }
+                }
+            }
+            if (pass == 0) {
+                sources = new int[edges];
+                targets = new int[edges];
+            }
+        }
+        condensation = new CompactGraph<>(count, sources, targets, true);
+        return condensation;
+    }
+
+    private synchronized void computeMembers() {
+        if (members != null)
+            return;
+        int n = component.length;
+        int[] start = new int[count + 1];
+        for (int v = 0; v < n; ++v)
+            ++start[component[v] + 1];
+        for (int c = 0; c < count; ++c)
+            start[c + 1] += start[c];
+        int[] next = Arrays.copyOf(start, count);
+        int[] list = new int[n];
+        for (int v = 0; v < n; ++v)
+            list[next[component[v]]++] = v;
+        memberStart = start;
+        members = list;
+    }
+
+    /**
+     * Search state shared by the sequential and parallel algorithms.
+     * Concurrent tasks of the parallel algorithm always work on disjoint sets of vertices,
+     * so the per-vertex arrays can be shared among them without any synchronization.
+     */
+    private static class Search {
+
+        final CompactGraph<?,?> graph;
+        final int[] component;
+        final int[] index;
+        final int[] low;
+        final int[] cursor;
+        final AtomicInteger counter;
+        final AtomicInteger colors;
+
+        Search(CompactGraph<?,?> graph, int[] component) {
+            int n = graph.vertexCount();
+            this.graph = graph;
+            this.component = component;
+            index = new int[n];
+            low = new int[n];
+            cursor = new int[n];
+            counter = new AtomicInteger();
+            colors = new AtomicInteger();
+            Arrays.fill(index, -1);
+        }
+
+        /**
+         * Iterative Tarjan's algorithm over the given vertices.
+         * If a color array is given, only vertices with the given color are considered.
+         */
+        void tarjan(int[] vertices, int size, int[] color, int c) {
+            int[] callStack = new int[size];
+            int[] sccStack = new int[size];
+            int callTop = 0, sccTop = 0, time = 0;
+            for (int k = 0; k < size; ++k) {
+                int s = vertices[k];
+                if (index[s] >= 0)
+                    continue;
+                index[s] = low[s] = time++;
+                cursor[s] = graph.outStart[s];
+                callStack[callTop++] = s;
+                sccStack[sccTop++] = s;
+                while (callTop > 0) {
+                    int v = callStack[callTop - 1];
+                    if (cursor[v] < graph.outStart[v + 1]) {
+                        int w = graph.outTarget[cursor[v]++];
+                        if (color != null && color[w] != c)
+                            continue;
+                        if (index[w] < 0) {
+                            index[w] = low[w] = time++;
+                            cursor[w] = graph.outStart[w];
+                            callStack[callTop++] = w;
+                            sccStack[sccTop++] = w;
+                        } else if (component[w] < 0 && index[w] < low[v])
+                            low[v] = index[w];
+                    } else {
+                        --callTop;
+                        if (low[v] == index[v]) {
+                            int id = counter.getAndIncrement();
+                            int w;
+                            do {
+                                w = sccStack[--sccTop];
+                                component[w] = id;
+                            } while (w != v);
+                        }
+                        if (callTop > 0) {
+                            int parent = callStack[callTop - 1];
+                            if (low[v] < low[parent])
+                                low[parent] = low[v];
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Repeatedly removes vertices with no incoming or no outgoing edges among the
+         * remaining vertices; each such vertex is a trivial component on its own.
+         * Returns the remaining vertices, which are all left with color 0.
+         */
+        int[] trim(int[] color) {
+            int n = graph.vertexCount();
+            int[] inDeg = new int[n];
+            int[] outDeg = new int[n];
+            int[] queue = new int[n];
+            int head = 0, tail = 0;
+            for (int v = 0; v < n; ++v) {
+                inDeg[v] = graph.getInDegree(v);
+                outDeg[v] = graph.getOutDegree(v);
+                if (inDeg[v] == 0 || outDeg[v] == 0) {
+                    color[v] = -1;
+                    queue[tail++] = v;
+                }
+            }
+            while (head < tail) {
+                int v = queue[head++];
+                component[v] = counter.getAndIncrement();
+                for (int i = graph.outStart[v]; i < graph.outStart[v + 1]; ++i) {
+                    int w = graph.outTarget[i];
+                    if (color[w] == 0 && --inDeg[w] == 0) {
+                        color[w] = -1;
+                        queue[tail++] = w;
+                    }
+                }
+                for (int i = graph.inStart[v]; i < graph.inStart[v + 1]; ++i) {
+                    int w = graph.inSource[i];
+                    if (color[w] == 0 && --outDeg[w] == 0) {
+                        color[w] = -1;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+            int[] rest = new int[n - tail];
+            int size = 0;
+            for (int v = 0; v < n; ++v)
+                if (color[v] == 0)
+                    rest[size++] = v;
+            return rest;
+        }
+    }
+
+    /**
+     * A forward-backward subproblem: finds all components among the given vertices,
+     * which are exactly the vertices with the given color.
+     *
+     * Each split continues with its largest partition in a loop, and forks the two smaller ones;
+     * so the nesting of tasks is logarithmic. If a split removes only a few vertices (e.g. in a long
+     * chain of small components), the largest partition is solved by Tarjan's algorithm instead.
+     */
+    private static class ForwardBackwardTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+        private final int[] color;
+        private final int myColor;
+        private final int[] vertices;
+
+        ForwardBackwardTask(Search search, int[] color, int myColor, int[] vertices) {
+            this.search = search;
+            this.color = color;
+            this.myColor = myColor;
+            this.vertices = vertices;
+        }
+
+        @Override
+        protected void compute() {
+            List<ForwardBackwardTask> forked = new ArrayList<>();
+            CompactGraph<?,?> graph = search.graph;
+            int[] vertices = this.vertices;
+            int myColor = this.myColor;
+            // the queue is reused by all splits, as the partitions only shrink
+            int[] queue = vertices.length > SEQUENTIAL_THRESHOLD ? new int[vertices.length] : null;
+            while (vertices.length > SEQUENTIAL_THRESHOLD) {
+                int fwColor = search.colors.incrementAndGet();
+                int bwColor = search.colors.incrementAndGet();
+                int pivot = selectPivot(vertices);
+                // forward reachability from the pivot
+                int head = 0, tail = 0;
+                color[pivot] = fwColor;
+                queue[tail++] = pivot;
+                while (head < tail) {
+                    int v = queue[head++];
+                    for (int i = graph.outStart[v]; i < graph.outStart[v + 1]; ++i) {
+                        int w = graph.outTarget[i];
+                        if (color[w] == myColor) {
+                            color[w] = fwColor;
+                            queue[tail++] = w;
+                        }
+                    }
+                }
+                int fwSize = tail - 1;
+                // backward reachability from the pivot; vertices reached in both are the SCC
+                int id = search.counter.getAndIncrement();
+                int bwSize = 0;
+                head = tail = 0;
+                color[pivot] = -1;
+                search.component[pivot] = id;
+                queue[tail++] = pivot;
+                while (head < tail) {
+                    int v = queue[head++];
+                    for (int i = graph.inStart[v]; i < graph.inStart[v + 1]; ++i) {
+                        int w = graph.inSource[i];
+                        if (color[w] == fwColor) {
+                            color[w] = -1;
+                            search.component[w] = id;
+                            queue[tail++] = w;
+                            --fwSize;
+                        } else if (color[w] == myColor) {
+                            color[w] = bwColor;
+                            queue[tail++] = w;
+                            ++bwSize;
+                        }
+                    }
+                }
+                // partition the remaining vertices into the three independent subproblems
+                int restSize = vertices.length - tail - fwSize;
+                int[] fw = new int[fwSize], bw = new int[bwSize], rest = new int[restSize];
+                fwSize = bwSize = restSize = 0;
+                for (int v: vertices) {
+                    if (color[v] == fwColor)
+                        fw[fwSize++] = v;
+                    else if (color[v] == bwColor)
+                        bw[bwSize++] = v;
+                    else if (color[v] == myColor)
+                        rest[restSize++] = v;
+                }
+                int[][] parts = {fw, bw, rest};
+                int[] colors = {fwColor, bwColor, myColor};
+                int largest = 0;
+                for (int k = 1; k < 3; ++k)
+                    if (parts[k].length > parts[largest].length)
+                        largest = k;
+                for (int k = 0; k < 3; ++k) {
+                    if (k != largest && parts[k].length > 0) {
+                        ForwardBackwardTask task = new ForwardBackwardTask(search, color, colors[k], parts[k]);
+                        task.fork();
+                        forked.add(task);
+                    }
+                }
+                boolean progress = parts[largest].length <= vertices.length - vertices.length / 16;
+                vertices = parts[largest];
+                myColor = colors[largest];
+                if (!progress)
+                    break;
+            }
+            search.tarjan(vertices, vertices.length, color, myColor);
+            for (ForwardBackwardTask task: forked)
+                task.join();
+        }
+
+        /**
+         * Returns the vertex with the largest product of in-degree and out-degree, as the pivot;
+         * which is likely to be in a large component.
+         */
+        private int selectPivot(int[] vertices) {
+            int pivot = vertices[0];
+            long best = -1;
+            for (int v: vertices) {
+                long degree = (long) search.graph.getInDegree(v) * search.graph.getOutDegree(v);
+                if (degree > best) {
+                    best = degree;
+                    pivot = v;
+                }
+            }
+            return pivot;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import ghaffarian.collections.DisjointSets;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only view of a subgraph of a {@link CompactGraph}, selected by sets of vertex indices
+ * (and optionally, edge indices).
+ *
+ * The view does not copy any vertices, edges or adjacency of the underlying graph; it only
+ * keeps the selected indices as bit-sets, and filters the adjacency of the compact graph on the fly.
+ * An edge belongs to the view if both its end-points are selected (and if an edge selection is given,
+ * the edge itself is selected as well); so without an edge selection, this is the induced subgraph
+ * of the selected vertices.
+ *
+ * All modifying operations throw <tt>UnsupportedOperationException</tt>.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class SubgraphView<V,E> implements Graph<V,E> {
+
+    public final CompactGraph<V,E> GRAPH;
+
+    private final BitSet vertices;
+    private final BitSet edges;
+    private final int vertexCount;
+    private int edgeCount;
+
+    /**
+     * Create a view of the subgraph induced by the given vertex indices.
+     */
+    public SubgraphView(CompactGraph<V,E> graph, BitSet vertices) {
+        this(graph, vertices, null);
+    }
+
+    /**
+     * Create a view of the subgraph with the given vertex indices, and the given edge indices
+     * whose end-points are both among the given vertices; if the edge selection is null,
+     * all such edges are included (i.e. the induced subgraph).
+     * The given bit-sets are copied, so later changes to them are not reflected in this view.
+     */
+    public SubgraphView(CompactGraph<V,E> graph, BitSet vertices, BitSet edges) {
+        if (vertices.length() > graph.vertexCount())
+            throw new IllegalArgumentException("Vertex selection is out of the graph bounds!");
+        GRAPH = graph;
+        this.vertices = (BitSet) vertices.clone();
+        this.edges = edges == null ? null : (BitSet) edges.clone();
+        vertexCount = this.vertices.cardinality();
+        edgeCount = -1;
+    }
+
+    /**
+     * Check whether the given edge index belongs to this view.
+     */
+    public boolean containsEdgeIndex(int e) {
+        return (edges == null || edges.get(e)) &&
+                vertices.get(GRAPH.edgeSource[e]) && vertices.get(GRAPH.edgeTarget[e]);
+    }
+
+    /**
+     * Check whether the given vertex index belongs to this view.
+     */
+    public boolean containsVertexIndex(int v) {
+        return vertices.get(v);
+    }
+
+    /**
+     * Return a copy of the selected vertex indices.
+     */
+    public BitSet copyVertexIndices() {
+        return (BitSet) vertices.clone();
+    }
+
+    @Override
+    public boolean isDirected() {
+        return GRAPH.isDirected();
+    }
+
+    @Override
+    public boolean addVertex(V v) {
+        throw new UnsupportedOperationException("Subgraph view is read-only!");
+    }
+
+    @Override
+    public boolean removeVertex(V v) {
+        throw new UnsupportedOperationException("Subgraph view is read-only!");
+    }
+
+    @Override
+    public boolean addEdge(Edge<V,E> e) {
+        throw new UnsupportedOperationException("Subgraph view is read-only!");
+    }
+
+    @Override
+    public boolean addEdge(V src, V trgt) {
+        throw new UnsupportedOperationException("Subgraph view is read-only!");
+    }
+
+    @Override
+    public boolean removeEdge(Edge<V,E> e) {
+        throw new UnsupportedOperationException("Subgraph view is read-only!");
+    }
+
+    @Override
+    public Set<Edge<V,E>> removeEdges(V src, V trgt) {
+        throw new UnsupportedOperationException("Subgraph view is read-only!");
+    }
+
+    @Override
+    public boolean addGraph(AbstractPropertyGraph<V,E> graph) {
+        throw new UnsupportedOperationException("Subgraph view is read-only!");
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public int edgeCount() {
+        // counted lazily, as it requires a pass over the adjacency of selected vertices
+        if (edgeCount < 0) {
+            int count = 0;
+            Iterator<Edge<V,E>> iter = allEdgesIterator();
+            while (iter.hasNext()) {
+                iter.next();
+                ++count;
+            }
+            edgeCount = count;
+        }
+        return edgeCount;
+    }
+
+    @Override
+    public Iterator<Edge<V,E>> allEdgesIterator() {
+        return new EdgeIterator(-1, true);
+    }
+
+    @Override
+    public Iterator<V> allVerticesIterator() {
+        return new Iterator<V>() {
+            private int next = vertices.nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public V next() {
+                if (next < 0)
+                    throw new NoSuchElementException();
+                V v = GRAPH.getVertex(next);
+                next = vertices.nextSetBit(next + 1);
+                return v;
+            }
+        };
+    }
+
+    @Override
+    public Set<Edge<V,E>> copyEdgeSet() {
+        return toSet(allEdgesIterator(), GRAPH.newEdgeSet(16));
+    }
+
+    @Override
+    public Set<V> copyVertexSet() {
+        return toSet(allVerticesIterator(), GRAPH.newVertexSet(16));
+    }
+
+    @Override
+    public Iterator<Edge<V,E>> incomingEdgesIterator(V v) {
+        return new EdgeIterator(checkedIndexOf(v), false);
+    }
+
+    @Override
+    public Iterator<Edge<V,E>> outgoingEdgesIterator(V v) {
+        return new EdgeIterator(checkedIndexOf(v), true);
+    }
+
+    @Override
+    public Set<Edge<V,E>> copyIncomingEdges(V v) {
+        return toSet(incomingEdgesIterator(v), GRAPH.newEdgeSet(16));
+    }
+
+    @Override
+    public Set<Edge<V,E>> copyOutgoingEdges(V v) {
+        return toSet(outgoingEdgesIterator(v), GRAPH.newEdgeSet(16));
+    }
+
+    @Override
+    public int getInDegree(V v) {
+        return count(incomingEdgesIterator(v));
+    }
+
+    @Override
+    public int getOutDegree(V v) {
+        return count(outgoingEdgesIterator(v));
+    }
+
+    @Override
+    public Set<Edge<V,E>> getEdgesWithLabel(E label) {
+        Set<Edge<V,E>> result = GRAPH.newEdgeSet(16);
+        Iterator<Edge<V,E>> iter = allEdgesIterator();
+        while (iter.hasNext()) {
+            Edge<V,E> e = iter.next();
+            if (label == null ? e.label == null : label.equals(e.label))
+                result.add(e);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean containsEdge(Edge<V,E> e) {
+        int src = GRAPH.indexOf(e.source);
+        int trg = GRAPH.indexOf(e.target);
+        if (src < 0 || trg < 0 || !vertices.get(src) || !vertices.get(trg))
+            return false;
+        // edges of undirected graphs are in the adjacency of both end-points, in their stored orientation
+        for (int i = GRAPH.outStart[src]; i < GRAPH.outStart[src + 1]; ++i) {
+            int edge = GRAPH.outEdge[i];
+            if (GRAPH.outTarget[i] == trg && containsEdgeIndex(edge) &&
+                    (GRAPH.edgesMatch(GRAPH.getEdge(edge), e) ||
+                     (!isDirected() && GRAPH.edgesMatch(GRAPH.getEdge(edge), e.reverse()))))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsEdge(V src, V trg) {
+        int s = GRAPH.indexOf(src);
+        int t = GRAPH.indexOf(trg);
+        if (s < 0 || t < 0 || !vertices.get(s) || !vertices.get(t))
+            return false;
+        for (int i = GRAPH.outStart[s]; i < GRAPH.outStart[s + 1]; ++i)
+            if (GRAPH.outTarget[i] == t && containsEdgeIndex(GRAPH.outEdge[i]))
+                return true;
+        return false;
+    }
+
+    @Override
+    public boolean containsVertex(V v) {
+        int idx = GRAPH.indexOf(v);
+        return idx >= 0 && vertices.get(idx);
+    }
+
+    @Override
+    public boolean containsAllEdges(Set<Edge<V,E>> set) {
+        for (Edge<V,E> edge: set)
+            if (!containsEdge(edge))
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean containsAllVertices(Set<V> set) {
+        for (V v: set)
+            if (!containsVertex(v))
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean isSubgraphOf(Graph<V,E> base) {
+        if (isDirected() != base.isDirected())
+            return false;
+        if (vertexCount() > base.vertexCount() || edgeCount() > base.edgeCount())
+            return false;
+        if (!base.containsAllVertices(copyVertexSet()))
+            return false;
+        Iterator<Edge<V,E>> iter = allEdgesIterator();
+        while (iter.hasNext())
+            if (!base.containsEdge(iter.next()))
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean isProperSubgraphOf(Graph<V,E> base) {
+        if (vertexCount() == base.vertexCount() && edgeCount() == base.edgeCount())
+            return false;
+        return isSubgraphOf(base);
+    }
+
+    @Override
+    public boolean isConnected() {
+        if (vertexCount <= 1)
+            return true;
+        DisjointSets components = new DisjointSets(GRAPH.vertexCount());
+        int sets = vertexCount;
+        for (int v = vertices.nextSetBit(0); v >= 0; v = vertices.nextSetBit(v + 1)) {
+            for (int i = GRAPH.outStart[v]; i < GRAPH.outStart[v + 1]; ++i) {
+                if (containsEdgeIndex(GRAPH.outEdge[i]) && components.union(v, GRAPH.outTarget[i])) {
+                    if (--sets == 1)
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int checkedIndexOf(V v) {
+        int idx = GRAPH.indexOf(v);
+        if (idx < 0 || !vertices.get(idx))
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return idx;
+    }
+
+    private static <T> Set<T> toSet(Iterator<T> iter, Set<T> set) {
+        while (iter.hasNext())
+            set.add(iter.next());
+        return set;
+    }
+
+    private static int count(Iterator<?> iter) {
+        int count = 0;
+        for (; iter.hasNext(); iter.next())
+            ++count;
+        return count;
+    }
+
+    /**
+     * Iterator over the edges of this view; either the outgoing or incoming edges
+     * of a single vertex, or (when the vertex is -1) all edges of the view.
+     * For undirected graphs, each edge is reported once when iterating over all edges.
+     */
+    private class EdgeIterator implements Iterator<Edge<V,E>> {
+
+        private final boolean all;
+        private final boolean outgoing;
+        private int vertex;
+        private int pos;
+        private int end;
+        private int next;
+
+        EdgeIterator(int vertex, boolean outgoing) {
+            this.all = vertex < 0;
+            this.outgoing = outgoing;
+            this.vertex = all ? vertices.nextSetBit(0) : vertex;
+            if (this.vertex >= 0) {
+                pos = start(this.vertex);
+                end = start(this.vertex + 1);
+            }
+            advance();
+        }
+
+        private int start(int v) {
+            return outgoing ? GRAPH.outStart[v] : GRAPH.inStart[v];
+        }
+
+        private void advance() {
+            next = -1;
+            while (vertex >= 0) {
+                while (pos < end) {
+                    int e = outgoing ? GRAPH.outEdge[pos] : GRAPH.inEdge[pos];
+                    ++pos;
+                    if (all && GRAPH.edgeSource[e] != vertex)
+                        continue;
+                    if (containsEdgeIndex(e)) {
+                        next = e;
+                        return;
+                    }
+                }
+                if (!all)
+                    return;
+                vertex = vertices.nextSetBit(vertex + 1);
+                if (vertex >= 0) {
+                    pos = start(vertex);
+                    end = start(vertex + 1);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public Edge<V,E> next() {
+            if (next < 0)
+                throw new NoSuchElementException();
+            Edge<V,E> e = GRAPH.getEdge(next);
+            advance();
+            return e;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+
+/**
+ * Topological ordering of a directed graph, using Kahn's algorithm.
+ *
+ * An edge from U to V means that U must come before V (i.e. V depends on U).
+ * The algorithm runs over a {@link CompactGraph} using a primitive in-degree array,
+ * and processes vertices level by level; the level of each vertex is the length of the
+ * longest path reaching it from a source vertex, so all vertices of the same level are
+ * independent of each other and can be processed concurrently.
+ *
+ * If the graph has cycles, the vertices on (or reachable from) the cycles are left unordered;
+ * this can be checked via {@link #isAcyclic()}.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class TopologicalSort<V,E> {
+
+    public final CompactGraph<V,E> GRAPH;
+
+    private final int[] order;
+    private final int sorted;
+    private final int[] level;
+    // start offsets of each level inside the order array
+    private final int[] levelStart;
+
+    /**
+     * Topologically sort the given digraph.
+     */
+    public TopologicalSort(Digraph<V,E> graph) {
+        this(new CompactGraph<>(graph));
+    }
+
+    /**
+     * Topologically sort the given compact digraph.
+     */
+    public TopologicalSort(CompactGraph<V,E> graph) {
+        if (!graph.isDirected())
+            throw new IllegalArgumentException("Topological ordering is only defined for directed graphs!");
+        GRAPH = graph;
+        int n = graph.vertexCount();
+        int[] inDegree = new int[n];
+        order = new int[n];
+        level = new int[n];
+        Arrays.fill(level, -1);
+        int tail = 0;
+        for (int v = 0; v < n; ++v) {
+            inDegree[v] = graph.getInDegree(v);
+            if (inDegree[v] == 0) {
+                level[v] = 0;
+                order[tail++] = v;
+            }
+        }
+        // the order array doubles as the queue; each level is a contiguous block of it
+        int[] starts = new int[n + 2];
+        int levels = 0, head = 0;
+        while (head < tail) {
+            starts[levels++] = head;
+            int levelEnd = tail;
+            while (head < levelEnd) {
+                int v = order[head++];
+                for (int i = graph.outStart[v]; i < graph.outStart[v + 1]; ++i) {
+                    int w = graph.outTarget[i];
+                    if (--inDegree[w] == 0) {
+                        level[w] = levels;
+                        order[tail++] = w;
+                    }
+                }
+            }
+        }
+        starts[levels] = tail;
+        sorted = tail;
+        levelStart = Arrays.copyOf(starts, levels + 1);
+    }
+
+    /**
+     * Check whether the graph is acyclic (i.e. all vertices are ordered) or not.
+     */
+    public boolean isAcyclic() {
+        return sorted == order.length;
+    }
+
+    /**
+     * Returns the vertices of the graph in topological order.
+     *
+     * @throws IllegalStateException if the graph has cycles
+     */
+    public List<V> getSortedVertices() {
+        if (!isAcyclic())
+            throw new IllegalStateException("Graph has cycles; no topological order exists!");
+        List<V> list = new ArrayList<>(sorted);
+        for (int i = 0; i < sorted; ++i)
+            list.add(GRAPH.getVertex(order[i]));
+        return list;
+    }
+
+    /**
+     * Return a copy of the vertex indices in topological order.
+     * If the graph has cycles, only the vertices which could be ordered are included.
+     */
+    public int[] copySortedIndices() {
+        return Arrays.copyOf(order, sorted);
+    }
+
+    /**
+     * Returns the number of levels; i.e. the length of the longest path plus one.
+     */
+    public int getLevelCount() {
+        return levelStart.length - 1;
+    }
+
+    /**
+     * Returns the level of the given vertex index, or -1 if it is not ordered due to cycles.
+     */
+    public int getLevelOfIndex(int v) {
+        return level[v];
+    }
+
+    /**
+     * Returns the indices of the vertices in the given level.
+     */
+    public int[] getLevelIndices(int lvl) {
+        return Arrays.copyOfRange(order, levelStart[lvl], levelStart[lvl + 1]);
+    }
+
+    /**
+     * Returns the vertices of the graph partitioned by their levels.
+     * Vertices in the same group are independent of each other,
+     * and each group only depends on the groups before it.
+     *
+     * @throws IllegalStateException if the graph has cycles
+     */
+    public List<List<V>> getLevels() {
+        if (!isAcyclic())
+            throw new IllegalStateException("Graph has cycles; no topological order exists!");
+        List<List<V>> levels = new ArrayList<>(getLevelCount());
+        for (int lvl = 0; lvl < getLevelCount(); ++lvl) {
+            List<V> group = new ArrayList<>(levelStart[lvl + 1] - levelStart[lvl]);
+            for (int i = levelStart[lvl]; i < levelStart[lvl + 1]; ++i)
+                group.add(GRAPH.getVertex(order[i]));
+            levels.add(group);
+        }
+        return levels;
+    }
+
+    /**
+     * Runs the given task for each vertex of the graph on the given executor,
+     * such that the task of a vertex is started only after the tasks of all its
+     * predecessors have completed. Independent tasks run concurrently.
+     * This method blocks until all tasks have completed.
+     *
+     * If any task fails, no further tasks are started, and after the running tasks
+     * have completed, the first failure is thrown wrapped in an ExecutionException.
+     *
+     * @throws IllegalStateException if the graph has cycles
+     */
+    public void execute(Executor executor, Consumer<? super V> task)
+            throws InterruptedException, ExecutionException {
+        if (!isAcyclic())
+            throw new IllegalStateException("Cannot schedule a graph with cycles!");
+        Schedule<V> schedule = new Schedule<>(GRAPH, executor, task);
+        schedule.start(Arrays.copyOf(order, levelStart.length > 1 ? levelStart[1] : 0));
+        schedule.await();
+    }
+
+    /**
+     * State of a running execution; tracks the count of unfinished predecessors
+     * of each vertex and the number of tasks in flight.
+     */
+    private static class Schedule<V> {
+
+        private final CompactGraph<V,?> graph;
+        private final Executor executor;
+        private final Consumer<? super V> task;
+        private final AtomicIntegerArray waiting;
+        private int pending;
+        private Throwable failure;
+
+        Schedule(CompactGraph<V,?> graph, Executor executor, Consumer<? super V> task) {
+            this.graph = graph;
+            this.executor = executor;
+            this.task = task;
+            int n = graph.vertexCount();
+            waiting = new AtomicIntegerArray(n);
+            for (int v = 0; v < n; ++v)
+                waiting.set(v, graph.getInDegree(v));
+        }
+
+        void start(int[] sources) {
+            synchronized (this) {
+                pending = sources.length;
+            }
+            submitAll(sources, sources.length);
+        }
+
+        /**
+         * Submits the given number of ready tasks; once a failure has occurred, the remaining
+         * tasks are only marked as finished, without being started.
+         */
+        private void submitAll(int[] ready, int count) {
+            for (int k = 0; k < count; ++k) {
+                if (hasFailed())
+                    finished(0, null);
+                else
+                    submit(ready[k]);
+            }
+        }
+
+        private void submit(int v) {
+            try {
+                executor.execute(() -> run(v));
+            } catch (RuntimeException ex) {
+                finished(0, ex);
+            }
+        }
+
+        private void run(int v) {
+            try {
+                task.accept(graph.getVertex(v));
+            } catch (Throwable ex) {
+                finished(0, ex);
+                return;
+            }
+            int[] ready = null;
+            int count = 0;
+            for (int i = graph.outStart[v]; i < graph.outStart[v + 1]; ++i) {
+                int w = graph.outTarget[i];
+                if (waiting.decrementAndGet(w) == 0) {
+                    if (ready == null)
+                        ready = new int[graph.outStart[v + 1] - i];
+                    ready[count++] = w;
+                }
+            }
+            if (finished(count, null))
+                submitAll(ready, count);
+        }
+
+        /**
+         * Marks one task as finished and the given number of new tasks as pending.
+         * Returns true if the new tasks should be submitted (i.e. no failure has occurred).
+         */
+        private synchronized boolean finished(int newTasks, Throwable ex) {
+            if (ex != null && failure == null)
+                failure = ex;
+            if (failure == null)
+                pending += newTasks;
+            if (--pending == 0)
+                notifyAll();
+            return failure == null;
+        }
+
+        private synchronized boolean hasFailed() {
+            return failure != null;
+        }
+
+        synchronized void await() throws InterruptedException, ExecutionException {
+            while (pending > 0)
+                wait();
+            if (failure != null)
+                throw new ExecutionException(failure);
+        }
+    }
+}
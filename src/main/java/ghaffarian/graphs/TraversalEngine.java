@@ -0,0 +1,227 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import ghaffarian.graphs.TraversalVisitor.Action;
+
+/**
+ * Visitor-driven depth-first and breadth-first traversals.
+ *
+ * The traversals report their events to a {@link TraversalVisitor}, which can prune
+ * the subtree of a vertex (or of a tree edge), or terminate the traversal at any event.
+ * Depth-first traversals classify every examined edge as a tree, back, forward or cross edge;
+ * and breadth-first traversals report the start and finish of each level.
+ *
+ * Both traversals are iterative, using primitive stacks (or queues) over a compact snapshot
+ * of the graph; so they can handle arbitrarily deep graphs without any risk of stack overflow,
+ * and they do not allocate any objects per step. The snapshot is taken at construction,
+ * and later modifications of the graph are not reflected in the traversals.
+ *
+ * For undirected graphs, the tree edge to the parent of a vertex is not examined again,
+ * and each non-tree edge is only reported once (as a back edge in depth-first traversals).
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class TraversalEngine<V,E> {
+
+    private static final byte WHITE = 0;
+    private static final byte GRAY = 1;
+    private static final byte BLACK = 2;
+    // discovered, but its edges are skipped
+    private static final byte PRUNED = 3;
+
+    public final CompactGraph<V,E> GRAPH;
+
+    /**
+     * Construct a new traversal engine for the given graph.
+     */
+    public TraversalEngine(AbstractPropertyGraph<V,E> graph) {
+        this(new CompactGraph<>(graph));
+    }
+
+    /**
+     * Construct a new traversal engine for the given compact graph.
+     */
+    public TraversalEngine(CompactGraph<V,E> graph) {
+        GRAPH = graph;
+    }
+
+    private int indexOf(V v) {
+        int index = GRAPH.indexOf(v);
+        if (index < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return index;
+    }
+
+    /**
+     * Depth-first traversal from the given start vertex.
+     * Returns false if the traversal was terminated by the visitor; otherwise true.
+     */
+    public boolean depthFirst(V start, TraversalVisitor<V,E> visitor) {
+        return depthFirst(new int[] {indexOf(start)}, visitor);
+    }
+
+    /**
+     * Depth-first traversal of the whole graph; where each undiscovered vertex
+     * (in the iteration order of the graph) is the root of a new depth-first tree.
+     * Returns false if the traversal was terminated by the visitor; otherwise true.
+     */
+    public boolean depthFirstAll(TraversalVisitor<V,E> visitor) {
+        int[] roots = new int[GRAPH.vertexCount()];
+        for (int v = 0; v < roots.length; ++v)
+            roots[v] = v;
+        return depthFirst(roots, visitor);
+    }
+
+    private boolean depthFirst(int[] roots, TraversalVisitor<V,E> visitor) {
+        int n = GRAPH.vertexCount();
+        boolean directed = GRAPH.isDirected();
+        int[] outStart = GRAPH.outStart;
+        int[] outTarget = GRAPH.outTarget;
+        int[] outEdge = GRAPH.outEdge;
+        byte[] state = new byte[n];
+        int[] discovery = new int[n];
+        // the stack of vertices, with the adjacency cursor and entering edge of each
+        int[] stack = new int[n];
+        int[] cursor = new int[n];
+        int[] entry = new int[n];
+        int time = 0;
+        for (int root: roots) {
+            if (state[root] != WHITE)
+                continue;
+            state[root] = GRAY;
+            discovery[root] = time++;
+            stack[0] = root;
+            cursor[0] = outStart[root];
+            entry[0] = -1;
+            int top = 1;
+            Action action = visitor.discoverVertex(GRAPH.getVertex(root), 0);
+            if (action == Action.TERMINATE)
+                return false;
+            if (action == Action.SKIP_SUBTREE) {
+                state[root] = PRUNED;
+                cursor[0] = outStart[root + 1];
+            }
+            while (top > 0) {
+                int v = stack[top - 1];
+                if (cursor[top - 1] == outStart[v + 1]) {
+                    --top;
+                    if (state[v] == GRAY)
+                        state[v] = BLACK;
+                    if (visitor.finishVertex(GRAPH.getVertex(v)) == Action.TERMINATE)
+                        return false;
+                    continue;
+                }
+                int i = cursor[top - 1]++;
+                int w = outTarget[i];
+                int e = outEdge[i];
+                if (!directed && e == entry[top - 1])
+                    continue;
+                switch (state[w]) {
+                    case WHITE:
+                        action = visitor.treeEdge(GRAPH.getEdge(e));
+                        if (action == Action.TERMINATE)
+                            return false;
+                        if (action == Action.SKIP_SUBTREE)
+                            continue;
+                        state[w] = GRAY;
+                        discovery[w] = time++;
+                        stack[top] = w;
+                        cursor[top] = outStart[w];
+                        entry[top++] = e;
+                        action = visitor.discoverVertex(GRAPH.getVertex(w), top - 1);
+                        if (action == Action.TERMINATE)
+                            return false;
+                        if (action == Action.SKIP_SUBTREE) {
+                            state[w] = PRUNED;
+                            cursor[top - 1] = outStart[w + 1];
+                        }
+                        break;
+                    case GRAY:
+                        action = visitor.backEdge(GRAPH.getEdge(e));
+                        break;
+                    default:
+                        // for undirected graphs, this is a back edge already seen from the other end
+                        if (!directed && state[w] == BLACK)
+                            continue;
+                        if (discovery[v] < discovery[w])
+                            action = visitor.forwardEdge(GRAPH.getEdge(e));
+                        else
+                            action = visitor.crossEdge(GRAPH.getEdge(e));
+                }
+                if (action == Action.TERMINATE)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Breadth-first traversal from the given start vertex.
+     * Returns false if the traversal was terminated by the visitor; otherwise true.
+     */
+    public boolean breadthFirst(V start, TraversalVisitor<V,E> visitor) {
+        int root = indexOf(start);
+        int n = GRAPH.vertexCount();
+        boolean directed = GRAPH.isDirected();
+        int[] outStart = GRAPH.outStart;
+        int[] outTarget = GRAPH.outTarget;
+        int[] outEdge = GRAPH.outEdge;
+        byte[] state = new byte[n];
+        int[] entry = new int[n];
+        int[] queue = new int[n];
+        int head = 0, tail = 0;
+        state[root] = GRAY;
+        entry[root] = -1;
+        queue[tail++] = root;
+        Action action = visitor.discoverVertex(GRAPH.getVertex(root), 0);
+        if (action == Action.TERMINATE)
+            return false;
+        if (action == Action.SKIP_SUBTREE)
+            state[root] = PRUNED;
+        for (int level = 0; head < tail; ++level) {
+            int levelEnd = tail;
+            action = visitor.startLevel(level);
+            if (action == Action.TERMINATE)
+                return false;
+            boolean skipLevel = action == Action.SKIP_SUBTREE;
+            for (; head < levelEnd; ++head) {
+                int v = queue[head];
+                if (state[v] != PRUNED && !skipLevel) {
+                    for (int i = outStart[v]; i < outStart[v + 1]; ++i) {
+                        int w = outTarget[i];
+                        int e = outEdge[i];
+                        if (state[w] == WHITE) {
+                            action = visitor.treeEdge(GRAPH.getEdge(e));
+                            if (action == Action.TERMINATE)
+                                return false;
+                            if (action == Action.SKIP_SUBTREE)
+                                continue;
+                            state[w] = GRAY;
+                            entry[w] = e;
+                            queue[tail++] = w;
+                            action = visitor.discoverVertex(GRAPH.getVertex(w), level + 1);
+                            if (action == Action.SKIP_SUBTREE)
+                                state[w] = PRUNED;
+                        } else {
+                            // for undirected graphs, skip the parent edge and the edges seen from the other end
+                            if (!directed && (e == entry[v] || state[w] == BLACK))
+                                continue;
+                            action = visitor.nonTreeEdge(GRAPH.getEdge(e));
+                        }
+                        if (action == Action.TERMINATE)
+                            return false;
+                    }
+                }
+                if (state[v] == PRUNED || skipLevel)
+                    state[v] = PRUNED;
+                else
+                    state[v] = BLACK;
+                if (visitor.finishVertex(GRAPH.getVertex(v)) == Action.TERMINATE)
+                    return false;
+            }
+            if (visitor.finishLevel(level) == Action.TERMINATE)
+                return false;
+        }
+        return true;
+    }
+}
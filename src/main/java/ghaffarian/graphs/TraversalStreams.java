@@ -0,0 +1,531 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Graph traversals as lazily evaluated Java streams.
+ *
+ * The traversals over property graphs run directly on the adjacency maps of the graph,
+ * and only keep a queue (or stack) of vertices; vertices are visited on demand, so
+ * short-circuiting operations such as <tt>findFirst</tt> or <tt>anyMatch</tt> stop
+ * the traversal early. Vertex streams produce the vertices in the order of their discovery
+ * (starting with the start vertex), and edge streams produce the edge through which each
+ * vertex is discovered (i.e. the edges of the traversal tree) in the same order.
+ * For undirected graphs, edges are traversed in both directions.
+ *
+ * The traversals over compact graphs work on vertex and edge indices without allocating
+ * any objects per vertex. The breadth-first traversal over a compact graph is level-synchronous
+ * and splittable: a parallel stream processes the vertices of each frontier level in parallel,
+ * while keeping the (deterministic) encounter order of the sequential traversal.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class TraversalStreams {
+
+    // frontier segments smaller than this are not split further
+    private static final int MIN_SPLIT = 256;
+    // frontiers with fewer adjacent entries than this are expanded sequentially
+    private static final int PARALLEL_EXPAND_THRESHOLD = 1 << 14;
+    private static final int EXPAND_CHUNK = 1024;
+
+    /**
+     * Returns a stream of the vertices reachable from the given start vertex, in breadth-first order.
+     */
+    public static <V,E> Stream<V> breadthFirst(AbstractPropertyGraph<V,E> graph, V start) {
+        return StreamSupport.stream(new TraversalSpliterator<V,E,V>(graph, start, false, false), false);
+    }
+
+    /**
+     * Returns a stream of the edges of the breadth-first traversal tree from the given start vertex.
+     */
+    public static <V,E> Stream<Edge<V,E>> breadthFirstEdges(AbstractPropertyGraph<V,E> graph, V start) {
+        return StreamSupport.stream(new TraversalSpliterator<V,E,Edge<V,E>>(graph, start, false, true), false);
+    }
+
+    /**
+     * Returns a stream of the vertices reachable from the given start vertex, in depth-first (pre-)order.
+     */
+    public static <V,E> Stream<V> depthFirst(AbstractPropertyGraph<V,E> graph, V start) {
+        return StreamSupport.stream(new TraversalSpliterator<V,E,V>(graph, start, true, false), false);
+    }
+
+    /**
+     * Returns a stream of the edges of the depth-first traversal tree from the given start vertex.
+     */
+    public static <V,E> Stream<Edge<V,E>> depthFirstEdges(AbstractPropertyGraph<V,E> graph, V start) {
+        return StreamSupport.stream(new TraversalSpliterator<V,E,Edge<V,E>>(graph, start, true, true), false);
+    }
+
+    /**
+     * Returns a stream of the vertices reachable from the given start vertex of the compact graph,
+     * in breadth-first order; which can be processed in parallel.
+     */
+    public static <V,E> Stream<V> breadthFirst(CompactGraph<V,E> graph, V start, boolean parallel) {
+        return breadthFirstIndices(graph, indexOf(graph, start), parallel).mapToObj(graph::getVertex);
+    }
+
+    /**
+     * Returns a stream of the edges of the breadth-first traversal tree from the given start vertex
+     * of the compact graph; which can be processed in parallel.
+     */
+    public static <V,E> Stream<Edge<V,E>> breadthFirstEdges(CompactGraph<V,E> graph, V start, boolean parallel) {
+        return breadthFirstEdgeIndices(graph, indexOf(graph, start), parallel).mapToObj(graph::getEdge);
+    }
+
+    /**
+     * Returns a stream of the indices of vertices reachable from the given start vertex index,
+     * in breadth-first order.
+     */
+    public static IntStream breadthFirstIndices(CompactGraph<?,?> graph, int start, boolean parallel) {
+        checkIndex(graph, start);
+        return StreamSupport.intStream(new LevelSpliterator(graph, start, false, parallel), parallel);
+    }
+
+    /**
+     * Returns a stream of the indices of the edges of the breadth-first traversal tree
+     * from the given start vertex index.
+     */
+    public static IntStream breadthFirstEdgeIndices(CompactGraph<?,?> graph, int start, boolean parallel) {
+        checkIndex(graph, start);
+        return StreamSupport.intStream(new LevelSpliterator(graph, start, true, parallel), parallel);
+    }
+
+    /**
+     * Returns a stream of the indices of vertices reachable from the given start vertex index,
+     * in depth-first (pre-)order.
+     */
+    public static IntStream depthFirstIndices(CompactGraph<?,?> graph, int start) {
+        checkIndex(graph, start);
+        return StreamSupport.intStream(new DepthFirstSpliterator(graph, start, false), false);
+    }
+
+    /**
+     * Returns a stream of the indices of the edges of the depth-first traversal tree
+     * from the given start vertex index.
+     */
+    public static IntStream depthFirstEdgeIndices(CompactGraph<?,?> graph, int start) {
+        checkIndex(graph, start);
+        return StreamSupport.intStream(new DepthFirstSpliterator(graph, start, true), false);
+    }
+
+    private static <V> int indexOf(CompactGraph<V,?> graph, V v) {
+        int index = graph.indexOf(v);
+        if (index < 0)
+            throw new IllegalArgumentException("No such vertex in this graph!");
+        return index;
+    }
+
+    private static void checkIndex(CompactGraph<?,?> graph, int v) {
+        if (v < 0 || v >= graph.vertexCount())
+            throw new IllegalArgumentException("No such vertex in this graph!");
+    }
+
+    /**
+     * Lazy breadth-first or depth-first traversal over the adjacency maps of a property graph;
+     * producing either the discovered vertices, or the discovering edges.
+     */
+    private static class TraversalSpliterator<V,E,T> implements Spliterator<T> {
+
+        private final AbstractPropertyGraph<V,E> graph;
+        private final V start;
+        private final boolean depthFirst;
+        private final boolean edges;
+        private final Set<V> visited;
+        // vertices to expand (breadth-first), or the path of vertices being expanded (depth-first)
+        private final Deque<Frame<V,E>> frames;
+        private Frame<V,E> current;
+        private boolean started;
+
+        TraversalSpliterator(AbstractPropertyGraph<V,E> graph, V start, boolean depthFirst, boolean edges) {
+            if (!graph.containsVertex(start))
+                throw new IllegalArgumentException("No such vertex in this graph!");
+            this.graph = graph;
+            this.start = start;
+            this.depthFirst = depthFirst;
+            this.edges = edges;
+            visited = graph.newVertexSet(Math.max(16, (int) (graph.vertexCount() / 0.75f) + 1));
+            frames = new ArrayDeque<>();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (!started) {
+                started = true;
+                visited.add(start);
+                current = new Frame<>(graph, start);
+                if (depthFirst)
+                    frames.push(current);
+                if (!edges) {
+                    action.accept((T) start);
+                    return true;
+                }
+            }
+            while (true) {
+                if (depthFirst)
+                    current = frames.peek();
+                else if (current == null)
+                    current = frames.poll();
+                if (current == null)
+                    return false;
+                if (!current.advance()) {
+                    if (depthFirst)
+                        frames.pop();
+                    else
+                        current = null;
+                    continue;
+                }
+                V next = current.neighbor;
+                if (!visited.add(next))
+                    continue;
+                Edge<V,E> edge = current.edge;
+                if (depthFirst)
+                    frames.push(new Frame<>(graph, next));
+                else
+                    frames.add(new Frame<>(graph, next));
+                action.accept(edges ? (T) edge : (T) next);
+                return true;
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return graph.vertexCount() - visited.size() + (edges || started ? 0 : 1);
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL;
+        }
+    }
+
+    /**
+     * Cursor over the incident edges of a vertex; for undirected graphs,
+     * outgoing edges are followed by incoming edges.
+     */
+    private static class Frame<V,E> {
+
+        private final Iterator<Edge<V,E>> out;
+        private final Iterator<Edge<V,E>> in;
+        Edge<V,E> edge;
+        V neighbor;
+
+        Frame(AbstractPropertyGraph<V,E> graph, V vertex) {
+            out = graph.outEdges.get(vertex).iterator();
+            in = graph.isDirected() ? Collections.emptyIterator() : graph.inEdges.get(vertex).iterator();
+        }
+
+        boolean advance() {
+            if (out.hasNext()) {
+                edge = out.next();
+                neighbor = edge.target;
+                return true;
+            }
+            if (in.hasNext()) {
+                edge = in.next();
+                neighbor = edge.source;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Level-synchronous breadth-first traversal over a compact graph.
+     *
+     * The spliterator which owns the traversal state emits its part of the current frontier,
+     * and computes the next frontier when it is exhausted. Splitting hands off either the first
+     * half of the remaining frontier, or the whole remaining level, as a prefix spliterator
+     * which only emits the given range; so the encounter order is the breadth-first order.
+     * The next frontier is computed from the whole current frontier, in frontier order;
+     * for large frontiers in parallel, where each new vertex is claimed by the first frontier
+     * vertex (in frontier order) which reaches it, so the result is the same as a sequential expansion.
+     */
+    private static class LevelSpliterator implements Spliterator.OfInt {
+
+        private final CompactGraph<?,?> graph;
+        private final boolean edges;
+        private final Expander expander;
+        private int[] frontier;
+        private int[] treeEdges;
+        private int pos;
+        private int end;
+
+        LevelSpliterator(CompactGraph<?,?> graph, int start, boolean edges, boolean parallel) {
+            this.graph = graph;
+            this.edges = edges;
+            expander = new Expander(graph, parallel);
+            expander.visited[start] = true;
+            expander.visitedCount = 1;
+            frontier = new int[] {start};
+            treeEdges = new int[] {-1};
+            // the start vertex has no discovering edge
+            pos = edges ? 1 : 0;
+            end = 1;
+        }
+
+        private LevelSpliterator(LevelSpliterator owner, int pos, int end) {
+            graph = owner.graph;
+            edges = owner.edges;
+            expander = null;
+            frontier = owner.frontier;
+            treeEdges = owner.treeEdges;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        private boolean nextLevel() {
+            if (expander == null)
+                return false;
+            int[][] next = expander.expand(frontier);
+            if (next[0].length == 0)
+                return false;
+            frontier = next[0];
+            treeEdges = next[1];
+            pos = 0;
+            end = frontier.length;
+            return true;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (pos >= end && !nextLevel())
+                return false;
+            int i = pos++;
+            action.accept(edges ? treeEdges[i] : frontier[i]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            do {
+                int[] values = edges ? treeEdges : frontier;
+                for (; pos < end; ++pos)
+                    action.accept(values[pos]);
+            } while (nextLevel());
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            if (expander == null) {
+                if (end - pos < 2 * MIN_SPLIT)
+                    return null;
+                int mid = pos + (end - pos) / 2;
+                LevelSpliterator prefix = new LevelSpliterator(this, pos, mid);
+                pos = mid;
+                return prefix;
+            }
+            if (pos >= end && !nextLevel())
+                return null;
+            int remaining = end - pos;
+            int split = remaining >= 2 * MIN_SPLIT ? pos + remaining / 2 : end;
+            LevelSpliterator prefix = new LevelSpliterator(this, pos, split);
+            pos = split;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            if (expander == null)
+                return end - pos;
+            return end - pos + graph.vertexCount() - expander.visitedCount;
+        }
+
+        @Override
+        public int characteristics() {
+            int common = ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+            return expander == null ? common | SIZED | SUBSIZED : common;
+        }
+    }
+
+    /**
+     * Computes the next frontier of a breadth-first traversal.
+     */
+    private static class Expander {
+
+        final CompactGraph<?,?> graph;
+        final boolean parallel;
+        final boolean[] visited;
+        int visitedCount;
+        // frontier position of the claiming vertex of each vertex (in parallel expansion)
+        private AtomicIntegerArray claim;
+
+        Expander(CompactGraph<?,?> graph, boolean parallel) {
+            this.graph = graph;
+            this.parallel = parallel;
+            visited = new boolean[graph.vertexCount()];
+        }
+
+        /**
+         * Returns the next frontier as {vertices, discovering-edges}.
+         */
+        int[][] expand(int[] frontier) {
+            long work = 0;
+            for (int v: frontier)
+                work += graph.outStart[v + 1] - graph.outStart[v];
+            int[][] next = parallel && work >= PARALLEL_EXPAND_THRESHOLD
+                    ? expandParallel(frontier) : expandRange(frontier, 0, frontier.length, null);
+            visitedCount += next[0].length;
+            return next;
+        }
+
+        /**
+         * Expands the given range of the frontier, in order; in parallel expansion,
+         * only the vertices claimed by this range are taken.
+         */
+        private int[][] expandRange(int[] frontier, int from, int to, AtomicIntegerArray claim) {
+            int[] vertices = new int[16];
+            int[] edges = new int[16];
+            int size = 0;
+            for (int p = from; p < to; ++p) {
+                int v = frontier[p];
+                for (int i = graph.outStart[v]; i < graph.outStart[v + 1]; ++i) {
+                    int w = graph.outTarget[i];
+                    if (visited[w] || (claim != null && claim.get(w) != p))
+                        continue;
+                    visited[w] = true;
+                    if (size == vertices.length) {
+                        vertices = Arrays.copyOf(vertices, 2 * size);
+                        edges = Arrays.copyOf(edges, 2 * size);
+                    }
+                    vertices[size] = w;
+                    edges[size++] = graph.outEdge[i];
+                }
+            }
+            return new int[][] {Arrays.copyOf(vertices, size), Arrays.copyOf(edges, size)};
+        }
+
+        private int[][] expandParallel(int[] frontier) {
+            if (claim == null) {
+                claim = new AtomicIntegerArray(visited.length);
+                for (int v = 0; v < visited.length; ++v)
+                    claim.set(v, Integer.MAX_VALUE);
+            }
+            int chunks = (frontier.length + EXPAND_CHUNK - 1) / EXPAND_CHUNK;
+            // each unvisited neighbor is claimed by the lowest frontier position reaching it
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int to = Math.min(frontier.length, (c + 1) * EXPAND_CHUNK);
+                for (int p = c * EXPAND_CHUNK; p < to; ++p) {
+                    int v = frontier[p];
+                    for (int i = graph.outStart[v]; i < graph.outStart[v + 1]; ++i) {
+                        int w = graph.outTarget[i];
+                        if (visited[w])
+                            continue;
+                        int current = claim.get(w);
+                        while (p < current && !claim.compareAndSet(w, current, p))
+                            current = claim.get(w);
+                    }
+                }
+            });
+            int[][][] parts = new int[chunks][][];
+            IntStream.range(0, chunks).parallel().forEach(c ->
+                    parts[c] = expandRange(frontier, c * EXPAND_CHUNK,
+                                           Math.min(frontier.length, (c + 1) * EXPAND_CHUNK), claim));
+            int size = 0;
+            for (int[][] part: parts)
+                size += part[0].length;
+            int[] vertices = new int[size];
+            int[] edges = new int[size];
+            int offset = 0;
+            for (int[][] part: parts) {
+                System.arraycopy(part[0], 0, vertices, offset, part[0].length);
+                System.arraycopy(part[1], 0, edges, offset, part[1].length);
+                offset += part[0].length;
+            }
+            for (int w: vertices)
+                claim.set(w, Integer.MAX_VALUE);
+            return new int[][] {vertices, edges};
+        }
+    }
+
+    /**
+     * Iterative depth-first traversal over a compact graph,
+     * using primitive stacks of vertices and adjacency cursors.
+     */
+    private static class DepthFirstSpliterator implements Spliterator.OfInt {
+
+        private final CompactGraph<?,?> graph;
+        private final boolean edges;
+        private final boolean[] visited;
+        private final int[] stack;
+        private final int[] cursor;
+        private int top;
+        private int visitedCount;
+        private boolean started;
+
+        DepthFirstSpliterator(CompactGraph<?,?> graph, int start, boolean edges) {
+            this.graph = graph;
+            this.edges = edges;
+            int n = graph.vertexCount();
+            visited = new boolean[n];
+            stack = new int[n];
+            cursor = new int[n];
+            visited[start] = true;
+            visitedCount = 1;
+            stack[0] = start;
+            cursor[0] = graph.outStart[start];
+            top = 1;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (!started) {
+                started = true;
+                if (!edges) {
+                    action.accept(stack[0]);
+                    return true;
+                }
+            }
+            while (top > 0) {
+                int v = stack[top - 1];
+                if (cursor[top - 1] == graph.outStart[v + 1]) {
+                    --top;
+                    continue;
+                }
+                int i = cursor[top - 1]++;
+                int w = graph.outTarget[i];
+                if (visited[w])
+                    continue;
+                visited[w] = true;
+                ++visitedCount;
+                stack[top] = w;
+                cursor[top++] = graph.outStart[w];
+                action.accept(edges ? graph.outEdge[i] : w);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return graph.vertexCount() - visitedCount + (edges || started ? 0 : 1);
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+        }
+    }
+}
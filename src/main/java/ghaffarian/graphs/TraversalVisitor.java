@@ -0,0 +1,102 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+/**
+ * Visitor of the events of a graph traversal (see {@link TraversalEngine}).
+ *
+ * Each callback returns an action which controls the rest of the traversal;
+ * all callbacks are optional, and by default continue the traversal.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public interface TraversalVisitor<V,E> {
+
+    /**
+     * Actions returned by the callbacks of a traversal visitor.
+     */
+    public enum Action {
+        /**
+         * Continue the traversal normally.
+         */
+        CONTINUE,
+        /**
+         * When returned for a discovered vertex, do not follow the edges of the vertex;
+         * when returned for a tree edge, do not follow the edge (its target is not discovered through it).
+         * For other events, this is the same as CONTINUE.
+         */
+        SKIP_SUBTREE,
+        /**
+         * Terminate the whole traversal immediately.
+         */
+        TERMINATE
+    }
+
+    /**
+     * Called when a vertex is discovered, at the given depth
+     * (i.e. the number of tree edges from the root of the traversal).
+     */
+    public default Action discoverVertex(V v, int depth) {
+        return Action.CONTINUE;
+    }
+
+    /**
+     * Called when all edges of a vertex are examined (or skipped).
+     */
+    public default Action finishVertex(V v) {
+        return Action.CONTINUE;
+    }
+
+    /**
+     * Called for an edge which discovers a new vertex.
+     */
+    public default Action treeEdge(Edge<V,E> e) {
+        return Action.CONTINUE;
+    }
+
+    /**
+     * Called (in depth-first traversals) for an edge to an ancestor of the current vertex,
+     * including self-loops; i.e. an edge which closes a cycle.
+     */
+    public default Action backEdge(Edge<V,E> e) {
+        return Action.CONTINUE;
+    }
+
+    /**
+     * Called (in depth-first traversals of directed graphs) for an edge to an already finished
+     * descendant of the current vertex. In undirected graphs, this only happens for descendants
+     * whose subtree was skipped.
+     */
+    public default Action forwardEdge(Edge<V,E> e) {
+        return Action.CONTINUE;
+    }
+
+    /**
+     * Called (in depth-first traversals of directed graphs) for an edge to an already finished
+     * vertex which is not a descendant of the current vertex.
+     */
+    public default Action crossEdge(Edge<V,E> e) {
+        return Action.CONTINUE;
+    }
+
+    /**
+     * Called (in breadth-first traversals) for an edge to an already discovered vertex.
+     */
+    public default Action nonTreeEdge(Edge<V,E> e) {
+        return Action.CONTINUE;
+    }
+
+    /**
+     * Called (in breadth-first traversals) before the vertices of the given level are processed.
+     * Returning SKIP_SUBTREE skips the edges of all vertices of the level.
+     */
+    public default Action startLevel(int level) {
+        return Action.CONTINUE;
+    }
+
+    /**
+     * Called (in breadth-first traversals) after all vertices of the given level are processed.
+     */
+    public default Action finishLevel(int level) {
+        return Action.CONTINUE;
+    }
+}
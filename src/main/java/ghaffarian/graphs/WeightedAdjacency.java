@@ -0,0 +1,186 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.util.Arrays;
+
+/**
+ * A symmetric, weighted adjacency structure in CSR form, used by community detection.
+ *
+ * Edge directions are ignored, and parallel edges between two vertices are merged by
+ * summing their weights. Each self-loop is kept as a single entry, whose weight is counted
+ * twice (as it contributes to the degree of its vertex from both of its ends); so the weighted
+ * degree of each vertex is the sum of the weights in its adjacency list, and the sum of all
+ * degrees is twice the total edge weight.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+class WeightedAdjacency {
+
+    final int[] start;
+    final int[] adj;
+    final double[] weight;
+    final double[] degree;
+    final double totalWeight;
+
+    WeightedAdjacency(int[] start, int[] adj, double[] weight) {
+        this.start = start;
+        this.adj = adj;
+        this.weight = weight;
+        int n = start.length - 1;
+        degree = new double[n];
+        double sum = 0;
+        for (int v = 0; v < n; ++v) {
+            for (int i = start[v]; i < start[v + 1]; ++i)
+                degree[v] += weight[i];
+            sum += degree[v];
+        }
+        totalWeight = sum;
+    }
+
+    /**
+     * Build the weighted adjacency of the given compact graph.
+     * If the given edge-weight function is null, all edges have unit weights.
+     *
+     * @throws IllegalArgumentException if any edge weight is negative
+     */
+    static <V,E> WeightedAdjacency of(CompactGraph<V,E> graph, EdgeWeight<V,E> weights) {
+        int n = graph.vertexCount();
+        int m = graph.edgeCount();
+        double[] edgeWeight = new double[m];
+        for (int e = 0; e < m; ++e) {
+            edgeWeight[e] = weights == null ? 1.0 : weights.weightOf(graph.getEdge(e));
+            if (edgeWeight[e] < 0 || Double.isNaN(edgeWeight[e]))
+                throw new IllegalArgumentException("Edge weights must be non-negative!");
+        }
+        Accumulator acc = new Accumulator(n);
+        int[] start = new int[n + 1];
+        // upper bound on the number of entries, before merging
+        int[] adj = new int[graph.outTarget.length + (graph.isDirected() ? graph.inSource.length : 0)];
+        double[] weight = new double[adj.length];
+        int pos = 0;
+        for (int v = 0; v < n; ++v) {
+            for (int i = graph.outStart[v]; i < graph.outStart[v + 1]; ++i) {
+                int w = graph.outTarget[i];
+                // undirected self-loops appear once in the adjacency
+                double x = edgeWeight[graph.outEdge[i]];
+                acc.add(w, w == v && !graph.isDirected() ? 2 * x : x);
+            }
+            if (graph.isDirected()) {
+                for (int i = graph.inStart[v]; i < graph.inStart[v + 1]; ++i)
+                    acc.add(graph.inSource[i], edgeWeight[graph.inEdge[i]]);
+            }
+            pos = acc.drain(adj, weight, pos);
+            start[v + 1] = pos;
+        }
+        return new WeightedAdjacency(start, Arrays.copyOf(adj, pos), Arrays.copyOf(weight, pos));
+    }
+
+    int vertexCount() {
+        return degree.length;
+    }
+
+    /**
+     * Build the aggregated graph where each community of vertices is merged into a single vertex.
+     * Community ids must be dense in [0, count). Edges inside a community become a self-loop.
+     */
+    WeightedAdjacency aggregate(int[] community, int count) {
+        int n = vertexCount();
+        // group vertices by community, using a counting sort
+        int[] memberStart = new int[count + 1];
+        for (int v = 0; v < n; ++v)
+            ++memberStart[community[v] + 1];
+        for (int c = 0; c < count; ++c)
+            memberStart[c + 1] += memberStart[c];
+        int[] members = new int[n];
+        int[] next = Arrays.copyOf(memberStart, count);
+        for (int v = 0; v < n; ++v)
+            members[next[community[v]]++] = v;
+        Accumulator acc = new Accumulator(count);
+        int[] newStart = new int[count + 1];
+        int[] newAdj = new int[adj.length];
+        double[] newWeight = new double[adj.length];
+        int pos = 0;
+        for (int c = 0; c < count; ++c) {
+            for (int k = memberStart[c]; k < memberStart[c + 1]; ++k) {
+                int v = members[k];
+                for (int i = start[v]; i < start[v + 1]; ++i)
+                    acc.add(community[adj[i]], weight[i]);
+            }
+            pos = acc.drain(newAdj, newWeight, pos);
+            newStart[c + 1] = pos;
+        }
+        return new WeightedAdjacency(newStart, Arrays.copyOf(newAdj, pos), Arrays.copyOf(newWeight, pos));
+    }
+
+    /**
+     * Returns the modularity of the given partitioning of the vertices.
+     * Community ids must be in [0, count).
+     */
+    double modularity(int[] community, int count) {
+        if (totalWeight == 0)
+            return 0;
+        double[] inner = new double[count];
+        double[] total = new double[count];
+        for (int v = 0; v < vertexCount(); ++v) {
+            int c = community[v];
+            total[c] += degree[v];
+            for (int i = start[v]; i < start[v + 1]; ++i)
+                if (community[adj[i]] == c)
+                    inner[c] += weight[i];
+        }
+        double q = 0;
+        for (int c = 0; c < count; ++c) {
+            double fraction = total[c] / totalWeight;
+            q += inner[c] / totalWeight - fraction * fraction;
+        }
+        return q;
+    }
+
+    /**
+     * A sparse accumulator of weights per key, over a dense array;
+     * resetting is proportional to the number of touched keys.
+     */
+    static class Accumulator {
+
+        final double[] sum;
+        final boolean[] seen;
+        final int[] keys;
+        int size;
+
+        Accumulator(int capacity) {
+            sum = new double[capacity];
+            seen = new boolean[capacity];
+            keys = new int[capacity];
+            size = 0;
+        }
+
+        void add(int key, double value) {
+            if (!seen[key]) {
+                seen[key] = true;
+                keys[size++] = key;
+            }
+            sum[key] += value;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; ++i) {
+                sum[keys[i]] = 0;
+                seen[keys[i]] = false;
+            }
+            size = 0;
+        }
+
+        /**
+         * Writes the accumulated (key, sum) pairs into the given arrays from the given position,
+         * clears this accumulator, and returns the position after the last written pair.
+         */
+        int drain(int[] outKeys, double[] outSums, int pos) {
+            for (int i = 0; i < size; ++i) {
+                outKeys[pos] = keys[i];
+                outSums[pos++] = sum[keys[i]];
+            }
+            clear();
+            return pos;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs.utils;
+
+import java.util.Arrays;
+
+/**
+ * The Hungarian algorithm for the linear sum assignment problem;
+ * i.e. assigning each row of a square cost matrix to a distinct column, with minimum total cost.
+ *
+ * This is the O(n^3) shortest-augmenting-path variant with row and column potentials.
+ * Costs must be finite; forbidden assignments can be modeled by large costs.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class Hungarian {
+
+    /**
+     * Solves the assignment problem for the given square cost matrix;
+     * returns the assigned column of each row.
+     */
+    public static int[] solve(double[][] cost) {
+        int n = cost.length;
+        // 1-based potentials and matching, as in the classical formulation
+        double[] u = new double[n + 1];
+        double[] v = new double[n + 1];
+        int[] match = new int[n + 1];
+        int[] way = new int[n + 1];
+        double[] minv = new double[n + 1];
+        boolean[] used = new boolean[n + 1];
+        for (int i = 1; i <= n; ++i) {
+            if (cost[i - 1].length != n)
+                throw new IllegalArgumentException("Cost matrix must be square!");
+            match[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, Double.POSITIVE_INFINITY);
+            Arrays.fill(used, false);
+            do {
+                used[j0] = true;
+                int i0 = match[j0], j1 = 0;
+                double delta = Double.POSITIVE_INFINITY;
+                for (int j = 1; j <= n; ++j) {
+                    if (!used[j]) {
+                        double cur = cost[i0 - 1][j - 1] - u[i0] - v[j];
+                        if (cur < minv[j]) {
+                            minv[j] = cur;
+                            way[j] = j0;
+                        }
+                        if (minv[j] < delta) {
+                            delta = minv[j];
+                            j1 = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= n; ++j) {
+                    if (used[j]) {
+                        u[match[j]] += delta;
+                        v[j] -= delta;
+                    } else
+                        minv[j] -= delta;
+                }
+                j0 = j1;
+            } while (match[j0] != 0);
+            do {
+                int j1 = way[j0];
+                match[j0] = match[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+        int[] assignment = new int[n];
+        for (int j = 1; j <= n; ++j)
+            assignment[match[j] - 1] = j - 1;
+        return assignment;
+    }
+
+    /**
+     * Returns the minimum total cost of an assignment for the given square cost matrix.
+     */
+    public static double minimumCost(double[][] cost) {
+        int[] assignment = solve(cost);
+        double total = 0;
+        for (int i = 0; i < assignment.length; ++i)
+            total += cost[i][assignment[i]];
+        return total;
+    }
+}
@@ -0,0 +1,109 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs.utils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sorting utilities over primitive arrays.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class SortUtils {
+
+    // ranges up to this size are sorted by insertion sort
+    private static final int INSERTION_THRESHOLD = 32;
+    // ranges up to this size are not split into parallel tasks
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 13;
+
+    /**
+     * Sorts the given keys in ascending order, and permutes the given values along with them;
+     * i.e. values[i] stays paired with keys[i]. The sort is stable, so values with equal keys
+     * keep their relative order. This is a merge sort, which is split into fork-join tasks
+     * on the common pool in parallel mode. Keys must not be NaN.
+     */
+    public static void sortByKeys(double[] keys, int[] values, boolean parallel) {
+        if (keys.length != values.length)
+            throw new IllegalArgumentException("Keys and values must have the same length!");
+        double[] keyBuffer = new double[keys.length];
+        int[] valueBuffer = new int[values.length];
+        MergeSortTask task = new MergeSortTask(keys, values, keyBuffer, valueBuffer, 0, keys.length, parallel);
+        if (parallel && keys.length > SEQUENTIAL_THRESHOLD)
+            ForkJoinPool.commonPool().invoke(task);
+        else
+            task.compute();
+    }
+
+    /**
+     * Sorts the range [from, to) of the given arrays, using the buffers of the same range.
+     */
+    private static class MergeSortTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[] keys;
+        private final int[] values;
+        private final double[] keyBuffer;
+        private final int[] valueBuffer;
+        private final int from, to;
+        private final boolean parallel;
+
+        MergeSortTask(double[] keys, int[] values, double[] keyBuffer, int[] valueBuffer,
+                      int from, int to, boolean parallel) {
+            this.keys = keys;
+            this.values = values;
+            this.keyBuffer = keyBuffer;
+            this.valueBuffer = valueBuffer;
+            this.from = from;
+            this.to = to;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= INSERTION_THRESHOLD) {
+                insertionSort();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            MergeSortTask left = new MergeSortTask(keys, values, keyBuffer, valueBuffer, from, mid, parallel);
+            MergeSortTask right = new MergeSortTask(keys, values, keyBuffer, valueBuffer, mid, to, parallel);
+            if (parallel && to - from > SEQUENTIAL_THRESHOLD)
+                invokeAll(left, right);
+            else {
+                left.compute();
+                right.compute();
+            }
+            // already in order
+            if (keys[mid - 1] <= keys[mid])
+                return;
+            System.arraycopy(keys, from, keyBuffer, from, to - from);
+            System.arraycopy(values, from, valueBuffer, from, to - from);
+            int i = from, j = mid;
+            for (int k = from; k < to; ++k) {
+                if (j == to || i < mid && keyBuffer[i] <= keyBuffer[j]) {
+                    keys[k] = keyBuffer[i];
+                    values[k] = valueBuffer[i++];
+                } else {
+                    keys[k] = keyBuffer[j];
+                    values[k] = valueBuffer[j++];
+                }
+            }
+        }
+
+        private void insertionSort() {
+            for (int i = from + 1; i < to; ++i) {
+                double key = keys[i];
+                int value = values[i];
+                int j = i - 1;
+                while (j >= from && keys[j] > key) {
+                    keys[j + 1] = keys[j];
+                    values[j + 1] = values[j];
+                    --j;
+                }
+                keys[j + 1] = key;
+                values[j + 1] = value;
+            }
+        }
+    }
+}
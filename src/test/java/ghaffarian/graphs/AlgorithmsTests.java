@@ -0,0 +1,1103 @@
+/*** In The Name of Allah ***/
+package ghaffarian.graphs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Testing graph algorithms.
+ *
+ * @author Seyed Mohammad Ghaffarian
+ */
+public class AlgorithmsTests {
+
+    private static final String ENTRY = "4:  void main(String[] args)";
+    private static final String IF = "7:  if (i > 0)";
+    private static final String THEN = "8:  System.out.println('Positive')";
+    private static final String THEN_2 = "9:  i *= 2";
+    private static final String ELSE = "11:  System.out.println('Non-positive')";
+    private static final String ENDIF = "endif";
+    private static final String EXIT = "14:  System.out.println('End')";
+
+    @Test
+    public void dominatorTreeTest() throws IOException {
+        Digraph<String, String> cfg = (Digraph<String, String>) GraphReader.readDOT("src/test/resources/CFG.dot");
+        DominatorTree<String, String> dom = new DominatorTree<>(cfg, ENTRY);
+        // immediate dominators
+        assertNull(dom.getImmediateDominator(ENTRY));
+        assertEquals(IF, dom.getImmediateDominator(THEN));
+        assertEquals(IF, dom.getImmediateDominator(ELSE));
+        assertEquals(IF, dom.getImmediateDominator(ENDIF));
+        assertEquals(ENDIF, dom.getImmediateDominator(EXIT));
+        // dominance queries
+        assertTrue(dom.dominates(ENTRY, EXIT));
+        assertTrue(dom.dominates(IF, IF));
+        assertFalse(dom.dominates(THEN, ENDIF));
+        // dominance frontiers
+        assertEquals(Arrays.asList(ENDIF), dom.getDominanceFrontier(THEN));
+        assertEquals(Arrays.asList(ENDIF), dom.getDominanceFrontier(ELSE));
+        assertTrue(dom.getDominanceFrontier(IF).isEmpty());
+        // post-dominators
+        DominatorTree<String, String> pdom = DominatorTree.postDominators(cfg, EXIT);
+        assertEquals(ENDIF, pdom.getImmediateDominator(IF));
+        assertEquals(THEN_2, pdom.getImmediateDominator(THEN));
+        assertTrue(pdom.dominates(ENDIF, ENTRY));
+        assertFalse(pdom.dominates(THEN, IF));
+    }
+    
+    @Test
+    public void stronglyConnectedComponentsTest() {
+        Digraph<String, String> graph = new Digraph<>();
+        for (String v: new String[] {"A", "B", "C", "D", "E", "F"})
+            graph.addVertex(v);
+        // two cycles {A, B, C} and {D, E}, connected by C -> D; and a sink F
+        graph.addEdge("A", "B");
+        graph.addEdge("B", "C");
+        graph.addEdge("C", "A");
+        graph.addEdge("C", "D");
+        graph.addEdge("D", "E");
+        graph.addEdge("E", "D");
+        graph.addEdge("E", "F");
+        for (boolean parallel: new boolean[] {false, true}) {
+            StronglyConnectedComponents<String, String> scc = 
+                    new StronglyConnectedComponents<>(new CompactGraph<>(graph), parallel);
+            assertEquals(3, scc.getComponentCount());
+            assertEquals(scc.getComponentOf("A"), scc.getComponentOf("C"));
+            assertEquals(scc.getComponentOf("D"), scc.getComponentOf("E"));
+            assertNotEquals(scc.getComponentOf("A"), scc.getComponentOf("D"));
+            assertEquals(3, scc.getComponentSize(scc.getComponentOf("B")));
+            assertEquals(2, scc.getCondensation().edgeCount());
+        }
+        // sequential component ids are topologically ordered
+        StronglyConnectedComponents<String, String> scc = new StronglyConnectedComponents<>(graph);
+        assertTrue(scc.getComponentOf("A") < scc.getComponentOf("D"));
+        assertTrue(scc.getComponentOf("D") < scc.getComponentOf("F"));
+        // a random graph large enough for the parallel forward-backward decomposition
+        Random rand = new Random(27);
+        int n = 20000, m = 30000;
+        int[] sources = new int[m], targets = new int[m];
+        for (int e = 0; e < m; ++e) {
+            sources[e] = rand.nextInt(n);
+            targets[e] = rand.nextInt(n);
+        }
+        CompactGraph<Integer, Void> random = new CompactGraph<>(n, sources, targets, true);
+        int count = assertSameComponents(random);
+        assertTrue(count > 1 && count < n);
+        // a long chain of 2-cycles, where each forward-backward split removes a single component
+        int chain = 50000;
+        sources = new int[chain / 2 * 3 - 1];
+        targets = new int[sources.length];
+        int edges = 0;
+        for (int v = 0; v < chain; v += 2) {
+            sources[edges] = v;
+            targets[edges++] = v + 1;
+            sources[edges] = v + 1;
+            targets[edges++] = v;
+            if (v + 2 < chain) {
+                sources[edges] = v + 1;
+                targets[edges++] = v + 2;
+            }
+        }
+        assertEquals(chain / 2, assertSameComponents(new CompactGraph<>(chain, sources, targets, true)));
+    }
+    
+    @Test
+    public void connectedComponentsTest() {
+        UndiGraph<String, String> graph = new UndiGraph<>();
+        assertTrue(graph.isConnected());
+        for (String v: new String[] {"A", "B", "C", "D", "E"})
+            graph.addVertex(v);
+        graph.addEdge("A", "B");
+        graph.addEdge("B", "C");
+        graph.addEdge("C", "A");
+        graph.addEdge("D", "E");
+        assertFalse(graph.isConnected());
+        for (boolean parallel: new boolean[] {false, true}) {
+            ConnectedComponents<String, String> cc = 
+                    new ConnectedComponents<>(new CompactGraph<>(graph), parallel);
+            assertEquals(2, cc.getComponentCount());
+            assertEquals(0, cc.getComponentOf("C"));
+            assertEquals(1, cc.getComponentOf("E"));
+            assertEquals(3, cc.getComponentSize(0));
+            assertEquals(2, cc.getComponentSize(1));
+        }
+        graph.addEdge("C", "D");
+        assertTrue(graph.isConnected());
+        assertTrue(new ConnectedComponents<>(graph).isConnected());
+    }
+    
+    @Test
+    public void topologicalSortTest() throws Exception {
+        Digraph<String, String> graph = new Digraph<>();
+        for (String v: new String[] {"compile", "test", "package", "docs", "deploy"})
+            graph.addVertex(v);
+        graph.addEdge("compile", "test");
+        graph.addEdge("compile", "docs");
+        graph.addEdge("test", "package");
+        graph.addEdge("package", "deploy");
+        graph.addEdge("docs", "deploy");
+        TopologicalSort<String, String> sort = new TopologicalSort<>(graph);
+        assertTrue(sort.isAcyclic());
+        List<String> order = sort.getSortedVertices();
+        assertEquals(5, order.size());
+        assertTrue(order.indexOf("compile") < order.indexOf("test"));
+        assertTrue(order.indexOf("package") < order.indexOf("deploy"));
+        assertTrue(order.indexOf("docs") < order.indexOf("deploy"));
+        // levels
+        assertEquals(4, sort.getLevelCount());
+        assertEquals(Arrays.asList("compile"), sort.getLevels().get(0));
+        assertEquals(2, sort.getLevels().get(1).size());
+        // execution respecting dependencies
+        List<String> executed = new CopyOnWriteArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            sort.execute(pool, executed::add);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(5, executed.size());
+        assertTrue(executed.indexOf("compile") < executed.indexOf("docs"));
+        assertTrue(executed.indexOf("package") < executed.indexOf("deploy"));
+        assertTrue(executed.indexOf("docs") < executed.indexOf("deploy"));
+        // after a rejected task, the other ready tasks are not submitted
+        AtomicInteger submissions = new AtomicInteger();
+        Executor rejecting = runnable -> {
+            if (submissions.incrementAndGet() > 1)
+                throw new RejectedExecutionException();
+            runnable.run();
+        };
+        try {
+            sort.execute(rejecting, v -> {});
+            fail("A rejected task must fail the execution!");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+        // compile is executed, and only the first of its two ready successors is submitted
+        assertEquals(2, submissions.get());
+        // cycle detection
+        graph.addEdge("deploy", "test");
+        sort = new TopologicalSort<>(graph);
+        assertFalse(sort.isAcyclic());
+        assertEquals(2, sort.copySortedIndices().length);
+    }
+    
+    @Test
+    public void shortestPathsTest() {
+        Digraph<String, Integer> graph = new Digraph<>();
+        for (String v: new String[] {"A", "B", "C", "D"})
+            graph.addVertex(v);
+        graph.addEdge(new Edge<>("A", 1, "B"));
+        graph.addEdge(new Edge<>("B", 1, "C"));
+        graph.addEdge(new Edge<>("A", 5, "C"));
+        graph.addEdge(new Edge<>("C", 2, "D"));
+        CompactGraph<String, Integer> compact = new CompactGraph<>(graph);
+        ShortestPaths<String, Integer> paths = new ShortestPaths<>(compact, edge -> edge.label);
+        paths.dijkstra("A");
+        assertEquals(2.0, paths.getDistance("C"), 0.0);
+        assertEquals(4.0, paths.getDistance("D"), 0.0);
+        assertEquals(Arrays.asList(new Edge<>("A", 1, "B"), new Edge<>("B", 1, "C"), new Edge<>("C", 2, "D")), 
+                     paths.getPath("D"));
+        paths.bellmanFord("B");
+        assertEquals(Double.POSITIVE_INFINITY, paths.getDistance("A"), 0.0);
+        assertNull(paths.getPath("A"));
+        assertEquals(3.0, paths.getDistance("D"), 0.0);
+        paths.breadthFirst("A");
+        assertEquals(1.0, paths.getDistance("C"), 0.0);
+        assertEquals(2.0, paths.getDistance("D"), 0.0);
+        assertEquals(4.0, paths.bidirectional("A", "D"), 0.0);
+        assertEquals(3, paths.getPath("D").size());
+        // negative cycles are detected
+        graph.addEdge(new Edge<>("D", -5, "B"));
+        paths = new ShortestPaths<>(new CompactGraph<>(graph), edge -> edge.label);
+        try {
+            paths.bellmanFord("A");
+            fail("Negative cycle not detected!");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void reachabilityIndexTest() throws IOException {
+        Digraph<String, String> cfg = (Digraph<String, String>) GraphReader.readDOT("src/test/resources/CFG.dot");
+        // add a loop back-edge, creating a cycle
+        cfg.addEdge(ENDIF, IF);
+        for (boolean closure: new boolean[] {false, true}) {
+            ReachabilityIndex<String, String> index = new ReachabilityIndex<>(new CompactGraph<>(cfg), 2, closure);
+            assertTrue(index.reaches(ENTRY, EXIT));
+            assertTrue(index.reaches(THEN, ELSE));
+            assertTrue(index.reaches(ENDIF, THEN));
+            assertTrue(index.reaches(IF, IF));
+            assertFalse(index.reaches(EXIT, ENTRY));
+            assertFalse(index.reaches(THEN, ENTRY));
+        }
+    }
+    
+    @Test
+    public void centralityTest() {
+        // a star with a tail: C is the center, and D-E hangs off D
+        UndiGraph<String, String> graph = new UndiGraph<>();
+        for (String v: new String[] {"A", "B", "C", "D", "E"})
+            graph.addVertex(v);
+        graph.addEdge("C", "A");
+        graph.addEdge("C", "B");
+        graph.addEdge("C", "D");
+        graph.addEdge("D", "E");
+        CompactGraph<String, String> compact = new CompactGraph<>(graph);
+        int c = compact.indexOf("C"), d = compact.indexOf("D"), e = compact.indexOf("E");
+        for (boolean parallel: new boolean[] {false, true}) {
+            double[] betweenness = Centrality.betweenness(compact, parallel);
+            assertEquals(5.0, betweenness[c], 1e-9);
+            assertEquals(3.0, betweenness[d], 1e-9);
+            assertEquals(0.0, betweenness[e], 1e-9);
+            double[] closeness = Centrality.closeness(compact, parallel);
+            assertEquals(4.0 / 5.0, closeness[c], 1e-9);
+            assertEquals(4.0 / 9.0, closeness[e], 1e-9);
+        }
+        assertEquals(0.75, Centrality.degree(compact)[c], 1e-9);
+        // layers of 4 vertices, fully linked to the next layer; path counts exceed the range of long
+        int layers = 40, width = 4;
+        Digraph<Integer, String> layered = new Digraph<>();
+        for (int v = 0; v < layers * width; ++v)
+            layered.addVertex(v);
+        for (int l = 0; l + 1 < layers; ++l)
+            for (int i = 0; i < width; ++i)
+                for (int j = 0; j < width; ++j)
+                    layered.addEdge(l * width + i, (l + 1) * width + j);
+        CompactGraph<Integer, String> layeredCompact = new CompactGraph<>(layered);
+        double[] layeredScores = Centrality.betweenness(layeredCompact, false);
+        for (int l = 0; l < layers; ++l)
+            assertEquals(width * l * (layers - 1 - l), layeredScores[layeredCompact.indexOf(l * width)], 1e-6);
+        // page-rank
+        PageRank<String, String> rank = new PageRank<>(compact);
+        assertTrue(rank.run());
+        double[] scores = rank.copyScores();
+        assertEquals(1.0, Arrays.stream(scores).sum(), 1e-6);
+        assertTrue(rank.getScore("C") > rank.getScore("D"));
+        assertTrue(rank.getScore("D") > rank.getScore("A"));
+        assertEquals(rank.getIterationCount(), rank.copyIterationTimes().length);
+        // a directed cycle has uniform ranks
+        Digraph<String, String> cycle = new Digraph<>();
+        for (String v: new String[] {"A", "B", "C"})
+            cycle.addVertex(v);
+        cycle.addEdge("A", "B");
+        cycle.addEdge("B", "C");
+        cycle.addEdge("C", "A");
+        rank = new PageRank<>(cycle);
+        rank.setParallel(false);
+        assertTrue(rank.run());
+        assertEquals(1.0 / 3, rank.getScore("B"), 1e-6);
+    }
+    
+    @Test
+    public void clusteringAndCoresTest() {
+        // a 4-clique A-B-C-D, with a triangle C-D-E and a pendant F attached to E
+        UndiGraph<String, String> graph = new UndiGraph<>();
+        for (String v: new String[] {"A", "B", "C", "D", "E", "F"})
+            graph.addVertex(v);
+        String[][] edges = {{"A", "B"}, {"A", "C"}, {"A", "D"}, {"B", "C"}, {"B", "D"}, {"C", "D"},
+                            {"C", "E"}, {"D", "E"}, {"E", "F"}};
+        for (String[] edge: edges)
+            graph.addEdge(edge[0], edge[1]);
+        for (boolean parallel: new boolean[] {false, true}) {
+            Clustering<String, String> clustering = new Clustering<>(new CompactGraph<>(graph), parallel);
+            assertEquals(5, clustering.getTriangleCount());
+            assertEquals(3, clustering.getTriangles("A"));
+            assertEquals(4, clustering.getTriangles("C"));
+            assertEquals(1, clustering.getTriangles("E"));
+            assertEquals(0, clustering.getTriangles("F"));
+            assertEquals(1.0, clustering.getLocalCoefficient("A"), 1e-9);
+            assertEquals(4.0 / 6, clustering.getLocalCoefficient("C"), 1e-9);
+            assertEquals(1.0 / 3, clustering.getLocalCoefficient("E"), 1e-9);
+            assertEquals(15.0 / 21, clustering.getGlobalCoefficient(), 1e-9);
+        }
+        CoreDecomposition<String, String> cores = new CoreDecomposition<>(graph);
+        assertEquals(3, cores.getDegeneracy());
+        assertEquals(3, cores.getCoreNumber("C"));
+        assertEquals(2, cores.getCoreNumber("E"));
+        assertEquals(1, cores.getCoreNumber("F"));
+        assertEquals(Arrays.asList("A", "B", "C", "D"), cores.getCore(3));
+        // directed graphs are treated as undirected, ignoring reciprocal edges
+        Digraph<String, String> digraph = new Digraph<>();
+        for (String v: new String[] {"A", "B", "C"})
+            digraph.addVertex(v);
+        digraph.addEdge("A", "B");
+        digraph.addEdge("B", "A");
+        digraph.addEdge("B", "C");
+        digraph.addEdge("A", "C");
+        assertEquals(1, new Clustering<>(digraph).getTriangleCount());
+        assertEquals(2, new CoreDecomposition<>(digraph).getDegeneracy());
+    }
+    
+    @Test
+    public void communityDetectionTest() {
+        // two 4-cliques joined by a single light edge
+        Digraph<String, Integer> graph = new Digraph<>();
+        String[] left = {"A1", "A2", "A3", "A4"};
+        String[] right = {"B1", "B2", "B3", "B4"};
+        for (String[] clique: new String[][] {left, right}) {
+            for (String v: clique)
+                graph.addVertex(v);
+            for (int i = 0; i < clique.length; ++i)
+                for (int j = i + 1; j < clique.length; ++j)
+                    graph.addEdge(new Edge<>(clique[i], 5, clique[j]));
+        }
+        graph.addEdge(new Edge<>("A4", 1, "B1"));
+        CompactGraph<String, Integer> compact = new CompactGraph<>(graph);
+        for (boolean parallel: new boolean[] {false, true}) {
+            Louvain<String, Integer> louvain = new Louvain<>(compact, edge -> edge.label, parallel);
+            assertEquals(2, louvain.getCommunityCount());
+            assertEquals(louvain.getCommunityOf("A1"), louvain.getCommunityOf("A4"));
+            assertEquals(louvain.getCommunityOf("B1"), louvain.getCommunityOf("B4"));
+            assertNotEquals(louvain.getCommunityOf("A4"), louvain.getCommunityOf("B1"));
+            // 2 * (30 / 61) - 2 * (61 / 122)^2
+            assertEquals(60.0 / 61 - 0.5, louvain.getModularity(), 1e-9);
+            LabelPropagation<String, Integer> propagation = 
+                    new LabelPropagation<>(compact, edge -> edge.label, parallel, 100, 7);
+            assertEquals(2, propagation.getCommunityCount());
+            assertEquals(louvain.getModularity(), propagation.getModularity(), 1e-9);
+        }
+        List<List<String>> communities = new Louvain<>(graph).getCommunities();
+        assertEquals(2, communities.size());
+        assertEquals(4, communities.get(0).size());
+    }
+    
+    @Test
+    public void slicerTest() {
+        // a tiny PDG: x = read(); y = x; if (y) print(x);
+        IdentityDigraph<String, String> pdg = new IdentityDigraph<>();
+        String read = "x = read()", assign = "y = x", cond = "if (y)", print = "print(x)";
+        // an equal but distinct vertex, which must not be confused with the first one
+        String print2 = new String(print);
+        for (String v: new String[] {read, assign, cond, print, print2})
+            pdg.addVertex(v);
+        pdg.addEdge(new Edge<>(read, "DATA", assign));
+        pdg.addEdge(new Edge<>(assign, "DATA", cond));
+        pdg.addEdge(new Edge<>(cond, "CTRL", print));
+        pdg.addEdge(new Edge<>(read, "DATA", print));
+        pdg.addEdge(new Edge<>(cond, "DATA", print2));
+        Slicer<String, String> all = new Slicer<>(pdg, null);
+        Slicer<String, String> data = new Slicer<>(pdg, "DATA"::equals);
+        assertEquals(4, all.backwardSlice(Arrays.asList(print)).cardinality());
+        BitSet slice = data.backwardSlice(Arrays.asList(print));
+        assertEquals(2, slice.cardinality());
+        SubgraphView<String, String> view = data.subgraphOf(slice);
+        assertTrue(view.containsVertex(read));
+        assertFalse(view.containsVertex(cond));
+        assertFalse(view.containsVertex(print2));
+        assertEquals(1, view.edgeCount());
+        assertTrue(view.containsEdge(read, print));
+        assertEquals(5, data.forwardSlice(Arrays.asList(read)).cardinality());
+        // batch mode gives the same slices
+        List<List<String>> seeds = Arrays.asList(Arrays.asList(print), Arrays.asList(print2), Arrays.asList(cond, print));
+        BitSet[] slices = data.backwardSlices(seeds);
+        for (int k = 0; k < seeds.size(); ++k)
+            assertEquals(data.backwardSlice(seeds.get(k)), slices[k]);
+        // views of undirected graphs find edges in either orientation
+        UndiGraph<String, String> undirected = new UndiGraph<>();
+        for (String v: new String[] {"A", "B", "C"})
+            undirected.addVertex(v);
+        undirected.addEdge(new Edge<>("A", "x", "B"));
+        undirected.addEdge(new Edge<>("B", "y", "C"));
+        BitSet ab = new BitSet();
+        ab.set(0, 2);
+        SubgraphView<String, String> sub = new SubgraphView<>(new CompactGraph<>(undirected), ab);
+        assertTrue(sub.containsEdge(new Edge<>("A", "x", "B")));
+        assertTrue(sub.containsEdge(new Edge<>("B", "x", "A")));
+        assertFalse(sub.containsEdge(new Edge<>("C", "y", "B")));
+        UndiGraph<String, String> edgeBA = new UndiGraph<>();
+        edgeBA.addVertex("A");
+        edgeBA.addVertex("B");
+        edgeBA.addEdge(new Edge<>("B", "x", "A"));
+        assertTrue(edgeBA.isSubgraphOf(sub));
+        assertTrue(sub.isSubgraphOf(edgeBA));
+        // views of graphs with custom matchers match vertices and edges by the matchers
+        Matcher<String> ignoreCase = new Matcher<String>() {
+            @Override
+            public boolean equals(String s1, String s2) {
+                return s1.equalsIgnoreCase(s2);
+            }
+            @Override
+            public int hashCode(String s) {
+                return s.toLowerCase().hashCode();
+            }
+        };
+        Matcher<Edge<String, String>> edgeIgnoreCase = new Matcher<Edge<String, String>>() {
+            @Override
+            public boolean equals(Edge<String, String> e1, Edge<String, String> e2) {
+                return ignoreCase.equals(e1.source, e2.source) && ignoreCase.equals(e1.target, e2.target) &&
+                        ignoreCase.equals(e1.label, e2.label);
+            }
+            @Override
+            public int hashCode(Edge<String, String> e) {
+                return 31 * (31 * ignoreCase.hashCode(e.source) + ignoreCase.hashCode(e.target)) + ignoreCase.hashCode(e.label);
+            }
+        };
+        Digraph<String, String> matched = new Digraph<>(ignoreCase, edgeIgnoreCase);
+        matched.addVertex("A");
+        matched.addVertex("B");
+        matched.addEdge(new Edge<>("A", "X", "B"));
+        SubgraphView<String, String> matchedView = new SubgraphView<>(new CompactGraph<>(matched), ab);
+        assertTrue(matchedView.containsEdge(new Edge<>("a", "x", "b")));
+        assertTrue(matchedView.copyVertexSet().contains("b"));
+        assertTrue(matchedView.copyEdgeSet().contains(new Edge<>("a", "x", "B")));
+    }
+
+    @Test
+    public void graphEditDistanceTest() {
+        EditCosts<String, String> uniform = EditCosts.uniform();
+        // a path and a triangle differ by a single edge
+        UndiGraph<String, String> path = new UndiGraph<>();
+        UndiGraph<String, String> triangle = new UndiGraph<>();
+        for (String v: new String[] {"a", "b", "c"}) {
+            path.addVertex(v);
+            triangle.addVertex(v);
+        }
+        path.addEdge("a", "b");
+        path.addEdge("b", "c");
+        triangle.addEdge("a", "b");
+        triangle.addEdge("b", "c");
+        triangle.addEdge("c", "a");
+        assertEquals(1.0, GraphEditDistance.exact(path, triangle, uniform), 1e-9);
+        assertEquals(0.0, GraphEditDistance.exact(triangle, triangle, uniform), 1e-9);
+        // random labeled digraphs; exact equals the brute-force minimum, and the approximation is an upper bound
+        Random rand = new Random(37);
+        EditCosts<Integer, String> costs = EditCosts.uniform();
+        List<Digraph<Integer, String>> dataset = new ArrayList<>();
+        for (int k = 0; k < 12; ++k)
+            dataset.add(randomLabeledDigraph(rand, 2 + rand.nextInt(4)));
+        for (int k = 0; k + 1 < dataset.size(); k += 2) {
+            Digraph<Integer, String> g1 = dataset.get(k), g2 = dataset.get(k + 1);
+            GraphEditDistance.Prepared<Integer, String> p1 = new GraphEditDistance.Prepared<>(g1);
+            GraphEditDistance.Prepared<Integer, String> p2 = new GraphEditDistance.Prepared<>(g2);
+            int[] map = new int[g1.vertexCount()];
+            double brute = bruteForceEditDistance(p1, p2, costs, map, 0, new boolean[g2.vertexCount()]);
+            double exact = GraphEditDistance.exact(g1, g2, costs);
+            assertEquals(brute, exact, 1e-9);
+            assertTrue(GraphEditDistance.approximate(g1, g2, costs) >= exact - 1e-9);
+        }
+        // similarity search finds exactly the graphs within the threshold
+        GraphSimilaritySearch<Integer, String> search = new GraphSimilaritySearch<>(dataset, costs);
+        Digraph<Integer, String> query = dataset.get(0);
+        List<GraphSimilaritySearch.Result> results = search.search(query, 4, true);
+        assertEquals(0, results.get(0).INDEX);
+        assertEquals(0.0, results.get(0).DISTANCE, 1e-9);
+        int expected = 0;
+        for (Digraph<Integer, String> g: dataset)
+            if (GraphEditDistance.exact(query, g, costs) <= 4)
+                ++expected;
+        assertEquals(expected, results.size());
+        for (GraphSimilaritySearch.Result r: search.search(query, 4, false))
+            assertTrue(r.DISTANCE >= GraphEditDistance.exact(query, dataset.get(r.INDEX), costs) - 1e-9);
+    }
+
+    @Test
+    public void maximumCommonSubgraphTest() {
+        // a triangle with a tail, and a square with a diagonal
+        UndiGraph<Integer, String> first = new UndiGraph<>();
+        UndiGraph<Integer, String> second = new UndiGraph<>();
+        for (int v = 0; v < 4; ++v) {
+            first.addVertex(v);
+            second.addVertex(v);
+        }
+        first.addEdge(0, 1);
+        first.addEdge(1, 2);
+        first.addEdge(2, 0);
+        first.addEdge(2, 3);
+        second.addEdge(0, 1);
+        second.addEdge(1, 2);
+        second.addEdge(2, 3);
+        second.addEdge(3, 0);
+        second.addEdge(0, 2);
+        for (boolean parallel: new boolean[] {false, true}) {
+            MaximumCommonSubgraph<Integer, String> mcs = new MaximumCommonSubgraph<>(first, second, null, null);
+            mcs.setParallel(parallel);
+            assertTrue(mcs.run());
+            assertEquals(3, mcs.getSize());
+            assertEquals(3, mcs.getVertexMapping().size());
+            assertConsistentMapping(mcs);
+            mcs.setEdgeInduced(true);
+            assertTrue(mcs.run());
+            assertEquals(4, mcs.getSize());
+            assertEquals(4, mcs.getEdgeMapping().size());
+            assertConsistentMapping(mcs);
+        }
+        // a triangle and a star have isomorphic line graphs, but only two common edges
+        UndiGraph<Integer, String> star = new UndiGraph<>();
+        for (int v = 0; v < 4; ++v)
+            star.addVertex(v);
+        star.addEdge(0, 1);
+        star.addEdge(0, 2);
+        star.addEdge(0, 3);
+        first.removeVertex(3);
+        MaximumCommonSubgraph<Integer, String> mces = new MaximumCommonSubgraph<>(first, star, null, null);
+        mces.setEdgeInduced(true);
+        mces.run();
+        assertEquals(2, mces.getSize());
+        // vertices only match vertices of the same parity
+        Matcher<Integer> parity = new Matcher<Integer>() {
+            @Override
+            public boolean equals(Integer v1, Integer v2) {
+                return v1 % 2 == v2 % 2;
+            }
+
+            @Override
+            public int hashCode(Integer v) {
+                return v % 2;
+            }
+        };
+        MaximumCommonSubgraph<Integer, String> labeled = new MaximumCommonSubgraph<>(first, star, parity, null);
+        labeled.run();
+        for (Map.Entry<Integer, Integer> pair: labeled.getVertexMapping().entrySet())
+            assertEquals(pair.getKey() % 2, pair.getValue() % 2);
+    }
+
+    @Test
+    public void traversalStreamsTest() throws IOException {
+        Digraph<String, String> cfg = (Digraph<String, String>) GraphReader.readDOT("src/test/resources/CFG.dot");
+        List<String> bfs = TraversalStreams.breadthFirst(cfg, ENTRY).collect(Collectors.toList());
+        assertEquals(cfg.vertexCount(), bfs.size());
+        assertEquals(ENTRY, bfs.get(0));
+        assertEquals(EXIT, bfs.get(bfs.size() - 1));
+        assertEquals(bfs.size() - 1, TraversalStreams.breadthFirstEdges(cfg, ENTRY).count());
+        // short-circuiting search
+        assertEquals(IF, TraversalStreams.depthFirst(cfg, ENTRY).filter(v -> v.contains("if")).findFirst().get());
+        assertTrue(TraversalStreams.depthFirstEdges(cfg, ENTRY).allMatch(e -> !e.target.equals(ENTRY)));
+        // compact traversals give the same orders, also in parallel
+        CompactGraph<String, String> compact = new CompactGraph<>(cfg);
+        assertEquals(bfs, TraversalStreams.breadthFirst(compact, ENTRY, true).collect(Collectors.toList()));
+        assertEquals(TraversalStreams.depthFirst(cfg, ENTRY).collect(Collectors.toList()),
+                     TraversalStreams.depthFirstIndices(compact, compact.indexOf(ENTRY))
+                                     .mapToObj(compact::getVertex).collect(Collectors.toList()));
+        // a large random graph; the parallel level-synchronous traversal keeps the sequential order
+        Random rand = new Random(39);
+        int n = 20000, m = 80000;
+        int[] sources = new int[m], targets = new int[m];
+        for (int e = 0; e < m; ++e) {
+            sources[e] = rand.nextInt(n);
+            targets[e] = rand.nextInt(n);
+        }
+        CompactGraph<Integer, Void> random = new CompactGraph<>(n, sources, targets, true);
+        int[] sequential = TraversalStreams.breadthFirstIndices(random, 0, false).toArray();
+        assertArrayEquals(sequential, TraversalStreams.breadthFirstIndices(random, 0, true).toArray());
+        assertArrayEquals(TraversalStreams.breadthFirstEdgeIndices(random, 0, false).toArray(),
+                          TraversalStreams.breadthFirstEdgeIndices(random, 0, true).toArray());
+    }
+
+    @Test
+    public void traversalEngineTest() throws IOException {
+        Digraph<String, String> cfg = (Digraph<String, String>) GraphReader.readDOT("src/test/resources/CFG.dot");
+        // add a loop from the exit back to the condition
+        cfg.addEdge(new Edge<>(EXIT, "loop", IF));
+        TraversalEngine<String, String> engine = new TraversalEngine<>(cfg);
+        List<Edge<String, String>> backEdges = new ArrayList<>();
+        int[] counts = new int[3];
+        assertTrue(engine.depthFirst(ENTRY, new TraversalVisitor<String, String>() {
+            @Override
+            public Action discoverVertex(String v, int depth) {
+                ++counts[0];
+                return Action.CONTINUE;
+            }
+
+            @Override
+            public Action treeEdge(Edge<String, String> e) {
+                ++counts[1];
+                return Action.CONTINUE;
+            }
+
+            @Override
+            public Action crossEdge(Edge<String, String> e) {
+                ++counts[2];
+                return Action.CONTINUE;
+            }
+
+            @Override
+            public Action backEdge(Edge<String, String> e) {
+                backEdges.add(e);
+                return Action.CONTINUE;
+            }
+        }));
+        assertEquals(cfg.vertexCount(), counts[0]);
+        assertEquals(cfg.vertexCount() - 1, counts[1]);
+        assertEquals(1, counts[2]);
+        assertEquals(1, backEdges.size());
+        assertEquals(EXIT, backEdges.get(0).source);
+        // pruning the subtree of the condition, and terminating at the first level with two vertices
+        List<String> discovered = new ArrayList<>();
+        engine.depthFirst(ENTRY, new TraversalVisitor<String, String>() {
+            @Override
+            public Action discoverVertex(String v, int depth) {
+                discovered.add(v);
+                return v.equals(IF) ? Action.SKIP_SUBTREE : Action.CONTINUE;
+            }
+        });
+        assertEquals(4, discovered.size());
+        int[] lastLevel = new int[1];
+        assertFalse(engine.breadthFirst(ENTRY, new TraversalVisitor<String, String>() {
+            private int size;
+
+            @Override
+            public Action startLevel(int level) {
+                lastLevel[0] = level;
+                size = 0;
+                return Action.CONTINUE;
+            }
+
+            @Override
+            public Action finishVertex(String v) {
+                return ++size == 2 ? Action.TERMINATE : Action.CONTINUE;
+            }
+        }));
+        assertEquals(4, lastLevel[0]);
+        // a very deep path does not overflow the stack
+        int n = 200000;
+        CompactGraph<Integer, Void> path = new CompactGraph<>(n, IntStream.range(0, n - 1).toArray(),
+                                                              IntStream.range(1, n).toArray(), false);
+        int[] maxDepth = new int[1];
+        assertTrue(new TraversalEngine<>(path).depthFirst(0, new TraversalVisitor<Integer, Void>() {
+            @Override
+            public Action discoverVertex(Integer v, int depth) {
+                maxDepth[0] = Math.max(maxDepth[0], depth);
+                return Action.CONTINUE;
+            }
+        }));
+        assertEquals(n - 1, maxDepth[0]);
+    }
+
+    @Test
+    public void multiSourceSearchTest() {
+        Random rand = new Random(41);
+        for (boolean directed: new boolean[] {true, false}) {
+            int n = 300, m = 450;
+            int[] sources = new int[m], targets = new int[m];
+            for (int e = 0; e < m; ++e) {
+                sources[e] = rand.nextInt(n);
+                targets[e] = rand.nextInt(n);
+            }
+            CompactGraph<Integer, Void> graph = new CompactGraph<>(n, sources, targets, directed);
+            ShortestPaths<Integer, Void> single = new ShortestPaths<>(graph);
+            MultiSourceSearch<Integer, Void> search = new MultiSourceSearch<>(graph);
+            int[] seeds = {3, 77, 150, 3};
+            // the multi-source depth is the minimum single-source distance
+            double[] nearest = new double[n];
+            Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+            for (int s: seeds) {
+                single.breadthFirst(s);
+                for (int v = 0; v < n; ++v)
+                    nearest[v] = Math.min(nearest[v], single.getDistanceOfIndex(v));
+            }
+            for (int limit: new int[] {-1, 0, 2, 5}) {
+                search.breadthFirstOfIndices(seeds, limit);
+                int[] bfsDepths = new int[n];
+                for (int v = 0; v < n; ++v) {
+                    boolean within = nearest[v] < Double.POSITIVE_INFINITY && (limit < 0 || nearest[v] <= limit);
+                    bfsDepths[v] = search.getDepthOfIndex(v);
+                    assertEquals(within ? (int) nearest[v] : -1, bfsDepths[v]);
+                    if (within) {
+                        single.breadthFirst(seeds[search.getSeedOfIndex(v)]);
+                        assertEquals(nearest[v], single.getDistanceOfIndex(v), 0.0);
+                    }
+                }
+                int visited = search.getVisitedCount();
+                search.depthFirstOfIndices(seeds, limit);
+                assertEquals(visited, search.getVisitedCount());
+                for (int v = 0; v < n; ++v) {
+                    if (limit >= 0)
+                        assertEquals(bfsDepths[v], search.getDepthOfIndex(v));
+                    else
+                        assertEquals(bfsDepths[v] < 0, search.getDepthOfIndex(v) < 0);
+                }
+            }
+            // bit-parallel neighborhood sizes match the single-source level sizes
+            int[] all = IntStream.range(0, n).toArray();
+            int[][] sizes = MultiSourceSearch.neighborhoodSizes(graph, all, -1, false);
+            assertTrue(Arrays.deepEquals(sizes, MultiSourceSearch.neighborhoodSizes(graph, all, -1, true)));
+            int[][] bounded = MultiSourceSearch.neighborhoodSizes(graph, all, 2, true);
+            for (int s = 0; s < n; ++s) {
+                single.breadthFirst(s);
+                int[] levels = new int[n];
+                int height = 0;
+                for (int v = 0; v < n; ++v) {
+                    double d = single.getDistanceOfIndex(v);
+                    if (d < Double.POSITIVE_INFINITY) {
+                        ++levels[(int) d];
+                        height = Math.max(height, (int) d + 1);
+                    }
+                }
+                assertArrayEquals(Arrays.copyOf(levels, height), sizes[s]);
+                assertArrayEquals(Arrays.copyOf(levels, Math.min(height, 3)), bounded[s]);
+            }
+        }
+    }
+
+    @Test
+    public void randomWalksTest() {
+        Random rand = new Random(42);
+        int n = 500, m = 2000;
+        int[] sources = new int[m], targets = new int[m];
+        for (int e = 0; e < m; ++e) {
+            sources[e] = rand.nextInt(n);
+            targets[e] = rand.nextInt(n);
+        }
+        CompactGraph<Integer, Void> graph = new CompactGraph<>(n, sources, targets, true);
+        RandomWalks<Integer, Void> walks = new RandomWalks<>(graph);
+        walks.setNode2VecParameters(0.5, 2.0);
+        int[][] parallel = walks.walks(3, 20, 7);
+        walks.setParallel(false);
+        assertTrue(Arrays.deepEquals(parallel, walks.walks(3, 20, 7)));
+        assertEquals(3 * n, parallel.length);
+        for (int k = 0; k < parallel.length; ++k) {
+            int[] walk = parallel[k];
+            assertEquals(k / 3, walk[0]);
+            for (int i = 1; i < walk.length; ++i)
+                assertTrue(hasOutNeighbor(graph, walk[i - 1], walk[i]));
+            // only dead ends cut walks short
+            if (walk.length < 20)
+                assertEquals(graph.outStart[walk[walk.length - 1]], graph.outStart[walk[walk.length - 1] + 1]);
+        }
+        // weighted steps follow the edge weights; the zero-weight edge is never taken
+        int[] star = {0, 0, 0, 0};
+        int[] leaves = {1, 2, 3, 4};
+        CompactGraph<Integer, Void> fan = new CompactGraph<>(5, star, leaves, true);
+        RandomWalks<Integer, Void> weighted = new RandomWalks<>(fan, edge -> edge.target == 4 ? 0 : edge.target);
+        int[] counts = new int[5];
+        for (int[] walk: weighted.walksOfIndices(new int[20000], 2, 1))
+            ++counts[walk[1]];
+        assertEquals(0, counts[4]);
+        assertEquals(20000 / 6.0, counts[1], 300);
+        assertEquals(20000 / 3.0, counts[2], 300);
+        assertEquals(20000 / 2.0, counts[3], 300);
+        // a tiny return parameter makes undirected walks bounce back and forth
+        CompactGraph<Integer, Void> cycle = new CompactGraph<>(6, new int[] {0, 1, 2, 3, 4, 5},
+                                                               new int[] {1, 2, 3, 4, 5, 0}, false);
+        RandomWalks<Integer, Void> bouncing = new RandomWalks<>(cycle);
+        bouncing.setNode2VecParameters(1e-6, 1.0);
+        for (int[] walk: bouncing.walks(2, 10, 3))
+            for (int i = 2; i < walk.length; ++i)
+                assertEquals(walk[i - 2], walk[i]);
+        // neighborhood samples
+        int[][] layers = walks.sampleNeighborhoodsOfIndices(new int[] {0, 1, 2}, new int[] {4, 3}, 11);
+        assertEquals(3, layers.length);
+        assertEquals(12, layers[1].length);
+        assertEquals(36, layers[2].length);
+        for (int k = 1; k < layers.length; ++k) {
+            int fanout = layers[k].length / layers[k - 1].length;
+            for (int i = 0; i < layers[k].length; ++i) {
+                int parent = layers[k - 1][i / fanout];
+                if (parent < 0 || graph.outStart[parent] == graph.outStart[parent + 1])
+                    assertEquals(-1, layers[k][i]);
+                else
+                    assertTrue(hasOutNeighbor(graph, parent, layers[k][i]));
+            }
+        }
+    }
+
+    @Test
+    public void maxFlowTest() {
+        Digraph<String, Integer> network = new Digraph<>();
+        for (String v: new String[] {"s", "a", "b", "c", "d", "t"})
+            network.addVertex(v);
+        network.addEdge(new Edge<>("s", 10, "a"));
+        network.addEdge(new Edge<>("s", 10, "c"));
+        network.addEdge(new Edge<>("a", 4, "b"));
+        network.addEdge(new Edge<>("a", 2, "c"));
+        network.addEdge(new Edge<>("a", 8, "d"));
+        network.addEdge(new Edge<>("c", 9, "d"));
+        network.addEdge(new Edge<>("b", 10, "t"));
+        network.addEdge(new Edge<>("d", 6, "b"));
+        network.addEdge(new Edge<>("d", 10, "t"));
+        MaxFlow<String, Integer> flow = new MaxFlow<>(network, edge -> edge.label);
+        assertEquals(19.0, flow.pushRelabel("s", "t"), 0.0);
+        assertEquals(19.0, flow.dinic("s", "t"), 0.0);
+        assertTrue(flow.isOnSourceSide("c"));
+        assertFalse(flow.isOnSourceSide("b"));
+        assertEquals(19, flow.getCutEdges().stream().mapToInt(edge -> edge.label).sum());
+        // random graphs: both algorithms give valid flows, whose values match their minimum cuts
+        Random rand = new Random(43);
+        for (int round = 0; round < 20; ++round) {
+            boolean directed = round % 2 == 0;
+            int n = 60, m = 300;
+            // capacities are a function of the end-points, as edges are created on demand
+            double[][] table = new double[n][n];
+            for (double[] row: table)
+                for (int k = 0; k < n; ++k)
+                    row[k] = round < 10 ? rand.nextInt(20) : 10 * rand.nextDouble();
+            int[] sources = new int[m], targets = new int[m];
+            double[] capacity = new double[m];
+            for (int e = 0; e < m; ++e) {
+                sources[e] = rand.nextInt(n);
+                targets[e] = rand.nextInt(n);
+                capacity[e] = table[sources[e]][targets[e]];
+            }
+            CompactGraph<Integer, Void> graph = new CompactGraph<>(n, sources, targets, directed);
+            MaxFlow<Integer, Void> maxFlow = new MaxFlow<>(graph, edge -> table[edge.source][edge.target]);
+            double pushRelabel = maxFlow.pushRelabel(0, n - 1);
+            assertValidMaxFlow(graph, maxFlow, capacity, 0, n - 1);
+            double dinic = maxFlow.dinic(0, n - 1);
+            assertValidMaxFlow(graph, maxFlow, capacity, 0, n - 1);
+            assertEquals(pushRelabel, dinic, 1e-9);
+        }
+    }
+
+    @Test
+    public void minimumSpanningTreeTest() {
+        UndiGraph<String, Integer> graph = new UndiGraph<>();
+        for (String v: new String[] {"A", "B", "C", "D", "E"})
+            graph.addVertex(v);
+        graph.addEdge(new Edge<>("A", 1, "B"));
+        graph.addEdge(new Edge<>("B", 2, "C"));
+        graph.addEdge(new Edge<>("A", 3, "C"));
+        graph.addEdge(new Edge<>("C", 4, "D"));
+        graph.addEdge(new Edge<>("B", 5, "D"));
+        graph.addEdge(new Edge<>("E", 0, "E"));
+        MinimumSpanningTree<String, Integer> mst = new MinimumSpanningTree<>(graph, edge -> edge.label);
+        mst.prim();
+        assertEquals(7.0, mst.getTotalWeight(), 0.0);
+        assertEquals(2, mst.getTreeCount());
+        assertEquals(Arrays.asList(new Edge<>("A", 1, "B"), new Edge<>("B", 2, "C"), new Edge<>("C", 4, "D")),
+                     mst.getEdges());
+        assertEquals(3, mst.getSubgraphView().edgeCount());
+        assertEquals(5, mst.getSubgraphView().vertexCount());
+        // the tree view is undirected, so edges are found in either orientation
+        SubgraphView<String, Integer> tree = mst.getSubgraphView();
+        assertTrue(tree.containsEdge(new Edge<>("B", 2, "C")));
+        assertTrue(tree.containsEdge(new Edge<>("C", 2, "B")));
+        assertTrue(tree.containsEdge(new Edge<>("D", 4, "C")));
+        assertFalse(tree.containsEdge(new Edge<>("C", 3, "A")));
+        assertTrue(tree.isSubgraphOf(graph));
+        UndiGraph<String, Integer> reversed = new UndiGraph<>();
+        for (String v: new String[] {"A", "B", "C", "D", "E"})
+            reversed.addVertex(v);
+        for (Edge<String, Integer> e: mst.getEdges())
+            reversed.addEdge(e.reverse());
+        assertTrue(reversed.isSubgraphOf(tree));
+        // random forests with many equal weights; large enough for the parallel sort
+        Random rand = new Random(44);
+        for (boolean directed: new boolean[] {true, false}) {
+            int n = 20000, m = 30000;
+            int[] sources = new int[m], targets = new int[m];
+            for (int e = 0; e < m; ++e) {
+                sources[e] = rand.nextInt(n);
+                targets[e] = rand.nextInt(n);
+            }
+            CompactGraph<Integer, Void> random = new CompactGraph<>(n, sources, targets, directed);
+            MinimumSpanningTree<Integer, Void> forest =
+                    new MinimumSpanningTree<>(random, edge -> (edge.source * 7 + edge.target * 13) % 10);
+            forest.kruskal(false);
+            int[] kruskal = forest.copyEdgeIndices();
+            double total = forest.getTotalWeight();
+            int trees = forest.getTreeCount();
+            UndiGraph<Integer, Void> undirected = new UndiGraph<>();
+            for (int v = 0; v < n; ++v)
+                undirected.addVertex(v);
+            for (int e = 0; e < m; ++e)
+                undirected.addEdge(sources[e], targets[e]);
+            assertEquals(new ConnectedComponents<>(undirected).getComponentCount(), trees);
+            forest.kruskal(true);
+            assertArrayEquals(kruskal, forest.copyEdgeIndices());
+            forest.boruvka(false);
+            assertArrayEquals(kruskal, forest.copyEdgeIndices());
+            forest.boruvka(true);
+            assertArrayEquals(kruskal, forest.copyEdgeIndices());
+            forest.prim();
+            assertEquals(total, forest.getTotalWeight(), 0.0);
+            assertEquals(trees, forest.getTreeCount());
+        }
+    }
+
+    @Test
+    public void graphPartitionerTest() throws IOException {
+        // a 40x40 grid, whose best 4-way cut is 80 edges
+        UndiGraph<String, String> grid = new UndiGraph<>();
+        int side = 40;
+        for (int r = 0; r < side; ++r)
+            for (int c = 0; c < side; ++c)
+                grid.addVertex(r + "_" + c);
+        for (int r = 0; r < side; ++r) {
+            for (int c = 0; c < side; ++c) {
+                if (r + 1 < side)
+                    grid.addEdge(r + "_" + c, (r + 1) + "_" + c);
+                if (c + 1 < side)
+                    grid.addEdge(r + "_" + c, r + "_" + (c + 1));
+            }
+        }
+        GraphPartitioner<String, String> partitioner = new GraphPartitioner<>(grid, 4);
+        partitioner.partition();
+        int n = side * side;
+        int cut = 0;
+        for (Edge<String, String> edge: grid.copyEdgeSet())
+            if (partitioner.getPart(edge.source) != partitioner.getPart(edge.target))
+                ++cut;
+        assertEquals(cut, partitioner.getEdgeCut(), 0.0);
+        assertTrue("edge cut is " + cut, cut <= 160);
+        int owned = 0, ghostEdges = 0;
+        for (int p = 0; p < 4; ++p) {
+            assertTrue(partitioner.getPartSize(p) <= Math.floor(1.03 * n / 4));
+            GraphPartition<String, String> part = partitioner.extract(p);
+            owned += part.getOwnedVertexCount();
+            assertEquals(part.getOwnedVertexCount() + part.getGhostOwners().size(), part.GRAPH.vertexCount());
+            for (Map.Entry<String, Integer> ghost: part.getGhostOwners().entrySet()) {
+                assertNotEquals(p, (int) ghost.getValue());
+                assertEquals(partitioner.getPart(ghost.getKey()), (int) ghost.getValue());
+            }
+            for (String v: part.getBoundaryVertices())
+                assertEquals(p, part.getOwnerOf(v));
+            for (Edge<String, String> edge: part.GRAPH.copyEdgeSet())
+                if (part.isGhost(edge.source) || part.isGhost(edge.target))
+                    ++ghostEdges;
+            // each part can be written and loaded on its own
+            String path = "target/partition_" + p + ".dot";
+            GraphWriter.writeDOT(part.GRAPH, path);
+            Graph<String, String> loaded = GraphReader.readDOT(path);
+            assertEquals(part.GRAPH.vertexCount(), loaded.vertexCount());
+            assertEquals(part.GRAPH.edgeCount(), loaded.edgeCount());
+        }
+        assertEquals(n, owned);
+        assertEquals(2 * cut, ghostEdges);
+        // a random graph, with a different number of parts
+        Random rand = new Random(45);
+        int m = 20000;
+        int[] sources = new int[m], targets = new int[m];
+        for (int e = 0; e < m; ++e) {
+            sources[e] = rand.nextInt(5000);
+            targets[e] = rand.nextInt(5000);
+        }
+        GraphPartitioner<Integer, Void> random =
+                new GraphPartitioner<>(new CompactGraph<>(5000, sources, targets, true), null, 3);
+        random.setImbalance(0.1);
+        random.partition();
+        int randomCut = 0;
+        for (int e = 0; e < m; ++e)
+            if (random.getPartOfIndex(sources[e]) != random.getPartOfIndex(targets[e]))
+                ++randomCut;
+        assertEquals(randomCut, random.getEdgeCut(), 0.0);
+        // much better than a random assignment, which cuts two thirds of the edges
+        assertTrue(randomCut < m / 2);
+        for (int p = 0; p < 3; ++p)
+            assertTrue(random.getPartSize(p) <= Math.floor(1.1 * 5000 / 3));
+        // parts of an identity graph keep equal but distinct vertices apart
+        IdentityDigraph<String, String> chain = new IdentityDigraph<>();
+        String[] copies = new String[12];
+        for (int v = 0; v < copies.length; ++v) {
+            copies[v] = new String("v");
+            chain.addVertex(copies[v]);
+        }
+        for (int v = 0; v + 1 < copies.length; ++v)
+            chain.addEdge(new Edge<>(copies[v], "next", copies[v + 1]));
+        GraphPartitioner<String, String> identity = new GraphPartitioner<>(chain, 2);
+        identity.partition();
+        int identityOwned = 0;
+        for (int p = 0; p < 2; ++p) {
+            GraphPartition<String, String> part = identity.extract(p);
+            assertTrue(part.GRAPH instanceof IdentityDigraph);
+            identityOwned += part.getOwnedVertexCount();
+            assertEquals(part.getOwnedVertexCount() + part.getGhostOwners().size(), part.GRAPH.vertexCount());
+            for (String v: part.getBoundaryVertices())
+                assertEquals(p, part.getOwnerOf(v));
+        }
+        assertEquals(copies.length, identityOwned);
+    }
+
+    private static void assertValidMaxFlow(CompactGraph<Integer, Void> graph, MaxFlow<Integer, Void> maxFlow,
+                                           double[] capacity, int src, int trg) {
+        double[] balance = new double[graph.vertexCount()];
+        double cut = 0;
+        BitSet side = maxFlow.copySourceSide();
+        assertTrue(side.get(src) && !side.get(trg));
+        for (int e = 0; e < graph.edgeCount(); ++e) {
+            double f = maxFlow.getFlowOfIndex(e);
+            assertTrue(Math.abs(f) <= capacity[e] + 1e-9);
+            if (graph.isDirected())
+                assertTrue(f >= -1e-9);
+            balance[graph.getEdgeSource(e)] -= f;
+            balance[graph.getEdgeTarget(e)] += f;
+            boolean s = side.get(graph.getEdgeSource(e)), t = side.get(graph.getEdgeTarget(e));
+            if (s && !t || !graph.isDirected() && t && !s)
+                cut += capacity[e];
+        }
+        for (int v = 0; v < balance.length; ++v)
+            if (v != src && v != trg)
+                assertEquals(0.0, balance[v], 1e-9);
+        assertEquals(maxFlow.getFlowValue(), balance[trg], 1e-9);
+        assertEquals(maxFlow.getFlowValue(), cut, 1e-9);
+    }
+    private static boolean hasOutNeighbor(CompactGraph<Integer, Void> graph, int v, int w) {
+        for (int i = graph.outStart[v]; i < graph.outStart[v + 1]; ++i)
+            if (graph.outTarget[i] == w)
+                return true;
+        return false;
+    }
+    private static void assertConsistentMapping(MaximumCommonSubgraph<Integer, String> mcs) {
+        Map<Integer, Integer> vertices = mcs.getVertexMapping();
+        for (Map.Entry<Edge<Integer, String>, Edge<Integer, String>> pair: mcs.getEdgeMapping().entrySet()) {
+            Integer src = vertices.get(pair.getKey().source);
+            Integer trg = vertices.get(pair.getKey().target);
+            Edge<Integer, String> image = pair.getValue();
+            assertTrue(src.equals(image.source) && trg.equals(image.target) ||
+                       src.equals(image.target) && trg.equals(image.source));
+        }
+    }
+    private static Digraph<Integer, String> randomLabeledDigraph(Random rand, int n) {
+        Digraph<Integer, String> graph = new Digraph<>();
+        for (int v = 0; v < n; ++v)
+            graph.addVertex(v);
+        for (int k = 0; k < n + 1; ++k)
+            graph.addEdge(new Edge<>(rand.nextInt(n), rand.nextBoolean() ? "x" : "y", rand.nextInt(n)));
+        return graph;
+    }
+
+    private static double bruteForceEditDistance(GraphEditDistance.Prepared<Integer, String> p1,
+                                                 GraphEditDistance.Prepared<Integer, String> p2,
+                                                 EditCosts<Integer, String> costs,
+                                                 int[] map, int depth, boolean[] used) {
+        if (depth == map.length)
+            return GraphEditDistance.mappingCost(p1, p2, map, costs);
+        double best = Double.POSITIVE_INFINITY;
+        for (int v = -1; v < used.length; ++v) {
+            if (v >= 0 && used[v])
+                continue;
+            map[depth] = v;
+            if (v >= 0)
+                used[v] = true;
+            best = Math.min(best, bruteForceEditDistance(p1, p2, costs, map, depth + 1, used));
+            if (v >= 0)
+                used[v] = false;
+        }
+        return best;
+    }
+
+    /**
+     * Checks that the parallel and sequential components of the given graph are the same,
+     * up to the numbering of components; and returns the number of components.
+     */
+    private static int assertSameComponents(CompactGraph<Integer, Void> graph) {
+        int[] sequential = new StronglyConnectedComponents<>(graph, false).copyComponentIds();
+        int[] parallel = new StronglyConnectedComponents<>(graph, true).copyComponentIds();
+        Map<Integer, Integer> toParallel = new HashMap<>(), toSequential = new HashMap<>();
+        for (int v = 0; v < graph.vertexCount(); ++v) {
+            Integer previous = toParallel.putIfAbsent(sequential[v], parallel[v]);
+            assertTrue(previous == null || previous == parallel[v]);
+            previous = toSequential.putIfAbsent(parallel[v], sequential[v]);
+            assertTrue(previous == null || previous == sequential[v]);
+        }
+        return toParallel.size();
+    }
+}
@@ -1,9 +1,17 @@
 /*** In The Name of Allah ***/
 package ghaffarian.graphs;
 
+import ghaffarian.collections.ConcurrentDisjointSets;
+import ghaffarian.collections.DisjointSets;
 import ghaffarian.collections.IdentityLinkedHashSet;
+import ghaffarian.collections.LabelDictionary;
+import ghaffarian.collections.LongIntHashMap;
 import ghaffarian.collections.MatcherLinkedHashSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.*;
 import org.junit.*;
@@ -107,4 +115,73 @@ public class CollectionsTests {
         assertEquals(2, matcherSet.size());
     }
 
+    @Test
+    public void disjointSetsTest() {
+        DisjointSets sets = new DisjointSets(6);
+        assertEquals(6, sets.getSetCount());
+        assertTrue(sets.union(0, 1));
+        assertTrue(sets.union(2, 3));
+        assertTrue(sets.union(1, 3));
+        assertFalse(sets.union(0, 2));
+        assertTrue(sets.connected(0, 3));
+        assertFalse(sets.connected(0, 4));
+        assertEquals(4, sets.getSetSize(2));
+        assertEquals(3, sets.getSetCount());
+        //
+        ConcurrentDisjointSets concurrent = new ConcurrentDisjointSets(1000);
+        IntStream.range(0, 999).parallel().forEach(i -> concurrent.union(i, i + 1));
+        assertEquals(1, concurrent.getSetCount());
+        assertTrue(concurrent.connected(0, 999));
+    }
+    
+    @Test
+    public void labelDictionaryTest() {
+        LabelDictionary<String> dictionary = new LabelDictionary<>();
+        String t = "True";
+        assertEquals(0, dictionary.getId(t));
+        assertEquals(1, dictionary.getId("False"));
+        assertSame(t, dictionary.intern(new String("True")));
+        assertEquals(0, dictionary.indexOf(new String("True")));
+        assertEquals(-1, dictionary.indexOf("CONTROL"));
+        assertEquals(-1, dictionary.getId(null));
+        assertNull(dictionary.get(-1));
+        assertEquals(2, dictionary.size());
+        // grow beyond the initial capacity
+        for (int i = 0; i < 10000; ++i)
+            assertEquals(i + 2, dictionary.getId("label-" + i));
+        for (int i = 0; i < 10000; ++i) {
+            assertEquals(i + 2, dictionary.indexOf("label-" + i));
+            assertEquals("label-" + i, dictionary.get(i + 2));
+        }
+        assertEquals(10002, dictionary.size());
+        assertSame(t, dictionary.get(0));
+    }
+    
+    @Test
+    public void longIntHashMapTest() {
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random rand = new Random(3);
+        for (int i = 0; i < 100000; ++i) {
+            // a small key range, so that removals shift back long probe sequences
+            long key = rand.nextInt(5000) * 0x100000000L;
+            if (rand.nextInt(3) == 0) {
+                Integer old = expected.remove(key);
+                assertEquals(old == null ? -1 : old, map.remove(key));
+            } else {
+                Integer old = expected.put(key, i);
+                assertEquals(old == null ? -1 : old, map.put(key, i));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (long key = 0; key < 5000; ++key) {
+            Integer value = expected.get(key * 0x100000000L);
+            assertEquals(value == null ? -1 : value, map.get(key * 0x100000000L));
+            assertEquals(value != null, map.containsKey(key * 0x100000000L));
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(-1, map.get(0));
+    }
+
 }
@@ -1,7 +1,20 @@
 /*** In The Name of Allah ***/
 package ghaffarian.graphs;
 
+import ghaffarian.collections.LabelDictionary;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
 
 import static org.junit.Assert.*;
 import org.junit.*;
@@ -75,6 +88,43 @@ public class GraphsTests {
         assertTrue(graph.containsEdge(new Edge(v4, e7, v1)));
     }
     
+    @Test
+    public void internedDotReaderTest() throws IOException {
+        LabelDictionary<String> vertices = new LabelDictionary<>();
+        LabelDictionary<String> labels = new LabelDictionary<>();
+        Graph<String, String> graph = GraphReader.readDOT("src/test/resources/read_test_1.dot", vertices, labels);
+        Graph<String, String> plain = GraphReader.readDOT("src/test/resources/read_test_1.dot");
+        assertEquals(new HashSet<>(plain.copyEdgeSet()), new HashSet<>(graph.copyEdgeSet()));
+        // repeated labels share a single instance
+        for (Edge<String, String> e: graph.copyEdgeSet())
+            assertSame(labels.get(labels.indexOf(e.label)), e.label);
+        Graph<String, String> cfg = GraphReader.readDOT("src/test/resources/CFG.dot", labels);
+        CompactGraph<String, String> compact = new CompactGraph<>(cfg, labels);
+        assertTrue(compact.hasLabelIds());
+        assertFalse(new CompactGraph<>(cfg).hasLabelIds());
+        int trueId = labels.indexOf("True");
+        int trueEdges = 0;
+        for (int e = 0; e < compact.edgeCount(); ++e) {
+            String label = compact.getEdge(e).label;
+            assertEquals(labels.indexOf(label), compact.getLabelId(e));
+            assertEquals(label, compact.reverse().getEdge(e).label);
+            if (compact.getLabelId(e) == trueId) {
+                assertSame(labels.get(trueId), label);
+                ++trueEdges;
+            }
+        }
+        assertTrue(trueEdges > 0);
+        // slicing with encoded labels matches slicing with plain labels
+        Predicate<String> filter = label -> label == null || label.equals("True");
+        Slicer<String, String> encoded = new Slicer<>(compact, filter);
+        Slicer<String, String> decoded = new Slicer<>(new CompactGraph<>(cfg), filter);
+        for (int v = 0; v < compact.vertexCount(); ++v) {
+            String vertex = compact.getVertex(v);
+            assertEquals(decoded.forwardSlice(Collections.singleton(vertex)),
+                         encoded.forwardSlice(Collections.singleton(vertex)));
+        }
+    }
+    
     @Test
     public void subGraphTest() throws IOException {
         // read graphs from DOT file
@@ -84,4 +134,302 @@ public class GraphsTests {
         assertTrue(sub.isSubgraphOf(cfg));
         assertFalse(cfg.isSubgraphOf(sub));
     }
+    
+    @Test
+    public void graphAlgebraTest() throws IOException {
+        Digraph<String, String> cfg = (Digraph<String, String>) GraphReader.readDOT("src/test/resources/CFG.dot");
+        Digraph<String, String> next = new Digraph<>(cfg);
+        // a new version of the CFG: one statement removed, another added
+        String removed = "9:  i *= 2";
+        String added = "9:  i += 2";
+        Edge<String, String> in = next.copyIncomingEdges(removed).iterator().next();
+        Edge<String, String> out = next.copyOutgoingEdges(removed).iterator().next();
+        next.removeVertex(removed);
+        next.addVertex(added);
+        next.addEdge(new Edge<>(in.source, in.label, added));
+        next.addEdge(new Edge<>(added, out.label, out.target));
+        GraphDiff<String, String> diff = GraphAlgebra.diff(cfg, next);
+        assertEquals(1, diff.getAddedVertices().size());
+        assertTrue(diff.getAddedVertices().contains(added));
+        assertTrue(diff.getRemovedVertices().contains(removed));
+        assertEquals(2, diff.getAddedEdges().size());
+        assertEquals(2, diff.getRemovedEdges().size());
+        assertTrue(GraphAlgebra.diff(cfg, new Digraph<>(cfg)).isEmpty());
+        // set operations
+        AbstractPropertyGraph<String, String> union = GraphAlgebra.union(cfg, next);
+        assertEquals(cfg.vertexCount() + 1, union.vertexCount());
+        assertEquals(cfg.edgeCount() + 2, union.edgeCount());
+        assertTrue(cfg.isSubgraphOf(union));
+        assertTrue(next.isSubgraphOf(union));
+        AbstractPropertyGraph<String, String> common = GraphAlgebra.intersection(cfg, next);
+        assertEquals(cfg.vertexCount() - 1, common.vertexCount());
+        assertEquals(cfg.edgeCount() - 2, common.edgeCount());
+        assertTrue(common.isSubgraphOf(cfg));
+        AbstractPropertyGraph<String, String> minus = GraphAlgebra.difference(cfg, next);
+        assertEquals(cfg.vertexCount(), minus.vertexCount());
+        assertEquals(2, minus.edgeCount());
+        assertTrue(minus.containsAllEdges(diff.getRemovedEdges()));
+        AbstractPropertyGraph<String, String> ring = GraphAlgebra.symmetricDifference(cfg, next);
+        assertEquals(union.vertexCount(), ring.vertexCount());
+        assertEquals(4, ring.edgeCount());
+        // undirected edges are matched in either orientation
+        UndiGraph<String, String> ab = new UndiGraph<>(), ba = new UndiGraph<>();
+        for (UndiGraph<String, String> graph: Arrays.asList(ab, ba)) {
+            graph.addVertex("A");
+            graph.addVertex("B");
+        }
+        ab.addEdge("A", "B");
+        ba.addEdge("B", "A");
+        assertEquals(1, GraphAlgebra.union(ab, ba).edgeCount());
+        assertEquals(1, GraphAlgebra.intersection(ab, ba).edgeCount());
+        assertEquals(0, GraphAlgebra.difference(ab, ba).edgeCount());
+        assertEquals(0, GraphAlgebra.symmetricDifference(ab, ba).edgeCount());
+        assertTrue(GraphAlgebra.diff(ab, ba).isEmpty());
+        try {
+            GraphAlgebra.union(cfg, new UndiGraph<>());
+            fail("Combining directed and undirected graphs must fail!");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void externalGraphTest() throws IOException {
+        for (boolean directed: new boolean[] {true, false}) {
+            AbstractPropertyGraph<String, String> graph = directed ? new Digraph<>() : new UndiGraph<>();
+            // small runs and a tiny cache, to exercise merging and eviction
+            ExternalGraphBuilder<String, String> builder = new ExternalGraphBuilder<>(
+                    Paths.get("target", directed ? "external_directed" : "external_undirected"),
+                    directed, Codec.ofString(), Codec.ofString(), 100);
+            Random rand = new Random(7);
+            List<Edge<String, String>> added = new ArrayList<>();
+            for (int i = 0; i < 1000; ++i) {
+                String src = "v" + rand.nextInt(200);
+                String trg = i % 50 == 0 ? src : "v" + rand.nextInt(200);
+                String label = i % 3 == 0 ? null : "e" + i;
+                Edge<String, String> edge = new Edge<>(src, label, trg);
+                // some edges are added again (also in later runs), and must be dropped as duplicates
+                if (i % 10 == 9)
+                    edge = added.get(rand.nextInt(added.size()));
+                else if (i % 10 == 8)
+                    edge = new Edge<>(edge.target, edge.label, edge.source);
+                added.add(edge);
+                graph.addVertex(edge.source);
+                graph.addVertex(edge.target);
+                graph.addEdge(edge);
+                builder.addEdge(edge);
+            }
+            builder.addVertex("isolated");
+            graph.addVertex("isolated");
+            try (ExternalGraph<String, String> external = builder.build(2)) {
+                assertEquals(directed, external.isDirected());
+                assertEquals(graph.vertexCount(), external.vertexCount());
+                assertEquals(graph.edgeCount(), external.edgeCount());
+                assertEquals(new HashSet<>(graph.copyVertexSet()), external.copyVertexSet());
+                assertEquals(new HashSet<>(graph.copyEdgeSet()), external.copyEdgeSet());
+                for (String v: graph.copyVertexSet()) {
+                    assertEquals(v, external.getVertex(external.indexOf(v)));
+                    assertEquals(graph.getOutDegree(v), external.getOutDegree(v));
+                    assertEquals(graph.getInDegree(v), external.getInDegree(v));
+                    assertEquals(new HashSet<>(graph.copyOutgoingEdges(v)), external.copyOutgoingEdges(v));
+                    assertEquals(new HashSet<>(graph.copyIncomingEdges(v)), external.copyIncomingEdges(v));
+                }
+                for (Edge<String, String> edge: graph.copyEdgeSet()) {
+                    assertTrue(external.containsEdge(edge));
+                    assertTrue(external.containsEdge(edge.source, edge.target));
+                    assertFalse(external.containsEdge(new Edge<>(edge.source, "none", edge.target)));
+                }
+                assertEquals(-1, external.indexOf("missing"));
+                assertFalse(external.isConnected());
+                try {
+                    external.addVertex("new");
+                    fail("External graphs must be read-only!");
+                } catch (UnsupportedOperationException ex) {
+                    // expected
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void journaledGraphTest() throws IOException {
+        Path dir = Paths.get("target", "journal");
+        if (Files.exists(dir))
+            for (Path file: Files.newDirectoryStream(dir))
+                Files.delete(file);
+        Digraph<String, String> expected = new Digraph<>();
+        Random rand = new Random(11);
+        try (JournaledGraph<String, String> graph = new JournaledGraph<>(dir, true, Codec.ofString(), Codec.ofString())) {
+            graph.setGroupCommitSize(16);
+            for (int i = 0; i < 500; ++i)
+                randomOperation(graph, expected, "v" + rand.nextInt(60), "v" + rand.nextInt(60),
+                                rand.nextBoolean() ? null : "e" + rand.nextInt(3), rand.nextInt(10));
+        }
+        // recovery by replaying the journal; then a torn record at the tail is ignored
+        Files.write(dir.resolve(JournaledGraph.JOURNAL), new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        try (JournaledGraph<String, String> graph = new JournaledGraph<>(dir, true, Codec.ofString(), Codec.ofString())) {
+            assertEquals(new HashSet<>(expected.copyVertexSet()), new HashSet<>(graph.copyVertexSet()));
+            assertEquals(new HashSet<>(expected.copyEdgeSet()), new HashSet<>(graph.copyEdgeSet()));
+            // compaction into snapshots
+            graph.setCompactionThreshold(2048);
+            for (int i = 0; i < 2000; ++i)
+                randomOperation(graph, expected, "v" + rand.nextInt(60), "v" + rand.nextInt(60),
+                                rand.nextBoolean() ? null : "e" + rand.nextInt(3), rand.nextInt(10));
+            assertTrue(graph.getJournalSize() < 4096);
+            assertTrue(Files.exists(dir.resolve(JournaledGraph.SNAPSHOT)));
+        }
+        try (JournaledGraph<String, String> graph = new JournaledGraph<>(dir, true, Codec.ofString(), Codec.ofString())) {
+            assertEquals(expected.vertexCount(), graph.vertexCount());
+            assertEquals(new HashSet<>(expected.copyVertexSet()), new HashSet<>(graph.copyVertexSet()));
+            assertEquals(new HashSet<>(expected.copyEdgeSet()), new HashSet<>(graph.copyEdgeSet()));
+            graph.compact();
+            assertEquals(new HashSet<>(expected.copyEdgeSet()), new HashSet<>(graph.copyEdgeSet()));
+        }
+        try {
+            new JournaledGraph<>(dir, false, Codec.ofString(), Codec.ofString());
+            fail("Opening a directed snapshot as undirected must fail!");
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+    
+    /**
+     * Applies the given operation to both graphs, and asserts that they answer alike.
+     * The operations are adding a vertex (op < 3), adding an edge (op < 7),
+     * removing an edge (op < 8), removing all edges between two vertices (op < 9),
+     * and removing a vertex.
+     */
+    private static <V, E> void randomOperation(Graph<V, E> graph, Graph<V, E> expected,
+                                               V src, V trg, E label, int op) {
+        Edge<V, E> edge = new Edge<>(src, label, trg);
+        if (op < 3) {
+            assertEquals(expected.addVertex(src), graph.addVertex(src));
+        } else if (op < 7) {
+            if (expected.containsVertex(src) && expected.containsVertex(trg))
+                assertEquals(expected.addEdge(edge), graph.addEdge(edge));
+        } else if (op < 8) {
+            assertEquals(expected.containsEdge(edge), graph.containsEdge(edge));
+            assertEquals(expected.removeEdge(edge), graph.removeEdge(edge));
+        } else if (op < 9) {
+            if (expected.containsVertex(src) && expected.containsVertex(trg)) {
+                assertEquals(expected.containsEdge(src, trg), graph.containsEdge(src, trg));
+                assertEquals(new HashSet<>(expected.removeEdges(src, trg)), new HashSet<>(graph.removeEdges(src, trg)));
+            }
+        } else {
+            assertEquals(expected.removeVertex(src), graph.removeVertex(src));
+        }
+    }
+    
+    /**
+     * Asserts that both graphs have the same vertices and edges, per graph and per vertex.
+     */
+    private static <V, E> void assertSameGraph(Graph<V, E> graph, Graph<V, E> expected) {
+        assertEquals(expected.vertexCount(), graph.vertexCount());
+        assertEquals(expected.edgeCount(), graph.edgeCount());
+        assertEquals(new HashSet<>(expected.copyVertexSet()), new HashSet<>(graph.copyVertexSet()));
+        assertEquals(new HashSet<>(expected.copyEdgeSet()), new HashSet<>(graph.copyEdgeSet()));
+        for (V v: expected.copyVertexSet()) {
+            assertEquals(new HashSet<>(expected.copyOutgoingEdges(v)), new HashSet<>(graph.copyOutgoingEdges(v)));
+            assertEquals(new HashSet<>(expected.copyIncomingEdges(v)), new HashSet<>(graph.copyIncomingEdges(v)));
+            assertEquals(expected.getOutDegree(v), graph.getOutDegree(v));
+            assertEquals(expected.getInDegree(v), graph.getInDegree(v));
+        }
+        assertEquals(expected.isConnected(), graph.isConnected());
+        assertTrue(graph.isSubgraphOf(expected));
+        assertTrue(expected.isSubgraphOf(graph));
+    }
+    
+    @Test
+    public void primitiveDigraphTest() {
+        IntDigraph graph = new IntDigraph(true);
+        Graph<Integer, Integer> view = graph.asGraph();
+        Digraph<Integer, Integer> expected = new Digraph<>();
+        Random rand = new Random(5);
+        for (int i = 0; i < 20000; ++i)
+            randomOperation(view, expected, rand.nextInt(100) - 50, rand.nextInt(100) - 50,
+                            rand.nextBoolean() ? null : rand.nextInt(3), rand.nextInt(10));
+        graph.trimToSize();
+        assertSameGraph(view, expected);
+        for (int v: graph.copyVertices()) {
+            int[] targets = graph.copyOutNeighbors(v);
+            int[] labels = graph.copyOutLabels(v);
+            for (int k = 0; k < targets.length; ++k)
+                assertTrue(graph.containsEdge(v, labels[k], targets[k]));
+        }
+        // long ids, without labels
+        LongDigraph big = new LongDigraph();
+        long base = 1L << 40;
+        for (long v = 0; v < 1000; ++v)
+            big.addVertex(base + v);
+        for (long v = 0; v < 1000; ++v)
+            big.addEdge(base + v, base + (v + 1) % 1000);
+        assertFalse(big.addEdge(base, base + 1));
+        assertTrue(big.asGraph().isConnected());
+        // a labeled hub, whose adjacency is indexed beyond the threshold
+        IntDigraph hub = new IntDigraph(true);
+        for (int v = 0; v <= 1000; ++v)
+            hub.addVertex(v);
+        for (int v = 1; v <= 1000; ++v) {
+            assertTrue(hub.addEdge(0, v % 7, v));
+            assertFalse(hub.addEdge(0, v % 7, v));
+        }
+        for (int v = 1; v <= 1000; v += 2)
+            assertTrue(hub.removeEdge(0, v % 7, v));
+        for (int v = 1; v <= 1000; ++v) {
+            assertEquals(v % 2 == 0, hub.containsEdge(0, v % 7, v));
+            assertFalse(hub.containsEdge(0, v % 7 + 1, v));
+        }
+        assertTrue(hub.removeVertex(500));
+        assertFalse(hub.containsEdge(0, 500 % 7, 500));
+        assertEquals(499, hub.getOutDegree(0));
+        assertEquals(499, hub.edgeCount());
+        assertEquals(base + 1, big.copyOutNeighbors(base)[0]);
+        assertEquals(base + 999, big.copyInNeighbors(base)[0]);
+        assertTrue(big.removeVertex(base + 500));
+        assertEquals(998, big.edgeCount());
+        assertEquals(0, big.getInDegree(base + 501));
+        try {
+            big.addEdge(base, 7, base + 1);
+            fail("Unlabeled graphs must not accept labels!");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void columnarGraphTest() {
+        for (boolean directed: new boolean[] {true, false}) {
+            ColumnarGraph<Integer, String> graph = new ColumnarGraph<>(directed);
+            AbstractPropertyGraph<Integer, String> expected = directed ? new Digraph<>() : new UndiGraph<>();
+            Random rand = new Random(7);
+            for (int i = 0; i < 20000; ++i)
+                randomOperation(graph, expected, rand.nextInt(60), rand.nextInt(60),
+                                rand.nextBoolean() ? null : "L" + rand.nextInt(3), rand.nextInt(10));
+            assertSameGraph(graph, expected);
+            assertEquals(new HashSet<>(expected.getEdgesWithLabel("L1")), graph.getEdgesWithLabel("L1"));
+            assertTrue(graph.getEdgesWithLabel("none").isEmpty());
+            ColumnarGraph<Integer, String>.EdgeCursor cursor = graph.cursor();
+            for (Integer v: graph.copyVertexSet()) {
+                // the same cursor is reused for all vertices
+                Set<Edge<Integer, String>> visited = new HashSet<>();
+                cursor.outgoingEdges(v);
+                while (cursor.next()) {
+                    assertEquals(v, cursor.getSource());
+                    visited.add(new Edge<>(cursor.getSource(), cursor.getLabel(), cursor.getTarget()));
+                }
+                assertEquals(visited, graph.copyOutgoingEdges(v));
+            }
+            int count = 0;
+            cursor.allEdges();
+            while (cursor.next()) {
+                assertEquals(graph.getVertex(cursor.getSourceIndex()), cursor.getSource());
+                assertEquals(graph.getLabelDictionary().get(cursor.getLabelId()), cursor.getLabel());
+                assertTrue(graph.containsEdge(cursor.toEdge()));
+                ++count;
+            }
+            assertFalse(cursor.next());
+            assertEquals(graph.edgeCount(), count);
+            assertEquals(new HashSet<>(expected.copyEdgeSet()), new ColumnarGraph<>(expected).copyEdgeSet());
+        }
+    }
 }